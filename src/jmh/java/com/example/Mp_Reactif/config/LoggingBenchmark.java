@@ -0,0 +1,115 @@
+package com.example.Mp_Reactif.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.JsonEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de requêtes simulées (travail fixe + journalisation d'une requête) selon le mode de
+ * journalisation, fils en concurrence comme les boucles Netty :
+ * <ul>
+ * <li>off : lignes désactivées par niveau ;</li>
+ * <li>println : ancien System.out.println concaténé (verrou global du PrintStream) ;</li>
+ * <li>sync : encodage JSON et écriture sur le fil appelant ;</li>
+ * <li>async : dépôt dans le tampon de l'AsyncAppender (neverBlock, comme logback-spring.xml) ;</li>
+ * <li>async-sampled : idem, ligne par requête échantillonnée à 1 % par SampledLogFilter.</li>
+ * </ul>
+ * Les écritures partent vers un flux nul : seul le coût côté appelant est mesuré.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+	private static final int REQUEST_WORK = 500;
+
+	@Param({ "off", "println", "sync", "async", "async-sampled" })
+	public String mode;
+
+	private LoggerContext context;
+	private Logger logger;
+	private PrintStream console;
+	private final String placeName = "carrefour warda";
+
+	@Setup
+	public void setUp() {
+		context = new LoggerContext();
+		console = new PrintStream(OutputStream.nullOutputStream(), true);
+
+		JsonEncoder encoder = new JsonEncoder();
+		encoder.setContext(context);
+		encoder.start();
+		OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+		output.setContext(context);
+		output.setEncoder(encoder);
+		output.setOutputStream(OutputStream.nullOutputStream());
+		output.start();
+
+		Appender<ILoggingEvent> appender = output;
+		if (mode.startsWith("async")) {
+			AsyncAppender async = new AsyncAppender();
+			async.setContext(context);
+			async.setQueueSize(8192);
+			async.setDiscardingThreshold(0);
+			async.setNeverBlock(true);
+			async.addAppender(output);
+			async.start();
+			appender = async;
+		}
+		if (mode.equals("async-sampled")) {
+			SampledLogFilter filter = new SampledLogFilter();
+			filter.setRate(0.01);
+			filter.start();
+			context.addTurboFilter(filter);
+		}
+
+		logger = context.getLogger("com.example.Mp_Reactif.service.PlaceService");
+		logger.setAdditive(false);
+		logger.addAppender(appender);
+		logger.setLevel(mode.equals("off") || mode.equals("println") ? Level.WARN : Level.INFO);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.stop();
+	}
+
+	@Benchmark
+	public void request(Blackhole blackhole) {
+		Blackhole.consumeCPU(REQUEST_WORK);
+		if (mode.equals("println")) {
+			console.println("🔍 Recherche lieux: " + placeName);
+		} else {
+			logger.info(SampledLogFilter.SAMPLED, "🔍 Recherche lieux: {}", placeName);
+		}
+		logger.debug("✅ CACHE HIT - Lieux depuis Redis Cloud: {}", placeName);
+		blackhole.consume(placeName);
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.Mp_Reactif.event;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodage des événements Kafka : JSON historique (JsonSerializer + en-têtes de type)
+ * comparé à l'encodage Avro binaire, en écriture et en aller-retour.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSerializationBenchmark {
+
+	private static final String TOPIC = "route-events";
+
+	private final RouteCalculatedEvent routeEvent = new RouteCalculatedEvent("marche central", "poste centrale",
+			4.82, 0.19, "driving", 3.8667, 11.5167, 3.8480, 11.5021);
+	private final PlaceSearchedEvent placeEvent = new PlaceSearchedEvent("carrefour warda", 7);
+
+	private AvroEventCodec avro;
+	private JsonSerializer<Object> jsonSerializer;
+	private JsonDeserializer<Object> jsonDeserializer;
+
+	@Setup
+	public void setUp() {
+		avro = new AvroEventCodec(EventSchemaRegistry.fromClasspath());
+		jsonSerializer = new JsonSerializer<>();
+		jsonDeserializer = new JsonDeserializer<>();
+		jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "*"), false);
+	}
+
+	@Benchmark
+	public byte[] jsonEncodeRoute() {
+		return jsonSerializer.serialize(TOPIC, new RecordHeaders(), routeEvent);
+	}
+
+	@Benchmark
+	public byte[] avroEncodeRoute() {
+		return avro.encode(routeEvent);
+	}
+
+	@Benchmark
+	public Object jsonRoundTripRoute() {
+		RecordHeaders headers = new RecordHeaders();
+		return jsonDeserializer.deserialize(TOPIC, headers, jsonSerializer.serialize(TOPIC, headers, routeEvent));
+	}
+
+	@Benchmark
+	public Object avroRoundTripRoute() {
+		return avro.decode(avro.encode(routeEvent));
+	}
+
+	@Benchmark
+	public Object jsonRoundTripPlace() {
+		RecordHeaders headers = new RecordHeaders();
+		return jsonDeserializer.deserialize(TOPIC, headers, jsonSerializer.serialize(TOPIC, headers, placeEvent));
+	}
+
+	@Benchmark
+	public Object avroRoundTripPlace() {
+		return avro.decode(avro.encode(placeEvent));
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.LineGeometry;
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.RouteStep;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Chargement des jeux de données figés (src/jmh/resources/fixtures) partagés par les benchmarks.
+ */
+final class BenchmarkFixtures {
+
+	static final RoutingContext YAOUNDE_CONTEXT = RoutingContext.of(
+			List.of(new Point(3.8480, 11.5021), new Point(3.8667, 11.5167)),
+			"driving", "Marché Central", "Poste Centrale");
+
+	// Grille synthétique autour de Yaoundé pour les benchmarks du graphe en mémoire
+	static final double GRID_STEP_DEGREES = 0.0009;
+	static final double GRID_ORIGIN_LAT = 3.80;
+	static final double GRID_ORIGIN_LNG = 11.45;
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Grille de side x side nœuds au pas de ~100 m, tronçons à double sens numérotés à partir de 1
+	 * (ligne par ligne, horizontal puis vertical), longueur entre 1 et 1,3 fois la distance à vol
+	 * d'oiseau comme une chaussée réelle : les heuristiques restent admissibles.
+	 */
+	static RoadGraph roadGrid(int side, SplittableRandom random) {
+		RoadGraph.Builder builder = new RoadGraph.Builder();
+		long edge = 0;
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				if (col + 1 < side) {
+					addGridEdge(builder, random, ++edge, side, row, col, row, col + 1);
+				}
+				if (row + 1 < side) {
+					addGridEdge(builder, random, ++edge, side, row, col, row + 1, col);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private static void addGridEdge(RoadGraph.Builder builder, SplittableRandom random, long edge, int side,
+			int row, int col, int toRow, int toCol) {
+		double length = 100 * (1 + random.nextDouble(0.3));
+		builder.add(edge, (long) row * side + col, (long) toRow * side + toCol, length, length,
+				GRID_ORIGIN_LAT + row * GRID_STEP_DEGREES, GRID_ORIGIN_LNG + col * GRID_STEP_DEGREES,
+				GRID_ORIGIN_LAT + toRow * GRID_STEP_DEGREES, GRID_ORIGIN_LNG + toCol * GRID_STEP_DEGREES);
+	}
+
+	static String read(String name) {
+		return readClasspath("/fixtures/" + name);
+	}
+
+	// Ressource du classpath (fixtures ou ressources de l'application, ex. /profiles/speed-profiles.txt)
+	static String readClasspath(String path) {
+		try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(path)) {
+			if (in == null) {
+				throw new IllegalStateException("Fixture introuvable: " + path);
+			}
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Lignes renvoyées par la requête pgr_KSP, telles que lues par executePgRoutingQuery
+	static List<PgRoutingRow> pgRoutingRows() {
+		try {
+			JsonNode rows = new ObjectMapper().readTree(read("pgrouting-ksp-rows.json"));
+			List<PgRoutingRow> result = new ArrayList<>(rows.size());
+			for (JsonNode row : rows) {
+				result.add(new PgRoutingRow(row.get("path_id").asInt(), row.get("geometry").asText(),
+						row.get("source").asText(), row.get("target").asText(), row.get("distance").asDouble()));
+			}
+			return result;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	record PgRoutingRow(int pathId, String geometry, String source, String target, double distance) {
+
+		RouteService.RouteStepWrapper toWrapper(double speed) {
+			RouteStep step = new RouteStep(LineGeometry.parseWkt(geometry), source, target, distance, distance / speed);
+			return new RouteService.RouteStepWrapper(pathId, step);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Point;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.mockito.Answers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Construction des clés de cache (cellules de la grille pour les itinéraires, nom normalisé
+ * pour les lieux) et normalisation des noms saisis, exécutées à chaque requête.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+	private final Point start = new Point(3.848033, 11.502131);
+	private final Point end = new Point(4.051056, 9.767869);
+	private final String rawName = "  Carrefour   Warda, Yaoundé  ";
+	private AdaptiveRedisCacheService cacheService;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		// Template factice : le test de connexion du constructeur ne part pas sur le réseau
+		ReactiveRedisTemplate<String, Object> template = mock(ReactiveRedisTemplate.class, Answers.RETURNS_DEEP_STUBS);
+		cacheService = new AdaptiveRedisCacheService(template, Duration.ofHours(1), 1.0, 30,
+				new SimpleMeterRegistry(), Tracer.NOOP);
+	}
+
+	@Benchmark
+	public String generateRouteKey() {
+		return cacheService.generateRouteKey(start, end, "driving");
+	}
+
+	@Benchmark
+	public String generatePlacesKey() {
+		return cacheService.generatePlacesKey("carrefour warda yaounde");
+	}
+
+	@Benchmark
+	public String normalizeName() {
+		return PlaceService.normalizeName(rawName);
+	}
+
+	@Benchmark
+	public String normalizeAndGeneratePlacesKey() {
+		return cacheService.generatePlacesKey(PlaceService.normalizeName(rawName));
+	}
+}
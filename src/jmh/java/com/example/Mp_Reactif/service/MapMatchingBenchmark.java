@@ -0,0 +1,117 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.model.MatchedPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit du map matching en points par seconde sur un seul fil (= par cœur) : traces de 100 pings
+ * bruités (écart-type 8 m) le long de trajets aléatoires sur une grille de 200 x 200 nœuds,
+ * espacés de 40 m (un ping toutes les ~5 s à 30 km/h) ou de 150 m (remontée clairsemée). La part
+ * de points recalés sur le bon tronçon est affichée au setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapMatchingBenchmark {
+
+	private static final int SIDE = 200;
+	private static final int TRACES = 64;
+	private static final int PINGS = 100;
+	private static final double NOISE_METERS = 8;
+	private static final double METERS_PER_DEGREE = Math.toRadians(1) * EdgeSpatialIndex.EARTH_RADIUS_METERS;
+
+	@Param({"40", "150"})
+	public double spacingMeters;
+
+	private MapMatcher matcher;
+	private List<List<GpsPing>> traces;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(7);
+		RoadGraph graph = BenchmarkFixtures.roadGrid(SIDE, random);
+		EdgeSpatialIndex index = new EdgeSpatialIndex(graph, 0.002);
+		matcher = new MapMatcher(index, 10, 25, 60, 8, 30);
+
+		traces = new ArrayList<>(TRACES);
+		List<long[]> truths = new ArrayList<>(TRACES);
+		while (traces.size() < TRACES) {
+			List<GpsPing> trace = new ArrayList<>(PINGS);
+			long[] truth = new long[PINGS];
+			walk(graph, random, trace, truth);
+			traces.add(trace);
+			truths.add(truth);
+		}
+
+		int correct = 0;
+		int matched = 0;
+		for (int t = 0; t < TRACES; t++) {
+			for (MatchedPoint point : matcher.match(traces.get(t))) {
+				matched++;
+				if (point.edgeId() == truths.get(t)[point.index()]) {
+					correct++;
+				}
+			}
+		}
+		System.out.printf("%n[%.0f m] index %d cellules / %d Ko, %d/%d pings recalés, %.1f %% sur le bon tronçon%n",
+				spacingMeters, index.cellCount(), index.footprintBytes() / 1024, matched, TRACES * PINGS,
+				100.0 * correct / Math.max(1, matched));
+	}
+
+	// Trajet aléatoire sans demi-tour ; un ping bruité tous les spacingMeters le long des cordes
+	private void walk(RoadGraph graph, SplittableRandom random, List<GpsPing> trace, long[] truth) {
+		int node = random.nextInt(graph.nodeCount());
+		int previous = -1;
+		double untilNext = 0;
+		long timestamp = 1_700_000_000_000L;
+		while (trace.size() < PINGS) {
+			int arc = -1;
+			for (int attempt = 0; attempt < 8 && (arc < 0 || graph.arcHead(arc) == previous); attempt++) {
+				arc = graph.firstArc(node) + random.nextInt(graph.endArc(node) - graph.firstArc(node));
+			}
+			int head = graph.arcHead(arc);
+			double length = graph.arcLength(arc);
+			double position = untilNext;
+			for (; position < length && trace.size() < PINGS; position += spacingMeters) {
+				double t = position / length;
+				double lat = graph.lat(node) + t * (graph.lat(head) - graph.lat(node))
+						+ random.nextGaussian() * NOISE_METERS / METERS_PER_DEGREE;
+				double lng = graph.lng(node) + t * (graph.lng(head) - graph.lng(node))
+						+ random.nextGaussian() * NOISE_METERS / METERS_PER_DEGREE;
+				truth[trace.size()] = graph.edgeId(graph.arcEdge(arc));
+				timestamp += (long) (spacingMeters / 30 * 3600);
+				trace.add(new GpsPing(lat, lng, timestamp));
+			}
+			untilNext = position - length;
+			previous = node;
+			node = head;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PINGS)
+	public List<MatchedPoint> matchTrace() {
+		return matcher.match(traces.get(next++ & (TRACES - 1)));
+	}
+}
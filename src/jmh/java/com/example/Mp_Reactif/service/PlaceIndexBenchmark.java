@@ -0,0 +1,102 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.ReverseGeocodeQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Géocodage inverse en points par seconde : recherche seule dans le kd-tree (un fil = un cœur)
+ * et flux complet de PlaceIndexService (index, lots, flatMapSequential sur Schedulers.parallel(),
+ * tous les cœurs). Lieux et points groupés autour de 20 villes de l'emprise, un quart uniformes.
+ * L'accord avec une recherche exhaustive est vérifié par PlaceIndexTests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceIndexBenchmark {
+
+	private static final int QUERIES = 1 << 16;
+	private static final int STREAM_POINTS = 100_000;
+	private static final int CITIES = 20;
+
+	@Param({"50000", "500000"})
+	public int places;
+
+	private PlaceIndex index;
+	private PlaceIndexService service;
+	private double[] lats;
+	private double[] lngs;
+	private List<ReverseGeocodeQuery> stream;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(11);
+		double[][] cities = new double[CITIES][];
+		for (int c = 0; c < CITIES; c++) {
+			cities[c] = new double[] {2.0 + random.nextDouble() * 10.5, 9.0 + random.nextDouble() * 6.5};
+		}
+		PlaceIndex.Builder builder = new PlaceIndex.Builder();
+		for (int i = 0; i < places; i++) {
+			double[] point = samplePoint(random, cities);
+			builder.add(i + 1, "lieu " + i, point[0], point[1]);
+		}
+		index = builder.build();
+		service = new PlaceIndexService(null, false, Duration.ofMinutes(15), 512, 0);
+
+		lats = new double[QUERIES];
+		lngs = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			double[] point = samplePoint(random, cities);
+			lats[i] = point[0];
+			lngs[i] = point[1];
+		}
+		stream = new ArrayList<>(STREAM_POINTS);
+		for (int i = 0; i < STREAM_POINTS; i++) {
+			stream.add(new ReverseGeocodeQuery(null, lats[i & (QUERIES - 1)], lngs[i & (QUERIES - 1)]));
+		}
+
+		System.out.printf("%n[%d lieux] index %d Ko%n", places, index.footprintBytes() / 1024);
+	}
+
+	// Trois points sur quatre à quelques kilomètres d'une ville, le reste n'importe où dans l'emprise
+	private static double[] samplePoint(SplittableRandom random, double[][] cities) {
+		if (random.nextInt(4) == 0) {
+			return new double[] {1.65 + random.nextDouble() * 11.43, 8.4 + random.nextDouble() * 7.8};
+		}
+		double[] city = cities[random.nextInt(cities.length)];
+		return new double[] {city[0] + random.nextGaussian() * 0.05, city[1] + random.nextGaussian() * 0.05};
+	}
+
+	@Benchmark
+	public int nearest() {
+		int i = next++ & (QUERIES - 1);
+		return index.nearest(lats[i], lngs[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STREAM_POINTS)
+	public long stream() {
+		return service.reverseGeocode(index, Flux.fromIterable(stream)).count().block();
+	}
+}
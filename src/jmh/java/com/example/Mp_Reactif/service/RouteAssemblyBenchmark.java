@@ -0,0 +1,60 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.LineGeometry;
+import com.example.Mp_Reactif.model.RouteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assemblage des itinéraires pgRouting : lecture WKT des arêtes telle que faite ligne par
+ * ligne, puis regroupement par path_id et fusion des géométries (buildRouteResponseFromSteps).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteAssemblyBenchmark {
+
+	private static final double DRIVING_SPEED = 40000.0 / 3600.0;
+
+	private RouteService routeService;
+	private List<BenchmarkFixtures.PgRoutingRow> rows;
+	private List<RouteService.RouteStepWrapper> steps;
+
+	@Setup
+	public void setUp() {
+		routeService = new RouteService();
+		rows = BenchmarkFixtures.pgRoutingRows();
+		steps = new ArrayList<>(rows.size());
+		for (BenchmarkFixtures.PgRoutingRow row : rows) {
+			steps.add(row.toWrapper(DRIVING_SPEED));
+		}
+	}
+
+	@Benchmark
+	public void parseEdgeWkt(Blackhole blackhole) {
+		for (BenchmarkFixtures.PgRoutingRow row : rows) {
+			blackhole.consume(LineGeometry.parseWkt(row.geometry()));
+		}
+	}
+
+	@Benchmark
+	public RouteResponse buildRouteResponseFromSteps() {
+		return routeService.buildRouteResponseFromSteps(steps, BenchmarkFixtures.YAOUNDE_CONTEXT);
+	}
+}
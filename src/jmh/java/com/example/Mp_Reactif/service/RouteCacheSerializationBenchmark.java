@@ -0,0 +1,66 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Route;
+import com.example.Mp_Reactif.model.RouteResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation d'un RouteResponse tel que stocké dans Redis (enveloppe CachedEntry,
+ * typage Jackson par défaut, géométries compactes) et tel qu'écrit dans la réponse HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteCacheSerializationBenchmark {
+
+	@Param({ "osrm-yaounde-urbain.json", "osrm-yaounde-douala.json" })
+	public String fixture;
+
+	private final GenericJackson2JsonRedisSerializer redisSerializer = new GenericJackson2JsonRedisSerializer();
+	private final ObjectMapper httpMapper = new ObjectMapper();
+	private CachedEntry entry;
+	private byte[] redisBytes;
+
+	@Setup
+	public void setUp() {
+		List<Route> routes = new RouteService()
+				.parseOSRMResponse(BenchmarkFixtures.read(fixture), BenchmarkFixtures.YAOUNDE_CONTEXT)
+				.block();
+		entry = new CachedEntry(RouteResponse.of(routes), System.currentTimeMillis() + 3_600_000, 120);
+		redisBytes = redisSerializer.serialize(entry);
+	}
+
+	@Benchmark
+	public byte[] redisSerialize() {
+		return redisSerializer.serialize(entry);
+	}
+
+	@Benchmark
+	public Object redisDeserialize() {
+		return redisSerializer.deserialize(redisBytes);
+	}
+
+	@Benchmark
+	public byte[] httpSerialize() throws JsonProcessingException {
+		return httpMapper.writeValueAsBytes(entry.getValue());
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyse d'une réponse OSRM v5 (3 alternatives, étapes et géométries GeoJSON) jusqu'aux
+ * records Route : trajet urbain court et trajet interurbain long.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteParsingBenchmark {
+
+	@Param({ "osrm-yaounde-urbain.json", "osrm-yaounde-douala.json" })
+	public String fixture;
+
+	private RouteService routeService;
+	private String json;
+
+	@Setup
+	public void setUp() {
+		routeService = new RouteService();
+		json = BenchmarkFixtures.read(fixture);
+	}
+
+	@Benchmark
+	public List<Route> parseOSRMResponse() {
+		return routeService.parseOSRMResponse(json, BenchmarkFixtures.YAOUNDE_CONTEXT).block();
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.Mp_Reactif.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A* en mémoire sur une grille de 300 x 300 nœuds (BenchmarkFixtures.roadGrid, ~180 000 tronçons
+ * à double sens) : vitesse constante (équivalent des 25 km/h de pgRouting) contre profils
+ * horaires, un tronçon sur trois affecté à un profil explicite ; sans fermeture ou avec 2 % des
+ * tronçons fermés (bitset consulté à chaque arc relâché). Les empreintes mémoire (graphe,
+ * profils, profil par tronçon, bitset) sont affichées au setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeDependentRoutingBenchmark {
+
+	private static final int SIDE = 300;
+	private static final int QUERIES = 256;
+
+	@Param({"static", "profiles"})
+	public String speeds;
+
+	@Param({"0", "2"})
+	public int closedPercent;
+
+	private TimeDependentRouter router;
+	private BlockedEdges blocked;
+	private int[] sources;
+	private int[] targets;
+	private double[] departures;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		RoadGraph graph = BenchmarkFixtures.roadGrid(SIDE, random);
+		StringBuilder assignments = new StringBuilder();
+		for (int edge = 0; edge < graph.edgeCount(); edge++) {
+			int kind = random.nextInt(6);
+			if (kind == 0) {
+				assignments.append("edge ").append(graph.edgeId(edge)).append(" arteriel\n");
+			} else if (kind == 1) {
+				assignments.append("edge ").append(graph.edgeId(edge)).append(" interurbain\n");
+			}
+		}
+		SpeedProfiles profiles = speeds.equals("static")
+				? SpeedProfiles.parse("profile constant all-00:00=25")
+				: SpeedProfiles.parse(BenchmarkFixtures.readClasspath("/profiles/speed-profiles.txt") + "\n"
+						+ assignments);
+		router = new TimeDependentRouter(graph, profiles);
+		BitSet closed = new BitSet(graph.edgeCount());
+		for (int edge = 0; edge < graph.edgeCount(); edge++) {
+			if (random.nextInt(100) < closedPercent) {
+				closed.set(edge);
+			}
+		}
+		blocked = new BlockedEdges(closed, null);
+
+		sources = new int[QUERIES];
+		targets = new int[QUERIES];
+		departures = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			sources[i] = random.nextInt(graph.nodeCount());
+			targets[i] = random.nextInt(graph.nodeCount());
+			departures[i] = random.nextInt(SpeedProfiles.MINUTES_PER_WEEK);
+		}
+		System.out.printf("%n[%s, %d %%] graphe %d nœuds / %d arcs : %d Ko, profils %d Ko, profil par tronçon %d Ko, "
+				+ "bitset %d Ko%n", speeds, closedPercent, graph.nodeCount(), graph.arcCount(),
+				graph.footprintBytes() / 1024, profiles.footprintBytes() / 1024, router.footprintBytes() / 1024,
+				closed.size() / 8 / 1024);
+	}
+
+	@Benchmark
+	public TimeDependentRouter.Path route() {
+		int i = next++ & (QUERIES - 1);
+		return router.route(sources[i], targets[i], departures[i], blocked);
+	}
+}
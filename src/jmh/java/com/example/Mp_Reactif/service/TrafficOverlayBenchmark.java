@@ -0,0 +1,79 @@
+package com.example.Mp_Reactif.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Superposition de trafic sous charge mixte, comme en production : des fils d'ingestion
+ * (observations sur 50 000 tronçons), des lectures de facteurs pendant l'assemblage des
+ * itinéraires, et la republication continue de l'instantané. Les lectures ne doivent pas
+ * ralentir quand l'ingestion et la publication tournent.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrafficOverlayBenchmark {
+
+	private static final int EDGES = 50_000;
+	private static final int ROUTE_EDGES = 200;
+
+	private TrafficOverlay overlay;
+
+	@Setup
+	public void setUp() {
+		// Aucun itinéraire indexé : ni Redis ni corps en cache ne sont sollicités
+		overlay = new TrafficOverlay(null, null, 40, 0.3, 0.05, 0.2, Duration.ofMinutes(15), Duration.ofSeconds(2),
+				2000, 50_000, Duration.ofHours(73));
+		long now = System.currentTimeMillis();
+		for (long edge = 1; edge <= EDGES; edge++) {
+			overlay.record(edge, ThreadLocalRandom.current().nextDouble(5, 60), now);
+		}
+		overlay.publish(now);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public boolean ingest() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return overlay.record(random.nextLong(1, EDGES + 1), random.nextDouble(5, 60), System.currentTimeMillis());
+	}
+
+	// Durées d'un itinéraire de 200 tronçons, lues sur un seul instantané
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public double routeLookup() {
+		TrafficOverlay.Snapshot snapshot = overlay.current();
+		long first = ThreadLocalRandom.current().nextLong(1, EDGES - ROUTE_EDGES);
+		double duration = 0;
+		for (long edge = first; edge < first + ROUTE_EDGES; edge++) {
+			duration += 100 / (25 * snapshot.factor(edge));
+		}
+		return duration;
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public TrafficOverlay.Snapshot publish() {
+		return overlay.publish(System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.Mp_Reactif.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latences d'un scénario, mesurées depuis l'instant d'émission PRÉVU de la requête (et non
+ * depuis son envoi effectif) : l'attente derrière la limite de requêtes en vol est comptée,
+ * ce qui évite l'omission coordonnée d'un générateur en boucle fermée.
+ */
+final class LatencyRecorder {
+
+	private final String scenario;
+	private long[] samples = new long[4096];
+	private int count;
+	private final AtomicLong errors = new AtomicLong(0);
+	private final Map<String, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+	LatencyRecorder(String scenario) {
+		this.scenario = scenario;
+	}
+
+	synchronized void record(long latencyNanos) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = latencyNanos;
+	}
+
+	void recordStatus(String status, boolean error) {
+		statuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+		if (error) {
+			errors.incrementAndGet();
+		}
+	}
+
+	Map<String, Object> summary(double measuredSeconds) {
+		long[] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(samples, count);
+		}
+		Arrays.sort(sorted);
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("scenario", scenario);
+		summary.put("requests", sorted.length);
+		summary.put("errors", errors.get());
+		summary.put("throughput_rps", round(sorted.length / measuredSeconds));
+		summary.put("mean_ms", round(mean(sorted) / 1e6));
+		summary.put("p50_ms", percentileMillis(sorted, 0.50));
+		summary.put("p90_ms", percentileMillis(sorted, 0.90));
+		summary.put("p99_ms", percentileMillis(sorted, 0.99));
+		summary.put("p999_ms", percentileMillis(sorted, 0.999));
+		summary.put("max_ms", sorted.length == 0 ? 0.0 : round(sorted[sorted.length - 1] / 1e6));
+		Map<String, Long> byStatus = new LinkedHashMap<>();
+		statuses.forEach((status, counter) -> byStatus.put(status, counter.get()));
+		summary.put("statuses", byStatus);
+		return summary;
+	}
+
+	static LatencyRecorder merge(String scenario, Iterable<LatencyRecorder> recorders) {
+		LatencyRecorder merged = new LatencyRecorder(scenario);
+		for (LatencyRecorder recorder : recorders) {
+			synchronized (recorder) {
+				for (int i = 0; i < recorder.count; i++) {
+					merged.record(recorder.samples[i]);
+				}
+			}
+			merged.errors.addAndGet(recorder.errors.get());
+			recorder.statuses.forEach((status, counter) -> merged.statuses
+					.computeIfAbsent(status, key -> new AtomicLong()).addAndGet(counter.get()));
+		}
+		return merged;
+	}
+
+	private static double percentileMillis(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return 0.0;
+		}
+		int rank = (int) Math.ceil(sorted.length * quantile) - 1;
+		return round(sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6);
+	}
+
+	private static double mean(long[] values) {
+		if (values.length == 0) {
+			return 0.0;
+		}
+		double sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return sum / values.length;
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 100) / 100.0;
+	}
+}
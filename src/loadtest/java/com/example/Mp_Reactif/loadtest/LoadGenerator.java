@@ -0,0 +1,150 @@
+package com.example.Mp_Reactif.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Générateur en boucle ouverte : les requêtes sont émises au débit cible quelle que soit la
+ * vitesse de réponse du serveur (comme des utilisateurs indépendants). Au-delà de maxInFlight
+ * requêtes en vol, les suivantes attendent leur tour et cette attente compte dans leur latence.
+ */
+final class LoadGenerator {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+	private static final Duration TICK = Duration.ofMillis(5);
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final WebClient webClient;
+	private final LoadTestOptions options;
+	private final TrafficMix mix;
+	private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+	private final ConnectionProvider connectionProvider;
+
+	LoadGenerator(String baseUrl, LoadTestOptions options) {
+		this.options = options;
+		this.mix = new TrafficMix(options.mix(), options.hotRatio(), options.seed());
+		this.connectionProvider = ConnectionProvider.builder("loadtest")
+				.maxConnections(options.maxInFlight())
+				.pendingAcquireMaxCount(-1)
+				.build();
+		this.webClient = WebClient.builder()
+				.baseUrl(baseUrl)
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+				.build();
+		for (String scenario : options.mix().keySet()) {
+			recorders.put(scenario, new LatencyRecorder(scenario));
+		}
+	}
+
+	Map<String, Object> run() {
+		long startNanos = System.nanoTime();
+		long warmupEndNanos = startNanos + options.warmup().toNanos();
+		long endNanos = warmupEndNanos + options.duration().toNanos();
+		double nanosPerRequest = 1e9 / options.rps();
+		long[] emitted = { 0 };
+
+		logger.info("🚀 Charge: {} req/s pendant {} (+ {} de chauffe), {} requêtes en vol au plus",
+				options.rps(), options.duration(), options.warmup(), options.maxInFlight());
+
+		Scheduler pacer = Schedulers.newSingle("loadtest-pacer");
+		try {
+			// Les ticks ignorés sous contre-pression ne perdent rien : le nombre de requêtes dues
+			// est recalculé depuis l'horloge, avec leur instant d'émission prévu
+			Flux.interval(TICK, pacer)
+					.onBackpressureDrop()
+					.takeUntil(tick -> System.nanoTime() >= endNanos)
+					.concatMapIterable(tick -> {
+						long now = Math.min(System.nanoTime(), endNanos);
+						long due = (long) ((now - startNanos) / nanosPerRequest);
+						List<Scheduled> batch = new ArrayList<>((int) Math.max(0, due - emitted[0]));
+						for (long i = emitted[0]; i < due; i++) {
+							batch.add(new Scheduled(mix.next(), startNanos + (long) (i * nanosPerRequest)));
+						}
+						emitted[0] = Math.max(emitted[0], due);
+						return batch;
+					})
+					.flatMap(scheduled -> execute(scheduled, warmupEndNanos), options.maxInFlight())
+					.blockLast();
+		} finally {
+			pacer.dispose();
+		}
+
+		double measuredSeconds = (System.nanoTime() - warmupEndNanos) / 1e9;
+		Map<String, Object> results = new LinkedHashMap<>();
+		List<Map<String, Object>> scenarios = new ArrayList<>();
+		for (LatencyRecorder recorder : recorders.values()) {
+			scenarios.add(recorder.summary(measuredSeconds));
+		}
+		results.put("scenarios", scenarios);
+		results.put("total", LatencyRecorder.merge("total", recorders.values()).summary(measuredSeconds));
+		results.put("server_stats", serverStats());
+		return results;
+	}
+
+	void close() {
+		connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+	}
+
+	private Mono<Void> execute(Scheduled scheduled, long warmupEndNanos) {
+		TrafficMix.LoadRequest request = scheduled.request();
+		WebClient.RequestBodySpec spec = request.uriVariable() == null
+				? webClient.method(HttpMethod.valueOf(request.method())).uri(request.uriTemplate())
+				: webClient.method(HttpMethod.valueOf(request.method())).uri(request.uriTemplate(), request.uriVariable());
+		WebClient.RequestHeadersSpec<?> ready = request.body() == null ? spec : spec.bodyValue(request.body());
+
+		// Le corps est lu en entier (transfert compris dans la latence) puis libéré au fil de l'eau
+		return ready.exchangeToMono(response -> response.bodyToFlux(DataBuffer.class)
+						.doOnNext(DataBufferUtils::release)
+						.then(Mono.just(response.statusCode().value())))
+				.timeout(REQUEST_TIMEOUT)
+				.map(String::valueOf)
+				.onErrorResume(error -> Mono.just(error instanceof TimeoutException
+						? "timeout"
+						: error.getClass().getSimpleName()))
+				.doOnNext(status -> {
+					if (scheduled.nanos() < warmupEndNanos) {
+						return;
+					}
+					LatencyRecorder recorder = recorders.get(request.scenario());
+					recorder.record(System.nanoTime() - scheduled.nanos());
+					recorder.recordStatus(status, !(status.startsWith("2") && status.length() == 3));
+				})
+				.then();
+	}
+
+	// Compteurs exposés par l'application (cache, publication d'événements, Nominatim)
+	private Map<String, Object> serverStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		for (String path : List.of("/api/redis-cloud/stats", "/api/events/stats", "/api/places/nominatim/stats",
+				"/api/analytics/prewarm")) {
+			stats.put(path, webClient.get().uri(path)
+					.retrieve()
+					.bodyToMono(Object.class)
+					.timeout(Duration.ofSeconds(5))
+					.onErrorResume(error -> Mono.just("indisponible: " + error.getMessage()))
+					.block());
+		}
+		return stats;
+	}
+
+	private record Scheduled(TrafficMix.LoadRequest request, long nanos) {
+	}
+}
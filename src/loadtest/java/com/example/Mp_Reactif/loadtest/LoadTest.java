@@ -0,0 +1,73 @@
+package com.example.Mp_Reactif.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Campagne de charge de bout en bout : démarre l'environnement isolé, applique le mélange de
+ * trafic au débit demandé puis affiche débit et percentiles de latence par scénario ; le
+ * rapport complet (options, environnement, compteurs serveur) est écrit en JSON.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dloadtest.rps=300 -Dloadtest.duration=2m
+ * mvn -Ploadtest test-compile exec:java -Dloadtest.target-url=http://localhost:8080
+ * </pre>
+ */
+public final class LoadTest {
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		LoadTestOptions options = LoadTestOptions.fromSystemProperties();
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("options", options);
+		try (LoadTestEnvironment environment = LoadTestEnvironment.start(options)) {
+			LoadGenerator generator = new LoadGenerator(environment.baseUrl(), options);
+			try {
+				report.put("results", generator.run());
+			} finally {
+				generator.close();
+			}
+			report.put("environment", environment.describe());
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> results = (Map<String, Object>) report.get("results");
+		printSummary(options, results);
+
+		Path path = Path.of(options.reportPath());
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		new ObjectMapper()
+				.findAndRegisterModules()
+				.disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+				.writerWithDefaultPrettyPrinter()
+				.writeValue(path.toFile(), report);
+		System.out.println("📄 Rapport: " + path.toAbsolutePath());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void printSummary(LoadTestOptions options, Map<String, Object> results) {
+		System.out.printf("%n📊 %d req/s visés pendant %s, mélange %s%n", options.rps(), options.duration(), options.mix());
+		System.out.printf("%-8s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+				"scénario", "requêtes", "erreurs", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		List<Map<String, Object>> rows = new ArrayList<>((List<Map<String, Object>>) results.get("scenarios"));
+		rows.add((Map<String, Object>) results.get("total"));
+		for (Map<String, Object> row : rows) {
+			System.out.printf("%-8s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+					row.get("scenario"), row.get("requests"), row.get("errors"), row.get("throughput_rps"),
+					row.get("p50_ms"), row.get("p90_ms"), row.get("p99_ms"), row.get("p999_ms"), row.get("max_ms"));
+		}
+	}
+}
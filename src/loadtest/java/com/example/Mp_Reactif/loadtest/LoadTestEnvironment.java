@@ -0,0 +1,138 @@
+package com.example.Mp_Reactif.loadtest;
+
+import com.example.Mp_Reactif.MpReactifApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.kafka.KafkaContainer;
+import org.testcontainers.lifecycle.Startables;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Environnement isolé d'une campagne de charge. Selon loadtest.infrastructure :
+ * <ul>
+ * <li>containers (défaut) : PostGIS/pgRouting avec un réseau synthétique, Redis et Kafka
+ * dans des conteneurs, doublures OSRM/Nominatim, application démarrée dans la JVM ;</li>
+ * <li>none : doublures et application seulement, la base, Redis et Kafka restant ceux de la
+ * configuration courante (variables SPRING_*).</li>
+ * </ul>
+ * Avec loadtest.target-url, rien n'est démarré : la charge vise une instance existante.
+ */
+final class LoadTestEnvironment implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoadTestEnvironment.class);
+
+	private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+	private final Map<String, Object> description = new LinkedHashMap<>();
+	private ReplayServer replayServer;
+	private String baseUrl;
+
+	private LoadTestEnvironment() {
+	}
+
+	static LoadTestEnvironment start(LoadTestOptions options) {
+		LoadTestEnvironment environment = new LoadTestEnvironment();
+		try {
+			environment.startAll(options);
+			return environment;
+		} catch (RuntimeException e) {
+			environment.close();
+			throw e;
+		}
+	}
+
+	String baseUrl() {
+		return baseUrl;
+	}
+
+	Map<String, Object> describe() {
+		Map<String, Object> result = new LinkedHashMap<>(description);
+		if (replayServer != null) {
+			result.put("replay", replayServer.getStats());
+		}
+		return result;
+	}
+
+	private void startAll(LoadTestOptions options) {
+		if (options.targetUrl() != null) {
+			baseUrl = options.targetUrl();
+			description.put("target", baseUrl);
+			return;
+		}
+
+		List<String> args = new ArrayList<>();
+		args.add("--server.port=0");
+
+		if (options.usesContainers()) {
+			startContainers(options, args);
+		}
+
+		replayServer = new ReplayServer(options.osrmLatency(), options.nominatimLatency(), options.latencyJitter());
+		resources.push(replayServer);
+		args.add("--app.osrm.base-url=" + replayServer.baseUrl());
+		args.add("--app.nominatim.base-url=" + replayServer.baseUrl());
+		description.put("osrm_latency_median", options.osrmLatency().toString());
+		description.put("nominatim_latency_median", options.nominatimLatency().toString());
+
+		ConfigurableApplicationContext context = SpringApplication.run(MpReactifApplication.class,
+				args.toArray(String[]::new));
+		resources.push(context::close);
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		baseUrl = "http://127.0.0.1:" + port;
+		description.put("target", baseUrl);
+		logger.info("✅ Application démarrée sur {}", baseUrl);
+	}
+
+	private void startContainers(LoadTestOptions options, List<String> args) {
+		PostgreSQLContainer<?> postgis = new PostgreSQLContainer<>(
+				DockerImageName.parse(options.postgisImage()).asCompatibleSubstituteFor("postgres"))
+				.withDatabaseName("farcal_lieux")
+				.withInitScript("loadtest/synthetic-road-graph.sql");
+		GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse(options.redisImage()))
+				.withExposedPorts(6379);
+		KafkaContainer kafka = new KafkaContainer(DockerImageName.parse(options.kafkaImage()));
+
+		resources.push(postgis::stop);
+		resources.push(redis::stop);
+		resources.push(kafka::stop);
+		logger.info("🐳 Démarrage des conteneurs PostGIS, Redis et Kafka...");
+		Startables.deepStart(postgis, redis, kafka).join();
+
+		args.add("--spring.r2dbc.url=r2dbc:postgresql://" + postgis.getHost() + ":"
+				+ postgis.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgis.getDatabaseName());
+		args.add("--spring.r2dbc.username=" + postgis.getUsername());
+		args.add("--spring.r2dbc.password=" + postgis.getPassword());
+		args.add("--spring.r2dbc.properties.ssl=false");
+		args.add("--spring.r2dbc.properties.sslmode=disable");
+		args.add("--spring.redis.host=" + redis.getHost());
+		args.add("--spring.redis.port=" + redis.getMappedPort(6379));
+		args.add("--spring.redis.password=");
+		args.add("--spring.kafka.bootstrap-servers=" + kafka.getBootstrapServers());
+
+		description.put("postgis", options.postgisImage());
+		description.put("redis", options.redisImage());
+		description.put("kafka", options.kafkaImage());
+	}
+
+	@Override
+	public void close() {
+		while (!resources.isEmpty()) {
+			try {
+				resources.pop().close();
+			} catch (Exception e) {
+				logger.warn("Arrêt incomplet de l'environnement de charge: {}", e.getMessage());
+			}
+		}
+	}
+}
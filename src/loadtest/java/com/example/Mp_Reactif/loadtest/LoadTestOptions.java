@@ -0,0 +1,77 @@
+package com.example.Mp_Reactif.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paramètres d'une campagne de charge, lus depuis les propriétés système (-Dloadtest.*).
+ * Les propriétés app.* et spring.* passées de la même façon s'appliquent à l'application testée.
+ */
+record LoadTestOptions(
+		String targetUrl,
+		String infrastructure,
+		int rps,
+		Duration duration,
+		Duration warmup,
+		int maxInFlight,
+		Map<String, Integer> mix,
+		double hotRatio,
+		long seed,
+		Duration osrmLatency,
+		Duration nominatimLatency,
+		double latencyJitter,
+		String postgisImage,
+		String redisImage,
+		String kafkaImage,
+		String reportPath) {
+
+	static LoadTestOptions fromSystemProperties() {
+		return new LoadTestOptions(
+				System.getProperty("loadtest.target-url"),
+				System.getProperty("loadtest.infrastructure", "containers"),
+				Integer.getInteger("loadtest.rps", 200),
+				duration("loadtest.duration", "60s"),
+				duration("loadtest.warmup", "15s"),
+				Integer.getInteger("loadtest.max-in-flight", 256),
+				parseMix(System.getProperty("loadtest.mix", "route:60,detour:15,places:25")),
+				Double.parseDouble(System.getProperty("loadtest.hot-ratio", "0.7")),
+				Long.getLong("loadtest.seed", 42L),
+				duration("loadtest.osrm-latency", "120ms"),
+				duration("loadtest.nominatim-latency", "250ms"),
+				Double.parseDouble(System.getProperty("loadtest.latency-jitter", "0.5")),
+				System.getProperty("loadtest.postgis-image", "pgrouting/pgrouting:16-3.4-3.6.1"),
+				System.getProperty("loadtest.redis-image", "redis:7.4-alpine"),
+				System.getProperty("loadtest.kafka-image", "apache/kafka:3.8.1"),
+				System.getProperty("loadtest.report", "target/loadtest/report.json"));
+	}
+
+	boolean usesContainers() {
+		return targetUrl == null && "containers".equalsIgnoreCase(infrastructure);
+	}
+
+	private static Duration duration(String name, String defaultValue) {
+		return DurationStyle.detectAndParse(System.getProperty(name, defaultValue));
+	}
+
+	// Format "scenario:poids,scenario:poids"
+	static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Entrée de mélange invalide: " + entry);
+			}
+			int weight = Integer.parseInt(parts[1].trim());
+			if (weight > 0) {
+				weights.put(parts[0].trim(), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("Mélange de trafic vide: " + mix);
+		}
+		return weights;
+	}
+}
@@ -0,0 +1,230 @@
+package com.example.Mp_Reactif.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Doublure locale d'OSRM (/route/v1) et de Nominatim (/search) : réponses au format des
+ * vrais services, construites à partir de la requête, servies après une latence tirée d'une
+ * loi log-normale (médiane configurée, dispersion latencyJitter).
+ */
+final class ReplayServer implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplayServer.class);
+	private static final double METERS_PER_DEGREE = 111_320.0;
+	private static final double POINT_SPACING_METERS = 60.0;
+	private static final int POINTS_PER_STEP = 6;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Duration osrmLatency;
+	private final Duration nominatimLatency;
+	private final double latencyJitter;
+	private final AtomicLong osrmRequests = new AtomicLong(0);
+	private final AtomicLong nominatimRequests = new AtomicLong(0);
+	private final DisposableServer server;
+
+	ReplayServer(Duration osrmLatency, Duration nominatimLatency, double latencyJitter) {
+		this.osrmLatency = osrmLatency;
+		this.nominatimLatency = nominatimLatency;
+		this.latencyJitter = latencyJitter;
+		this.server = HttpServer.create()
+				.host("127.0.0.1")
+				.port(0)
+				.route(routes -> routes
+						.get("/route/v1/{profile}/{coordinates}", this::route)
+						.get("/search", this::search))
+				.bindNow();
+		logger.info("🎭 Doublures OSRM/Nominatim sur {}", baseUrl());
+	}
+
+	String baseUrl() {
+		return "http://127.0.0.1:" + server.port();
+	}
+
+	Map<String, Object> getStats() {
+		return Map.of("osrm_requests", osrmRequests.get(), "nominatim_requests", nominatimRequests.get());
+	}
+
+	@Override
+	public void close() {
+		server.disposeNow();
+	}
+
+	private Publisher<Void> route(HttpServerRequest request, HttpServerResponse response) {
+		osrmRequests.incrementAndGet();
+		String profile = request.param("profile");
+		List<double[]> waypoints = parseCoordinates(request.param("coordinates"));
+		if (waypoints.size() < 2) {
+			return json(response, HttpResponseStatus.BAD_REQUEST, "{\"code\":\"InvalidQuery\"}", Duration.ZERO);
+		}
+		String alternativesParam = new QueryStringDecoder(request.uri()).parameters()
+				.getOrDefault("alternatives", List.of("0")).get(0);
+		int alternatives = waypoints.size() == 2 ? Math.min(3, Math.max(1, parseIntOrZero(alternativesParam))) : 1;
+
+		ObjectNode body = objectMapper.createObjectNode();
+		body.put("code", "Ok");
+		ArrayNode routes = body.putArray("routes");
+		for (int k = 0; k < alternatives; k++) {
+			routes.add(buildRoute(waypoints, k, speedFor(profile)));
+		}
+		return json(response, HttpResponseStatus.OK, body.toString(), sampleLatency(osrmLatency));
+	}
+
+	private Publisher<Void> search(HttpServerRequest request, HttpServerResponse response) {
+		nominatimRequests.incrementAndGet();
+		String query = new QueryStringDecoder(request.uri()).parameters()
+				.getOrDefault("q", List.of("")).get(0);
+		String name = query.endsWith(", Cameroon") ? query.substring(0, query.length() - ", Cameroon".length()) : query;
+
+		// Position stable par nom, dans l'emprise du réseau synthétique
+		int hash = name.hashCode();
+		double lat = 3.80 + Math.floorMod(hash, 1000) / 1000.0 * 0.1475;
+		double lng = 11.45 + Math.floorMod(hash >>> 10, 1000) / 1000.0 * 0.1475;
+
+		ArrayNode body = objectMapper.createArrayNode();
+		ObjectNode place = body.addObject();
+		place.put("lat", String.valueOf(lat));
+		place.put("lon", String.valueOf(lng));
+		place.put("name", name);
+		place.put("display_name", name + ", Yaoundé, Centre, Cameroun");
+		return json(response, HttpResponseStatus.OK, body.toString(), sampleLatency(nominatimLatency));
+	}
+
+	// Polyligne passant par les points de passage, décalée latéralement pour les alternatives
+	private ObjectNode buildRoute(List<double[]> waypoints, int alternative, double speed) {
+		List<double[]> line = new ArrayList<>();
+		for (int i = 0; i + 1 < waypoints.size(); i++) {
+			double[] from = waypoints.get(i);
+			double[] to = waypoints.get(i + 1);
+			double dx = to[0] - from[0];
+			double dy = to[1] - from[1];
+			double length = Math.hypot(dx, dy);
+			int segments = Math.max(2, (int) (length * METERS_PER_DEGREE / POINT_SPACING_METERS));
+			double offset = alternative * 0.08 * length;
+			for (int s = i == 0 ? 0 : 1; s <= segments; s++) {
+				double t = (double) s / segments;
+				double bend = Math.sin(Math.PI * t) * offset;
+				double nx = length == 0 ? 0 : -dy / length;
+				double ny = length == 0 ? 0 : dx / length;
+				line.add(new double[] { from[0] + dx * t + nx * bend, from[1] + dy * t + ny * bend });
+			}
+		}
+
+		ObjectNode route = objectMapper.createObjectNode();
+		ArrayNode steps = objectMapper.createArrayNode();
+		double totalDistance = 0;
+		for (int start = 0; start < line.size() - 1; start += POINTS_PER_STEP - 1) {
+			int end = Math.min(line.size() - 1, start + POINTS_PER_STEP - 1);
+			double distance = 0;
+			ArrayNode coordinates = objectMapper.createArrayNode();
+			for (int i = start; i <= end; i++) {
+				coordinates.addArray().add(line.get(i)[0]).add(line.get(i)[1]);
+				if (i > start) {
+					distance += meters(line.get(i - 1), line.get(i));
+				}
+			}
+			ObjectNode step = steps.addObject();
+			step.put("distance", round(distance));
+			step.put("duration", round(distance / speed));
+			step.put("name", "Rue " + (start / (POINTS_PER_STEP - 1) + 1));
+			ObjectNode geometry = step.putObject("geometry");
+			geometry.put("type", "LineString");
+			geometry.set("coordinates", coordinates);
+			ObjectNode maneuver = step.putObject("maneuver");
+			maneuver.put("type", start == 0 ? "depart" : "turn");
+			maneuver.putArray("location").add(line.get(start)[0]).add(line.get(start)[1]);
+			totalDistance += distance;
+		}
+
+		ArrayNode coordinates = objectMapper.createArrayNode();
+		for (double[] point : line) {
+			coordinates.addArray().add(point[0]).add(point[1]);
+		}
+		ObjectNode geometry = route.putObject("geometry");
+		geometry.put("type", "LineString");
+		geometry.set("coordinates", coordinates);
+		ObjectNode leg = route.putArray("legs").addObject();
+		leg.put("distance", round(totalDistance));
+		leg.put("duration", round(totalDistance / speed));
+		leg.set("steps", steps);
+		route.put("distance", round(totalDistance));
+		route.put("duration", round(totalDistance / speed));
+		route.put("weight_name", "routability");
+		return route;
+	}
+
+	private Mono<Void> json(HttpServerResponse response, HttpResponseStatus status, String body, Duration delay) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		return Mono.delay(delay)
+				.then(response.status(status)
+						.header(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8")
+						.header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(bytes.length))
+						.sendByteArray(Mono.just(bytes))
+						.then());
+	}
+
+	// Log-normale de médiane "median" : la queue s'allonge avec latencyJitter
+	private Duration sampleLatency(Duration median) {
+		if (median.isZero() || latencyJitter <= 0) {
+			return median;
+		}
+		double factor = Math.exp(ThreadLocalRandom.current().nextGaussian() * latencyJitter);
+		return Duration.ofNanos((long) (median.toNanos() * factor));
+	}
+
+	private static List<double[]> parseCoordinates(String coordinates) {
+		List<double[]> points = new ArrayList<>();
+		if (coordinates == null) {
+			return points;
+		}
+		for (String pair : coordinates.split(";")) {
+			String[] parts = pair.split(",");
+			if (parts.length == 2) {
+				points.add(new double[] { Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) });
+			}
+		}
+		return points;
+	}
+
+	private static double speedFor(String profile) {
+		return "foot".equals(profile) ? 1.4 : "bike".equals(profile) ? 4.5 : 9.0;
+	}
+
+	private static double meters(double[] a, double[] b) {
+		double dx = (b[0] - a[0]) * Math.cos(Math.toRadians((a[1] + b[1]) / 2));
+		double dy = b[1] - a[1];
+		return Math.hypot(dx, dy) * METERS_PER_DEGREE;
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 10) / 10.0;
+	}
+
+	private static int parseIntOrZero(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return "true".equals(value) ? 2 : 0;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.Mp_Reactif.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Génération des requêtes selon un mélange pondéré de scénarios. Une part "chaude" des
+ * itinéraires reprend un petit ensemble de trajets populaires (succès de cache), le reste
+ * tire des points quelconques de l'emprise du réseau synthétique (calculs complets).
+ */
+final class TrafficMix {
+
+	static final String ROUTE = "route";
+	static final String DETOUR = "detour";
+	static final String PLACES = "places";
+
+	// Emprise de la grille synthetic-road-graph.sql
+	private static final double MIN_LAT = 3.80;
+	private static final double MIN_LNG = 11.45;
+	private static final double SPAN = 0.1475;
+	private static final int HOT_PAIRS = 50;
+
+	private static final String[] KNOWN_PLACES = {
+			"Marché Central", "Poste Centrale", "Bastos", "Mokolo", "Mvog-Mbi", "Essos", "Biyem-Assi",
+			"Nlongkak", "Omnisport", "Melen", "Etoudi", "Mendong", "Mfandena", "Obili", "Carrefour Warda" };
+	private static final String[] UNKNOWN_PREFIXES = {
+			"Boulangerie", "Pharmacie", "Station", "Ecole", "Chapelle", "Snack", "Quincaillerie", "Cabinet" };
+
+	private final Random random;
+	private final double hotRatio;
+	private final String[] scenarios;
+	private final int[] cumulativeWeights;
+	private final List<double[]> hotPairs = new ArrayList<>();
+
+	TrafficMix(Map<String, Integer> weights, double hotRatio, long seed) {
+		this.random = new Random(seed);
+		this.hotRatio = hotRatio;
+		this.scenarios = new String[weights.size()];
+		this.cumulativeWeights = new int[weights.size()];
+		int total = 0;
+		int i = 0;
+		for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+			if (!List.of(ROUTE, DETOUR, PLACES).contains(entry.getKey())) {
+				throw new IllegalArgumentException("Scénario inconnu: " + entry.getKey());
+			}
+			total += entry.getValue();
+			scenarios[i] = entry.getKey();
+			cumulativeWeights[i++] = total;
+		}
+		for (int p = 0; p < HOT_PAIRS; p++) {
+			hotPairs.add(new double[] { lat(), lng(), lat(), lng() });
+		}
+	}
+
+	// Appelé depuis un unique fil (le cadenceur du générateur) : Random n'est pas partagé
+	LoadRequest next() {
+		int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		String scenario = scenarios[0];
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (draw < cumulativeWeights[i]) {
+				scenario = scenarios[i];
+				break;
+			}
+		}
+		return switch (scenario) {
+			case ROUTE -> routeRequest();
+			case DETOUR -> detourRequest();
+			default -> placesRequest();
+		};
+	}
+
+	private LoadRequest routeRequest() {
+		double[] pair = random.nextDouble() < hotRatio
+				? hotPairs.get(skewedIndex(hotPairs.size()))
+				: new double[] { lat(), lng(), lat(), lng() };
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("points", List.of(point(pair[0], pair[1]), point(pair[2], pair[3])));
+		body.put("mode", mode());
+		body.put("startPlaceName", "Départ");
+		body.put("endPlaceName", "Arrivée");
+		return LoadRequest.post(ROUTE, "/api/routes", body);
+	}
+
+	private LoadRequest detourRequest() {
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("start", point(lat(), lng()));
+		body.put("detour", point(lat(), lng()));
+		body.put("end", point(lat(), lng()));
+		int draw = random.nextInt(10);
+		body.put("transportMode", draw < 6 ? "taxi" : draw < 8 ? "bus" : "moto");
+		return LoadRequest.post(DETOUR, "/api/routes/with-detour", body);
+	}
+
+	// 70 % de lieux connus (base ou cache), 30 % de lieux inconnus (passage par Nominatim)
+	private LoadRequest placesRequest() {
+		String name = random.nextInt(10) < 7
+				? KNOWN_PLACES[skewedIndex(KNOWN_PLACES.length)]
+				: UNKNOWN_PREFIXES[random.nextInt(UNKNOWN_PREFIXES.length)] + " " + (1 + random.nextInt(500));
+		return LoadRequest.get(PLACES, "/api/places?name={name}", name);
+	}
+
+	private String mode() {
+		int draw = random.nextInt(10);
+		return draw < 7 ? "driving" : draw < 9 ? "walking" : "cycling";
+	}
+
+	// Popularité décroissante (approximativement Zipf) : quelques entrées concentrent la demande
+	private int skewedIndex(int size) {
+		return (int) Math.min(size - 1, Math.floor(size * Math.pow(random.nextDouble(), 2.5)));
+	}
+
+	private double lat() {
+		return MIN_LAT + random.nextDouble() * SPAN;
+	}
+
+	private double lng() {
+		return MIN_LNG + random.nextDouble() * SPAN;
+	}
+
+	private static Map<String, Double> point(double lat, double lng) {
+		return Map.of("lat", lat, "lng", lng);
+	}
+
+	record LoadRequest(String scenario, String method, String uriTemplate, Object body, String uriVariable) {
+
+		static LoadRequest post(String scenario, String uri, Object body) {
+			return new LoadRequest(scenario, "POST", uri, body, null);
+		}
+
+		static LoadRequest get(String scenario, String uriTemplate, String uriVariable) {
+			return new LoadRequest(scenario, "GET", uriTemplate, null, uriVariable);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+-- Réseau routier synthétique pour les tests de charge : grille de 60 x 60 carrefours
+-- (~275 m d'écart) couvrant Yaoundé, arêtes horizontales et verticales à géométrie légèrement
+-- brisée, coûts en mètres majorés aléatoirement et ~5 % de sens uniques. Déterministe (setseed).
+
+CREATE EXTENSION IF NOT EXISTS postgis;
+CREATE EXTENSION IF NOT EXISTS pgrouting;
+
+CREATE TABLE lieux (
+    id BIGSERIAL PRIMARY KEY,
+    nom VARCHAR(255) NOT NULL,
+    geom geometry(Point, 4326) NOT NULL
+);
+CREATE INDEX lieux_geom_idx ON lieux USING GIST (geom);
+CREATE INDEX lieux_nom_idx ON lieux (lower(nom));
+
+CREATE TABLE routes (
+    id BIGSERIAL PRIMARY KEY,
+    source BIGINT NOT NULL,
+    target BIGINT NOT NULL,
+    cost DOUBLE PRECISION,
+    reverse_cost DOUBLE PRECISION,
+    geom geometry(LineString, 4326) NOT NULL
+);
+CREATE INDEX routes_geom_idx ON routes USING GIST (geom);
+
+SELECT setseed(0.42);
+
+INSERT INTO lieux (id, nom, geom)
+SELECT r * 60 + c + 1,
+       'Carrefour ' || r || '-' || c,
+       ST_SetSRID(ST_MakePoint(11.45 + c * 0.0025, 3.80 + r * 0.0025), 4326)
+FROM generate_series(0, 59) AS r, generate_series(0, 59) AS c;
+
+-- Quelques lieux connus, recherchés par le mélange de trafic
+UPDATE lieux SET nom = v.nom
+FROM (VALUES
+    (1231, 'Marché Central'),
+    (1290, 'Poste Centrale'),
+    (1502, 'Bastos'),
+    (1745, 'Mokolo'),
+    (1012, 'Mvog-Mbi'),
+    (1388, 'Essos'),
+    (705, 'Biyem-Assi'),
+    (1866, 'Nlongkak'),
+    (1620, 'Omnisport'),
+    (1143, 'Melen'),
+    (2210, 'Etoudi'),
+    (488, 'Mendong'),
+    (1355, 'Mfandena'),
+    (960, 'Obili'),
+    (1188, 'Carrefour Warda')
+) AS v(id, nom)
+WHERE lieux.id = v.id;
+
+SELECT setval(pg_get_serial_sequence('lieux', 'id'), (SELECT max(id) FROM lieux));
+
+INSERT INTO routes (source, target, geom)
+SELECT a.id, b.id,
+       ST_MakeLine(ARRAY[
+           a.geom,
+           ST_SetSRID(ST_MakePoint(
+               (ST_X(a.geom) + ST_X(b.geom)) / 2 + (random() - 0.5) * 0.0006,
+               (ST_Y(a.geom) + ST_Y(b.geom)) / 2 + (random() - 0.5) * 0.0006), 4326),
+           b.geom])
+FROM lieux a
+JOIN lieux b ON (b.id = a.id + 1 AND a.id % 60 <> 0) OR b.id = a.id + 60
+ORDER BY a.id, b.id;
+
+UPDATE routes SET cost = ST_Length(geom::geography) * (1 + random() * 0.5);
+UPDATE routes SET reverse_cost = CASE WHEN random() < 0.05 THEN -1 ELSE cost END;
+
+ANALYZE lieux;
+ANALYZE routes;
@@ -32,6 +32,7 @@ public class CorsConfig {
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/api/**", corsConfiguration);
+        source.registerCorsConfiguration("/tiles/**", corsConfiguration);
 
         return new CorsWebFilter(source);
     }
@@ -1,11 +1,18 @@
 package com.example.Mp_Reactif.config;
 
+import com.example.Mp_Reactif.event.AvroEventCodec;
+import com.example.Mp_Reactif.event.AvroEventDeserializer;
+import com.example.Mp_Reactif.event.AvroEventSerializer;
+import com.example.Mp_Reactif.event.EventSchemaRegistry;
+import com.example.Mp_Reactif.service.EventProducer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import reactor.kafka.receiver.KafkaReceiver;
@@ -13,8 +20,9 @@ import reactor.kafka.receiver.ReceiverOptions;
 import reactor.kafka.sender.KafkaSender;
 import reactor.kafka.sender.SenderOptions;
 
-import java.util.Collections;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -27,34 +35,117 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${app.traffic.kafka.group-id:${spring.kafka.consumer.group-id}-traffic-${random.uuid}}")
+    private String trafficGroupId;
+
+    @Value("${app.kafka.encoding:avro}")
+    private String encoding;
+
+    @Value("${app.kafka.schema-registry.location:" + EventSchemaRegistry.DEFAULT_LOCATION + "}")
+    private String schemaRegistryLocation;
+
+    @Value("${app.kafka.consumer.commit-interval:5s}")
+    private Duration commitInterval;
+
+    @Value("${app.kafka.consumer.commit-batch-size:500}")
+    private int commitBatchSize;
+
+    @Value("${app.kafka.producer.linger-ms:20}")
+    private int lingerMs;
+
+    @Value("${app.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${app.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${app.kafka.producer.acks:1}")
+    private String acks;
+
+    @Value("${app.kafka.producer.max-block-ms:5000}")
+    private int maxBlockMs;
+
+    @Value("${app.kafka.producer.max-in-flight:256}")
+    private int maxInFlight;
+
     @Bean
-    public KafkaSender<String, Object> kafkaSender() {
+    public EventSchemaRegistry eventSchemaRegistry(ResourceLoader resourceLoader) {
+        return new EventSchemaRegistry(resourceLoader, schemaRegistryLocation);
+    }
+
+    @Bean
+    public AvroEventCodec avroEventCodec(EventSchemaRegistry eventSchemaRegistry) {
+        return new AvroEventCodec(eventSchemaRegistry);
+    }
+
+    @Bean
+    public AvroEventDeserializer avroEventDeserializer(AvroEventCodec avroEventCodec) {
+        return new AvroEventDeserializer(avroEventCodec);
+    }
+
+    @Bean
+    public KafkaSender<String, Object> kafkaSender(AvroEventCodec avroEventCodec) {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
                 org.apache.kafka.common.serialization.StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // Regroupement des envois : les événements sont publiés en lots compressés
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        // Borne le temps passé à attendre les métadonnées quand le broker est injoignable
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
 
-        SenderOptions<String, Object> senderOptions = SenderOptions.create(props);
+        SenderOptions<String, Object> senderOptions = SenderOptions.<String, Object>create(props)
+                .maxInFlight(maxInFlight)
+                .stopOnError(false);
+        if (isAvro()) {
+            senderOptions = senderOptions.withValueSerializer(new AvroEventSerializer(avroEventCodec));
+        }
         return KafkaSender.create(senderOptions);
     }
 
     @Bean
-    public ReceiverOptions<String, Object> receiverOptions() {
+    public ReceiverOptions<String, Object> receiverOptions(AvroEventDeserializer avroEventDeserializer) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
                 org.apache.kafka.common.serialization.StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // Un message JSON illisible donne une valeur null au lieu d'une exception dans le poll
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
 
-        return ReceiverOptions.<String, Object>create(props)
-                .subscription(Collections.singleton("route-events")); // Default subscription, can be overridden
+        ReceiverOptions<String, Object> receiverOptions = ReceiverOptions.<String, Object>create(props)
+                .subscription(List.of("route-events", "place-events"))
+                .commitInterval(commitInterval)
+                .commitBatchSize(commitBatchSize);
+        if (isAvro()) {
+            receiverOptions = receiverOptions.withValueDeserializer(avroEventDeserializer);
+        }
+        return receiverOptions;
+    }
+
+    // "json" conserve l'ancien format JsonSerializer/JsonDeserializer
+    private boolean isAvro() {
+        return !"json".equalsIgnoreCase(encoding);
     }
 
     @Bean
     public KafkaReceiver<String, Object> kafkaReceiver(ReceiverOptions<String, Object> receiverOptions) {
         return KafkaReceiver.create(receiverOptions);
     }
+
+    // Groupe propre à chaque instance : chacune reçoit toutes les observations et tient sa
+    // propre superposition de trafic ; seules les observations récentes comptent (latest)
+    @Bean
+    public KafkaReceiver<String, Object> trafficReceiver(ReceiverOptions<String, Object> receiverOptions) {
+        return KafkaReceiver.create(receiverOptions
+                .consumerProperty(ConsumerConfig.GROUP_ID_CONFIG, trafficGroupId)
+                .consumerProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest")
+                .subscription(List.of(EventProducer.TOPIC_TRAFFIC)));
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.Mp_Reactif.config;
+
+import com.example.Mp_Reactif.service.StageTimer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Configuration
+public class MetricsConfig {
+
+    // Passe après le CodecCustomizer Jackson de Spring Boot (ordre 0) pour remplacer son encodeur
+    @Bean
+    @Order(1)
+    public CodecCustomizer timedJsonEncoderCustomizer(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return configurer -> configurer.defaultCodecs()
+                .jackson2JsonEncoder(new TimedJsonEncoder(objectMapper, meterRegistry));
+    }
+
+    /**
+     * Encodeur JSON des réponses HTTP mesurant la sérialisation de chaque corps (Mono) et sa
+     * taille, par type de réponse. Les flux (Flux/NDJSON) gardent le chemin de l'encodeur parent.
+     */
+    static final class TimedJsonEncoder extends Jackson2JsonEncoder {
+
+        private final MeterRegistry meterRegistry;
+        private final StageTimer serializationTimer;
+        private final Map<Class<?>, DistributionSummary> sizes = new ConcurrentHashMap<>();
+
+        TimedJsonEncoder(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+            super(objectMapper);
+            this.meterRegistry = meterRegistry;
+            this.serializationTimer = new StageTimer(meterRegistry, "mp.http.serialization",
+                    "Sérialisation JSON d'un corps de réponse", "type");
+        }
+
+        @Override
+        public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                MimeType mimeType, Map<String, Object> hints) {
+            Class<?> type = value != null ? value.getClass() : Void.class;
+            long start = System.nanoTime();
+            try {
+                DataBuffer buffer = super.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+                serializationTimer.record(type.getSimpleName(), StageTimer.Outcome.OK, start);
+                sizes.computeIfAbsent(type, this::sizeSummary).record(buffer.readableByteCount());
+                return buffer;
+            } catch (RuntimeException e) {
+                serializationTimer.record(type.getSimpleName(), StageTimer.Outcome.ERROR, start);
+                throw e;
+            }
+        }
+
+        private DistributionSummary sizeSummary(Class<?> type) {
+            return DistributionSummary.builder("mp.http.response.size")
+                    .description("Taille des corps de réponse JSON")
+                    .baseUnit("bytes")
+                    .tag("type", type.getSimpleName())
+                    .register(meterRegistry);
+        }
+    }
+}
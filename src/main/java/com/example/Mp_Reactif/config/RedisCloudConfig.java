@@ -10,6 +10,7 @@ import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactor
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -51,4 +52,17 @@ public class RedisCloudConfig {
 
         return new ReactiveRedisTemplate<>(factory, context);
     }
+
+    // Valeurs binaires brutes (corps de réponses pré-sérialisés), sans enveloppe JSON
+    @Bean
+    public ReactiveRedisTemplate<String, byte[]> reactiveRedisBytesTemplate(
+            ReactiveRedisConnectionFactory factory) {
+
+        RedisSerializationContext<String, byte[]> context = RedisSerializationContext
+                .<String, byte[]>newSerializationContext(new StringRedisSerializer())
+                .value(RedisSerializer.byteArray())
+                .build();
+
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
 }
\ No newline at end of file
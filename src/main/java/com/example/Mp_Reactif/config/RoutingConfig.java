@@ -0,0 +1,19 @@
+package com.example.Mp_Reactif.config;
+
+import com.example.Mp_Reactif.service.SpeedProfiles;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+@Configuration
+public class RoutingConfig {
+
+    @Value("${app.routing.profiles.location:" + SpeedProfiles.DEFAULT_LOCATION + "}")
+    private String profilesLocation;
+
+    @Bean
+    public SpeedProfiles speedProfiles(ResourceLoader resourceLoader) {
+        return new SpeedProfiles(resourceLoader, profilesLocation);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.Mp_Reactif.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class TracingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfig.class);
+
+    // Ajouté par Spring Boot aux exportateurs du SdkTracerProvider, à côté d'OTLP s'il est configuré
+    @Bean
+    @ConditionalOnExpression("!'${app.tracing.file:}'.isEmpty()")
+    public SpanExporter jsonLinesSpanExporter(@Value("${app.tracing.file}") String file, ObjectMapper objectMapper)
+            throws IOException {
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        logger.info("🧵 Spans exportés dans {}", path.toAbsolutePath());
+        return new JsonLinesSpanExporter(path, objectMapper);
+    }
+
+    /**
+     * Exportateur fichier pour l'analyse hors ligne : un span par ligne JSON (identifiants,
+     * parent, nom, durée, statut, attributs), ajouté à la suite du fichier existant.
+     * Appelé par le seul fil du BatchSpanProcessor.
+     */
+    static final class JsonLinesSpanExporter implements SpanExporter {
+
+        private final ObjectMapper objectMapper;
+        private final BufferedWriter writer;
+
+        JsonLinesSpanExporter(Path path, ObjectMapper objectMapper) throws IOException {
+            this.objectMapper = objectMapper;
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+            try {
+                for (SpanData span : spans) {
+                    writer.write(objectMapper.writeValueAsString(toMap(span)));
+                    writer.newLine();
+                }
+                writer.flush();
+                return CompletableResultCode.ofSuccess();
+            } catch (IOException e) {
+                logger.warn("⚠️ Export fichier des spans impossible: {}", e.getMessage());
+                return CompletableResultCode.ofFailure();
+            }
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public synchronized CompletableResultCode shutdown() {
+            try {
+                writer.close();
+                return CompletableResultCode.ofSuccess();
+            } catch (IOException e) {
+                return CompletableResultCode.ofFailure();
+            }
+        }
+
+        private static Map<String, Object> toMap(SpanData span) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("traceId", span.getTraceId());
+            map.put("spanId", span.getSpanId());
+            map.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+            map.put("name", span.getName());
+            map.put("kind", span.getKind().name());
+            map.put("startEpochNanos", span.getStartEpochNanos());
+            map.put("durationMicros", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000);
+            map.put("status", span.getStatus().getStatusCode().name());
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+            map.put("attributes", attributes);
+            return map;
+        }
+    }
+}
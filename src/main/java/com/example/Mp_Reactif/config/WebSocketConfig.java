@@ -0,0 +1,19 @@
+package com.example.Mp_Reactif.config;
+
+import com.example.Mp_Reactif.controller.MatchWebSocketHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+public class WebSocketConfig {
+
+    // Avant les contrôleurs annotés ; l'adaptateur WebSocket est fourni par la configuration WebFlux
+    @Bean
+    public HandlerMapping webSocketHandlerMapping(MatchWebSocketHandler matchWebSocketHandler) {
+        return new SimpleUrlHandlerMapping(Map.of("/ws/match", matchWebSocketHandler), -1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.service.DemandAnalytics;
+import com.example.Mp_Reactif.service.RoutePrewarmer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final DemandAnalytics demandAnalytics;
+    private final RoutePrewarmer routePrewarmer;
+
+    public AnalyticsController(DemandAnalytics demandAnalytics, RoutePrewarmer routePrewarmer) {
+        this.demandAnalytics = demandAnalytics;
+        this.routePrewarmer = routePrewarmer;
+    }
+
+    @GetMapping
+    public Mono<Map<String, Object>> analytics() {
+        return Mono.just(demandAnalytics.getLatestSnapshot());
+    }
+
+    @GetMapping("/prewarm")
+    public Mono<Map<String, Object>> prewarm() {
+        return Mono.just(routePrewarmer.getStats());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.model.RoadClosure;
+import com.example.Mp_Reactif.service.ClosureRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fermetures de routes (inondations, travaux) prises en compte par /api/routes dès leur
+ * enregistrement, sans modifier la table routes.
+ */
+@RestController
+@RequestMapping("/api/closures")
+public class ClosureController {
+
+    private final ClosureRegistry closureRegistry;
+
+    public ClosureController(ClosureRegistry closureRegistry) {
+        this.closureRegistry = closureRegistry;
+    }
+
+    @GetMapping
+    public Mono<Map<String, Object>> listClosures() {
+        Map<String, Object> response = new HashMap<>(closureRegistry.getStats());
+        response.put("success", true);
+        response.put("data", closureRegistry.closures());
+        return Mono.just(response);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Map<String, Object>>> addClosure(@RequestBody RoadClosure closure) {
+        boolean hasEdges = closure.edges() != null && !closure.edges().isEmpty();
+        boolean hasAreas = closure.areas() != null && !closure.areas().isEmpty();
+        String error = !hasEdges && !hasAreas
+                ? "Une fermeture désigne des tronçons ou des zones"
+                : ClosureRegistry.validate(closure.edges(), closure.areas());
+        if (error != null) {
+            return Mono.just(new ResponseEntity<>(Map.of("success", false, "error", error), HttpStatus.BAD_REQUEST));
+        }
+        return closureRegistry.add(closure)
+                .map(added -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", added);
+                    response.put("closed_edges", closureRegistry.active().edgeIds().length);
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", "Fermeture non enregistrée: " + e.getMessage());
+                    return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
+                });
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> removeClosure(@PathVariable String id) {
+        return closureRegistry.remove(id)
+                .map(removed -> removed
+                        ? new ResponseEntity<Map<String, Object>>(Map.of("success", true), HttpStatus.OK)
+                        : new ResponseEntity<Map<String, Object>>(Map.of("success", false,
+                                "error", "Fermeture inconnue"), HttpStatus.NOT_FOUND));
+    }
+}
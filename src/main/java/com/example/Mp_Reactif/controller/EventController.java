@@ -0,0 +1,39 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.event.AvroEventDeserializer;
+import com.example.Mp_Reactif.service.EventProducer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    private final EventProducer eventProducer;
+    private final AvroEventDeserializer avroEventDeserializer;
+
+    public EventController(@Autowired(required = false) EventProducer eventProducer,
+            @Autowired(required = false) AvroEventDeserializer avroEventDeserializer) {
+        this.eventProducer = eventProducer;
+        this.avroEventDeserializer = avroEventDeserializer;
+    }
+
+    @GetMapping("/stats")
+    public Mono<Map<String, Object>> stats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("kafka_enabled", eventProducer != null);
+        if (eventProducer != null) {
+            response.put("topics", eventProducer.getStats());
+        }
+        if (avroEventDeserializer != null) {
+            response.put("skipped_records", avroEventDeserializer.getSkippedRecords());
+        }
+        return Mono.just(response);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.model.MatchResponse;
+import com.example.Mp_Reactif.model.MatchedPoint;
+import com.example.Mp_Reactif.service.MapMatchingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Recalage de traces GPS sur le réseau routier. Trace complète en une réponse, ou en flux :
+ * pings en NDJSON, points recalés renvoyés en SSE (ou NDJSON) dès qu'ils sont définitifs.
+ * Même flux par WebSocket sur /ws/match (MatchWebSocketHandler).
+ */
+@RestController
+@RequestMapping("/api/match")
+public class MatchController {
+
+    private final MapMatchingService mapMatchingService;
+
+    public MatchController(MapMatchingService mapMatchingService) {
+        this.mapMatchingService = mapMatchingService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<MatchResponse>> match(@RequestBody Flux<GpsPing> pings,
+            @RequestParam(required = false) Boolean feedTraffic) {
+        if (!mapMatchingService.isReady()) {
+            return Mono.just(new ResponseEntity<>(MatchResponse.error("Graphe routier en cours de chargement"),
+                    HttpStatus.SERVICE_UNAVAILABLE));
+        }
+        return mapMatchingService.match(pings, feedTraffic)
+                .map(response -> new ResponseEntity<>(response, HttpStatus.OK))
+                .onErrorResume(e -> Mono.just(new ResponseEntity<>(
+                        MatchResponse.error("Erreur lors du recalage: " + e.getMessage()),
+                        HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+
+    @PostMapping(value = "/stream",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<MatchedPoint> matchStream(@RequestBody Flux<GpsPing> pings,
+            @RequestParam(required = false) Boolean feedTraffic) {
+        if (!mapMatchingService.isReady()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Graphe routier en cours de chargement"));
+        }
+        return mapMatchingService.matchStream(pings, feedTraffic);
+    }
+
+    @GetMapping("/stats")
+    public Mono<Map<String, Object>> stats() {
+        return Mono.just(mapMatchingService.getStats());
+    }
+}
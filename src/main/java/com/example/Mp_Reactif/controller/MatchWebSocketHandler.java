@@ -0,0 +1,78 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.service.MapMatchingService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * /ws/match : chaque message texte porte un ping JSON ou un tableau de pings, chaque point
+ * recalé repart en message JSON dès qu'il est définitif. Une session WebSocket = une trace ;
+ * la fermeture côté client vide les points en attente. ?feedTraffic=false désactive
+ * l'alimentation du trafic en direct.
+ */
+@Component
+public class MatchWebSocketHandler implements WebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchWebSocketHandler.class);
+
+    private final MapMatchingService mapMatchingService;
+    private final ObjectMapper objectMapper;
+
+    public MatchWebSocketHandler(MapMatchingService mapMatchingService, ObjectMapper objectMapper) {
+        this.mapMatchingService = mapMatchingService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        if (!mapMatchingService.isReady()) {
+            return session.close(CloseStatus.SERVICE_RESTARTED.withReason("Graphe routier en cours de chargement"));
+        }
+        String query = session.getHandshakeInfo().getUri().getQuery();
+        Boolean feedTraffic = query != null && query.contains("feedTraffic=false") ? Boolean.FALSE : null;
+        Flux<GpsPing> pings = session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .concatMapIterable(this::parse);
+        return session.send(mapMatchingService.matchStream(pings, feedTraffic)
+                .concatMap(point -> {
+                    try {
+                        return Mono.just(session.textMessage(objectMapper.writeValueAsString(point)));
+                    } catch (JsonProcessingException e) {
+                        return Mono.error(e);
+                    }
+                }));
+    }
+
+    // Message illisible ignoré : la trace continue avec les suivants
+    private List<GpsPing> parse(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            List<GpsPing> pings = new ArrayList<>();
+            if (node.isArray()) {
+                for (JsonNode element : node) {
+                    pings.add(objectMapper.treeToValue(element, GpsPing.class));
+                }
+            } else {
+                pings.add(objectMapper.treeToValue(node, GpsPing.class));
+            }
+            return pings;
+        } catch (JsonProcessingException e) {
+            logger.debug("⚠️ Message WebSocket ignoré: {}", e.getOriginalMessage());
+            return List.of();
+        }
+    }
+}
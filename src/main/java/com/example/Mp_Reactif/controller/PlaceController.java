@@ -2,10 +2,15 @@
 package com.example.Mp_Reactif.controller;
 
 
+import com.example.Mp_Reactif.model.ReverseGeocodeQuery;
+import com.example.Mp_Reactif.model.ReverseGeocodeResult;
+import com.example.Mp_Reactif.service.PlaceIndexService;
 import com.example.Mp_Reactif.service.PlaceService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
 import java.util.HashMap;
@@ -16,9 +21,11 @@ import java.util.Map;
 public class PlaceController {
 
     private final PlaceService placeService;
+    private final PlaceIndexService placeIndexService;
 
-    public PlaceController(PlaceService placeService) {
+    public PlaceController(PlaceService placeService, PlaceIndexService placeIndexService) {
         this.placeService = placeService;
+        this.placeIndexService = placeIndexService;
     }
 
     @GetMapping
@@ -55,6 +62,16 @@ public class PlaceController {
         return placeService.getAllPlaceNamesFormatted();
     }
 
+    @GetMapping("/nominatim/stats")
+    public Mono<Map<String, Object>> getNominatimStats() {
+        return Mono.just(placeService.getNominatimStats());
+    }
+
+    @GetMapping("/write-behind/stats")
+    public Mono<Map<String, Object>> getWriteBehindStats() {
+        return Mono.just(placeService.getWriteBehindStats());
+    }
+
     @GetMapping("/closest")
     public Mono<ResponseEntity<Map<String, Object>>> findClosestPlace(@RequestParam double lat, @RequestParam double lng) {
         return placeService.findClosestPlace(lat, lng)
@@ -81,4 +98,21 @@ public class PlaceController {
                     return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
                 });
     }
+
+    // Géocodage inverse en masse : points en NDJSON, lieu le plus proche de chacun renvoyé en NDJSON
+    @PostMapping(value = "/closest/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReverseGeocodeResult> findClosestPlaces(@RequestBody Flux<ReverseGeocodeQuery> points) {
+        if (!placeIndexService.isReady()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Index des lieux en cours de chargement"));
+        }
+        return placeIndexService.reverseGeocode(points);
+    }
+
+    @GetMapping("/closest/batch/stats")
+    public Mono<Map<String, Object>> getPlaceIndexStats() {
+        return Mono.just(placeIndexService.getStats());
+    }
 }
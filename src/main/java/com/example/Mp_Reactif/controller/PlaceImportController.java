@@ -0,0 +1,48 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.service.PlaceImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/places")
+public class PlaceImportController {
+
+    private final PlaceImportService placeImportService;
+
+    public PlaceImportController(PlaceImportService placeImportService) {
+        this.placeImportService = placeImportService;
+    }
+
+    // Corps lu ligne par ligne : CSV avec en-tête (nom,lat,lng) ou une Feature GeoJSON par ligne
+    @PostMapping("/import")
+    public Mono<ResponseEntity<Map<String, Object>>> importPlaces(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestBody Flux<String> lines) {
+        return placeImportService.importPlaces(lines, format)
+                .map(report -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", report);
+                    return new ResponseEntity<>(response, HttpStatus.OK);
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", e.getMessage());
+                    return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
+                })
+                .onErrorResume(Exception.class, e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", "Erreur lors de l'import: " + e.getMessage());
+                    return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
+                });
+    }
+}
@@ -2,6 +2,7 @@ package com.example.Mp_Reactif.controller;
 
 import com.example.Mp_Reactif.model.Point;
 import com.example.Mp_Reactif.service.AdaptiveRedisCacheService;
+import com.example.Mp_Reactif.service.ResponseBodyCache;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,9 +17,11 @@ import java.util.Map;
 public class RedisCloudMonitorController {
 
     private final AdaptiveRedisCacheService cacheService;
+    private final ResponseBodyCache responseBodyCache;
 
-    public RedisCloudMonitorController(AdaptiveRedisCacheService cacheService) {
+    public RedisCloudMonitorController(AdaptiveRedisCacheService cacheService, ResponseBodyCache responseBodyCache) {
         this.cacheService = cacheService;
+        this.responseBodyCache = responseBodyCache;
     }
 
     @GetMapping("/health")
@@ -33,7 +36,11 @@ public class RedisCloudMonitorController {
 
     @GetMapping("/stats")
     public Mono<Map<String, Object>> stats() {
-        return cacheService.getCacheStats();
+        return cacheService.getCacheStats()
+                .map(stats -> {
+                    stats.put("response_bodies", responseBodyCache.getStats());
+                    return stats;
+                });
     }
     @GetMapping("/test-serialization")
     public Mono<Map<String, Object>> testSerialization() {
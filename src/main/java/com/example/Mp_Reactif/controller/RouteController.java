@@ -2,13 +2,25 @@
 package com.example.Mp_Reactif.controller;
 
 import com.example.Mp_Reactif.model.*;
+import com.example.Mp_Reactif.service.ClosureRegistry;
+import com.example.Mp_Reactif.service.ResponseBodyCache;
+import com.example.Mp_Reactif.service.RoadGraphStore;
 import com.example.Mp_Reactif.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/routes")
 public class RouteController {
@@ -16,42 +28,149 @@ public class RouteController {
     @Autowired
     private RouteService routeService;
 
+    @Autowired
+    private RoadGraphStore roadGraphStore;
+
+    @Autowired
+    private ClosureRegistry closureRegistry;
+
     @PostMapping
-    public Mono<ResponseEntity<RouteResponse>> calculateRoute(@RequestBody RouteRequestBody body) {
+    public Mono<ResponseEntity<?>> calculateRoute(@RequestBody RouteRequestBody body,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServerHttpResponse httpResponse) {
         if (body.getPoints() == null || body.getPoints().size() != 2) {
-            RouteResponse response = new RouteResponse();
-            response.setError("Un itinéraire se calcule entre deux points");
+            RouteResponse response = RouteResponse.error("Un itinéraire se calcule entre deux points");
+            return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
+        }
+
+        for (Point point : body.getPoints()) {
+            if (point.getLat() < -90 || point.getLat() > 90 || point.getLng() < -180 || point.getLng() > 180) {
+                RouteResponse response = RouteResponse.error("Coordonnées géographiques invalides");
+                return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
+            }
+        }
+
+        String mode = body.getMode() != null ? body.getMode() : "driving";
+        if (!mode.equals("driving") && !mode.equals("walking") && !mode.equals("cycling")) {
+            RouteResponse response = RouteResponse.error("Mode de transport invalide");
+            return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
+        }
+
+        String avoidError = ClosureRegistry.validate(body.getAvoidEdges(), body.getAvoidAreas());
+        if (avoidError != null) {
+            return Mono.just(new ResponseEntity<>(RouteResponse.error(avoidError), HttpStatus.BAD_REQUEST));
+        }
+
+        String startPlaceName = body.getStartPlaceName() != null ? body.getStartPlaceName() : "Unknown Start";
+        String endPlaceName = body.getEndPlaceName() != null ? body.getEndPlaceName() : "Unknown Destination";
+        List<Point> points = body.getPoints();
+        Instant departureTime = body.getDepartureTime() != null ? body.getDepartureTime().toInstant() : null;
+        RouteAvoidance avoid = RouteAvoidance.of(body.getAvoidEdges(), body.getAvoidAreas());
+        // Lues une seule fois : un corps calculé sans une fermeture ne doit pas être rangé sous son empreinte
+        ClosureRegistry.Active closures = closureRegistry.active();
+
+        Mono<ResponseEntity<?>> computed = routeService.routeWithPgRouting(points, mode, startPlaceName, endPlaceName,
+                        departureTime, avoid, closures)
+                .<ResponseEntity<?>>map(response -> {
+                    if (response.error() != null) {
+                        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+                    }
+                    if (acceptsGzip(acceptEncoding)) {
+                        routeService.rememberPreSerialized(points, mode, startPlaceName, endPlaceName, departureTime,
+                                avoid, closures, response);
+                    }
+                    return new ResponseEntity<>(response, HttpStatus.OK);
+                })
+                .onErrorResume(e -> {
+                    RouteResponse response = RouteResponse.error("Erreur lors du calcul d'itinéraire");
+                    return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
+                });
+        if (!acceptsGzip(acceptEncoding)) {
+            return computed;
+        }
+
+        // Succès : octets gzip écrits tels quels, sans désérialisation ni nouvelle sérialisation
+        return routeService.findPreSerialized(points, mode, startPlaceName, endPlaceName, departureTime, avoid,
+                        closures)
+                .<ResponseEntity<?>>map(cached -> preSerialized(cached, httpResponse))
+                .switchIfEmpty(computed);
+    }
+
+    // Vary ajouté aux valeurs déjà posées (CORS) plutôt que de les remplacer
+    private static ResponseEntity<DataBuffer> preSerialized(ResponseBodyCache.Body cached,
+            ServerHttpResponse httpResponse) {
+        httpResponse.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(DefaultDataBufferFactory.sharedInstance.wrap(cached.gzip()));
+    }
+
+    // gzip accepté sauf refus explicite (q=0) ; partagé avec TileController
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Graphe en mémoire et profils de vitesse : taille et état du chargement
+    @GetMapping("/graph")
+    public Mono<Map<String, Object>> getGraphStats() {
+        return Mono.just(roadGraphStore.getStats());
+    }
+
+    // Rechargement immédiat sans attendre le relevé périodique ; sans effet si un rechargement est en cours
+    @PostMapping("/graph/reload")
+    public Mono<Map<String, Object>> reloadGraph() {
+        return roadGraphStore.reload().then(Mono.fromSupplier(roadGraphStore::getStats));
+    }
+
+    @PostMapping("/multi-stop")
+    public Mono<ResponseEntity<RouteResponse>> calculateMultiStopRoute(@RequestBody RouteRequestBody body) {
+        if (body.getPoints() == null || body.getPoints().size() < 2 || body.getPoints().size() > 25) {
+            RouteResponse response = RouteResponse.error("Un itinéraire multi-arrêts compte entre 2 et 25 points");
             return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
         }
 
         for (Point point : body.getPoints()) {
             if (point.getLat() < -90 || point.getLat() > 90 || point.getLng() < -180 || point.getLng() > 180) {
-                RouteResponse response = new RouteResponse();
-                response.setError("Coordonnées géographiques invalides");
+                RouteResponse response = RouteResponse.error("Coordonnées géographiques invalides");
                 return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
             }
         }
 
         String mode = body.getMode() != null ? body.getMode() : "driving";
         if (!mode.equals("driving") && !mode.equals("walking") && !mode.equals("cycling")) {
-            RouteResponse response = new RouteResponse();
-            response.setError("Mode de transport invalide");
+            RouteResponse response = RouteResponse.error("Mode de transport invalide");
             return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
         }
 
         String startPlaceName = body.getStartPlaceName() != null ? body.getStartPlaceName() : "Unknown Start";
         String endPlaceName = body.getEndPlaceName() != null ? body.getEndPlaceName() : "Unknown Destination";
 
-        return routeService.routeWithPgRouting(body.getPoints(), mode, startPlaceName, endPlaceName)
+        return routeService.routeThroughStops(body.getPoints(), mode, startPlaceName, endPlaceName)
                 .map(response -> {
-                    if (response.getError() != null) {
+                    if (response.error() != null) {
                         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
                     }
                     return new ResponseEntity<>(response, HttpStatus.OK);
                 })
                 .onErrorResume(e -> {
-                    RouteResponse response = new RouteResponse();
-                    response.setError("Erreur lors du calcul d'itinéraire");
+                    RouteResponse response = RouteResponse.error("Erreur lors du calcul d'itinéraire multi-arrêts");
                     return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
                 });
     }
@@ -59,24 +178,21 @@ public class RouteController {
     @PostMapping("/with-detour")
     public Mono<ResponseEntity<RouteResponse>> calculateRouteWithDetour(@RequestBody RouteWithDetourRequestBody body) {
         if (body.getStart() == null || body.getDetour() == null || body.getEnd() == null) {
-            RouteResponse response = new RouteResponse();
-            response.setError("Les points de départ, détour et arrivée sont requis");
+            RouteResponse response = RouteResponse.error("Les points de départ, détour et arrivée sont requis");
             return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
         }
 
         Point[] points = {body.getStart(), body.getDetour(), body.getEnd()};
         for (Point point : points) {
             if (point.getLat() < -90 || point.getLat() > 90 || point.getLng() < -180 || point.getLng() > 180) {
-                RouteResponse response = new RouteResponse();
-                response.setError("Coordonnées géographiques invalides");
+                RouteResponse response = RouteResponse.error("Coordonnées géographiques invalides");
                 return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
             }
         }
 
         String mode = body.getTransportMode() != null ? body.getTransportMode() : "taxi";
         if (!mode.equals("taxi") && !mode.equals("bus") && !mode.equals("moto")) {
-            RouteResponse response = new RouteResponse();
-            response.setError("Mode de transport invalide");
+            RouteResponse response = RouteResponse.error("Mode de transport invalide");
             return Mono.just(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
         }
 
@@ -89,13 +205,12 @@ public class RouteController {
                 body.getDetourPlaceName(),
                 body.getEndPlaceName()
         ).map(response -> {
-            if (response.getError() != null) {
+            if (response.error() != null) {
                 return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
             }
             return new ResponseEntity<>(response, HttpStatus.OK);
         }).onErrorResume(e -> {
-            RouteResponse response = new RouteResponse();
-            response.setError("Erreur lors du calcul d'itinéraire avec détour");
+            RouteResponse response = RouteResponse.error("Erreur lors du calcul d'itinéraire avec détour");
             return Mono.just(new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR));
         });
     }
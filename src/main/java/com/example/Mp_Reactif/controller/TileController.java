@@ -0,0 +1,73 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.service.TileCache;
+import com.example.Mp_Reactif.service.TileService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+public class TileController {
+
+    private static final MediaType MVT = MediaType.parseMediaType(TileService.CONTENT_TYPE);
+
+    private final TileService tileService;
+
+    public TileController(TileService tileService) {
+        this.tileService = tileService;
+    }
+
+    // Couches "routes" et "lieux" ; 304 si l'ETag du client est à jour, 204 pour une tuile vide
+    @GetMapping("/tiles/{z}/{x}/{y}.mvt")
+    public Mono<ResponseEntity<byte[]>> tile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!tileService.isValid(z, x, y)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        CacheControl cacheControl = CacheControl.maxAge(tileService.ttl()).cachePublic();
+        return tileService.tile(z, x, y)
+                .<ResponseEntity<byte[]>>map(tile -> {
+                    if (ifNoneMatch != null && ifNoneMatch.contains(tile.etag())) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(tile.etag())
+                                .cacheControl(cacheControl)
+                                .<byte[]>build();
+                    }
+                    if (tile.isEmpty()) {
+                        return ResponseEntity.noContent()
+                                .eTag(tile.etag())
+                                .cacheControl(cacheControl)
+                                .<byte[]>build();
+                    }
+                    return body(tile, RouteController.acceptsGzip(acceptEncoding), cacheControl);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()));
+    }
+
+    private static ResponseEntity<byte[]> body(TileCache.Tile tile, boolean gzip, CacheControl cacheControl) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MVT)
+                .eTag(tile.etag())
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(tile.gzip());
+        }
+        return builder.body(tile.raw());
+    }
+
+    @GetMapping("/api/tiles/stats")
+    public Mono<Map<String, Object>> stats() {
+        return Mono.just(tileService.getStats());
+    }
+}
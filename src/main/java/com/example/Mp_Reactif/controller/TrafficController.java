@@ -0,0 +1,65 @@
+package com.example.Mp_Reactif.controller;
+
+import com.example.Mp_Reactif.event.SpeedObservedEvent;
+import com.example.Mp_Reactif.model.SpeedObservation;
+import com.example.Mp_Reactif.service.EventProducer;
+import com.example.Mp_Reactif.service.TrafficOverlay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/traffic")
+public class TrafficController {
+
+    private final TrafficOverlay trafficOverlay;
+    private final EventProducer eventProducer;
+
+    public TrafficController(TrafficOverlay trafficOverlay,
+            @Autowired(required = false) EventProducer eventProducer) {
+        this.trafficOverlay = trafficOverlay;
+        this.eventProducer = eventProducer;
+    }
+
+    // Tableau JSON ou NDJSON, lu élément par élément. Avec Kafka, les observations passent par
+    // le topic pour atteindre toutes les instances ; sinon elles sont appliquées localement
+    @PostMapping("/observations")
+    public Mono<Map<String, Object>> ingest(@RequestBody Flux<SpeedObservation> observations) {
+        long now = System.currentTimeMillis();
+        return observations
+                .reduce(new long[2], (counts, observation) -> {
+                    long timestamp = observation.timestamp() != null ? observation.timestamp() : now;
+                    if (!trafficOverlay.isAcceptable(observation.edgeId(), observation.speedKmh(), timestamp)) {
+                        counts[1]++;
+                    } else if (eventProducer != null) {
+                        eventProducer.publishSpeedObserved(
+                                new SpeedObservedEvent(observation.edgeId(), observation.speedKmh(), timestamp));
+                        counts[0]++;
+                    } else {
+                        trafficOverlay.record(observation.edgeId(), observation.speedKmh(), timestamp);
+                        counts[0]++;
+                    }
+                    return counts;
+                })
+                .map(counts -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("accepted", counts[0]);
+                    response.put("rejected", counts[1]);
+                    response.put("via", eventProducer != null ? EventProducer.TOPIC_TRAFFIC : "local");
+                    return response;
+                });
+    }
+
+    @GetMapping("/stats")
+    public Mono<Map<String, Object>> stats() {
+        return Mono.just(trafficOverlay.getStats());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.Mp_Reactif.event;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodage Avro binaire écrit à la main pour les événements de l'application : aucun
+ * DatumReader générique ni réflexion, les champs sont lus et écrits dans l'ordre du schéma.
+ * Format du message : octet magique 0, identifiant de schéma sur 4 octets, puis le corps Avro.
+ */
+public class AvroEventCodec {
+
+    private static final byte MAGIC_BYTE = 0;
+    private static final int HEADER_SIZE = 5;
+
+    private static final List<String> ROUTE_V1_FIELDS =
+            List.of("startPlace", "endPlace", "distance", "duration", "mode", "timestamp");
+    private static final List<String> ROUTE_V2_FIELDS =
+            List.of("startPlace", "endPlace", "distance", "duration", "mode", "timestamp",
+                    "startLat", "startLng", "endLat", "endLng");
+    private static final List<String> PLACE_FIELDS =
+            List.of("query", "resultsCount", "timestamp");
+    private static final List<String> SPEED_FIELDS =
+            List.of("edgeId", "speedKmh", "timestamp");
+
+    private final int routeSchemaId;
+    private final int routeV1SchemaId;
+    private final int placeSchemaId;
+    private final int speedSchemaId;
+
+    public AvroEventCodec(EventSchemaRegistry registry) {
+        // Échoue au démarrage si un .avsc ne correspond plus au codec écrit à la main
+        int routeV1 = -1;
+        int routeV2 = -1;
+        for (Map.Entry<Integer, Schema> version : registry.schemasFor(RouteCalculatedEvent.class.getName()).entrySet()) {
+            List<String> fields = fieldNames(version.getValue());
+            if (fields.equals(ROUTE_V1_FIELDS)) {
+                routeV1 = version.getKey();
+            } else if (fields.equals(ROUTE_V2_FIELDS)) {
+                routeV2 = version.getKey();
+            } else {
+                throw new IllegalStateException("Schéma RouteCalculatedEvent incompatible avec le codec: " + fields);
+            }
+        }
+        if (routeV2 < 0) {
+            throw new IllegalStateException("Schéma RouteCalculatedEvent v2 absent du registre");
+        }
+        this.routeSchemaId = routeV2;
+        this.routeV1SchemaId = routeV1;
+        this.placeSchemaId = registry.latestIdFor(PlaceSearchedEvent.class.getName());
+        checkLayout(registry.getById(placeSchemaId), PLACE_FIELDS);
+        this.speedSchemaId = registry.latestIdFor(SpeedObservedEvent.class.getName());
+        checkLayout(registry.getById(speedSchemaId), SPEED_FIELDS);
+    }
+
+    public byte[] encode(Object event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            if (event instanceof RouteCalculatedEvent route) {
+                writeHeader(out, routeSchemaId);
+                writeNullableString(encoder, route.getStartPlace());
+                writeNullableString(encoder, route.getEndPlace());
+                encoder.writeDouble(route.getDistance());
+                encoder.writeDouble(route.getDuration());
+                writeNullableString(encoder, route.getMode());
+                encoder.writeLong(route.getTimestamp());
+                encoder.writeDouble(route.getStartLat());
+                encoder.writeDouble(route.getStartLng());
+                encoder.writeDouble(route.getEndLat());
+                encoder.writeDouble(route.getEndLng());
+            } else if (event instanceof PlaceSearchedEvent place) {
+                writeHeader(out, placeSchemaId);
+                writeNullableString(encoder, place.getQuery());
+                encoder.writeInt(place.getResultsCount());
+                encoder.writeLong(place.getTimestamp());
+            } else if (event instanceof SpeedObservedEvent speed) {
+                writeHeader(out, speedSchemaId);
+                encoder.writeLong(speed.getEdgeId());
+                encoder.writeDouble(speed.getSpeedKmh());
+                encoder.writeLong(speed.getTimestamp());
+            } else {
+                throw new IllegalArgumentException("Type d'événement non supporté: " + event.getClass().getName());
+            }
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public Object decode(byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != MAGIC_BYTE) {
+            throw new IllegalArgumentException("Message Avro invalide (octet magique absent)");
+        }
+        int schemaId = ((data[1] & 0xFF) << 24) | ((data[2] & 0xFF) << 16) | ((data[3] & 0xFF) << 8) | (data[4] & 0xFF);
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, null);
+        try {
+            if (schemaId == routeSchemaId || schemaId == routeV1SchemaId) {
+                RouteCalculatedEvent route = new RouteCalculatedEvent();
+                route.setStartPlace(readNullableString(decoder));
+                route.setEndPlace(readNullableString(decoder));
+                route.setDistance(decoder.readDouble());
+                route.setDuration(decoder.readDouble());
+                route.setMode(readNullableString(decoder));
+                route.setTimestamp(decoder.readLong());
+                // Les messages v1 ne portent pas de coordonnées : valeurs par défaut du schéma (0.0)
+                if (schemaId == routeSchemaId) {
+                    route.setStartLat(decoder.readDouble());
+                    route.setStartLng(decoder.readDouble());
+                    route.setEndLat(decoder.readDouble());
+                    route.setEndLng(decoder.readDouble());
+                }
+                return route;
+            }
+            if (schemaId == placeSchemaId) {
+                PlaceSearchedEvent place = new PlaceSearchedEvent();
+                place.setQuery(readNullableString(decoder));
+                place.setResultsCount(decoder.readInt());
+                place.setTimestamp(decoder.readLong());
+                return place;
+            }
+            if (schemaId == speedSchemaId) {
+                SpeedObservedEvent speed = new SpeedObservedEvent();
+                speed.setEdgeId(decoder.readLong());
+                speed.setSpeedKmh(decoder.readDouble());
+                speed.setTimestamp(decoder.readLong());
+                return speed;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("Identifiant de schéma non supporté: " + schemaId);
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, int schemaId) {
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+    }
+
+    // Union ["null", "string"] : index de branche puis valeur
+    private static void writeNullableString(BinaryEncoder encoder, String value) throws IOException {
+        if (value == null) {
+            encoder.writeIndex(0);
+        } else {
+            encoder.writeIndex(1);
+            encoder.writeString(value);
+        }
+    }
+
+    private static String readNullableString(BinaryDecoder decoder) throws IOException {
+        return decoder.readIndex() == 0 ? null : decoder.readString();
+    }
+
+    private static List<String> fieldNames(Schema schema) {
+        return schema.getFields().stream().map(Schema.Field::name).toList();
+    }
+
+    private static void checkLayout(Schema schema, List<String> expectedFields) {
+        List<String> actual = fieldNames(schema);
+        if (!actual.equals(expectedFields)) {
+            throw new IllegalStateException("Schéma " + schema.getFullName() + " incompatible avec le codec: " + actual);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.Mp_Reactif.event;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+public class AvroEventSerializer implements Serializer<Object> {
+
+    private final AvroEventCodec codec;
+
+    public AvroEventSerializer(AvroEventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return data == null ? null : codec.encode(data);
+    }
+}
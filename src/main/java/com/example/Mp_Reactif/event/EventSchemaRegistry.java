@@ -0,0 +1,79 @@
+package com.example.Mp_Reactif.event;
+
+import org.apache.avro.Schema;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre de schémas Avro local, lu depuis un répertoire (classpath: ou file:) contenant
+ * registry.properties (identifiant -> fichier .avsc). Tient lieu de schema registry :
+ * l'identifiant voyage dans chaque message, le schéma reste dans le dépôt.
+ */
+public class EventSchemaRegistry {
+
+    public static final String DEFAULT_LOCATION = "classpath:schemas/";
+
+    private final Map<Integer, Schema> schemasById = new ConcurrentHashMap<>();
+    private final Map<String, Integer> latestIdByName = new ConcurrentHashMap<>();
+
+    public EventSchemaRegistry(ResourceLoader resourceLoader, String location) {
+        String base = location.endsWith("/") ? location : location + "/";
+        Properties index = new Properties();
+        try (InputStream in = resourceLoader.getResource(base + "registry.properties").getInputStream()) {
+            index.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Registre de schémas introuvable: " + base, e);
+        }
+
+        for (String idKey : index.stringPropertyNames()) {
+            int id = Integer.parseInt(idKey.trim());
+            Resource resource = resourceLoader.getResource(base + index.getProperty(idKey).trim());
+            try (InputStream in = resource.getInputStream()) {
+                Schema schema = new Schema.Parser().parse(in);
+                schemasById.put(id, schema);
+                latestIdByName.merge(schema.getFullName(), id, Math::max);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Schéma illisible: " + resource.getDescription(), e);
+            }
+        }
+    }
+
+    public static EventSchemaRegistry fromClasspath() {
+        return new EventSchemaRegistry(new DefaultResourceLoader(), DEFAULT_LOCATION);
+    }
+
+    public Schema getById(int id) {
+        Schema schema = schemasById.get(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("Schéma inconnu: " + id);
+        }
+        return schema;
+    }
+
+    public Map<Integer, Schema> schemasFor(String fullName) {
+        Map<Integer, Schema> versions = new TreeMap<>();
+        schemasById.forEach((id, schema) -> {
+            if (schema.getFullName().equals(fullName)) {
+                versions.put(id, schema);
+            }
+        });
+        return versions;
+    }
+
+    public int latestIdFor(String fullName) {
+        Integer id = latestIdByName.get(fullName);
+        if (id == null) {
+            throw new IllegalArgumentException("Aucun schéma enregistré pour " + fullName);
+        }
+        return id;
+    }
+}
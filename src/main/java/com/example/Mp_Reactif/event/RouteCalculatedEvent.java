@@ -7,6 +7,10 @@ public class RouteCalculatedEvent {
     private double duration;
     private String mode;
     private long timestamp;
+    private double startLat;
+    private double startLng;
+    private double endLat;
+    private double endLng;
 
     public RouteCalculatedEvent() {
     }
@@ -20,6 +24,15 @@ public class RouteCalculatedEvent {
         this.timestamp = System.currentTimeMillis();
     }
 
+    public RouteCalculatedEvent(String startPlace, String endPlace, double distance, double duration, String mode,
+            double startLat, double startLng, double endLat, double endLng) {
+        this(startPlace, endPlace, distance, duration, mode);
+        this.startLat = startLat;
+        this.startLng = startLng;
+        this.endLat = endLat;
+        this.endLng = endLng;
+    }
+
     public String getStartPlace() {
         return startPlace;
     }
@@ -68,6 +81,38 @@ public class RouteCalculatedEvent {
         this.timestamp = timestamp;
     }
 
+    public double getStartLat() {
+        return startLat;
+    }
+
+    public void setStartLat(double startLat) {
+        this.startLat = startLat;
+    }
+
+    public double getStartLng() {
+        return startLng;
+    }
+
+    public void setStartLng(double startLng) {
+        this.startLng = startLng;
+    }
+
+    public double getEndLat() {
+        return endLat;
+    }
+
+    public void setEndLat(double endLat) {
+        this.endLat = endLat;
+    }
+
+    public double getEndLng() {
+        return endLng;
+    }
+
+    public void setEndLng(double endLng) {
+        this.endLng = endLng;
+    }
+
     @Override
     public String toString() {
         return "RouteCalculatedEvent{" +
@@ -77,6 +122,8 @@ public class RouteCalculatedEvent {
                 ", duration=" + duration +
                 ", mode='" + mode + '\'' +
                 ", timestamp=" + timestamp +
+                ", start=" + startLat + "," + startLng +
+                ", end=" + endLat + "," + endLng +
                 '}';
     }
 }
@@ -0,0 +1,49 @@
+package com.example.Mp_Reactif.event;
+
+public class SpeedObservedEvent {
+    private long edgeId;
+    private double speedKmh;
+    private long timestamp;
+
+    public SpeedObservedEvent() {
+    }
+
+    public SpeedObservedEvent(long edgeId, double speedKmh, long timestamp) {
+        this.edgeId = edgeId;
+        this.speedKmh = speedKmh;
+        this.timestamp = timestamp;
+    }
+
+    public long getEdgeId() {
+        return edgeId;
+    }
+
+    public void setEdgeId(long edgeId) {
+        this.edgeId = edgeId;
+    }
+
+    public double getSpeedKmh() {
+        return speedKmh;
+    }
+
+    public void setSpeedKmh(double speedKmh) {
+        this.speedKmh = speedKmh;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SpeedObservedEvent{" +
+                "edgeId=" + edgeId +
+                ", speedKmh=" + speedKmh +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -3,33 +3,35 @@ package com.example.Mp_Reactif.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class Coordinates {
-    private Double lat;
-    private Double lng;
+import java.util.Objects;
 
-    // Constructeur par défaut REQUIS pour Jackson
-    public Coordinates() {
-    }
+public final class Coordinates {
+    private final double lat;
+    private final double lng;
 
-    public Coordinates(Double lat, Double lng) {
+    @JsonCreator
+    public Coordinates(@JsonProperty("lat") double lat, @JsonProperty("lng") double lng) {
         this.lat = lat;
         this.lng = lng;
     }
 
-    // Getters et setters
-    public Double getLat() {
+    public double getLat() {
         return lat;
     }
 
-    public void setLat(Double lat) {
-        this.lat = lat;
+    public double getLng() {
+        return lng;
     }
 
-    public Double getLng() {
-        return lng;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Coordinates other)) return false;
+        return Double.compare(lat, other.lat) == 0 && Double.compare(lng, other.lng) == 0;
     }
 
-    public void setLng(Double lng) {
-        this.lng = lng;
+    @Override
+    public int hashCode() {
+        return Objects.hash(lat, lng);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,5 @@
+package com.example.Mp_Reactif.model;
+
+// Position GPS remontée par un véhicule ; timestamp (ms epoch) optionnel, requis pour les vitesses
+public record GpsPing(double lat, double lng, Long timestamp) {
+}
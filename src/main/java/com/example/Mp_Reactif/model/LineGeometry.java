@@ -0,0 +1,425 @@
+package com.example.Mp_Reactif.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Polyligne immuable stockée en tableau primitif (lng, lat entrelacés), éventuellement vue
+ * sur une partie d'un tampon partagé. En JSON elle reste une chaîne WKT "LINESTRING(lng lat, ...)",
+ * écrite et relue directement depuis/vers le tableau, sans String intermédiaire par point.
+ * Sous typage par défaut (cache Redis), elle est écrite sous forme compacte : "~" suivi du
+ * base64 des écarts entre points successifs (varints, 1e-7 degré), relue sans analyse décimale.
+ */
+@JsonSerialize(using = LineGeometry.WktSerializer.class)
+@JsonDeserialize(using = LineGeometry.WktDeserializer.class)
+public final class LineGeometry {
+
+    public static final LineGeometry EMPTY = new LineGeometry(new double[0], 0, 0);
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+            100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L};
+    // 7 décimales : ~1 cm, au-delà de la précision des sources (OSRM, PostGIS)
+    private static final int DECIMALS = 7;
+    private static final long FRACTION_SCALE = 10_000_000L;
+    private static final char[] DIGIT_TENS = new char[100];
+    private static final char[] DIGIT_ONES = new char[100];
+    private static final char COMPACT_MARKER = '~';
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final byte[] BASE64_VALUES = new byte[128];
+    private static final ThreadLocal<char[]> WRITE_BUFFER = ThreadLocal.withInitial(() -> new char[4096]);
+    private static final ThreadLocal<byte[]> VARINT_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (char) ('0' + i / 10);
+            DIGIT_ONES[i] = (char) ('0' + i % 10);
+        }
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64.length; i++) {
+            BASE64_VALUES[BASE64[i]] = (byte) i;
+        }
+    }
+
+    private final double[] coordinates;
+    private final int offset;
+    private final int size;
+
+    private LineGeometry(double[] coordinates, int offset, int size) {
+        this.coordinates = coordinates;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    // Le tableau (lng0, lat0, lng1, lat1, ...) est adopté sans copie : il ne doit plus être modifié
+    public static LineGeometry of(double[] lngLat) {
+        return view(lngLat, 0, lngLat.length / 2);
+    }
+
+    // Vue sur les points [offset, offset + size) d'un tampon partagé
+    public static LineGeometry view(double[] lngLat, int offset, int size) {
+        if (offset < 0 || size < 0 || (offset + size) * 2 > lngLat.length) {
+            throw new IllegalArgumentException("Vue hors du tampon de coordonnées");
+        }
+        return size == 0 ? EMPTY : new LineGeometry(lngLat, offset, size);
+    }
+
+    public static LineGeometry parseWkt(String wkt) {
+        return wkt == null ? EMPTY : parseWkt(wkt.toCharArray(), 0, wkt.length());
+    }
+
+    /**
+     * Lit les coordonnées de LINESTRING ou MULTILINESTRING (les parties sont mises bout à bout).
+     * Les nombres sont décodés directement depuis les caractères.
+     */
+    public static LineGeometry parseWkt(char[] text, int start, int length) {
+        int end = start + length;
+        double[] buffer = new double[Math.max(4, length / 8)];
+        int values = 0;
+        int i = start;
+        while (i < end) {
+            char c = text[i];
+            if (c != '-' && c != '.' && (c < '0' || c > '9')) {
+                i++;
+                continue;
+            }
+            if (values == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            // Lecture en une passe : signe, partie entière, décimales
+            int numberStart = i;
+            boolean negative = c == '-';
+            if (negative) {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int decimals = -1;
+            while (i < end) {
+                c = text[i];
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else if (c == '.' && decimals < 0) {
+                    decimals = 0;
+                } else {
+                    break;
+                }
+                i++;
+            }
+            if (digits > 18 || (i < end && (c == 'e' || c == 'E'))) {
+                // Notation exponentielle ou nombre trop long : repli sur l'analyseur standard
+                while (i < end && isNumberChar(text[i])) {
+                    i++;
+                }
+                buffer[values++] = Double.parseDouble(new String(text, numberStart, i - numberStart));
+                continue;
+            }
+            double value = decimals > 0 ? mantissa / (double) POWERS_OF_TEN[decimals] : mantissa;
+            buffer[values++] = negative ? -value : value;
+        }
+        return view(buffer, 0, values / 2);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double lng(int index) {
+        return coordinates[(offset + index) * 2];
+    }
+
+    public double lat(int index) {
+        return coordinates[(offset + index) * 2 + 1];
+    }
+
+    public String toWkt() {
+        char[] buffer = new char[wktCapacity()];
+        return new String(buffer, 0, writeWkt(buffer));
+    }
+
+    @Override
+    public String toString() {
+        return toWkt();
+    }
+
+    private int wktCapacity() {
+        // "LINESTRING(" + ")" ; par point au plus 2 × (signe, 9 chiffres, point, 7 décimales) + ", "
+        return 16 + size * 40;
+    }
+
+    private int writeWkt(char[] out) {
+        if (size == 0) {
+            "LINESTRING EMPTY".getChars(0, 16, out, 0);
+            return 16;
+        }
+        "LINESTRING(".getChars(0, 11, out, 0);
+        int position = 11;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out[position++] = ',';
+                out[position++] = ' ';
+            }
+            position = writeNumber(out, position, lng(i));
+            out[position++] = ' ';
+            position = writeNumber(out, position, lat(i));
+        }
+        out[position++] = ')';
+        return position;
+    }
+
+    // Décimal fixe à 7 chiffres, zéros de fin supprimés (11.5, 3.8482134)
+    private static int writeNumber(char[] out, int position, double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude < 1e9)) {
+            String text = Double.toString(value);
+            text.getChars(0, text.length(), out, position);
+            return position + text.length();
+        }
+        long scaled = (long) (magnitude * FRACTION_SCALE + 0.5);
+        int integerPart = (int) (scaled / FRACTION_SCALE);
+        int fraction = (int) (scaled - (long) integerPart * FRACTION_SCALE);
+        if (value < 0 && scaled != 0) {
+            out[position++] = '-';
+        }
+
+        int integerDigits = integerPart < 10 ? 1 : integerPart < 100 ? 2 : integerPart < 1000 ? 3
+                : (int) Math.log10(integerPart) + 1;
+        for (int i = position + integerDigits - 1; i >= position; i--) {
+            out[i] = (char) ('0' + integerPart % 10);
+            integerPart /= 10;
+        }
+        position += integerDigits;
+
+        if (fraction != 0) {
+            // Sept décimales par paires de chiffres (tables), puis suppression des zéros de fin
+            out[position] = '.';
+            int pairs = fraction / 10;
+            out[position + 7] = (char) ('0' + fraction - pairs * 10);
+            for (int i = position + 5; i > position; i -= 2) {
+                int next = pairs / 100;
+                int pair = pairs - next * 100;
+                out[i] = DIGIT_TENS[pair];
+                out[i + 1] = DIGIT_ONES[pair];
+                pairs = next;
+            }
+            position += DECIMALS + 1;
+            while (out[position - 1] == '0') {
+                position--;
+            }
+        }
+        return position;
+    }
+
+    // Nombre de points puis, pour chaque coordonnée, l'écart au point précédent (zigzag + varint)
+    private int writeCompact(char[] out, byte[] varints) {
+        int length = writeVarint(varints, 0, size);
+        long previousLng = 0;
+        long previousLat = 0;
+        for (int i = 0; i < size; i++) {
+            long lng = Math.round(lng(i) * FRACTION_SCALE);
+            long lat = Math.round(lat(i) * FRACTION_SCALE);
+            length = writeVarint(varints, length, zigzag(lng - previousLng));
+            length = writeVarint(varints, length, zigzag(lat - previousLat));
+            previousLng = lng;
+            previousLat = lat;
+        }
+
+        out[0] = COMPACT_MARKER;
+        int position = 1;
+        for (int i = 0; i < length; i += 3) {
+            int chunk = (varints[i] & 0xFF) << 16;
+            if (i + 1 < length) {
+                chunk |= (varints[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < length) {
+                chunk |= varints[i + 2] & 0xFF;
+            }
+            out[position++] = BASE64[(chunk >>> 18) & 0x3F];
+            out[position++] = BASE64[(chunk >>> 12) & 0x3F];
+            if (i + 1 < length) {
+                out[position++] = BASE64[(chunk >>> 6) & 0x3F];
+            }
+            if (i + 2 < length) {
+                out[position++] = BASE64[chunk & 0x3F];
+            }
+        }
+        return position;
+    }
+
+    private int compactCapacity() {
+        // Au plus 10 octets par varint, 4 caractères pour 3 octets
+        return 2 + (size * 20 + 10) * 4 / 3 + 4;
+    }
+
+    private static LineGeometry parseCompact(char[] text, int start, int length) {
+        CompactReader reader = new CompactReader(text, start + 1, start + length);
+        int count = (int) reader.readVarint();
+        double[] lngLat = new double[count * 2];
+        long lng = 0;
+        long lat = 0;
+        for (int i = 0; i < count; i++) {
+            lng += unzigzag(reader.readVarint());
+            lat += unzigzag(reader.readVarint());
+            lngLat[i * 2] = lng / (double) FRACTION_SCALE;
+            lngLat[i * 2 + 1] = lat / (double) FRACTION_SCALE;
+        }
+        return view(lngLat, 0, count);
+    }
+
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Décodage base64 à la volée, octet par octet, directement depuis le tampon du parseur
+    private static final class CompactReader {
+        private final char[] text;
+        private final int end;
+        private int position;
+        private int bits;
+        private int bitCount;
+
+        private CompactReader(char[] text, int position, int end) {
+            this.text = text;
+            this.position = position;
+            this.end = end;
+        }
+
+        private int readByte() {
+            while (bitCount < 8) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Géométrie compacte tronquée");
+                }
+                char c = text[position++];
+                int value = c < 128 ? BASE64_VALUES[c] : -1;
+                if (value < 0) {
+                    throw new IllegalArgumentException("Caractère invalide dans une géométrie compacte");
+                }
+                bits = (bits << 6) | value;
+                bitCount += 6;
+            }
+            bitCount -= 8;
+            return (bits >>> bitCount) & 0xFF;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint invalide dans une géométrie compacte");
+        }
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-' || c == '+';
+    }
+
+    public static final class WktSerializer extends StdSerializer<LineGeometry> {
+
+        public WktSerializer() {
+            super(LineGeometry.class);
+        }
+
+        @Override
+        public void serialize(LineGeometry value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buffer = writeBuffer(value.wktCapacity());
+            gen.writeString(buffer, 0, value.writeWkt(buffer));
+        }
+
+        // Typage par défaut (cache Redis) : forme compacte, sans identifiant de type (classe finale)
+        @Override
+        public void serializeWithType(LineGeometry value, JsonGenerator gen, SerializerProvider provider,
+                TypeSerializer typeSer) throws IOException {
+            int capacity = value.compactCapacity();
+            byte[] varints = VARINT_BUFFER.get();
+            if (varints.length < capacity) {
+                varints = new byte[Math.max(capacity, varints.length * 2)];
+                VARINT_BUFFER.set(varints);
+            }
+            char[] buffer = writeBuffer(capacity);
+            gen.writeString(buffer, 0, value.writeCompact(buffer, varints));
+        }
+
+        private static char[] writeBuffer(int capacity) {
+            char[] buffer = WRITE_BUFFER.get();
+            if (buffer.length < capacity) {
+                buffer = new char[Math.max(capacity, buffer.length * 2)];
+                WRITE_BUFFER.set(buffer);
+            }
+            return buffer;
+        }
+    }
+
+    public static final class WktDeserializer extends StdScalarDeserializer<LineGeometry> {
+
+        public WktDeserializer() {
+            super(LineGeometry.class);
+        }
+
+        @Override
+        public LineGeometry deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (p.currentToken() != JsonToken.VALUE_STRING) {
+                return (LineGeometry) ctxt.handleUnexpectedToken(LineGeometry.class, p);
+            }
+            char[] text = p.getTextCharacters();
+            int offset = p.getTextOffset();
+            int length = p.getTextLength();
+            if (length > 0 && text[offset] == COMPACT_MARKER) {
+                return parseCompact(text, offset, length);
+            }
+            return parseWkt(text, offset, length);
+        }
+
+        // Chaîne nue (WKT ou forme compacte) ou forme enveloppée avec identifiant de type
+        @Override
+        public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer)
+                throws IOException {
+            if (p.currentToken() == JsonToken.START_ARRAY) {
+                return typeDeserializer.deserializeTypedFromAny(p, ctxt);
+            }
+            return deserialize(p, ctxt);
+        }
+    }
+}
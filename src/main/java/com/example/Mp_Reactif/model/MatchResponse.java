@@ -0,0 +1,12 @@
+package com.example.Mp_Reactif.model;
+
+import java.util.List;
+
+// edges : trajet complet (tronçons consécutifs distincts) ; received = pings reçus, matched = pings recalés
+public record MatchResponse(List<MatchedPoint> points, List<Long> edges, double distance, int received,
+        int matched, int breaks, String error) {
+
+    public static MatchResponse error(String error) {
+        return new MatchResponse(null, null, 0, 0, 0, 0, error);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.Mp_Reactif.model;
+
+import java.util.List;
+
+/**
+ * Position recalée sur le réseau. index = rang du ping dans la trace reçue ; edges = tronçons
+ * (identifiants de la table routes) parcourus depuis le point recalé précédent, tronçon courant
+ * compris : leur concaténation donne le trajet effectué. segmentStart marque le début d'un
+ * segment sans lien avec le précédent (premier point ou rupture de la chaîne).
+ */
+public record MatchedPoint(int index, double lat, double lng, Long timestamp, long edgeId, double matchedLat,
+        double matchedLng, double distanceToRoad, double routeDistance, Double speedKmh, List<Long> edges,
+        boolean segmentStart) {
+}
@@ -0,0 +1,5 @@
+package com.example.Mp_Reactif.model;
+
+// Point à géocoder ; ref optionnelle, renvoyée telle quelle pour rapprocher la réponse
+public record ReverseGeocodeQuery(String ref, double lat, double lng) {
+}
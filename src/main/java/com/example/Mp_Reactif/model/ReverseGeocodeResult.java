@@ -0,0 +1,10 @@
+package com.example.Mp_Reactif.model;
+
+/**
+ * Lieu le plus proche d'un point du lot. index = rang du point dans le flux reçu (les réponses
+ * sortent dans le même ordre) ; champs du lieu à null si aucun lieu n'est chargé ; distance en
+ * mètres entre le point et le lieu.
+ */
+public record ReverseGeocodeResult(long index, String ref, double lat, double lng, Long placeId, String name,
+        Double placeLat, Double placeLng, Double distance) {
+}
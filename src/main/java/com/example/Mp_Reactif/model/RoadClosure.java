@@ -0,0 +1,16 @@
+package com.example.Mp_Reactif.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Fermeture de routes (inondation, travaux) : tronçons désignés par leur identifiant dans la table
+ * routes et/ou zones (polygones lat/lng) dont tous les tronçons qui les touchent sont fermés.
+ * until optionnel : la fermeture disparaît d'elle-même passé cet instant.
+ */
+public record RoadClosure(String id, String reason, List<Long> edges, List<List<Point>> areas, Instant until) {
+
+    public RoadClosure withId(String newId) {
+        return new RoadClosure(newId, reason, edges, areas, until);
+    }
+}
@@ -1,63 +1,12 @@
 package com.example.Mp_Reactif.model;
 
-import com.example.Mp_Reactif.model.RouteStep;
-
 import java.util.List;
 
-public class Route {
-    private double distance;
-    private double duration;
-    private List<RouteStep> steps;
-    private String startPlaceName;
-    private String endPlaceName;
-    private String geometry;
-
-    // Getters et setters
-    public double getDistance() {
-        return distance;
-    }
-
-    public void setDistance(double distance) {
-        this.distance = distance;
-    }
-
-    public double getDuration() {
-        return duration;
-    }
-
-    public void setDuration(double duration) {
-        this.duration = duration;
-    }
-
-    public List<RouteStep> getSteps() {
-        return steps;
-    }
-
-    public void setSteps(List<RouteStep> steps) {
-        this.steps = steps;
-    }
-
-    public String getStartPlaceName() {
-        return startPlaceName;
-    }
-
-    public void setStartPlaceName(String startPlaceName) {
-        this.startPlaceName = startPlaceName;
-    }
-
-    public String getEndPlaceName() {
-        return endPlaceName;
-    }
-
-    public void setEndPlaceName(String endPlaceName) {
-        this.endPlaceName = endPlaceName;
-    }
-
-    public String getGeometry() {
-        return geometry;
-    }
+public record Route(double distance, double duration, List<RouteStep> steps, String startPlaceName,
+        String endPlaceName, LineGeometry geometry) {
 
-    public void setGeometry(String geometry) {
-        this.geometry = geometry;
+    // Même itinéraire, étapes et géométrie partagées, avec les noms d'une autre requête
+    public Route withPlaceNames(String startPlaceName, String endPlaceName) {
+        return new Route(distance, duration, steps, startPlaceName, endPlaceName, geometry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.example.Mp_Reactif.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tronçons et zones à éviter pour une seule requête d'itinéraire, en plus des fermetures en vigueur
+public record RouteAvoidance(List<Long> edges, List<List<Point>> areas) {
+
+    public static final RouteAvoidance NONE = new RouteAvoidance(List.of(), List.of());
+
+    public static RouteAvoidance of(List<Long> edges, List<List<Point>> areas) {
+        if ((edges == null || edges.isEmpty()) && (areas == null || areas.isEmpty())) {
+            return NONE;
+        }
+        List<List<Point>> copiedAreas = new ArrayList<>();
+        if (areas != null) {
+            for (List<Point> area : areas) {
+                copiedAreas.add(List.copyOf(area));
+            }
+        }
+        return new RouteAvoidance(edges != null ? List.copyOf(edges) : List.of(), List.copyOf(copiedAreas));
+    }
+
+    public boolean isEmpty() {
+        return edges.isEmpty() && areas.isEmpty();
+    }
+
+    // Empreinte 64 bits du contenu, pour la clé de cache : indépendante de l'ordre des tronçons
+    // (doublons comptés une fois) et de celui des zones ; l'ordre des sommets d'une zone compte
+    public long fingerprint() {
+        long hash = 0;
+        for (long edge : edges.stream().mapToLong(Long::longValue).distinct().toArray()) {
+            hash += mix(edge);
+        }
+        for (List<Point> area : areas) {
+            long areaHash = 0xcbf29ce484222325L;
+            for (Point point : area) {
+                areaHash = (areaHash ^ Double.doubleToLongBits(point.getLat())) * 0x100000001b3L;
+                areaHash = (areaHash ^ Double.doubleToLongBits(point.getLng())) * 0x100000001b3L;
+            }
+            hash += mix(areaHash ^ 0x5A5A5A5A5A5A5A5AL);
+        }
+        return mix(hash);
+    }
+
+    // Finalisation splitmix64 : chaque terme de la somme est bien dispersé
+    private static long mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.Mp_Reactif.model;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public class RouteRequestBody {
@@ -7,6 +8,11 @@ public class RouteRequestBody {
     private String mode;
     private String startPlaceName;
     private String endPlaceName;
+    // Optionnel, ISO-8601 avec décalage (ex. 2025-06-02T07:45:00+01:00)
+    private OffsetDateTime departureTime;
+    // Optionnels : identifiants de tronçons (table routes) et zones (polygones de points) à éviter
+    private List<Long> avoidEdges;
+    private List<List<Point>> avoidAreas;
 
     // Constructeur par défaut REQUIS
     public RouteRequestBody() {
@@ -44,4 +50,28 @@ public class RouteRequestBody {
     public void setEndPlaceName(String endPlaceName) {
         this.endPlaceName = endPlaceName;
     }
-}
\ No newline at end of file
+
+    public OffsetDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(OffsetDateTime departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public List<Long> getAvoidEdges() {
+        return avoidEdges;
+    }
+
+    public void setAvoidEdges(List<Long> avoidEdges) {
+        this.avoidEdges = avoidEdges;
+    }
+
+    public List<List<Point>> getAvoidAreas() {
+        return avoidAreas;
+    }
+
+    public void setAvoidAreas(List<List<Point>> avoidAreas) {
+        this.avoidAreas = avoidAreas;
+    }
+}
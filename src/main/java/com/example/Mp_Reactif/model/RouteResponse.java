@@ -2,36 +2,13 @@ package com.example.Mp_Reactif.model;
 
 import java.util.List;
 
-public class RouteResponse {
-    private List<Route> routes;
-    private String error;
+public record RouteResponse(List<Route> routes, String error) {
 
-    // Constructeur par défaut REQUIS
-    public RouteResponse() {
+    public static RouteResponse of(List<Route> routes) {
+        return new RouteResponse(routes, null);
     }
 
-    public RouteResponse(List<Route> routes) {
-        this.routes = routes;
+    public static RouteResponse error(String error) {
+        return new RouteResponse(null, error);
     }
-
-    public RouteResponse(String error) {
-        this.error = error;
-    }
-
-    // Getters et setters
-    public List<Route> getRoutes() {
-        return routes;
-    }
-
-    public void setRoutes(List<Route> routes) {
-        this.routes = routes;
-    }
-
-    public String getError() {
-        return error;
-    }
-
-    public void setError(String error) {
-        this.error = error;
-    }
-}
\ No newline at end of file
+}
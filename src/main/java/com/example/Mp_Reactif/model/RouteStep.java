@@ -1,50 +1,8 @@
 package com.example.Mp_Reactif.model;
 
-public class RouteStep {
-    private String geometry;
-    private String source;
-    private String target;
-    private double distance;
-    private double duration;
-
-    // Getters et setters
-    public String getGeometry() {
-        return geometry;
-    }
-
-    public void setGeometry(String geometry) {
-        this.geometry = geometry;
-    }
-
-    public String getSource() {
-        return source;
-    }
-
-    public void setSource(String source) {
-        this.source = source;
-    }
-
-    public String getTarget() {
-        return target;
-    }
-
-    public void setTarget(String target) {
-        this.target = target;
-    }
-
-    public double getDistance() {
-        return distance;
-    }
-
-    public void setDistance(double distance) {
-        this.distance = distance;
-    }
-
-    public double getDuration() {
-        return duration;
-    }
-
-    public void setDuration(double duration) {
-        this.duration = duration;
-    }
-}
\ No newline at end of file
+/**
+ * Étape d'un itinéraire : tronçon de géométrie, libellés de départ/arrivée (nœuds pgRouting
+ * ou instruction OSRM), distance et durée.
+ */
+public record RouteStep(LineGeometry geometry, String source, String target, double distance, double duration) {
+}
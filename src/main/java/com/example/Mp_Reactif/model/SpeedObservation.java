@@ -0,0 +1,5 @@
+package com.example.Mp_Reactif.model;
+
+// Vitesse mesurée sur un tronçon de la table routes ; timestamp (ms epoch) absent = maintenant
+public record SpeedObservation(long edgeId, double speedKmh, Long timestamp) {
+}
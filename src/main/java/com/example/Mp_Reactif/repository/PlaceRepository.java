@@ -2,11 +2,22 @@ package com.example.Mp_Reactif.repository;
 
 import com.example.Mp_Reactif.model.Coordinates;
 import com.example.Mp_Reactif.model.Place;
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @Repository
 public class PlaceRepository {
 
@@ -63,6 +74,16 @@ public class PlaceRepository {
                 .switchIfEmpty(Mono.empty());
     }
 
+    // Tous les lieux de l'emprise, lus en flux pour l'index du géocodage inverse
+    public Flux<Place> findAllPlacesInArea() {
+        String sql = "SELECT id, nom, ST_X(geom) as lng, ST_Y(geom) as lat FROM lieux " +
+                "WHERE ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), geom)";
+        return databaseClient.sql(sql)
+                .map((row, metadata) -> new Place(row.get("id", Long.class), row.get("nom", String.class),
+                        new Coordinates(row.get("lat", Double.class), row.get("lng", Double.class))))
+                .all();
+    }
+
     public Mono<Void> savePlace(Place place) {
         String sql = "INSERT INTO lieux (nom, geom) VALUES (:nom, ST_SetSRID(ST_MakePoint(:lng, :lat), 4326))";
         return databaseClient.sql(sql)
@@ -71,6 +92,98 @@ public class PlaceRepository {
                 .bind("lat", place.getCoordinates().getLat())
                 .then();
     }
+
+    // Insertion multi-lignes idempotente : un lieu de même nom à ~50 m près n'est pas dupliqué
+    public Mono<Long> upsertPlaces(List<Place> batch) {
+        if (batch.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        // Le NOT EXISTS ne voit pas les autres lignes du lot : premier lieu gardé par (nom, cellule de 0.0005°)
+        Map<String, Place> unique = new LinkedHashMap<>();
+        for (Place place : batch) {
+            unique.putIfAbsent(batchKey(place), place);
+        }
+        List<Place> places = new ArrayList<>(unique.values());
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < places.size(); i++) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append("(CAST(:nom").append(i).append(" AS text), CAST(:lng").append(i)
+                    .append(" AS float8), CAST(:lat").append(i).append(" AS float8))");
+        }
+        String sql = "INSERT INTO lieux (nom, geom) " +
+                "SELECT v.nom, ST_SetSRID(ST_MakePoint(v.lng, v.lat), 4326) " +
+                "FROM (VALUES " + values + ") AS v(nom, lng, lat) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM lieux l WHERE lower(l.nom) = lower(v.nom) " +
+                "AND ST_DWithin(l.geom, ST_SetSRID(ST_MakePoint(v.lng, v.lat), 4326), 0.0005))";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (int i = 0; i < places.size(); i++) {
+            Place place = places.get(i);
+            spec = spec.bind("nom" + i, place.getName())
+                    .bind("lng" + i, place.getCoordinates().getLng())
+                    .bind("lat" + i, place.getCoordinates().getLat());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    static String batchKey(Place place) {
+        long lat = (long) Math.floor(place.getCoordinates().getLat() / 0.0005);
+        long lng = (long) Math.floor(place.getCoordinates().getLng() / 0.0005);
+        return place.getName().toLowerCase(Locale.ROOT) + '|' + lat + '|' + lng;
+    }
+
+    // Import en masse : COPY dans une table temporaire de session puis fusion sans doublons
+    public Mono<Long> copyPlaces(List<Place> places) {
+        if (places.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringBuilder csv = new StringBuilder(places.size() * 48);
+        for (Place place : places) {
+            csv.append('"').append(place.getName().replace("\"", "\"\"")).append('"')
+                    .append(',').append(place.getCoordinates().getLng())
+                    .append(',').append(place.getCoordinates().getLat())
+                    .append('\n');
+        }
+        byte[] payload = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        String mergeSql = "INSERT INTO lieux (nom, geom) " +
+                "SELECT DISTINCT ON (i.nom, round(i.lng::numeric, 4), round(i.lat::numeric, 4)) " +
+                "i.nom, ST_SetSRID(ST_MakePoint(i.lng, i.lat), 4326) FROM lieux_import i " +
+                "WHERE NOT EXISTS (SELECT 1 FROM lieux l WHERE lower(l.nom) = lower(i.nom) " +
+                "AND ST_DWithin(l.geom, ST_SetSRID(ST_MakePoint(i.lng, i.lat), 4326), 0.0005))";
+
+        return databaseClient.inConnection(connection -> {
+            PostgresqlConnection pgConnection = unwrap(connection);
+            return execute(connection, "CREATE TEMP TABLE IF NOT EXISTS lieux_import (nom text, lng float8, lat float8)")
+                    .then(execute(connection, "TRUNCATE lieux_import"))
+                    .then(pgConnection.copyIn("COPY lieux_import (nom, lng, lat) FROM STDIN WITH (FORMAT csv)",
+                            Mono.fromSupplier(() -> Unpooled.wrappedBuffer(payload))))
+                    .then(execute(connection, mergeSql));
+        });
+    }
+
+    private static Mono<Long> execute(Connection connection, String sql) {
+        return Mono.from(connection.createStatement(sql).execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .defaultIfEmpty(0L);
+    }
+
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection pgConnection) {
+            return pgConnection;
+        }
+        throw new IllegalStateException("COPY nécessite une connexion PostgreSQL native");
+    }
+
     public Flux<String> findAllPlaceNames() {
         String sql = "SELECT nom FROM lieux ORDER BY nom";
         return databaseClient.sql(sql)
@@ -2,18 +2,29 @@ package com.example.Mp_Reactif.service;
 
 import com.example.Mp_Reactif.model.Point;
 import com.example.Mp_Reactif.model.RouteResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
 public class AdaptiveRedisCacheService {
@@ -24,10 +35,43 @@ public class AdaptiveRedisCacheService {
     private final Map<String, AtomicInteger> usageStatistics = new ConcurrentHashMap<>();
     private final AtomicLong cacheHits = new AtomicLong(0);
     private final AtomicLong cacheMisses = new AtomicLong(0);
+    private final Set<String> prewarmedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicLong prewarmedHits = new AtomicLong(0);
+    private final Map<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong staleServes = new AtomicLong(0);
+    private final AtomicLong earlyRefreshes = new AtomicLong(0);
+    private final AtomicLong backgroundRefreshes = new AtomicLong(0);
+    private final AtomicLong coalescedComputations = new AtomicLong(0);
+    private final AtomicLong refreshFailures = new AtomicLong(0);
+    private final AtomicLong refreshCount = new AtomicLong(0);
+    private final AtomicLong refreshLatencyTotalMillis = new AtomicLong(0);
+    private final AtomicLong refreshLatencyMaxMillis = new AtomicLong(0);
+    private final Duration staleGrace;
+    private final double xfetchBeta;
+    // Tirage uniforme dans [0, 1) de XFetch, remplaçable par une source fixe dans les tests
+    private DoubleSupplier xfetchRandom = () -> ThreadLocalRandom.current().nextDouble();
+    private final double routeCellDegrees;
+    private final String routeCellTag;
+    // Version du réseau routier (empreinte du graphe chargé), vide tant qu'aucun graphe n'est chargé
+    private volatile String routeNetworkTag = "";
+    private final StageTimer getTimer;
+    private final StageTimer setTimer;
     private boolean redisAvailable = true;
 
-    public AdaptiveRedisCacheService(ReactiveRedisTemplate<String, Object> redisTemplate) {
+    public AdaptiveRedisCacheService(ReactiveRedisTemplate<String, Object> redisTemplate,
+            @Value("${app.cache.stale-grace:1h}") Duration staleGrace,
+            @Value("${app.cache.xfetch-beta:1.0}") double xfetchBeta,
+            @Value("${app.cache.route-cell-meters:30}") int routeCellMeters,
+            MeterRegistry meterRegistry,
+            Tracer tracer) {
         this.redisTemplate = redisTemplate;
+        this.staleGrace = staleGrace;
+        this.xfetchBeta = xfetchBeta;
+        // ~111,32 km par degré ; à la latitude du Cameroun les cellules restent quasi carrées
+        this.routeCellDegrees = Math.max(1, routeCellMeters) / 111_320d;
+        this.routeCellTag = Math.max(1, routeCellMeters) + "m";
+        this.getTimer = new StageTimer(meterRegistry, tracer, "mp.cache.get", "Lecture Redis d'une entrée", "keyspace");
+        this.setTimer = new StageTimer(meterRegistry, tracer, "mp.cache.set", "Écriture Redis d'une entrée", "keyspace");
         testConnection();
     }
 
@@ -36,10 +80,93 @@ public class AdaptiveRedisCacheService {
         return key.length() > 80 ? key.substring(0, 80) : key;
     }
 
+    /**
+     * Clé d'itinéraire quantifiée : chaque extrémité est ramenée à une cellule de grille
+     * (app.cache.route-cell-meters) codée en ordre de Morton, comme un geohash. Deux requêtes
+     * au même carrefour partagent ainsi la même entrée. La résolution et la version du réseau
+     * font partie de la clé : "r:30m.<version>:...".
+     */
     public String generateRouteKey(Point start, Point end, String mode) {
-        return String.format("r:%.4f:%.4f:%.4f:%.4f:%s",
-                start.getLat(), start.getLng(), end.getLat(), end.getLng(),
-                getModeCode(mode));
+        StringBuilder key = new StringBuilder(48).append(routeKeyPrefix());
+        appendBase36(key, cellCode(start.getLat(), start.getLng())).append(':');
+        appendBase36(key, cellCode(end.getLat(), end.getLng())).append(':');
+        return key.append(getModeCode(mode)).toString();
+    }
+
+    private String routeKeyPrefix() {
+        String networkTag = routeNetworkTag;
+        return networkTag.isEmpty() ? "r:" + routeCellTag + ':' : "r:" + routeCellTag + '.' + networkTag + ':';
+    }
+
+    /**
+     * Nouvelle version du réseau : les clés calculées ensuite la portent, puis les entrées "r:" et
+     * "rb:" d'une autre version sont supprimées. Un calcul commencé sur l'ancien graphe écrit sous
+     * l'ancienne clé, que plus personne ne lit.
+     */
+    public Mono<Long> switchRouteNetwork(String networkTag) {
+        routeNetworkTag = networkTag;
+        if (!redisAvailable) {
+            return Mono.just(0L);
+        }
+
+        String current = routeKeyPrefix().substring(2);
+        return Flux.just("r:", "rb:")
+                .concatMap(prefix -> redisTemplate.scan(ScanOptions.scanOptions().match(prefix + "*").count(500).build())
+                        .filter(key -> !key.startsWith(current, prefix.length())))
+                .buffer(500)
+                .concatMap(keys -> redisTemplate.delete(keys.toArray(new String[0])))
+                .reduce(0L, Long::sum)
+                .onErrorResume(error -> {
+                    logger.warn("Erreur invalidation des itinéraires: {}", error.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    public String getRouteNetworkTag() {
+        return routeNetworkTag;
+    }
+
+    // Centre de la cellule contenant le point : représentant stable pour le pré-chauffage
+    public Point snapToRouteCell(Point point) {
+        double lat = (Math.floor((point.getLat() + 90) / routeCellDegrees) + 0.5) * routeCellDegrees - 90;
+        double lng = (Math.floor((point.getLng() + 180) / routeCellDegrees) + 0.5) * routeCellDegrees - 180;
+        return new Point(lat, lng);
+    }
+
+    private long cellCode(double lat, double lng) {
+        long latIndex = (long) Math.floor((lat + 90) / routeCellDegrees);
+        long lngIndex = (long) Math.floor((lng + 180) / routeCellDegrees);
+        return spreadBits(lngIndex) | (spreadBits(latIndex) << 1);
+    }
+
+    // Intercale des zéros entre les 32 bits de poids faible (entrelacement de Morton)
+    private static long spreadBits(long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    private static StringBuilder appendBase36(StringBuilder out, long value) {
+        if (value == 0) {
+            return out.append('0');
+        }
+        int start = out.length();
+        long remaining = value;
+        while (remaining != 0) {
+            out.append(Character.forDigit((int) Long.remainderUnsigned(remaining, 36), 36));
+            remaining = Long.divideUnsigned(remaining, 36);
+        }
+        // Chiffres produits de poids faible en premier
+        for (int i = start, j = out.length() - 1; i < j; i++, j--) {
+            char c = out.charAt(i);
+            out.setCharAt(i, out.charAt(j));
+            out.setCharAt(j, c);
+        }
+        return out;
     }
 
     public Duration getIntelligentTTL(String key, Object data) {
@@ -76,8 +203,8 @@ public class AdaptiveRedisCacheService {
         try {
             if (data instanceof RouteResponse) {
                 RouteResponse response = (RouteResponse) data;
-                if (response.getRoutes() != null && !response.getRoutes().isEmpty()) {
-                    return response.getRoutes().get(0).getDistance();
+                if (response.routes() != null && !response.routes().isEmpty()) {
+                    return response.routes().get(0).distance();
                 }
             }
         } catch (Exception e) {
@@ -86,7 +213,7 @@ public class AdaptiveRedisCacheService {
         return 0.0;
     }
 
-    private int getUsageCount(String key) {
+    public int getUsageCount(String key) {
         AtomicInteger counter = usageStatistics.get(key);
         return counter != null ? counter.get() : 0;
     }
@@ -101,52 +228,153 @@ public class AdaptiveRedisCacheService {
             return Mono.empty();
         }
 
-        return redisTemplate.opsForValue()
-                .get(key)
-                .flatMap(result -> {
-                    try {
-                        if (result != null) {
-                            // Conversion sûre
-                            T typedResult = type.cast(result);
-                            cacheHits.incrementAndGet();
-                            recordUsage(key);
-                            logger.debug("✅ CACHE HIT: {} (usage: {})",
-                                    getShortKey(key), getUsageCount(key));
-                            return Mono.just(typedResult);
-                        } else {
-                            cacheMisses.incrementAndGet();
-                            return Mono.empty();
+        return readEntry(key)
+                .filter(entry -> !entry.isStale(System.currentTimeMillis()))
+                .flatMap(entry -> castHit(key, type, entry.getValue()))
+                .switchIfEmpty(Mono.fromRunnable(cacheMisses::incrementAndGet));
+    }
+
+    /**
+     * Lecture "stale-while-revalidate" : une entrée périmée (mais encore présente) est servie
+     * immédiatement pendant qu'un unique recalcul tourne en arrière-plan. Avant l'expiration,
+     * XFetch déclenche un recalcul anticipé avec une probabilité croissante à l'approche de
+     * l'échéance, pondérée par le coût du dernier calcul. Les absences concurrentes sur une
+     * même clé partagent un seul calcul.
+     */
+    public <T> Mono<T> getOrCompute(String key, Class<T> type, Supplier<Mono<T>> loader, Predicate<T> cacheable) {
+        if (!redisAvailable) {
+            return loader.get();
+        }
+
+        return readEntry(key)
+                .flatMap(entry -> castHit(key, type, entry.getValue())
+                        .doOnNext(value -> {
+                            long now = System.currentTimeMillis();
+                            if (entry.isStale(now)) {
+                                staleServes.incrementAndGet();
+                                refreshInBackground(key, loader, cacheable);
+                            } else if (shouldRefreshEarly(entry, now)) {
+                                earlyRefreshes.incrementAndGet();
+                                refreshInBackground(key, loader, cacheable);
+                            }
+                        }))
+                .switchIfEmpty(Mono.defer(() -> {
+                    cacheMisses.incrementAndGet();
+                    return computeShared(key, loader, cacheable);
+                }));
+    }
+
+    // Recalcule et réécrit l'entrée sans la lire (pré-chauffage)
+    public <T> Mono<T> refresh(String key, Supplier<Mono<T>> loader, Predicate<T> cacheable) {
+        return computeShared(key, loader, cacheable);
+    }
+
+    private boolean shouldRefreshEarly(CachedEntry entry, long now) {
+        if (entry.getComputeMillis() <= 0) {
+            return false;
+        }
+        double gap = -entry.getComputeMillis() * xfetchBeta * Math.log(xfetchRandom.getAsDouble());
+        return now + gap >= entry.getSoftExpiresAt();
+    }
+
+    private <T> void refreshInBackground(String key, Supplier<Mono<T>> loader, Predicate<T> cacheable) {
+        if (inFlight.containsKey(key)) {
+            return;
+        }
+        backgroundRefreshes.incrementAndGet();
+        computeShared(key, loader, cacheable).subscribe(value -> {
+        }, error -> logger.debug("Recalcul en arrière-plan échoué pour {}: {}", key, error.getMessage()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> computeShared(String key, Supplier<Mono<T>> loader, Predicate<T> cacheable) {
+        Mono<?> pending = inFlight.get(key);
+        if (pending != null) {
+            coalescedComputations.incrementAndGet();
+            return (Mono<T>) pending;
+        }
+        return (Mono<T>) inFlight.computeIfAbsent(key, k -> {
+            long start = System.nanoTime();
+            return loader.get()
+                    .flatMap(value -> {
+                        long computeMillis = (System.nanoTime() - start) / 1_000_000;
+                        recordRefreshLatency(computeMillis);
+                        if (!cacheable.test(value)) {
+                            return Mono.just(value);
                         }
-                    } catch (ClassCastException e) {
-                        logger.warn("⚠️ Type mismatch in cache for key {}: {}", key, e.getMessage());
-                        cacheMisses.incrementAndGet();
-                        return Mono.empty();
-                    }
-                })
+                        return store(key, value, computeMillis).thenReturn(value);
+                    })
+                    .doOnError(error -> refreshFailures.incrementAndGet())
+                    .doFinally(signal -> inFlight.remove(key))
+                    .cache();
+        });
+    }
+
+    private void recordRefreshLatency(long millis) {
+        refreshCount.incrementAndGet();
+        refreshLatencyTotalMillis.addAndGet(millis);
+        refreshLatencyMaxMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    private Mono<CachedEntry> readEntry(String key) {
+        Mono<CachedEntry> read = redisTemplate.opsForValue()
+                .get(key)
+                // Valeurs écrites avant l'introduction de l'enveloppe : considérées fraîches
+                .map(result -> result instanceof CachedEntry entry ? entry : new CachedEntry(result, Long.MAX_VALUE, 0));
+        return getTimer.time(read, keyspace(key), entry -> entry.isStale(System.currentTimeMillis())
+                        ? StageTimer.Outcome.STALE
+                        : StageTimer.Outcome.HIT, StageTimer.Outcome.MISS)
                 .onErrorResume(error -> {
                     logger.error("❌ Cache get error for {}: {}", key, error.getMessage());
-                    cacheMisses.incrementAndGet();
                     return Mono.empty();
                 });
     }
 
+    private <T> Mono<T> castHit(String key, Class<T> type, Object value) {
+        if (value == null) {
+            return Mono.empty();
+        }
+        try {
+            // Conversion sûre
+            T typedResult = type.cast(value);
+            cacheHits.incrementAndGet();
+            if (prewarmedKeys.contains(key)) {
+                prewarmedHits.incrementAndGet();
+            }
+            recordUsage(key);
+            if (logger.isDebugEnabled()) {
+                logger.debug("✅ CACHE HIT: {} (usage: {})", getShortKey(key), getUsageCount(key));
+            }
+            return Mono.just(typedResult);
+        } catch (ClassCastException e) {
+            logger.warn("⚠️ Type mismatch in cache for key {}: {}", key, e.getMessage());
+            return Mono.empty();
+        }
+    }
+
     public Mono<Boolean> set(String key, Object value) {
         return set(key, value, Duration.ofHours(1));
     }
 
     public Mono<Boolean> set(String key, Object value, Duration ttl) {
+        return store(key, value, 0);
+    }
+
+    private Mono<Boolean> store(String key, Object value, long computeMillis) {
         if (!redisAvailable) {
             return Mono.just(false);
         }
 
         Duration intelligentTtl = getIntelligentTTL(key, value);
+        prewarmedKeys.remove(key);
 
-        return redisTemplate.opsForValue()
-                .set(key, value, intelligentTtl)
+        // L'entrée reste lisible staleGrace après son expiration douce
+        CachedEntry entry = new CachedEntry(value, System.currentTimeMillis() + intelligentTtl.toMillis(), computeMillis);
+        Mono<Boolean> write = redisTemplate.opsForValue().set(key, entry, intelligentTtl.plus(staleGrace));
+        return setTimer.time(write, keyspace(key), success -> success ? StageTimer.Outcome.OK : StageTimer.Outcome.ERROR)
                 .doOnSuccess(success -> {
-                    if (success) {
-                        logger.debug("💾 CACHE SET: {} (TTL: {}h)",
-                                getShortKey(key), intelligentTtl.toHours());
+                    if (success && logger.isDebugEnabled()) {
+                        logger.debug("💾 CACHE SET: {} (TTL: {}h)", getShortKey(key), intelligentTtl.toHours());
                     }
                 })
                 .onErrorResume(error -> {
@@ -155,6 +383,60 @@ public class AdaptiveRedisCacheService {
                 });
     }
 
+    // Marque une entrée écrite par le pré-chauffage : les hits suivants sont comptés à part
+    public void markPrewarmed(String key) {
+        prewarmedKeys.add(key);
+    }
+
+    public Mono<Duration> getRemainingTtl(String key) {
+        if (!redisAvailable) {
+            return Mono.just(Duration.ZERO);
+        }
+
+        // Durée de fraîcheur restante : le TTL Redis inclut la période de grâce "stale"
+        return redisTemplate.getExpire(key)
+                .map(ttl -> ttl.minus(staleGrace))
+                .filter(remaining -> !remaining.isNegative())
+                .defaultIfEmpty(Duration.ZERO)
+                .onErrorResume(error -> Mono.just(Duration.ZERO));
+    }
+
+    public Mono<Boolean> evict(String key) {
+        if (!redisAvailable) {
+            return Mono.just(false);
+        }
+
+        return redisTemplate.delete(key)
+                .map(deleted -> deleted > 0)
+                .onErrorResume(error -> {
+                    logger.warn("Erreur cache evict: {}", error.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    // Invalide les recherches "p:" dont le terme figure dans l'un des noms fournis
+    public Mono<Long> evictPlaceKeysMatching(Collection<String> placeNames) {
+        if (!redisAvailable || placeNames.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringBuilder corpus = new StringBuilder();
+        for (String name : placeNames) {
+            corpus.append(normalizeKey(name)).append('\n');
+        }
+        String haystack = corpus.toString();
+
+        return redisTemplate.scan(ScanOptions.scanOptions().match("p:*").count(500).build())
+                .filter(key -> haystack.contains(key.substring(2)))
+                .buffer(500)
+                .concatMap(keys -> redisTemplate.delete(keys.toArray(new String[0])))
+                .reduce(0L, Long::sum)
+                .onErrorResume(error -> {
+                    logger.warn("Erreur invalidation des lieux: {}", error.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
     private String getModeCode(String mode) {
         if (mode == null) return "d";
         return switch (mode) {
@@ -172,14 +454,20 @@ public class AdaptiveRedisCacheService {
                 .trim();
     }
 
+    // Dimension des métriques : valeurs en nombre fini, dérivées du préfixe de la clé
+    private static String keyspace(String key) {
+        if (key.startsWith("r:")) {
+            return "route";
+        }
+        return key.startsWith("p:") ? "places" : "other";
+    }
+
     private String getShortKey(String key) {
         return key.length() > 30 ? key.substring(0, 30) + "..." : key;
     }
 
     private void testConnection() {
-        System.out.println("🔍 Début du test de connexion Redis...");
-        System.out.println("📍 Host: " + "redis-13330.c341.af-south-1-1.ec2.cloud.redislabs.com");
-        System.out.println("🚪 Port: 13330");
+        logger.info("🔍 Début du test de connexion Redis...");
 
         String testKey = "health-check-rediscloud";
         String testValue = "test-" + System.currentTimeMillis();
@@ -187,39 +475,33 @@ public class AdaptiveRedisCacheService {
         redisTemplate.opsForValue().set(testKey, testValue, Duration.ofSeconds(30))
                 .timeout(Duration.ofSeconds(10)) // Timeout explicite
                 .doOnSuccess(success -> {
-                    System.out.println("📝 Résultat SET: " + success);
                     redisAvailable = success;
                     if (success) {
-                        System.out.println("✅ Redis Cloud: SET réussi");
+                        logger.info("✅ Redis Cloud: SET réussi");
 
                         // Vérification de la lecture
                         redisTemplate.opsForValue().get(testKey)
                                 .timeout(Duration.ofSeconds(5))
-                                .doOnNext(retrieved -> {
-                                    System.out.println("✅ Redis Cloud: GET réussi - " + retrieved);
-                                })
-                                .doOnError(error -> {
-                                    System.out.println("❌ Redis Cloud: GET échoué - " + error.getMessage());
-                                })
+                                .doOnNext(retrieved -> logger.info("✅ Redis Cloud: GET réussi - {}", retrieved))
+                                .doOnError(error -> logger.warn("❌ Redis Cloud: GET échoué - {}", error.getMessage()))
                                 .subscribe();
                     } else {
-                        System.out.println("❌ Redis Cloud: SET a échoué (sans erreur)");
+                        logger.warn("❌ Redis Cloud: SET a échoué (sans erreur)");
                     }
                 })
                 .doOnError(error -> {
                     redisAvailable = false;
-                    System.out.println("💥 Erreur de connexion Redis:");
-                    System.out.println("💥 Type: " + error.getClass().getSimpleName());
-                    System.out.println("💥 Message: " + error.getMessage());
+                    String message = String.valueOf(error.getMessage());
+                    logger.warn("💥 Erreur de connexion Redis: {} - {}", error.getClass().getSimpleName(), message);
 
-                    if (error.getMessage().contains("SSL")) {
-                        System.out.println("🔧 Conseil: Problème SSL détecté");
+                    if (message.contains("SSL")) {
+                        logger.warn("🔧 Conseil: Problème SSL détecté");
                     }
-                    if (error.getMessage().contains("auth")) {
-                        System.out.println("🔧 Conseil: Problème d'authentification");
+                    if (message.contains("auth")) {
+                        logger.warn("🔧 Conseil: Problème d'authentification");
                     }
-                    if (error.getMessage().contains("connection refused")) {
-                        System.out.println("🔧 Conseil: Connexion refusée - vérifiez host/port");
+                    if (message.contains("connection refused")) {
+                        logger.warn("🔧 Conseil: Connexion refusée - vérifiez host/port");
                     }
                 })
                 .subscribe();
@@ -235,6 +517,7 @@ public class AdaptiveRedisCacheService {
 
                     long routesCount = keys.stream().filter(k -> k.startsWith("r:")).count();
                     long placesCount = keys.stream().filter(k -> k.startsWith("p:")).count();
+                    long bodiesCount = keys.stream().filter(k -> k.startsWith("rb:")).count();
 
                     Map<String, Object> stats = new HashMap<>();
                     stats.put("total_keys", keys.size());
@@ -243,8 +526,19 @@ public class AdaptiveRedisCacheService {
                     stats.put("hit_ratio", String.format("%.1f%%", hitRatio));
                     stats.put("redis_available", redisAvailable);
                     stats.put("tracked_keys", usageStatistics.size());
+                    stats.put("prewarmed_keys", prewarmedKeys.size());
+                    stats.put("prewarmed_hits", prewarmedHits.get());
+                    stats.put("stale_serves", staleServes.get());
+                    stats.put("early_refreshes", earlyRefreshes.get());
+                    stats.put("background_refreshes", backgroundRefreshes.get());
+                    stats.put("coalesced_computations", coalescedComputations.get());
+                    stats.put("refresh_failures", refreshFailures.get());
+                    stats.put("refresh_latency_avg_ms", refreshCount.get() > 0
+                            ? refreshLatencyTotalMillis.get() / refreshCount.get() : 0);
+                    stats.put("refresh_latency_max_ms", refreshLatencyMaxMillis.get());
                     stats.put("cached_routes", routesCount);
                     stats.put("cached_places", placesCount);
+                    stats.put("cached_response_bodies", bodiesCount);
 
                     return Mono.just(stats);
                 })
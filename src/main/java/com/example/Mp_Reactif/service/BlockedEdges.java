@@ -0,0 +1,41 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.BitSet;
+
+/**
+ * Tronçons interdits pour une requête, en bits sur les indices de tronçons d'un graphe : fermetures
+ * du registre (un bitset partagé par toutes les requêtes sur ce graphe) et tronçons évités par la
+ * requête elle-même. Rien n'est copié ni modifié à la requête ; un bit coûte 1/8 d'octet par tronçon.
+ */
+public final class BlockedEdges {
+
+    public static final BlockedEdges NONE = new BlockedEdges(null, null);
+
+    private final BitSet closed;
+    private final BitSet avoided;
+
+    public BlockedEdges(BitSet closed, BitSet avoided) {
+        this.closed = closed != null && !closed.isEmpty() ? closed : null;
+        this.avoided = avoided != null && !avoided.isEmpty() ? avoided : null;
+    }
+
+    public boolean isBlocked(int edge) {
+        return closed != null && closed.get(edge) || avoided != null && avoided.get(edge);
+    }
+
+    public boolean isEmpty() {
+        return closed == null && avoided == null;
+    }
+
+    // Identifiants de la table routes -> bits du graphe ; les tronçons absents du graphe sont ignorés
+    public static BitSet bits(RoadGraph graph, long[] edgeIds) {
+        BitSet bits = new BitSet(graph.edgeCount());
+        for (long edgeId : edgeIds) {
+            int edge = graph.edgeIndex(edgeId);
+            if (edge >= 0) {
+                bits.set(edge);
+            }
+        }
+        return bits;
+    }
+}
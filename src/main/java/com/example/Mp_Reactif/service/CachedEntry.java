@@ -0,0 +1,49 @@
+package com.example.Mp_Reactif.service;
+
+/**
+ * Enveloppe stockée dans Redis : la valeur, son expiration "douce" (au-delà, elle est servie
+ * comme périmée pendant un recalcul) et le temps qu'a pris son calcul, utilisé par XFetch.
+ */
+public class CachedEntry {
+    private Object value;
+    private long softExpiresAt;
+    private long computeMillis;
+
+    // Constructeur par défaut REQUIS pour Jackson
+    public CachedEntry() {
+    }
+
+    public CachedEntry(Object value, long softExpiresAt, long computeMillis) {
+        this.value = value;
+        this.softExpiresAt = softExpiresAt;
+        this.computeMillis = computeMillis;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public long getSoftExpiresAt() {
+        return softExpiresAt;
+    }
+
+    public void setSoftExpiresAt(long softExpiresAt) {
+        this.softExpiresAt = softExpiresAt;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    public void setComputeMillis(long computeMillis) {
+        this.computeMillis = computeMillis;
+    }
+
+    public boolean isStale(long nowMillis) {
+        return nowMillis >= softExpiresAt;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.RoadClosure;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registre des fermetures de routes, appliquées à la requête sans toucher à routes.cost. Chaque
+ * fermeture est résolue une fois en identifiants de tronçons (zones : ST_Intersects sur la
+ * géométrie complète) ; l'ensemble actif est figé dans un Active dont l'empreinte entre dans les
+ * clés d'itinéraire, et traduit en bitset une fois par version du graphe en mémoire.
+ *
+ * Partage entre instances par le hash Redis "closures" (une entrée JSON par fermeture), relu à
+ * chaque sync-interval ; sans Redis, le registre reste local à l'instance.
+ */
+@Service
+public class ClosureRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClosureRegistry.class);
+    private static final String REDIS_KEY = "closures";
+
+    public static final int MAX_AREAS = 20;
+    public static final int MAX_AREA_POINTS = 500;
+    public static final int MAX_EDGES = 5000;
+
+    // Fermetures en vigueur à un instant donné : empreinte (vide si aucune) et tronçons fermés triés
+    public record Active(String tag, long[] edgeIds) {
+
+        public static final Active NONE = new Active("", new long[0]);
+
+        public boolean isEmpty() {
+            return edgeIds.length == 0;
+        }
+    }
+
+    private record Entry(RoadClosure closure, String json, long[] edgeIds) {
+    }
+
+    private record Bits(RoadGraphStore.Snapshot snapshot, Active active, BitSet bits) {
+    }
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveRedisTemplate<String, byte[]> redisTemplate;
+    private final AdaptiveRedisCacheService cacheService;
+    private final RoadGraphStore roadGraphStore;
+    private final ObjectMapper objectMapper;
+    private final Duration syncInterval;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Active active = Active.NONE;
+    private volatile Bits bits;
+    private volatile String resolvedNetworkTag;
+    private Disposable syncing;
+
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong syncFailures = new AtomicLong();
+
+    public ClosureRegistry(DatabaseClient databaseClient,
+            ReactiveRedisTemplate<String, byte[]> redisTemplate,
+            AdaptiveRedisCacheService cacheService,
+            RoadGraphStore roadGraphStore,
+            ObjectMapper objectMapper,
+            @Value("${app.closures.sync-interval:10s}") Duration syncInterval) {
+        this.databaseClient = databaseClient;
+        this.redisTemplate = redisTemplate;
+        this.cacheService = cacheService;
+        this.roadGraphStore = roadGraphStore;
+        this.objectMapper = objectMapper;
+        this.syncInterval = syncInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        syncing = Flux.interval(Duration.ZERO, syncInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sync()
+                        .onErrorResume(error -> {
+                            syncFailures.incrementAndGet();
+                            logger.warn("⚠️ Synchronisation des fermetures impossible: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncing != null) {
+            syncing.dispose();
+        }
+    }
+
+    public Active active() {
+        return active;
+    }
+
+    public List<RoadClosure> closures() {
+        List<RoadClosure> closures = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            closures.add(entry.closure());
+        }
+        return closures;
+    }
+
+    // Bitset des fermetures sur un instantané du graphe, reconstruit seulement quand l'un des deux change
+    public BitSet closedEdges(RoadGraphStore.Snapshot snapshot, Active closures) {
+        Bits cached = bits;
+        if (cached != null && cached.snapshot() == snapshot && cached.active() == closures) {
+            return cached.bits();
+        }
+        BitSet built = BlockedEdges.bits(snapshot.graph(), closures.edgeIds());
+        bits = new Bits(snapshot, closures, built);
+        return built;
+    }
+
+    // Message d'erreur, ou null si les zones sont exploitables
+    public static String validate(List<Long> edges, List<List<Point>> areas) {
+        if (edges != null && edges.size() > MAX_EDGES) {
+            return "Au plus " + MAX_EDGES + " tronçons à éviter";
+        }
+        if (edges != null) {
+            for (Long edge : edges) {
+                if (edge == null) {
+                    return "Identifiant de tronçon manquant";
+                }
+            }
+        }
+        if (areas == null) {
+            return null;
+        }
+        if (areas.size() > MAX_AREAS) {
+            return "Au plus " + MAX_AREAS + " zones à éviter";
+        }
+        for (List<Point> area : areas) {
+            if (area == null || area.size() < 3 || area.size() > MAX_AREA_POINTS) {
+                return "Une zone compte entre 3 et " + MAX_AREA_POINTS + " points";
+            }
+            for (Point point : area) {
+                if (point == null || !(point.getLat() >= -90 && point.getLat() <= 90)
+                        || !(point.getLng() >= -180 && point.getLng() <= 180)) {
+                    return "Coordonnées de zone invalides";
+                }
+            }
+        }
+        return null;
+    }
+
+    public Mono<RoadClosure> add(RoadClosure closure) {
+        RoadClosure identified = closure.id() == null || closure.id().isBlank()
+                ? closure.withId(UUID.randomUUID().toString().substring(0, 8))
+                : closure;
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(identified))
+                .flatMap(json -> resolve(identified)
+                        .flatMap(edgeIds -> store(identified.id(), json)
+                                .doOnSuccess(stored -> {
+                                    entries.put(identified.id(), new Entry(identified, json, edgeIds));
+                                    refreshActive();
+                                    logger.info("🚧 Fermeture {} enregistrée: {} tronçons ({})", identified.id(),
+                                            edgeIds.length, identified.reason());
+                                })))
+                .thenReturn(identified);
+    }
+
+    public Mono<Boolean> remove(String id) {
+        return delete(List.of(id))
+                .then(Mono.fromSupplier(() -> {
+                    boolean removed = entries.remove(id) != null;
+                    if (removed) {
+                        refreshActive();
+                        logger.info("✅ Fermeture {} levée", id);
+                    }
+                    return removed;
+                }));
+    }
+
+    private Mono<Void> store(String id, String json) {
+        if (!cacheService.isRedisAvailable()) {
+            return Mono.empty();
+        }
+        return redisTemplate.<String, String>opsForHash().put(REDIS_KEY, id, json).then();
+    }
+
+    private Mono<Void> delete(List<String> ids) {
+        if (!cacheService.isRedisAvailable() || ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return redisTemplate.<String, String>opsForHash().remove(REDIS_KEY, ids.toArray()).then();
+    }
+
+    // Alignement sur le hash Redis, expiration, et nouvelle résolution des zones si le réseau a changé
+    private Mono<Void> sync() {
+        syncs.incrementAndGet();
+        Mono<Map<String, String>> remote = cacheService.isRedisAvailable()
+                ? redisTemplate.<String, String>opsForHash().entries(REDIS_KEY)
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                : Mono.fromSupplier(this::localJson);
+
+        RoadGraphStore.Snapshot snapshot = roadGraphStore.current();
+        String networkTag = snapshot != null ? snapshot.networkTag() : null;
+        boolean networkChanged = networkTag != null && !networkTag.equals(resolvedNetworkTag);
+
+        return remote.flatMap(jsonById -> {
+            Instant now = Instant.now();
+            List<String> expired = new ArrayList<>();
+            List<Mono<Entry>> resolutions = new ArrayList<>();
+            for (Map.Entry<String, String> remoteEntry : jsonById.entrySet()) {
+                Entry local = entries.get(remoteEntry.getKey());
+                if (local != null && local.json().equals(remoteEntry.getValue())
+                        && !(networkChanged && !isEmpty(local.closure().areas()))) {
+                    if (isExpired(local.closure(), now)) {
+                        expired.add(remoteEntry.getKey());
+                    }
+                    continue;
+                }
+                RoadClosure closure;
+                try {
+                    closure = objectMapper.readValue(remoteEntry.getValue(), RoadClosure.class);
+                } catch (JsonProcessingException e) {
+                    logger.warn("⚠️ Fermeture {} illisible, ignorée: {}", remoteEntry.getKey(), e.getMessage());
+                    continue;
+                }
+                if (isExpired(closure, now)) {
+                    expired.add(remoteEntry.getKey());
+                    continue;
+                }
+                resolutions.add(resolve(closure).map(edgeIds -> new Entry(closure, remoteEntry.getValue(), edgeIds)));
+            }
+            return Flux.concat(resolutions)
+                    .collectList()
+                    .flatMap(resolved -> {
+                        boolean changed = entries.keySet().removeIf(id -> !jsonById.containsKey(id));
+                        for (String id : expired) {
+                            changed |= entries.remove(id) != null;
+                        }
+                        for (Entry entry : resolved) {
+                            entries.put(entry.closure().id(), entry);
+                            changed = true;
+                        }
+                        if (networkTag != null) {
+                            resolvedNetworkTag = networkTag;
+                        }
+                        if (changed) {
+                            refreshActive();
+                        }
+                        return delete(expired);
+                    });
+        });
+    }
+
+    private Map<String, String> localJson() {
+        Map<String, String> json = new HashMap<>();
+        entries.forEach((id, entry) -> json.put(id, entry.json()));
+        return json;
+    }
+
+    private static boolean isExpired(RoadClosure closure, Instant now) {
+        return closure.until() != null && closure.until().isBefore(now);
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    // Union triée et sans doublon des tronçons fermés ; l'empreinte ne dépend que de ce contenu
+    private void refreshActive() {
+        long[] union = entries.values().stream()
+                .flatMapToLong(entry -> Arrays.stream(entry.edgeIds()))
+                .sorted()
+                .distinct()
+                .toArray();
+        if (union.length == 0) {
+            active = Active.NONE;
+            return;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (long edgeId : union) {
+            hash = (hash ^ edgeId) * 0x100000001b3L;
+        }
+        active = new Active(Long.toString(hash >>> 24, 36), union);
+    }
+
+    private Mono<long[]> resolve(RoadClosure closure) {
+        long[] listed = closure.edges() != null
+                ? closure.edges().stream().mapToLong(Long::longValue).toArray()
+                : new long[0];
+        if (isEmpty(closure.areas())) {
+            return Mono.just(Arrays.stream(listed).sorted().distinct().toArray());
+        }
+        return edgesInAreas(closure.areas())
+                .map(inAreas -> merge(listed, inAreas));
+    }
+
+    static long[] merge(long[] first, long[] second) {
+        long[] merged = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, merged, first.length, second.length);
+        return Arrays.stream(merged).sorted().distinct().toArray();
+    }
+
+    /**
+     * Tronçons de l'emprise dont la géométrie touche l'une des zones, triés : une requête sur
+     * l'index spatial de routes, quel que soit le nombre de zones.
+     */
+    public Mono<long[]> edgesInAreas(List<List<Point>> areas) {
+        if (isEmpty(areas)) {
+            return Mono.just(new long[0]);
+        }
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < areas.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("ST_Intersects(r.geom, ST_GeomFromText(:area").append(i).append(", 4326))");
+        }
+        String sql = "SELECT r.id FROM routes r WHERE (" + condition + ") " +
+                "AND ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), r.geom)";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (int i = 0; i < areas.size(); i++) {
+            spec = spec.bind("area" + i, polygonWkt(areas.get(i)));
+        }
+        return spec.map((row, metadata) -> row.get("id", Long.class))
+                .all()
+                .collectList()
+                .map(ids -> ids.stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    // Anneau refermé si besoin ; WKT en lng lat
+    static String polygonWkt(List<Point> area) {
+        StringBuilder wkt = new StringBuilder("POLYGON((");
+        for (Point point : area) {
+            wkt.append(point.getLng()).append(' ').append(point.getLat()).append(", ");
+        }
+        Point first = area.get(0);
+        Point last = area.get(area.size() - 1);
+        if (first.getLat() != last.getLat() || first.getLng() != last.getLng()) {
+            wkt.append(first.getLng()).append(' ').append(first.getLat());
+        } else {
+            wkt.setLength(wkt.length() - 2);
+        }
+        return wkt.append("))").toString();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Active current = active;
+        stats.put("closures", entries.size());
+        stats.put("closed_edges", current.edgeIds().length);
+        stats.put("tag", current.tag());
+        stats.put("shared", cacheService.isRedisAvailable());
+        stats.put("syncs", syncs.get());
+        stats.put("sync_failures", syncFailures.get());
+        stats.put("sync_interval_s", syncInterval.toSeconds());
+        return stats;
+    }
+}
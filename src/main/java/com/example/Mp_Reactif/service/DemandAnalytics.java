@@ -0,0 +1,205 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.event.PlaceSearchedEvent;
+import com.example.Mp_Reactif.event.RouteCalculatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Agrégation en mémoire des événements d'itinéraires et de recherches par fenêtres d'une
+ * minute (anneau d'une heure). La fenêtre glissante est la somme des dernières minutes ;
+ * l'instantané exposé par /api/analytics est recalculé périodiquement, pas à chaque lecture.
+ */
+@Service
+public class DemandAnalytics {
+
+    private static final long BUCKET_MILLIS = 60_000;
+    private static final int BUCKET_COUNT = 60;
+    private static final int HISTOGRAM_BINS = 128;
+    private static final int SKETCH_CAPACITY = 64;
+    private static final int TOP_K = 10;
+
+    private final Duration snapshotInterval;
+    private final MinuteBucket[] buckets = new MinuteBucket[BUCKET_COUNT];
+    private final AtomicReference<Map<String, Object>> latestSnapshot = new AtomicReference<>(Map.of());
+    private Disposable snapshotTask;
+
+    public DemandAnalytics(@Value("${app.analytics.snapshot-interval:10s}") Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new MinuteBucket();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        latestSnapshot.set(snapshot(System.currentTimeMillis()));
+        snapshotTask = Flux.interval(snapshotInterval)
+                .subscribe(tick -> latestSnapshot.set(snapshot(System.currentTimeMillis())));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshotTask != null) {
+            snapshotTask.dispose();
+        }
+    }
+
+    public void record(Object event) {
+        if (event instanceof RouteCalculatedEvent route) {
+            recordRoute(route);
+        } else if (event instanceof PlaceSearchedEvent search) {
+            recordSearch(search);
+        }
+    }
+
+    public void recordRoute(RouteCalculatedEvent event) {
+        MinuteBucket bucket = bucketFor(event.getTimestamp());
+        if (bucket == null) {
+            return;
+        }
+        synchronized (bucket) {
+            bucket.routeCount++;
+            bucket.routesByMode.merge(event.getMode() == null ? "unknown" : event.getMode(), 1L, Long::sum);
+            bucket.distanceHistogram[histogramBin(event.getDistance())]++;
+        }
+        bucket.topRoutes.offer(event.getStartPlace() + " → " + event.getEndPlace());
+    }
+
+    public void recordSearch(PlaceSearchedEvent event) {
+        MinuteBucket bucket = bucketFor(event.getTimestamp());
+        if (bucket == null) {
+            return;
+        }
+        synchronized (bucket) {
+            bucket.searchCount++;
+        }
+        bucket.topSearches.offer(event.getQuery());
+    }
+
+    public Map<String, Object> getLatestSnapshot() {
+        return latestSnapshot.get();
+    }
+
+    private MinuteBucket bucketFor(long timestampMillis) {
+        long minute = timestampMillis / BUCKET_MILLIS;
+        long currentMinute = System.currentTimeMillis() / BUCKET_MILLIS;
+        // Événements trop anciens (hors anneau) ou horodatés dans le futur : ignorés
+        if (minute <= currentMinute - BUCKET_COUNT || minute > currentMinute + 1) {
+            return null;
+        }
+        MinuteBucket bucket = buckets[(int) (minute % BUCKET_COUNT)];
+        synchronized (bucket) {
+            if (bucket.minute != minute) {
+                bucket.reset(minute);
+            }
+        }
+        return bucket;
+    }
+
+    Map<String, Object> snapshot(long nowMillis) {
+        long currentMinute = nowMillis / BUCKET_MILLIS;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("generated_at", nowMillis);
+        // Fenêtre fixe : la dernière minute complète
+        snapshot.put("tumbling_1m", aggregate(currentMinute - 1, 1));
+        snapshot.put("sliding_5m", aggregate(currentMinute, 5));
+        snapshot.put("sliding_15m", aggregate(currentMinute, 15));
+        snapshot.put("sliding_60m", aggregate(currentMinute, BUCKET_COUNT));
+        return snapshot;
+    }
+
+    private Map<String, Object> aggregate(long lastMinute, int minutes) {
+        long routeCount = 0;
+        long searchCount = 0;
+        Map<String, Long> routesByMode = new HashMap<>();
+        long[] histogram = new long[HISTOGRAM_BINS];
+        Map<String, Long> topRoutes = new HashMap<>();
+        Map<String, Long> topSearches = new HashMap<>();
+
+        for (long minute = lastMinute - minutes + 1; minute <= lastMinute; minute++) {
+            if (minute < 0) {
+                continue;
+            }
+            MinuteBucket bucket = buckets[(int) (minute % BUCKET_COUNT)];
+            synchronized (bucket) {
+                if (bucket.minute != minute) {
+                    continue;
+                }
+                routeCount += bucket.routeCount;
+                searchCount += bucket.searchCount;
+                bucket.routesByMode.forEach((mode, count) -> routesByMode.merge(mode, count, Long::sum));
+                for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                    histogram[i] += bucket.distanceHistogram[i];
+                }
+            }
+            bucket.topRoutes.mergeInto(topRoutes);
+            bucket.topSearches.mergeInto(topSearches);
+        }
+
+        Map<String, Object> window = new LinkedHashMap<>();
+        window.put("route_count", routeCount);
+        window.put("search_count", searchCount);
+        window.put("routes_by_mode", routesByMode);
+        window.put("distance_p50", percentile(histogram, routeCount, 0.50));
+        window.put("distance_p95", percentile(histogram, routeCount, 0.95));
+        window.put("top_routes", SpaceSavingSketch.top(topRoutes, TOP_K));
+        window.put("top_searches", SpaceSavingSketch.top(topSearches, TOP_K));
+        return window;
+    }
+
+    // Histogramme logarithmique (4 classes par doublement) : ~19 % de précision relative
+    private static int histogramBin(double distance) {
+        if (!(distance > 0)) {
+            return 0;
+        }
+        int bin = (int) (Math.log(distance + 1) / Math.log(2) * 4);
+        return Math.min(bin, HISTOGRAM_BINS - 1);
+    }
+
+    private static double percentile(long[] histogram, long total, double quantile) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < HISTOGRAM_BINS; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.pow(2, (i + 0.5) / 4) - 1;
+            }
+        }
+        return Math.pow(2, HISTOGRAM_BINS / 4.0) - 1;
+    }
+
+    private static final class MinuteBucket {
+        long minute = -1;
+        long routeCount;
+        long searchCount;
+        final Map<String, Long> routesByMode = new HashMap<>();
+        final long[] distanceHistogram = new long[HISTOGRAM_BINS];
+        final SpaceSavingSketch topRoutes = new SpaceSavingSketch(SKETCH_CAPACITY);
+        final SpaceSavingSketch topSearches = new SpaceSavingSketch(SKETCH_CAPACITY);
+
+        void reset(long newMinute) {
+            minute = newMinute;
+            routeCount = 0;
+            searchCount = 0;
+            routesByMode.clear();
+            Arrays.fill(distanceHistogram, 0);
+            topRoutes.clear();
+            topSearches.clear();
+        }
+    }
+}
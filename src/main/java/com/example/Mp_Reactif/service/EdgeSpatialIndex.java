@@ -0,0 +1,145 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.Arrays;
+
+/**
+ * Index spatial des arcs de RoadGraph pour la recherche de candidats du map matching : grille
+ * régulière en degrés, seules les cellules occupées sont gardées (clés triées, arcs contigus
+ * par cellule). Un arc est la corde entre ses deux nœuds ; il est inscrit dans chaque cellule
+ * traversée, échantillonnée tous les demi-pas de grille.
+ */
+public final class EdgeSpatialIndex {
+
+    static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    @FunctionalInterface
+    public interface ArcVisitor {
+        void visit(int arc);
+    }
+
+    private final RoadGraph graph;
+    private final double cellDegrees;
+    private final double minLat;
+    private final double minLng;
+    private final int columns;
+    private final int[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellArcs;
+
+    public EdgeSpatialIndex(RoadGraph graph, double cellDegrees) {
+        this.graph = graph;
+        this.cellDegrees = cellDegrees;
+        double lowLat = Double.POSITIVE_INFINITY, lowLng = Double.POSITIVE_INFINITY;
+        double highLng = Double.NEGATIVE_INFINITY;
+        for (int n = 0; n < graph.nodeCount(); n++) {
+            lowLat = Math.min(lowLat, graph.lat(n));
+            lowLng = Math.min(lowLng, graph.lng(n));
+            highLng = Math.max(highLng, graph.lng(n));
+        }
+        this.minLat = graph.nodeCount() > 0 ? lowLat - cellDegrees : 0;
+        this.minLng = graph.nodeCount() > 0 ? lowLng - cellDegrees : 0;
+        this.columns = graph.nodeCount() > 0 ? (int) ((highLng - minLng) / cellDegrees) + 2 : 1;
+
+        // Entrées (cellule << 32 | arc) triées : une cellule = une plage contiguë
+        long[] entries = new long[Math.max(16, graph.arcCount() * 2)];
+        int size = 0;
+        double step = cellDegrees / 2;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            for (int arc = graph.firstArc(node), end = graph.endArc(node); arc < end; arc++) {
+                int head = graph.arcHead(arc);
+                double dLat = graph.lat(head) - graph.lat(node);
+                double dLng = graph.lng(head) - graph.lng(node);
+                int samples = (int) Math.ceil(Math.max(Math.abs(dLat), Math.abs(dLng)) / step);
+                int previousCell = -1;
+                for (int i = 0; i <= samples; i++) {
+                    double t = samples == 0 ? 0 : (double) i / samples;
+                    int cell = cellOf(graph.lat(node) + t * dLat, graph.lng(node) + t * dLng);
+                    if (cell < 0 || cell == previousCell) {
+                        continue;
+                    }
+                    if (size == entries.length) {
+                        entries = Arrays.copyOf(entries, size * 2);
+                    }
+                    entries[size++] = (long) cell << 32 | arc;
+                    previousCell = cell;
+                }
+            }
+        }
+        Arrays.sort(entries, 0, size);
+
+        int[] keys = new int[size];
+        int[] starts = new int[size + 1];
+        int[] arcs = new int[size];
+        int cells = 0;
+        int count = 0;
+        long previousEntry = -1;
+        for (int i = 0; i < size; i++) {
+            if (entries[i] == previousEntry) {
+                continue;
+            }
+            previousEntry = entries[i];
+            int cell = (int) (entries[i] >>> 32);
+            if (cells == 0 || keys[cells - 1] != cell) {
+                keys[cells] = cell;
+                starts[cells++] = count;
+            }
+            arcs[count++] = (int) entries[i];
+        }
+        starts[cells] = count;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStart = Arrays.copyOf(starts, cells + 1);
+        this.cellArcs = Arrays.copyOf(arcs, count);
+    }
+
+    private int cellOf(double lat, double lng) {
+        int row = (int) ((lat - minLat) / cellDegrees);
+        int column = (int) ((lng - minLng) / cellDegrees);
+        long cell = (long) row * columns + column;
+        if (row < 0 || column < 0 || column >= columns || cell > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) cell;
+    }
+
+    public RoadGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Visite les arcs dont la corde passe peut-être à moins de radiusMeters du point (sur-ensemble :
+     * la distance exacte reste à calculer). Un arc présent dans plusieurs cellules est visité
+     * autant de fois.
+     */
+    public void visitNear(double lat, double lng, double radiusMeters, ArcVisitor visitor) {
+        double margin = radiusMeters / METERS_PER_DEGREE + cellDegrees / 2;
+        double lngMargin = margin / Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        int firstRow = (int) Math.floor((lat - margin - minLat) / cellDegrees);
+        int lastRow = (int) Math.floor((lat + margin - minLat) / cellDegrees);
+        int firstColumn = Math.max(0, (int) Math.floor((lng - lngMargin - minLng) / cellDegrees));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((lng + lngMargin - minLng) / cellDegrees));
+        for (int row = Math.max(0, firstRow); row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                long cell = (long) row * columns + column;
+                if (cell > Integer.MAX_VALUE) {
+                    return;
+                }
+                int index = Arrays.binarySearch(cellKeys, (int) cell);
+                if (index < 0) {
+                    continue;
+                }
+                for (int i = cellStart[index], end = cellStart[index + 1]; i < end; i++) {
+                    visitor.visit(cellArcs[i]);
+                }
+            }
+        }
+    }
+
+    public int cellCount() {
+        return cellKeys.length;
+    }
+
+    public long footprintBytes() {
+        return 4L * cellKeys.length + 4L * cellStart.length + 4L * cellArcs.length;
+    }
+}
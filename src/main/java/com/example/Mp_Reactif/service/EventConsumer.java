@@ -1,35 +1,122 @@
 package com.example.Mp_Reactif.service;
 
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import jakarta.annotation.PostConstruct;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
 
-import java.util.logging.Logger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 @Service
 @ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = true)
 public class EventConsumer {
 
-    private static final Logger LOGGER = Logger.getLogger(EventConsumer.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(EventConsumer.class);
 
     private final KafkaReceiver<String, Object> kafkaReceiver;
+    private final DemandAnalytics demandAnalytics;
+    private final RoutePrewarmer routePrewarmer;
+    private final Scheduler partitionScheduler;
+    private final Tracer tracer;
+    private final Propagator propagator;
+    private Disposable subscription;
 
-    public EventConsumer(KafkaReceiver<String, Object> kafkaReceiver) {
+    public EventConsumer(KafkaReceiver<String, Object> kafkaReceiver,
+            DemandAnalytics demandAnalytics,
+            RoutePrewarmer routePrewarmer,
+            @Value("${app.kafka.consumer.parallelism:4}") int parallelism,
+            Tracer tracer,
+            Propagator propagator) {
         this.kafkaReceiver = kafkaReceiver;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.demandAnalytics = demandAnalytics;
+        this.routePrewarmer = routePrewarmer;
+        this.partitionScheduler = Schedulers.newParallel("event-consumer", parallelism, true);
     }
 
     @PostConstruct
     public void startConsuming() {
-        kafkaReceiver.receive()
-                .doOnNext(record -> {
-                    Object value = record.value();
-                    LOGGER.info("📥 Event Received: Topic=" + record.topic() + ", Value=" + value);
-                    // In a real microservices architecture, you would process the event here.
-                    // For now, we just acknowledge.
-                    record.receiverOffset().acknowledge();
-                })
-                .doOnError(e -> LOGGER.severe("❌ Error consuming event: " + e.getMessage()))
+        // Une file séquentielle par partition (ordre préservé), partitions traitées en parallèle ;
+        // les offsets acquittés sont validés par lots (commitInterval / commitBatchSize)
+        subscription = kafkaReceiver.receive()
+                .groupBy(record -> record.receiverOffset().topicPartition())
+                .flatMap(partition -> partition
+                        .publishOn(partitionScheduler)
+                        .doOnNext(this::process), Integer.MAX_VALUE)
+                .doOnError(e -> logger.error("❌ Error consuming event: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
                 .subscribe();
     }
+
+    // Traitement rattaché à la trace de la requête d'origine quand l'événement en porte une
+    @SuppressWarnings("try")
+    private void process(ReceiverRecord<String, Object> record) {
+        // Message illisible écarté par le désérialiseur : acquitté pour ne pas rester bloqué sur l'offset
+        if (record.value() == null) {
+            record.receiverOffset().acknowledge();
+            return;
+        }
+        Span span = startSpan(record);
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            logger.debug("📥 Event Received: Topic={}, Value={}", record.topic(), record.value());
+            demandAnalytics.record(record.value());
+            routePrewarmer.record(record.value());
+            record.receiverOffset().acknowledge();
+        } catch (RuntimeException e) {
+            if (span != null) {
+                span.error(e);
+            }
+            throw e;
+        } finally {
+            if (span != null) {
+                span.end();
+            }
+        }
+    }
+
+    private Span startSpan(ReceiverRecord<String, Object> record) {
+        Headers headers = record.headers();
+        boolean traced = false;
+        for (String field : propagator.fields()) {
+            traced |= headers.lastHeader(field) != null;
+        }
+        if (!traced) {
+            return null;
+        }
+        return propagator.extract(headers, EventConsumer::header)
+                .name(record.topic() + " process")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.system", "kafka")
+                .tag("messaging.destination.name", record.topic())
+                .start();
+    }
+
+    private static String header(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void stopConsuming() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        partitionScheduler.dispose();
+    }
 }
@@ -2,50 +2,236 @@ package com.example.Mp_Reactif.service;
 
 import com.example.Mp_Reactif.event.PlaceSearchedEvent;
 import com.example.Mp_Reactif.event.RouteCalculatedEvent;
+import com.example.Mp_Reactif.event.SpeedObservedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Mono;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.kafka.sender.KafkaSender;
 import reactor.kafka.sender.SenderRecord;
 
-import java.util.logging.Logger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Publication "fire-and-forget" : chaque topic dispose d'un unique flux longue durée
+ * branché sur le KafkaSender. Le chemin de la requête ne fait que déposer l'événement
+ * dans un tampon borné ; en cas de saturation, la politique de débordement s'applique.
+ * Un événement publié pendant une requête tracée porte le contexte de trace dans ses
+ * en-têtes Kafka (span PRODUCER clos à l'accusé du broker) : EventConsumer s'y rattache.
+ */
 @Service
 @ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = true)
 public class EventProducer {
 
-    private static final Logger LOGGER = Logger.getLogger(EventProducer.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(EventProducer.class);
     private static final String TOPIC_ROUTE = "route-events";
     private static final String TOPIC_PLACE = "place-events";
+    public static final String TOPIC_TRAFFIC = "traffic-observations";
 
     private final KafkaSender<String, Object> kafkaSender;
+    private final Scheduler publishScheduler = Schedulers.newSingle("kafka-publisher", true);
+    private final TopicPublisher routePublisher;
+    private final TopicPublisher placePublisher;
+    private final TopicPublisher trafficPublisher;
+    private final StageTimer publishTimer;
+    private final Tracer tracer;
+    private final Propagator propagator;
 
-    public EventProducer(KafkaSender<String, Object> kafkaSender) {
+    public EventProducer(KafkaSender<String, Object> kafkaSender,
+            @Value("${app.kafka.producer.buffer-size:10000}") int bufferSize,
+            @Value("${app.kafka.producer.overflow-strategy:drop-oldest}") String overflowStrategy,
+            MeterRegistry meterRegistry,
+            Tracer tracer,
+            Propagator propagator) {
         this.kafkaSender = kafkaSender;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.publishTimer = new StageTimer(meterRegistry, "mp.kafka.publish",
+                "Délai entre la mise en file d'un événement et l'accusé du broker", "topic");
+        BufferOverflowStrategy strategy = "drop-latest".equalsIgnoreCase(overflowStrategy)
+                ? BufferOverflowStrategy.DROP_LATEST
+                : BufferOverflowStrategy.DROP_OLDEST;
+        this.routePublisher = new TopicPublisher(TOPIC_ROUTE, bufferSize, strategy);
+        this.placePublisher = new TopicPublisher(TOPIC_PLACE, bufferSize, strategy);
+        this.trafficPublisher = new TopicPublisher(TOPIC_TRAFFIC, bufferSize, strategy);
+        routePublisher.bindMetrics(meterRegistry);
+        placePublisher.bindMetrics(meterRegistry);
+        trafficPublisher.bindMetrics(meterRegistry);
     }
 
-    public Mono<Void> publishRouteCalculated(RouteCalculatedEvent event) {
-        LOGGER.info("📤 Publishing RouteCalculatedEvent: " + event);
-        SenderRecord<String, Object, Integer> record = SenderRecord.create(
-                new ProducerRecord<>(TOPIC_ROUTE, event.getStartPlace() + "-" + event.getEndPlace(), event),
-                1);
+    @PostConstruct
+    public void start() {
+        routePublisher.start();
+        placePublisher.start();
+        trafficPublisher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        routePublisher.stop();
+        placePublisher.stop();
+        trafficPublisher.stop();
+        publishScheduler.dispose();
+    }
+
+    public void publishRouteCalculated(RouteCalculatedEvent event) {
+        routePublisher.offer(event.getStartPlace() + "-" + event.getEndPlace(), event);
+    }
+
+    public void publishPlaceSearched(PlaceSearchedEvent event) {
+        placePublisher.offer(event.getQuery(), event);
+    }
+
+    // Clé = tronçon : les observations d'un même tronçon restent ordonnées dans une partition
+    public void publishSpeedObserved(SpeedObservedEvent event) {
+        trafficPublisher.offer(Long.toString(event.getEdgeId()), event);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put(TOPIC_ROUTE, routePublisher.stats());
+        stats.put(TOPIC_PLACE, placePublisher.stats());
+        stats.put(TOPIC_TRAFFIC, trafficPublisher.stats());
+        return stats;
+    }
+
+    // Métadonnée de corrélation : instant de mise en file (System.nanoTime) et span éventuel
+    private record Pending(long enqueuedNanos, Span span) {
 
-        return kafkaSender.send(Mono.just(record))
-                .doOnError(e -> LOGGER.severe("❌ Error publishing route event: " + e.getMessage()))
-                .next()
-                .then();
+        private void end(Throwable error) {
+            if (span == null) {
+                return;
+            }
+            if (error != null) {
+                span.error(error);
+            }
+            span.end();
+        }
     }
 
-    public Mono<Void> publishPlaceSearched(PlaceSearchedEvent event) {
-        LOGGER.info("📤 Publishing PlaceSearchedEvent: " + event);
-        SenderRecord<String, Object, Integer> record = SenderRecord.create(
-                new ProducerRecord<>(TOPIC_PLACE, event.getQuery(), event),
-                1);
+    private final class TopicPublisher {
+        private final String topic;
+        private final int bufferSize;
+        private final BufferOverflowStrategy overflowStrategy;
+        private final Sinks.Many<SenderRecord<String, Object, Pending>> sink =
+                Sinks.many().unicast().onBackpressureBuffer();
+        private final AtomicLong enqueued = new AtomicLong(0);
+        private final AtomicLong dropped = new AtomicLong(0);
+        private final AtomicLong delivered = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private Disposable subscription;
+
+        private TopicPublisher(String topic, int bufferSize, BufferOverflowStrategy overflowStrategy) {
+            this.topic = topic;
+            this.bufferSize = bufferSize;
+            this.overflowStrategy = overflowStrategy;
+        }
+
+        private void start() {
+            Flux<SenderRecord<String, Object, Pending>> records = sink.asFlux()
+                    .onBackpressureBuffer(bufferSize, record -> {
+                        dropped.incrementAndGet();
+                        record.correlationMetadata().end(null);
+                    }, overflowStrategy)
+                    .publishOn(publishScheduler);
+
+            subscription = kafkaSender.send(records)
+                    .subscribe(result -> {
+                        Pending pending = result.correlationMetadata();
+                        pending.end(result.exception());
+                        if (result.exception() == null) {
+                            delivered.incrementAndGet();
+                            publishTimer.record(topic, StageTimer.Outcome.OK, pending.enqueuedNanos());
+                            return;
+                        }
+                        publishTimer.record(topic, StageTimer.Outcome.ERROR, pending.enqueuedNanos());
+                        if (failed.incrementAndGet() % 1000 == 1) {
+                            logger.warn("❌ Échec de publication sur {} ({} au total): {}", topic, failed.get(),
+                                    result.exception().getMessage());
+                        }
+                    }, error -> logger.error("❌ Flux de publication {} interrompu: {}", topic, error.getMessage()));
+        }
+
+        // Les compteurs existants sont lus à la collecte, sans coût sur le chemin de publication
+        private void bindMetrics(MeterRegistry meterRegistry) {
+            FunctionCounter.builder("mp.kafka.dropped", dropped, AtomicLong::get)
+                    .description("Événements écartés par la politique de débordement")
+                    .tag("topic", topic)
+                    .register(meterRegistry);
+            FunctionCounter.builder("mp.kafka.enqueued", enqueued, AtomicLong::get)
+                    .tag("topic", topic)
+                    .register(meterRegistry);
+        }
+
+        private void stop() {
+            sink.tryEmitComplete();
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+        private void offer(String key, Object event) {
+            ProducerRecord<String, Object> producerRecord = new ProducerRecord<>(topic, key, event);
+            SenderRecord<String, Object, Pending> record = SenderRecord.create(producerRecord,
+                    new Pending(System.nanoTime(), startSpan(producerRecord)));
+
+            Sinks.EmitResult result;
+            while ((result = sink.tryEmitNext(record)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                Thread.onSpinWait();
+            }
+            if (result.isFailure()) {
+                dropped.incrementAndGet();
+                record.correlationMetadata().end(null);
+                return;
+            }
+            enqueued.incrementAndGet();
+            logger.debug("📤 Événement mis en file sur {}: {}", topic, event);
+        }
+
+        // Hors requête tracée (pré-chauffage, tâches de fond), ni span ni en-têtes
+        private Span startSpan(ProducerRecord<String, Object> producerRecord) {
+            Span parent = tracer.currentSpan();
+            if (parent == null) {
+                return null;
+            }
+            Span span = tracer.spanBuilder()
+                    .setParent(parent.context())
+                    .name(topic + " publish")
+                    .kind(Span.Kind.PRODUCER)
+                    .tag("messaging.system", "kafka")
+                    .tag("messaging.destination.name", topic)
+                    .start();
+            propagator.inject(span.context(), producerRecord.headers(),
+                    (headers, name, value) -> headers.add(name, value.getBytes(StandardCharsets.UTF_8)));
+            return span;
+        }
 
-        return kafkaSender.send(Mono.just(record))
-                .doOnError(e -> LOGGER.severe("❌ Error publishing place event: " + e.getMessage()))
-                .next()
-                .then();
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("enqueued", enqueued.get());
+            stats.put("dropped", dropped.get());
+            stats.put("delivered", delivered.get());
+            stats.put("failed", failed.get());
+            stats.put("pending", Math.max(0, enqueued.get() - dropped.get() - delivered.get() - failed.get()));
+            return stats;
+        }
     }
 }
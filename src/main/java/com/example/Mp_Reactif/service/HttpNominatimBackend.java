@@ -0,0 +1,81 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Coordinates;
+import com.example.Mp_Reactif.model.Place;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = "app.nominatim.backend", havingValue = "http", matchIfMissing = true)
+public class HttpNominatimBackend implements NominatimBackend {
+
+    private final WebClient webClient;
+
+    public HttpNominatimBackend(WebClient.Builder webClientBuilder,
+            @Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}") String baseUrl) {
+        this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+    }
+
+    @Override
+    public Mono<Place> search(String normalizedName) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/search")
+                        .queryParam("q", normalizedName + ", Cameroon")
+                        .queryParam("format", "json")
+                        .queryParam("limit", 1)
+                        .queryParam("bounded", 1)
+                        .queryParam("viewbox", "8.4,13.08,16.2,1.65")
+                        .queryParam("accept-language", "fr")
+                        .build())
+                .header("User-Agent", "map-backend/1.0")
+                .retrieve()
+                .bodyToFlux(OsmPlace.class)
+                .next()
+                .map(osmPlace -> new Place(null, osmPlace.getName(), new Coordinates(
+                        Double.parseDouble(osmPlace.getLat()),
+                        Double.parseDouble(osmPlace.getLon()))));
+    }
+
+    private static class OsmPlace {
+        private String lat;
+        private String lon;
+        private String name;
+        private String display_name;
+
+        public String getLat() {
+            return lat;
+        }
+
+        public void setLat(String lat) {
+            this.lat = lat;
+        }
+
+        public String getLon() {
+            return lon;
+        }
+
+        public void setLon(String lon) {
+            this.lon = lon;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDisplayName() {
+            return display_name;
+        }
+
+        public void setDisplayName(String display_name) {
+            this.display_name = display_name;
+        }
+    }
+}
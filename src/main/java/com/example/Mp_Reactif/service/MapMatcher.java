@@ -0,0 +1,422 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.model.MatchedPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map matching HMM (Newson et Krumm) sur RoadGraph : les états cachés sont les positions
+ * candidates sur les arcs proches de chaque ping (EdgeSpatialIndex), l'émission suit une loi
+ * normale de la distance au ping (sigma), la transition une loi exponentielle de l'écart entre
+ * distance sur le réseau et distance à vol d'oiseau (beta). Viterbi en ligne : un point est émis
+ * dès que tous les chemins survivants passent par le même candidat, ou au plus tard maxLag pings
+ * après (meilleur chemin retenu).
+ *
+ * Le matcher est immuable et partagé ; chaque trace a sa Session, non thread-safe, alimentée
+ * dans l'ordre des pings.
+ */
+public final class MapMatcher {
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EdgeSpatialIndex.EARTH_RADIUS_METERS;
+
+    private final EdgeSpatialIndex index;
+    private final RoadGraph graph;
+    private final double sigma;
+    private final double beta;
+    private final double searchRadius;
+    private final int maxCandidates;
+    private final int maxLag;
+
+    public MapMatcher(EdgeSpatialIndex index, double sigmaMeters, double betaMeters, double searchRadiusMeters,
+            int maxCandidates, int maxLag) {
+        this.index = index;
+        this.graph = index.graph();
+        this.sigma = sigmaMeters;
+        this.beta = betaMeters;
+        this.searchRadius = searchRadiusMeters;
+        this.maxCandidates = maxCandidates;
+        this.maxLag = maxLag;
+    }
+
+    public EdgeSpatialIndex index() {
+        return index;
+    }
+
+    public Session session() {
+        return new Session();
+    }
+
+    // Trace complète d'un coup : points recalés dans l'ordre des pings
+    public List<MatchedPoint> match(List<GpsPing> pings) {
+        Session session = session();
+        List<MatchedPoint> matched = new ArrayList<>(pings.size());
+        for (GpsPing ping : pings) {
+            matched.addAll(session.offer(ping));
+        }
+        matched.addAll(session.flush());
+        return matched;
+    }
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = (lat2 - lat1) * METERS_PER_DEGREE;
+        double dLng = (lng2 - lng1) * METERS_PER_DEGREE * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return Math.sqrt(dLat * dLat + dLng * dLng);
+    }
+
+    private static final class Step {
+        final int index;
+        final GpsPing ping;
+
+        Step(int index, GpsPing ping) {
+            this.index = index;
+            this.ping = ping;
+        }
+    }
+
+    // Position sur un arc : offset = distance depuis l'origine de l'arc, en mètres du réseau
+    private static final class Candidate {
+        final Step step;
+        final int arc;
+        final double offset;
+        final double distance;
+        final double lat;
+        final double lng;
+        double score = Double.NEGATIVE_INFINITY;
+        Candidate parent;
+        double routeFromParent;
+        long[] edgesFromParent;
+        boolean emitted;
+
+        Candidate(Step step, int arc, double offset, double distance, double lat, double lng) {
+            this.step = step;
+            this.arc = arc;
+            this.offset = offset;
+            this.distance = distance;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+
+    public final class Session {
+
+        private final int[] keptArcs = new int[maxCandidates];
+        private final double[] keptDistances = new double[maxCandidates];
+        private final double[] keptRatios = new double[maxCandidates];
+        private final EdgeSpatialIndex.ArcVisitor collector = this::consider;
+        private int kept;
+        private double pingLat;
+        private double pingLng;
+        private double cosLat;
+
+        private List<Candidate> current = List.of();
+        private GpsPing lastAccepted;
+        private int received;
+        private int matched;
+        private int breaks;
+
+        public int received() {
+            return received;
+        }
+
+        public int matched() {
+            return matched;
+        }
+
+        public int breaks() {
+            return breaks;
+        }
+
+        // Points devenus définitifs avec ce ping (souvent vide, parfois plusieurs d'un coup)
+        public List<MatchedPoint> offer(GpsPing ping) {
+            Step step = new Step(received++, ping);
+            if (lastAccepted != null && !current.isEmpty()
+                    && distanceMeters(lastAccepted.lat(), lastAccepted.lng(), ping.lat(), ping.lng()) < 2 * sigma) {
+                return List.of();
+            }
+            List<Candidate> candidates = candidates(step);
+            if (candidates.isEmpty()) {
+                return List.of();
+            }
+            List<MatchedPoint> out = new ArrayList<>();
+            if (!current.isEmpty()) {
+                transition(candidates);
+                List<Candidate> reachable = new ArrayList<>(candidates.size());
+                for (Candidate candidate : candidates) {
+                    if (candidate.parent != null) {
+                        reachable.add(candidate);
+                    }
+                }
+                if (reachable.isEmpty()) {
+                    // Rupture : aucun candidat joignable, on clôt le segment et on repart de ce ping
+                    breaks++;
+                    out.addAll(flush());
+                } else {
+                    candidates = reachable;
+                }
+            }
+            if (current.isEmpty()) {
+                for (Candidate candidate : candidates) {
+                    candidate.score = emission(candidate);
+                }
+            }
+            // Scores ramenés au meilleur : une trace sans fin ne dérive pas en précision
+            double best = Double.NEGATIVE_INFINITY;
+            for (Candidate candidate : candidates) {
+                best = Math.max(best, candidate.score);
+            }
+            for (Candidate candidate : candidates) {
+                candidate.score -= best;
+            }
+            current = candidates;
+            lastAccepted = ping;
+            emitDecided(step, out);
+            return out;
+        }
+
+        // Fin de trace : meilleur chemin restant
+        public List<MatchedPoint> flush() {
+            List<MatchedPoint> out = new ArrayList<>();
+            if (!current.isEmpty()) {
+                Candidate best = current.get(0);
+                for (Candidate candidate : current) {
+                    if (candidate.score > best.score) {
+                        best = candidate;
+                    }
+                }
+                emitChain(best, out);
+            }
+            current = List.of();
+            lastAccepted = null;
+            return out;
+        }
+
+        private double emission(Candidate candidate) {
+            double ratio = candidate.distance / sigma;
+            return -0.5 * ratio * ratio;
+        }
+
+        private List<Candidate> candidates(Step step) {
+            kept = 0;
+            pingLat = step.ping.lat();
+            pingLng = step.ping.lng();
+            cosLat = Math.cos(Math.toRadians(pingLat));
+            index.visitNear(pingLat, pingLng, searchRadius, collector);
+            List<Candidate> candidates = new ArrayList<>(kept);
+            for (int i = 0; i < kept; i++) {
+                int arc = keptArcs[i];
+                int tail = graph.arcTail(arc);
+                int head = graph.arcHead(arc);
+                double t = keptRatios[i];
+                candidates.add(new Candidate(step, arc, t * graph.arcLength(arc), keptDistances[i],
+                        graph.lat(tail) + t * (graph.lat(head) - graph.lat(tail)),
+                        graph.lng(tail) + t * (graph.lng(head) - graph.lng(tail))));
+            }
+            return candidates;
+        }
+
+        // Projection du ping sur la corde de l'arc (plan local), insertion triée dans les maxCandidates plus proches
+        private void consider(int arc) {
+            for (int i = 0; i < kept; i++) {
+                if (keptArcs[i] == arc) {
+                    return;
+                }
+            }
+            int tail = graph.arcTail(arc);
+            int head = graph.arcHead(arc);
+            double ax = (graph.lng(tail) - pingLng) * cosLat * METERS_PER_DEGREE;
+            double ay = (graph.lat(tail) - pingLat) * METERS_PER_DEGREE;
+            double dx = (graph.lng(head) - pingLng) * cosLat * METERS_PER_DEGREE - ax;
+            double dy = (graph.lat(head) - pingLat) * METERS_PER_DEGREE - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared > 0 ? Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared)) : 0;
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+            double distance = Math.sqrt(px * px + py * py);
+            if (distance > searchRadius || (kept == maxCandidates && distance >= keptDistances[kept - 1])) {
+                return;
+            }
+            int i = kept < maxCandidates ? kept++ : kept - 1;
+            while (i > 0 && keptDistances[i - 1] > distance) {
+                keptArcs[i] = keptArcs[i - 1];
+                keptDistances[i] = keptDistances[i - 1];
+                keptRatios[i] = keptRatios[i - 1];
+                i--;
+            }
+            keptArcs[i] = arc;
+            keptDistances[i] = distance;
+            keptRatios[i] = t;
+        }
+
+        // Une recherche bornée depuis chaque candidat précédent, vers tous les nouveaux candidats
+        private void transition(List<Candidate> next) {
+            GpsPing ping = next.get(0).step.ping;
+            double straight = distanceMeters(lastAccepted.lat(), lastAccepted.lng(), ping.lat(), ping.lng());
+            double limit = 2 * straight + 2 * searchRadius;
+            SearchWorkspace workspace = SearchWorkspace.forCurrentThread(graph.nodeCount());
+            for (Candidate from : current) {
+                double remaining = graph.arcLength(from.arc) - from.offset;
+                boolean searched = false;
+                for (Candidate to : next) {
+                    double route;
+                    int tail = -1;
+                    if (to.arc == from.arc && to.offset >= from.offset - sigma) {
+                        route = Math.max(0, to.offset - from.offset);
+                    } else {
+                        if (!searched) {
+                            search(workspace, graph.arcHead(from.arc), limit - remaining);
+                            searched = true;
+                        }
+                        tail = graph.arcTail(to.arc);
+                        route = remaining + workspace.label(tail) + to.offset;
+                    }
+                    if (route > limit) {
+                        continue;
+                    }
+                    double score = from.score - Math.abs(route - straight) / beta + emission(to);
+                    if (score > to.score) {
+                        to.score = score;
+                        to.parent = from;
+                        to.routeFromParent = route;
+                        to.edgesFromParent = tail < 0 ? new long[0] : edgesBetween(workspace, from, to, tail);
+                    }
+                }
+            }
+        }
+
+        private void search(SearchWorkspace workspace, int source, double bound) {
+            workspace.reset();
+            if (bound < 0) {
+                return;
+            }
+            workspace.reach(source, 0, -1, -1);
+            workspace.push(source, 0);
+            while (!workspace.isEmpty()) {
+                int node = workspace.pop();
+                if (workspace.isSettled(node)) {
+                    continue;
+                }
+                double distance = workspace.label(node);
+                if (distance > bound) {
+                    break;
+                }
+                workspace.settle(node);
+                for (int arc = graph.firstArc(node), end = graph.endArc(node); arc < end; arc++) {
+                    int head = graph.arcHead(arc);
+                    double reached = distance + graph.arcLength(arc);
+                    if (reached < workspace.label(head)) {
+                        workspace.reach(head, reached, arc, node);
+                        workspace.push(head, reached);
+                    }
+                }
+            }
+        }
+
+        // Tronçons entre l'arc de départ (exclu) et l'arc d'arrivée (inclus), doublons consécutifs retirés
+        private long[] edgesBetween(SearchWorkspace workspace, Candidate from, Candidate to, int tail) {
+            int hops = 0;
+            for (int node = tail; workspace.parentArc(node) >= 0; node = workspace.parentNode(node)) {
+                hops++;
+            }
+            int[] arcs = new int[hops + 1];
+            arcs[hops] = to.arc;
+            int node = tail;
+            for (int i = hops - 1; i >= 0; i--) {
+                arcs[i] = workspace.parentArc(node);
+                node = workspace.parentNode(node);
+            }
+            long[] edges = new long[arcs.length];
+            long previous = graph.edgeId(graph.arcEdge(from.arc));
+            int count = 0;
+            for (int arc : arcs) {
+                long edge = graph.edgeId(graph.arcEdge(arc));
+                if (edge != previous) {
+                    edges[count++] = edge;
+                    previous = edge;
+                }
+            }
+            return Arrays.copyOf(edges, count);
+        }
+
+        // Ancêtre commun de tous les candidats courants : tout ce qui le précède est définitif
+        private void emitDecided(Step step, List<MatchedPoint> out) {
+            List<Candidate> level = current;
+            while (level.size() > 1) {
+                List<Candidate> parents = new ArrayList<>(level.size());
+                for (Candidate candidate : level) {
+                    Candidate parent = candidate.parent;
+                    if (parent == null) {
+                        parents = null;
+                        break;
+                    }
+                    if (!parents.contains(parent)) {
+                        parents.add(parent);
+                    }
+                }
+                if (parents == null) {
+                    break;
+                }
+                level = parents;
+            }
+            if (level.size() == 1) {
+                emitChain(level.get(0), out);
+                return;
+            }
+            Candidate oldestPending = current.get(0);
+            while (oldestPending.parent != null && !oldestPending.parent.emitted) {
+                oldestPending = oldestPending.parent;
+            }
+            if (step.index - oldestPending.step.index >= maxLag) {
+                Candidate best = current.get(0);
+                for (Candidate candidate : current) {
+                    if (candidate.score > best.score) {
+                        best = candidate;
+                    }
+                }
+                current = new ArrayList<>(List.of(best));
+                emitChain(best, out);
+            }
+        }
+
+        private void emitChain(Candidate last, List<MatchedPoint> out) {
+            if (last.emitted) {
+                return;
+            }
+            List<Candidate> chain = new ArrayList<>();
+            for (Candidate candidate = last; candidate != null && !candidate.emitted; candidate = candidate.parent) {
+                chain.add(candidate);
+            }
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                Candidate candidate = chain.get(i);
+                out.add(toPoint(candidate));
+                candidate.emitted = true;
+                candidate.parent = null;
+                matched++;
+            }
+        }
+
+        private MatchedPoint toPoint(Candidate candidate) {
+            GpsPing ping = candidate.step.ping;
+            long edge = graph.edgeId(graph.arcEdge(candidate.arc));
+            boolean start = candidate.parent == null;
+            List<Long> edges = new ArrayList<>();
+            Double speedKmh = null;
+            if (start) {
+                edges.add(edge);
+            } else {
+                for (long traversed : candidate.edgesFromParent) {
+                    edges.add(traversed);
+                }
+                GpsPing previous = candidate.parent.step.ping;
+                if (ping.timestamp() != null && previous.timestamp() != null && ping.timestamp() > previous.timestamp()) {
+                    speedKmh = candidate.routeFromParent / ((ping.timestamp() - previous.timestamp()) / 1000.0) * 3.6;
+                }
+            }
+            return new MatchedPoint(candidate.step.index, ping.lat(), ping.lng(), ping.timestamp(), edge,
+                    candidate.lat, candidate.lng, candidate.distance, start ? 0 : candidate.routeFromParent,
+                    speedKmh, edges, start);
+        }
+    }
+}
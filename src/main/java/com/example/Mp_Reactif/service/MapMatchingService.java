@@ -0,0 +1,176 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.event.SpeedObservedEvent;
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.model.MatchResponse;
+import com.example.Mp_Reactif.model.MatchedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Map matching des traces GPS sur le graphe en mémoire de RoadGraphStore. Une session par
+ * trace, alimentée hors des fils Netty dans l'ordre des pings ; les vitesses des tronçons
+ * parcourus peuvent alimenter le trafic en direct, par Kafka si disponible comme
+ * /api/traffic/observations.
+ */
+@Service
+public class MapMatchingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MapMatchingService.class);
+    private static final int PREFETCH = 64;
+
+    private final RoadGraphStore roadGraphStore;
+    private final TrafficOverlay trafficOverlay;
+    private final EventProducer eventProducer;
+    private final double sigmaMeters;
+    private final double betaMeters;
+    private final double searchRadiusMeters;
+    private final int maxCandidates;
+    private final int maxLag;
+    private final boolean feedTrafficByDefault;
+    private volatile MapMatcher matcher;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder receivedPoints = new LongAdder();
+    private final LongAdder matchedPoints = new LongAdder();
+    private final LongAdder breaks = new LongAdder();
+    private final LongAdder fedObservations = new LongAdder();
+
+    public MapMatchingService(RoadGraphStore roadGraphStore,
+            TrafficOverlay trafficOverlay,
+            @Autowired(required = false) EventProducer eventProducer,
+            @Value("${app.matching.sigma:10}") double sigmaMeters,
+            @Value("${app.matching.beta:25}") double betaMeters,
+            @Value("${app.matching.search-radius:60}") double searchRadiusMeters,
+            @Value("${app.matching.max-candidates:8}") int maxCandidates,
+            @Value("${app.matching.max-lag:30}") int maxLag,
+            @Value("${app.matching.feed-traffic:true}") boolean feedTrafficByDefault) {
+        this.roadGraphStore = roadGraphStore;
+        this.trafficOverlay = trafficOverlay;
+        this.eventProducer = eventProducer;
+        this.sigmaMeters = sigmaMeters;
+        this.betaMeters = betaMeters;
+        this.searchRadiusMeters = searchRadiusMeters;
+        this.maxCandidates = maxCandidates;
+        this.maxLag = maxLag;
+        this.feedTrafficByDefault = feedTrafficByDefault;
+    }
+
+    public boolean isReady() {
+        return roadGraphStore.current() != null;
+    }
+
+    // Un matcher par graphe chargé ; une session commencée garde le sien jusqu'au bout
+    private MapMatcher matcher() {
+        RoadGraphStore.Snapshot snapshot = roadGraphStore.current();
+        if (snapshot == null) {
+            return null;
+        }
+        MapMatcher current = matcher;
+        if (current == null || current.index() != snapshot.edges()) {
+            current = new MapMatcher(snapshot.edges(), sigmaMeters, betaMeters, searchRadiusMeters, maxCandidates,
+                    maxLag);
+            matcher = current;
+        }
+        return current;
+    }
+
+    // Points émis au fil de l'eau, dès qu'ils sont définitifs ; le reste à la fin du flux
+    public Flux<MatchedPoint> matchStream(Flux<GpsPing> pings, Boolean feedTraffic) {
+        boolean feed = feedTraffic != null ? feedTraffic : feedTrafficByDefault;
+        return Flux.defer(() -> {
+            MapMatcher current = matcher();
+            if (current == null) {
+                return Flux.error(new IllegalStateException("Graphe routier non chargé"));
+            }
+            MapMatcher.Session session = current.session();
+            activeSessions.incrementAndGet();
+            return pings
+                    .publishOn(Schedulers.parallel(), PREFETCH)
+                    .concatMapIterable(session::offer)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(session.flush())))
+                    .doOnNext(point -> {
+                        if (feed) {
+                            feedTraffic(point);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        activeSessions.decrementAndGet();
+                        receivedPoints.add(session.received());
+                        matchedPoints.add(session.matched());
+                        breaks.add(session.breaks());
+                        logger.debug("🛰️ Trace recalée: {}/{} points, {} ruptures ({})",
+                                session.matched(), session.received(), session.breaks(), signal);
+                    });
+        });
+    }
+
+    public Mono<MatchResponse> match(Flux<GpsPing> pings, Boolean feedTraffic) {
+        AtomicInteger received = new AtomicInteger();
+        return matchStream(pings.doOnNext(ping -> received.incrementAndGet()), feedTraffic)
+                .collectList()
+                .map(points -> {
+                    List<Long> edges = new ArrayList<>();
+                    double distance = 0;
+                    int segmentBreaks = 0;
+                    for (MatchedPoint point : points) {
+                        if (point.segmentStart() && !edges.isEmpty()) {
+                            segmentBreaks++;
+                        }
+                        for (Long edge : point.edges()) {
+                            if (edges.isEmpty() || !edges.get(edges.size() - 1).equals(edge)) {
+                                edges.add(edge);
+                            }
+                        }
+                        distance += point.routeDistance();
+                    }
+                    return new MatchResponse(points, edges, distance, received.get(), points.size(), segmentBreaks,
+                            null);
+                });
+    }
+
+    // Vitesse moyenne depuis le point précédent, attribuée à chaque tronçon parcouru
+    private void feedTraffic(MatchedPoint point) {
+        if (point.speedKmh() == null || point.timestamp() == null) {
+            return;
+        }
+        for (Long edge : point.edges()) {
+            if (!trafficOverlay.isAcceptable(edge, point.speedKmh(), point.timestamp())) {
+                continue;
+            }
+            if (eventProducer != null) {
+                eventProducer.publishSpeedObserved(new SpeedObservedEvent(edge, point.speedKmh(), point.timestamp()));
+            } else {
+                trafficOverlay.record(edge, point.speedKmh(), point.timestamp());
+            }
+            fedObservations.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", isReady());
+        stats.put("active_sessions", activeSessions.get());
+        stats.put("received_points", receivedPoints.sum());
+        stats.put("matched_points", matchedPoints.sum());
+        stats.put("breaks", breaks.sum());
+        stats.put("fed_observations", fedObservations.sum());
+        stats.put("sigma_m", sigmaMeters);
+        stats.put("beta_m", betaMeters);
+        stats.put("search_radius_m", searchRadiusMeters);
+        return stats;
+    }
+}
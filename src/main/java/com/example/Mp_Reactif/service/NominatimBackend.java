@@ -0,0 +1,13 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Place;
+import reactor.core.publisher.Mono;
+
+/**
+ * Source des lieux OSM utilisée par {@link NominatimGateway}.
+ * Un Mono vide signifie "lieu inconnu", une erreur signifie "backend indisponible".
+ */
+public interface NominatimBackend {
+
+    Mono<Place> search(String normalizedName);
+}
@@ -0,0 +1,162 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Place;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Point d'accès unique à Nominatim pour les lieux absents de la base.
+ * Respecte la politique d'usage d'OSM (1 req/s) via un seau à jetons, fusionne les
+ * recherches identiques en cours, mémorise les noms inconnus et borne chaque appel.
+ */
+@Service
+public class NominatimGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(NominatimGateway.class);
+
+    private final NominatimBackend backend;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final Duration timeout;
+    private final long maxQueueWaitNanos;
+    private final long negativeTtlMillis;
+    private final int negativeMaxEntries;
+    private final StageTimer lookupTimer;
+    private final String backendTag;
+
+    private final Map<String, Mono<Place>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> negativeCache = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicLong upstreamCalls = new AtomicLong(0);
+    private final AtomicLong dedupedLookups = new AtomicLong(0);
+    private final AtomicLong negativeHits = new AtomicLong(0);
+    private final AtomicLong rejectedLookups = new AtomicLong(0);
+    private final AtomicLong failedLookups = new AtomicLong(0);
+
+    public NominatimGateway(NominatimBackend backend,
+            @Value("${app.nominatim.rate-per-second:1}") double ratePerSecond,
+            @Value("${app.nominatim.burst:1}") int burst,
+            @Value("${app.nominatim.timeout:5s}") Duration timeout,
+            @Value("${app.nominatim.max-queue-wait:10s}") Duration maxQueueWait,
+            @Value("${app.nominatim.negative-ttl:6h}") Duration negativeTtl,
+            @Value("${app.nominatim.negative-max-entries:10000}") int negativeMaxEntries,
+            MeterRegistry meterRegistry,
+            Tracer tracer) {
+        this.backend = backend;
+        this.rateLimiter = new TokenBucketRateLimiter(ratePerSecond, burst);
+        this.timeout = timeout;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.negativeMaxEntries = negativeMaxEntries;
+        this.lookupTimer = new StageTimer(meterRegistry, tracer, "mp.places.osm", "Appel Nominatim (hors attente du seau à jetons)", "backend");
+        // HttpNominatimBackend -> "http", StubNominatimBackend -> "stub"
+        this.backendTag = backend.getClass().getSimpleName().replace("NominatimBackend", "").toLowerCase(Locale.ROOT);
+    }
+
+    public Mono<Place> lookup(String normalizedName) {
+        if (normalizedName == null || normalizedName.isEmpty()) {
+            return Mono.empty();
+        }
+        if (isKnownMissing(normalizedName)) {
+            negativeHits.incrementAndGet();
+            return Mono.empty();
+        }
+
+        Mono<Place> pending = inFlight.get(normalizedName);
+        if (pending != null) {
+            dedupedLookups.incrementAndGet();
+            return pending;
+        }
+        return inFlight.computeIfAbsent(normalizedName, this::createLookup);
+    }
+
+    private Mono<Place> createLookup(String normalizedName) {
+        return acquirePermit()
+                .then(Mono.defer(() -> {
+                    upstreamCalls.incrementAndGet();
+                    return lookupTimer.time(backend.search(normalizedName).timeout(timeout), backendTag,
+                            place -> StageTimer.Outcome.OK);
+                }))
+                .doOnSuccess(place -> {
+                    if (place == null) {
+                        rememberMissing(normalizedName);
+                    }
+                })
+                .onErrorResume(e -> {
+                    failedLookups.incrementAndGet();
+                    logger.warn("Nominatim indisponible pour '{}': {}", normalizedName, e.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> inFlight.remove(normalizedName))
+                .cache();
+    }
+
+    private Mono<Void> acquirePermit() {
+        return Mono.defer(() -> {
+            long waitNanos = rateLimiter.reserve(maxQueueWaitNanos);
+            if (waitNanos < 0) {
+                rejectedLookups.incrementAndGet();
+                return Mono.error(new IllegalStateException("File Nominatim saturée"));
+            }
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+            queued.incrementAndGet();
+            return Mono.delay(Duration.ofNanos(waitNanos))
+                    .doFinally(signal -> queued.decrementAndGet())
+                    .then();
+        });
+    }
+
+    private boolean isKnownMissing(String normalizedName) {
+        Long expiresAt = negativeCache.get(normalizedName);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis()) {
+            negativeCache.remove(normalizedName, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private void rememberMissing(String normalizedName) {
+        if (negativeCache.size() >= negativeMaxEntries) {
+            long now = System.currentTimeMillis();
+            negativeCache.values().removeIf(expiresAt -> expiresAt < now);
+            if (negativeCache.size() >= negativeMaxEntries) {
+                return;
+            }
+        }
+        negativeCache.put(normalizedName, System.currentTimeMillis() + negativeTtlMillis);
+    }
+
+    public void forgetMissing(String normalizedName) {
+        negativeCache.remove(normalizedName);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("upstream_calls", upstreamCalls.get());
+        stats.put("deduped_lookups", dedupedLookups.get());
+        stats.put("negative_hits", negativeHits.get());
+        stats.put("negative_entries", negativeCache.size());
+        stats.put("rejected_lookups", rejectedLookups.get());
+        stats.put("failed_lookups", failedLookups.get());
+        stats.put("queued", queued.get());
+        stats.put("in_flight", inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Coordinates;
+import com.example.Mp_Reactif.model.Place;
+import com.example.Mp_Reactif.repository.PlaceRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Import en masse de gazetteers (CSV ou GeoJSON ligne à ligne) dans la table lieux.
+ * Les lignes sont analysées au fil de l'eau et écrites par lots via COPY ; chaque lot
+ * n'est demandé qu'une fois le précédent écrit, ce qui propage la contre-pression au client.
+ */
+@Service
+public class PlaceImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaceImportService.class);
+
+    private final PlaceRepository placeRepository;
+    private final AdaptiveRedisCacheService cacheService;
+    private final PlaceIndexService placeIndexService;
+    private final TileService tileService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int batchSize;
+
+    public PlaceImportService(PlaceRepository placeRepository,
+            AdaptiveRedisCacheService cacheService,
+            PlaceIndexService placeIndexService,
+            TileService tileService,
+            @Value("${app.places.import.batch-size:5000}") int batchSize) {
+        this.placeRepository = placeRepository;
+        this.cacheService = cacheService;
+        this.placeIndexService = placeIndexService;
+        this.tileService = tileService;
+        this.batchSize = batchSize;
+    }
+
+    public Mono<Map<String, Object>> importPlaces(Flux<String> lines, String format) {
+        String normalizedFormat = format == null ? "csv" : format.toLowerCase(Locale.ROOT);
+        if (!normalizedFormat.equals("csv") && !normalizedFormat.equals("geojson")) {
+            return Mono.error(new IllegalArgumentException("Format d'import invalide (csv ou geojson)"));
+        }
+
+        return Mono.defer(() -> {
+            ImportRun run = new ImportRun(normalizedFormat.equals("csv"));
+            return lines
+                    .doOnNext(line -> run.linesRead.incrementAndGet())
+                    .mapNotNull(run::parse)
+                    .buffer(batchSize)
+                    .concatMap(batch -> placeRepository.copyPlaces(batch)
+                            .doOnNext(inserted -> {
+                                run.batches.incrementAndGet();
+                                run.copied.addAndGet(batch.size());
+                                run.inserted.addAndGet(inserted);
+                            }))
+                    .then(Mono.defer(() -> cacheService.evictPlaceKeysMatching(run.importedNames)))
+                    .map(run::report)
+                    .doOnNext(report -> {
+                        logger.info("📦 Import de lieux terminé: {}", report);
+                        placeIndexService.reload().subscribe();
+                        // La couche lieux des tuiles en cache ne montre pas les nouveaux lieux
+                        tileService.invalidateAll();
+                    });
+        });
+    }
+
+    private final class ImportRun {
+        private final boolean csv;
+        private final long startNanos = System.nanoTime();
+        private final Set<String> seen = new HashSet<>();
+        private final Set<String> importedNames = new HashSet<>();
+        private final AtomicLong linesRead = new AtomicLong(0);
+        private final AtomicLong invalid = new AtomicLong(0);
+        private final AtomicLong outOfBounds = new AtomicLong(0);
+        private final AtomicLong duplicates = new AtomicLong(0);
+        private final AtomicLong copied = new AtomicLong(0);
+        private final AtomicLong inserted = new AtomicLong(0);
+        private final AtomicLong batches = new AtomicLong(0);
+        private int nameColumn = -1;
+        private int latColumn = -1;
+        private int lngColumn = -1;
+
+        private ImportRun(boolean csv) {
+            this.csv = csv;
+        }
+
+        private Place parse(String rawLine) {
+            String line = rawLine.strip();
+            if (line.isEmpty()) {
+                return null;
+            }
+
+            if (csv && nameColumn < 0) {
+                readHeader(splitCsv(line));
+                return null;
+            }
+
+            Place place;
+            try {
+                place = csv ? parseCsv(line) : parseGeoJson(line);
+            } catch (RuntimeException e) {
+                place = null;
+            }
+            if (place == null) {
+                invalid.incrementAndGet();
+                return null;
+            }
+
+            double lat = place.getCoordinates().getLat();
+            double lng = place.getCoordinates().getLng();
+            if (!isWithinCameroon(lat, lng)) {
+                outOfBounds.incrementAndGet();
+                return null;
+            }
+            String key = place.getName() + '|' + Math.round(lat * 10_000) + '|' + Math.round(lng * 10_000);
+            if (!seen.add(key)) {
+                duplicates.incrementAndGet();
+                return null;
+            }
+            importedNames.add(place.getName());
+            return place;
+        }
+
+        private Place parseCsv(String line) {
+            List<String> fields = splitCsv(line);
+            String name = PlaceService.normalizeName(fields.get(nameColumn));
+            if (name.isEmpty()) {
+                return null;
+            }
+            return new Place(null, name, new Coordinates(
+                    Double.parseDouble(fields.get(latColumn).strip()),
+                    Double.parseDouble(fields.get(lngColumn).strip())));
+        }
+
+        private void readHeader(List<String> header) {
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).strip().toLowerCase(Locale.ROOT)) {
+                    case "nom", "name" -> nameColumn = i;
+                    case "lat", "latitude" -> latColumn = i;
+                    case "lng", "lon", "longitude" -> lngColumn = i;
+                    default -> {
+                    }
+                }
+            }
+            if (nameColumn < 0 || latColumn < 0 || lngColumn < 0) {
+                throw new IllegalArgumentException("En-tête CSV attendu : nom,lat,lng");
+            }
+        }
+
+        // GeoJSON text sequence : une Feature Point par ligne (séparateur RS et virgule finale tolérés)
+        private Place parseGeoJson(String line) {
+            String json = line.charAt(0) == '\u001e' ? line.substring(1) : line;
+            if (json.endsWith(",")) {
+                json = json.substring(0, json.length() - 1);
+            }
+            JsonNode feature;
+            try {
+                feature = objectMapper.readTree(json);
+            } catch (Exception e) {
+                return null;
+            }
+            JsonNode geometry = feature.path("geometry");
+            JsonNode coordinates = geometry.path("coordinates");
+            if (!"Point".equals(geometry.path("type").asText()) || coordinates.size() < 2) {
+                return null;
+            }
+            JsonNode properties = feature.path("properties");
+            String name = PlaceService.normalizeName(properties.has("nom")
+                    ? properties.get("nom").asText()
+                    : properties.path("name").asText(""));
+            if (name.isEmpty()) {
+                return null;
+            }
+            return new Place(null, name, new Coordinates(coordinates.get(1).asDouble(), coordinates.get(0).asDouble()));
+        }
+
+        private Map<String, Object> report(long evictedKeys) {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000d;
+            Map<String, Object> report = new HashMap<>();
+            report.put("lines_read", linesRead.get());
+            report.put("invalid", invalid.get());
+            report.put("out_of_bounds", outOfBounds.get());
+            report.put("duplicates", duplicates.get());
+            report.put("copied", copied.get());
+            report.put("inserted", inserted.get());
+            report.put("batches", batches.get());
+            report.put("evicted_cache_keys", evictedKeys);
+            report.put("duration_ms", Math.round(seconds * 1000));
+            report.put("rows_per_second", seconds > 0 ? Math.round(linesRead.get() / seconds) : 0);
+            return report;
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static boolean isWithinCameroon(double lat, double lng) {
+        return lat >= 1.65 && lat <= 13.08 && lng >= 8.4 && lng <= 16.2;
+    }
+}
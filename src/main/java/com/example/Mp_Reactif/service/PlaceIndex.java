@@ -0,0 +1,197 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.Arrays;
+
+/**
+ * Index des lieux en mémoire pour le géocodage inverse : kd-tree implicite (médiane de chaque
+ * plage au milieu du tableau, axes alternés lat/lng), sans nœud ni pointeur. Même métrique que
+ * le KNN PostGIS de /api/places/closest (geom <-> point, distance plane en degrés) : le lieu
+ * retourné est celui que la base retournerait. Immuable, partagé sans verrou.
+ */
+public final class PlaceIndex {
+
+    private static final int LEAF_SIZE = 8;
+
+    private final long[] ids;
+    private final String[] names;
+    private final double[] lats;
+    private final double[] lngs;
+
+    private PlaceIndex(long[] ids, String[] names, double[] lats, double[] lngs) {
+        this.ids = ids;
+        this.names = names;
+        this.lats = lats;
+        this.lngs = lngs;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long id(int place) {
+        return ids[place];
+    }
+
+    public String name(int place) {
+        return names[place];
+    }
+
+    public double lat(int place) {
+        return lats[place];
+    }
+
+    public double lng(int place) {
+        return lngs[place];
+    }
+
+    // Indice du lieu le plus proche, -1 si l'index est vide
+    public int nearest(double lat, double lng) {
+        if (ids.length == 0) {
+            return -1;
+        }
+        double[] best = {Double.POSITIVE_INFINITY};
+        int[] bestPlace = {-1};
+        search(0, ids.length, 0, lat, lng, best, bestPlace);
+        return bestPlace[0];
+    }
+
+    private void search(int low, int high, int depth, double lat, double lng, double[] best, int[] bestPlace) {
+        if (high - low <= LEAF_SIZE) {
+            for (int i = low; i < high; i++) {
+                double dLat = lats[i] - lat;
+                double dLng = lngs[i] - lng;
+                double distance = dLat * dLat + dLng * dLng;
+                if (distance < best[0]) {
+                    best[0] = distance;
+                    bestPlace[0] = i;
+                }
+            }
+            return;
+        }
+        int median = (low + high) >>> 1;
+        double dLat = lats[median] - lat;
+        double dLng = lngs[median] - lng;
+        double distance = dLat * dLat + dLng * dLng;
+        if (distance < best[0]) {
+            best[0] = distance;
+            bestPlace[0] = median;
+        }
+        double delta = (depth & 1) == 0 ? lat - lats[median] : lng - lngs[median];
+        if (delta < 0) {
+            search(low, median, depth + 1, lat, lng, best, bestPlace);
+            if (delta * delta < best[0]) {
+                search(median + 1, high, depth + 1, lat, lng, best, bestPlace);
+            }
+        } else {
+            search(median + 1, high, depth + 1, lat, lng, best, bestPlace);
+            if (delta * delta < best[0]) {
+                search(low, median, depth + 1, lat, lng, best, bestPlace);
+            }
+        }
+    }
+
+    // Distance équirectangulaire en mètres, largement assez précise à l'échelle d'un quartier
+    public double distanceMeters(int place, double lat, double lng) {
+        double dLat = Math.toRadians(lats[place] - lat);
+        double dLng = Math.toRadians(lngs[place] - lng) * Math.cos(Math.toRadians((lats[place] + lat) / 2));
+        return EdgeSpatialIndex.EARTH_RADIUS_METERS * Math.sqrt(dLat * dLat + dLng * dLng);
+    }
+
+    public long footprintBytes() {
+        return 8L * ids.length + 8L * lats.length + 8L * lngs.length + 8L * names.length;
+    }
+
+    /**
+     * Accumulation dans des tableaux primitifs, dans l'ordre de lecture ; build() range les lieux
+     * en kd-tree. Non thread-safe : alimenté par un seul flux.
+     */
+    public static final class Builder {
+
+        private long[] ids = new long[1024];
+        private String[] names = new String[1024];
+        private double[] lats = new double[1024];
+        private double[] lngs = new double[1024];
+        private int size;
+
+        public Builder add(long id, String name, double lat, double lng) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lngs = Arrays.copyOf(lngs, capacity);
+            }
+            ids[size] = id;
+            names[size] = name;
+            lats[size] = lat;
+            lngs[size] = lng;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PlaceIndex build() {
+            long[] builtIds = Arrays.copyOf(ids, size);
+            String[] builtNames = Arrays.copyOf(names, size);
+            double[] builtLats = Arrays.copyOf(lats, size);
+            double[] builtLngs = Arrays.copyOf(lngs, size);
+            arrange(builtIds, builtNames, builtLats, builtLngs, 0, size, 0);
+            return new PlaceIndex(builtIds, builtNames, builtLats, builtLngs);
+        }
+
+        // Médiane de la plage à sa place (sélection rapide), puis chaque moitié sur l'autre axe
+        private static void arrange(long[] ids, String[] names, double[] lats, double[] lngs,
+                int low, int high, int depth) {
+            if (high - low <= LEAF_SIZE) {
+                return;
+            }
+            int median = (low + high) >>> 1;
+            double[] keys = (depth & 1) == 0 ? lats : lngs;
+            int left = low;
+            int right = high - 1;
+            while (left < right) {
+                double pivot = keys[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++;
+                    }
+                    while (keys[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(ids, names, lats, lngs, i++, j--);
+                    }
+                }
+                if (median <= j) {
+                    right = j;
+                } else if (median >= i) {
+                    left = i;
+                } else {
+                    break;
+                }
+            }
+            arrange(ids, names, lats, lngs, low, median, depth + 1);
+            arrange(ids, names, lats, lngs, median + 1, high, depth + 1);
+        }
+
+        private static void swap(long[] ids, String[] names, double[] lats, double[] lngs, int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            String name = names[a];
+            names[a] = names[b];
+            names[b] = name;
+            double lat = lats[a];
+            lats[a] = lats[b];
+            lats[b] = lat;
+            double lng = lngs[a];
+            lngs[a] = lngs[b];
+            lngs[b] = lng;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Place;
+import com.example.Mp_Reactif.model.ReverseGeocodeQuery;
+import com.example.Mp_Reactif.model.ReverseGeocodeResult;
+import com.example.Mp_Reactif.repository.PlaceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Géocodage inverse en masse sur l'index en mémoire des lieux (PlaceIndex), rechargé
+ * périodiquement et après chaque import. Les points sont regroupés en lots résolus sur
+ * Schedulers.parallel() ; au plus parallelism lots en cours par flux, de sorte que la lecture
+ * du corps de requête suit le rythme du client qui consomme les réponses.
+ */
+@Service
+public class PlaceIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaceIndexService.class);
+
+    private final PlaceRepository placeRepository;
+    private final boolean enabled;
+    private final Duration refreshInterval;
+    private final int batchSize;
+    private final int parallelism;
+    private volatile PlaceIndex index;
+    private volatile long loadedAtMillis;
+    private volatile long loadMillis;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private Disposable refresh;
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final LongAdder resolvedPoints = new LongAdder();
+    private final LongAdder resolvedBatches = new LongAdder();
+
+    public PlaceIndexService(PlaceRepository placeRepository,
+            @Value("${app.places.index.enabled:true}") boolean enabled,
+            @Value("${app.places.index.refresh-interval:15m}") Duration refreshInterval,
+            @Value("${app.places.index.batch-size:512}") int batchSize,
+            @Value("${app.places.index.parallelism:0}") int parallelism) {
+        this.placeRepository = placeRepository;
+        this.enabled = enabled;
+        this.refreshInterval = refreshInterval;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = parallelism > 0 ? parallelism : Schedulers.DEFAULT_POOL_SIZE;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        refresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reload())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresh != null) {
+            refresh.dispose();
+        }
+    }
+
+    // Un seul chargement à la fois ; l'ancien index sert jusqu'à la publication du nouveau
+    public Mono<Void> reload() {
+        if (!enabled || !loading.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        long startedAt = System.currentTimeMillis();
+        return placeRepository.findAllPlacesInArea()
+                .reduce(new PlaceIndex.Builder(), PlaceIndexService::add)
+                .publishOn(Schedulers.boundedElastic())
+                .map(PlaceIndex.Builder::build)
+                .doOnNext(built -> {
+                    long now = System.currentTimeMillis();
+                    index = built;
+                    loadedAtMillis = now;
+                    loadMillis = now - startedAt;
+                    logger.info("📍 Index des lieux chargé: {} lieux, {} Ko en {} ms",
+                            built.size(), built.footprintBytes() / 1024, now - startedAt);
+                })
+                .onErrorResume(error -> {
+                    logger.warn("⚠️ Index des lieux non chargé: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> loading.set(false))
+                .then();
+    }
+
+    private static PlaceIndex.Builder add(PlaceIndex.Builder builder, Place place) {
+        return builder.add(place.getId(), place.getName(), place.getCoordinates().getLat(),
+                place.getCoordinates().getLng());
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    // Réponses dans l'ordre des points reçus, lots résolus en parallèle
+    public Flux<ReverseGeocodeResult> reverseGeocode(Flux<ReverseGeocodeQuery> points) {
+        return Flux.defer(() -> {
+            PlaceIndex current = index;
+            if (current == null) {
+                return Flux.error(new IllegalStateException("Index des lieux non chargé"));
+            }
+            activeStreams.incrementAndGet();
+            return reverseGeocode(current, points)
+                    .doFinally(signal -> activeStreams.decrementAndGet());
+        });
+    }
+
+    Flux<ReverseGeocodeResult> reverseGeocode(PlaceIndex current, Flux<ReverseGeocodeQuery> points) {
+        return points
+                .index()
+                .buffer(batchSize)
+                .flatMapSequential(batch -> Mono.fromCallable(() -> {
+                    List<ReverseGeocodeResult> results = resolve(current, batch);
+                    resolvedBatches.increment();
+                    resolvedPoints.add(results.size());
+                    return results;
+                }).subscribeOn(Schedulers.parallel()), parallelism, 1)
+                .flatMapIterable(results -> results);
+    }
+
+    static List<ReverseGeocodeResult> resolve(PlaceIndex index, List<Tuple2<Long, ReverseGeocodeQuery>> batch) {
+        List<ReverseGeocodeResult> results = new ArrayList<>(batch.size());
+        for (Tuple2<Long, ReverseGeocodeQuery> entry : batch) {
+            ReverseGeocodeQuery query = entry.getT2();
+            int place = index.nearest(query.lat(), query.lng());
+            if (place < 0) {
+                results.add(new ReverseGeocodeResult(entry.getT1(), query.ref(), query.lat(), query.lng(),
+                        null, null, null, null, null));
+            } else {
+                results.add(new ReverseGeocodeResult(entry.getT1(), query.ref(), query.lat(), query.lng(),
+                        index.id(place), index.name(place), index.lat(place), index.lng(place),
+                        index.distanceMeters(place, query.lat(), query.lng())));
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        PlaceIndex current = index;
+        stats.put("enabled", enabled);
+        stats.put("ready", current != null);
+        stats.put("active_streams", activeStreams.get());
+        stats.put("resolved_points", resolvedPoints.sum());
+        stats.put("resolved_batches", resolvedBatches.sum());
+        stats.put("batch_size", batchSize);
+        stats.put("parallelism", parallelism);
+        if (current != null) {
+            stats.put("places", current.size());
+            stats.put("index_bytes", current.footprintBytes());
+            stats.put("load_ms", loadMillis);
+            stats.put("loaded_at", loadedAtMillis);
+        }
+        return stats;
+    }
+}
@@ -1,40 +1,44 @@
 package com.example.Mp_Reactif.service;
 
+import com.example.Mp_Reactif.config.SampledLogFilter;
 import com.example.Mp_Reactif.event.PlaceSearchedEvent;
-import com.example.Mp_Reactif.model.Coordinates;
 import com.example.Mp_Reactif.model.Place;
 import com.example.Mp_Reactif.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.text.Normalizer;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
 
 @Service
 public class PlaceService {
 
-    private static final Logger LOGGER = Logger.getLogger(PlaceService.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(PlaceService.class);
 
     private final PlaceRepository placeRepository;
-    private final WebClient webClient;
+    private final NominatimGateway nominatimGateway;
+    private final PlaceWriteBehindQueue writeBehindQueue;
     private final AdaptiveRedisCacheService cacheService;
     private final EventProducer eventProducer;
 
     public PlaceService(PlaceRepository placeRepository,
-            WebClient.Builder webClientBuilder,
+            NominatimGateway nominatimGateway,
+            PlaceWriteBehindQueue writeBehindQueue,
             AdaptiveRedisCacheService cacheService,
             @org.springframework.beans.factory.annotation.Autowired(required = false) EventProducer eventProducer) {
         this.placeRepository = placeRepository;
-        this.webClient = webClientBuilder.baseUrl("https://nominatim.openstreetmap.org").build();
+        this.nominatimGateway = nominatimGateway;
+        this.writeBehindQueue = writeBehindQueue;
         this.cacheService = cacheService;
         this.eventProducer = eventProducer;
     }
 
     public Mono<String> getAllPlaceNamesFormatted() {
-        LOGGER.info("📋 Récupération de tous les noms de lieux depuis la base de données");
+        logger.info("📋 Récupération de tous les noms de lieux depuis la base de données");
 
         return placeRepository.findAllPlaceNames()
                 .collectList()
@@ -62,16 +66,16 @@ public class PlaceService {
         String normalizedName = normalizeName(name);
         String cacheKey = cacheService.generatePlacesKey(normalizedName);
 
-        LOGGER.info("🔍 Recherche lieux: " + normalizedName);
+        logger.info(SampledLogFilter.SAMPLED, "🔍 Recherche lieux: {}", normalizedName);
 
         // Publish event asynchronously
         if (eventProducer != null) {
-            eventProducer.publishPlaceSearched(new PlaceSearchedEvent(normalizedName, 0)).subscribe();
+            eventProducer.publishPlaceSearched(new PlaceSearchedEvent(normalizedName, 0));
         }
 
         return cacheService.get(cacheKey, List.class)
                 .flatMapMany(cachedPlaces -> {
-                    LOGGER.info("✅ CACHE HIT - Lieux depuis Redis Cloud: " + normalizedName);
+                    logger.debug("✅ CACHE HIT - Lieux depuis Redis Cloud: {}", normalizedName);
                     return Flux.fromIterable(cachedPlaces)
                             .cast(Place.class);
                 })
@@ -81,25 +85,32 @@ public class PlaceService {
 
     private Flux<Place> searchInDatabaseAndCache(String normalizedName, String cacheKey) {
         return placeRepository.findByNameContaining(normalizedName)
-                .switchIfEmpty(
-                        searchPlaceInOSM(normalizedName)
-                                .filter(osmPlace -> isWithinCameroon(
-                                        osmPlace.getCoordinates().getLat(),
-                                        osmPlace.getCoordinates().getLng()))
-                                .flatMap(osmPlace -> placeRepository.savePlace(osmPlace)
-                                        .then(Mono.just(osmPlace)))
-                                .flatMapMany(savedPlace -> placeRepository.findByNameContaining(normalizedName)))
                 .collectList()
                 .flatMapMany(places -> {
                     if (!places.isEmpty()) {
-                        LOGGER.info("💾 CACHE MISS - Stockage dans Redis Cloud: " + normalizedName);
+                        logger.debug("💾 CACHE MISS - Stockage dans Redis Cloud: {}", normalizedName);
                         return cacheService.set(cacheKey, places)
                                 .thenMany(Flux.fromIterable(places));
                     }
-                    return Flux.fromIterable(places);
+                    return searchPendingOrOSM(normalizedName);
                 });
     }
 
+    // Le résultat OSM est renvoyé tout de suite ; l'écriture en base et le cache suivent en différé
+    private Flux<Place> searchPendingOrOSM(String normalizedName) {
+        List<Place> pendingPlaces = writeBehindQueue.findPending(normalizedName);
+        if (!pendingPlaces.isEmpty()) {
+            return Flux.fromIterable(pendingPlaces);
+        }
+
+        return searchPlaceInOSM(normalizedName)
+                .filter(osmPlace -> isWithinCameroon(
+                        osmPlace.getCoordinates().getLat(),
+                        osmPlace.getCoordinates().getLng()))
+                .doOnNext(osmPlace -> writeBehindQueue.enqueue(normalizedName, osmPlace))
+                .flux();
+    }
+
     public Mono<Place> findClosestPlace(double lat, double lng) {
         if (Double.isNaN(lat) || Double.isNaN(lng) || lat < -90 || lat > 90 || lng < -180 || lng > 180) {
             return Mono.error(new IllegalArgumentException("Coordonnées invalides"));
@@ -107,80 +118,27 @@ public class PlaceService {
         return placeRepository.findClosestPlace(lat, lng);
     }
 
+    public Map<String, Object> getNominatimStats() {
+        return nominatimGateway.getStats();
+    }
+
+    public Map<String, Object> getWriteBehindStats() {
+        return writeBehindQueue.getStats();
+    }
+
     private Mono<Place> searchPlaceInOSM(String name) {
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/search")
-                        .queryParam("q", name + ", Cameroon")
-                        .queryParam("format", "json")
-                        .queryParam("limit", 1)
-                        .queryParam("bounded", 1)
-                        .queryParam("viewbox", "8.4,13.08,16.2,1.65")
-                        .queryParam("accept-language", "fr")
-                        .build())
-                .header("User-Agent", "map-backend/1.0")
-                .retrieve()
-                .bodyToFlux(OsmPlace.class)
-                .next()
-                .map(osmPlace -> {
-                    String formattedName = normalizeName(osmPlace.getName());
-                    return new Place(null, formattedName, new Coordinates(
-                            Double.parseDouble(osmPlace.getLat()),
-                            Double.parseDouble(osmPlace.getLon())));
-                })
-                .onErrorResume(e -> {
-                    LOGGER.severe("Erreur lors de la requête OSM : " + e.getMessage());
-                    return Mono.empty();
-                });
+        return nominatimGateway.lookup(name)
+                .map(osmPlace -> new Place(null, normalizeName(osmPlace.getName()), osmPlace.getCoordinates()));
     }
 
     private boolean isWithinCameroon(double lat, double lng) {
         return lat >= 1.65 && lat <= 13.08 && lng >= 8.4 && lng <= 16.2;
     }
 
-    private String normalizeName(String name) {
+    static String normalizeName(String name) {
         if (name == null)
             return "";
         String normalized = Normalizer.normalize(name, Normalizer.Form.NFD);
         return normalized.replaceAll("[\\p{M}]", "").toLowerCase().trim();
     }
-
-    private static class OsmPlace {
-        private String lat;
-        private String lon;
-        private String name;
-        private String display_name;
-
-        public String getLat() {
-            return lat;
-        }
-
-        public void setLat(String lat) {
-            this.lat = lat;
-        }
-
-        public String getLon() {
-            return lon;
-        }
-
-        public void setLon(String lon) {
-            this.lon = lon;
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public void setName(String name) {
-            this.name = name;
-        }
-
-        public String getDisplayName() {
-            return display_name;
-        }
-
-        public void setDisplayName(String display_name) {
-            this.display_name = display_name;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Place;
+import com.example.Mp_Reactif.repository.PlaceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistance différée des lieux découverts via OSM : la réponse part immédiatement,
+ * les insertions sont regroupées en lots puis le cache des recherches concernées est
+ * rafraîchi une fois le lot validé.
+ */
+@Service
+public class PlaceWriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaceWriteBehindQueue.class);
+
+    private final PlaceRepository placeRepository;
+    private final AdaptiveRedisCacheService cacheService;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int maxPending;
+
+    private final Sinks.Many<PendingPlace> sink = Sinks.many().unicast().onBackpressureBuffer();
+    private final Map<String, PendingPlace> pending = new ConcurrentHashMap<>();
+    private final AtomicLong enqueued = new AtomicLong(0);
+    private final AtomicLong deduplicated = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong inserted = new AtomicLong(0);
+    private final AtomicLong failedBatches = new AtomicLong(0);
+    private Disposable subscription;
+
+    public PlaceWriteBehindQueue(PlaceRepository placeRepository,
+            AdaptiveRedisCacheService cacheService,
+            @Value("${app.places.write-behind.batch-size:50}") int batchSize,
+            @Value("${app.places.write-behind.flush-interval:500ms}") Duration flushInterval,
+            @Value("${app.places.write-behind.max-pending:10000}") int maxPending) {
+        this.placeRepository = placeRepository;
+        this.cacheService = cacheService;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = sink.asFlux()
+                .bufferTimeout(batchSize, flushInterval)
+                .onBackpressureBuffer()
+                .concatMap(this::flush)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        sink.tryEmitComplete();
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public void enqueue(String searchTerm, Place place) {
+        String key = dedupeKey(place);
+        PendingPlace existing = pending.get(key);
+        if (existing != null) {
+            existing.searchTerms.add(searchTerm);
+            deduplicated.incrementAndGet();
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            dropped.incrementAndGet();
+            logger.warn("File d'écriture des lieux saturée, lieu ignoré: {}", place.getName());
+            return;
+        }
+
+        PendingPlace entry = new PendingPlace(place, searchTerm);
+        if (pending.putIfAbsent(key, entry) != null) {
+            deduplicated.incrementAndGet();
+            return;
+        }
+        enqueued.incrementAndGet();
+        sink.emitNext(entry, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    // Lieux acceptés mais pas encore validés en base pour cette même recherche, pour éviter un nouvel appel OSM
+    public List<Place> findPending(String normalizedName) {
+        List<Place> matches = new ArrayList<>();
+        for (PendingPlace entry : pending.values()) {
+            if (entry.searchTerms.contains(normalizedName)) {
+                matches.add(entry.place);
+            }
+        }
+        return matches;
+    }
+
+    private Mono<Void> flush(List<PendingPlace> batch) {
+        List<Place> places = new ArrayList<>(batch.size());
+        for (PendingPlace entry : batch) {
+            places.add(entry.place);
+        }
+
+        return placeRepository.upsertPlaces(places)
+                .flatMap(rows -> {
+                    inserted.addAndGet(rows);
+                    logger.debug("💾 {} lieux OSM persistés ({} nouveaux)", places.size(), rows);
+                    return afterCommit(batch);
+                })
+                .onErrorResume(error -> {
+                    failedBatches.incrementAndGet();
+                    logger.error("❌ Échec d'écriture d'un lot de {} lieux: {}", places.size(), error.getMessage());
+                    batch.forEach(entry -> pending.remove(dedupeKey(entry.place), entry));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> afterCommit(List<PendingPlace> batch) {
+        Set<String> searchTerms = new LinkedHashSet<>();
+        for (PendingPlace entry : batch) {
+            searchTerms.addAll(entry.searchTerms);
+        }
+
+        return Flux.fromIterable(searchTerms)
+                .concatMap(term -> {
+                    String cacheKey = cacheService.generatePlacesKey(term);
+                    return placeRepository.findByNameContaining(term)
+                            .collectList()
+                            .flatMap(places -> places.isEmpty()
+                                    ? cacheService.evict(cacheKey)
+                                    : cacheService.set(cacheKey, places));
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Rafraîchissement du cache des lieux échoué: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> batch.forEach(entry -> pending.remove(dedupeKey(entry.place), entry)))
+                .then();
+    }
+
+    private String dedupeKey(Place place) {
+        // ~10 m de tolérance : deux résultats OSM au même endroit ne font qu'une ligne
+        long lat = Math.round(place.getCoordinates().getLat() * 10_000);
+        long lng = Math.round(place.getCoordinates().getLng() * 10_000);
+        return place.getName() + '|' + lat + '|' + lng;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("enqueued", enqueued.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("dropped", dropped.get());
+        stats.put("inserted", inserted.get());
+        stats.put("failed_batches", failedBatches.get());
+        return stats;
+    }
+
+    private static final class PendingPlace {
+        final Place place;
+        final Set<String> searchTerms = ConcurrentHashMap.newKeySet();
+
+        PendingPlace(Place place, String searchTerm) {
+            this.place = place;
+            this.searchTerms.add(searchTerm);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.Mp_Reactif.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Corps de réponses HTTP déjà sérialisés en JSON et compressés en gzip (clés "rb:"), servis
+ * tels quels sur un succès : ni lecture de l'objet depuis Redis, ni sérialisation, ni
+ * compression. Les noms de lieux propres à chaque requête font partie du corps ; ils entrent
+ * donc dans la clé. La durée de vie courte (app.cache.body-ttl) borne l'écart avec l'entrée
+ * d'itinéraire, qui peut être recalculée entre-temps. Un itinéraire invalidé (TrafficOverlay)
+ * change de génération : ses anciens corps ne sont plus lus et expirent d'eux-mêmes.
+ *
+ * Format stocké : distance (double), durée (double), puis le flux gzip.
+ */
+@Service
+public class ResponseBodyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseBodyCache.class);
+    private static final String PREFIX = "rb:";
+    private static final int HEADER_BYTES = 2 * Double.BYTES;
+
+    private final ReactiveRedisTemplate<String, byte[]> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final StageTimer getTimer;
+    private final StageTimer setTimer;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong stores = new AtomicLong(0);
+    private final AtomicLong storeFailures = new AtomicLong(0);
+    private final AtomicLong jsonBytes = new AtomicLong(0);
+    private final AtomicLong gzipBytes = new AtomicLong(0);
+    // Clé d'itinéraire -> instant de sa dernière invalidation, qui sert de génération
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public ResponseBodyCache(ReactiveRedisTemplate<String, byte[]> redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${app.cache.body-ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry,
+            Tracer tracer) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.getTimer = new StageTimer(meterRegistry, tracer, "mp.cache.get", "Lecture Redis d'une entrée", "keyspace");
+        this.setTimer = new StageTimer(meterRegistry, tracer, "mp.cache.set", "Écriture Redis d'une entrée", "keyspace");
+    }
+
+    public record Body(byte[] stored) {
+
+        public double distance() {
+            return ByteBuffer.wrap(stored).getDouble(0);
+        }
+
+        public double duration() {
+            return ByteBuffer.wrap(stored).getDouble(Double.BYTES);
+        }
+
+        // Vue sur le flux gzip, sans copie
+        public ByteBuffer gzip() {
+            return ByteBuffer.wrap(stored, HEADER_BYTES, stored.length - HEADER_BYTES).slice().asReadOnlyBuffer();
+        }
+    }
+
+    // "rb:" + clé d'itinéraire sans son préfixe + empreinte 64 bits des noms (+ génération)
+    public String key(String routeKey, String startPlaceName, String endPlaceName) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv1a(hash, startPlaceName);
+        hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+        hash = fnv1a(hash, endPlaceName);
+        int separator = routeKey.indexOf(':');
+        String key = PREFIX + routeKey.substring(separator + 1) + ':' + Long.toUnsignedString(hash, 36);
+        Long generation = generations.get(routeKey);
+        return generation == null ? key : key + ':' + Long.toString(generation, 36);
+    }
+
+    // Les générations plus vieilles que la durée de vie des corps n'ont plus d'effet
+    public void invalidate(Collection<String> routeKeys) {
+        long now = System.currentTimeMillis();
+        generations.values().removeIf(invalidatedAt -> invalidatedAt < now - ttl.toMillis());
+        for (String routeKey : routeKeys) {
+            generations.put(routeKey, now);
+        }
+    }
+
+    private static long fnv1a(long hash, String value) {
+        if (value == null) {
+            return hash;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public Mono<Body> get(String key) {
+        Mono<Body> read = redisTemplate.opsForValue()
+                .get(key)
+                .filter(stored -> stored.length > HEADER_BYTES)
+                .map(Body::new);
+        return getTimer.time(read, "body", body -> StageTimer.Outcome.HIT, StageTimer.Outcome.MISS)
+                .doOnNext(body -> hits.incrementAndGet())
+                .switchIfEmpty(Mono.fromRunnable(misses::incrementAndGet))
+                .onErrorResume(error -> {
+                    logger.debug("Lecture du corps {} impossible: {}", key, error.getMessage());
+                    misses.incrementAndGet();
+                    return Mono.empty();
+                });
+    }
+
+    // Sérialisation et compression hors des fils Netty, écriture sans attendre le résultat
+    public void put(String key, Object response, double distance, double duration) {
+        Mono<Boolean> write = Mono.fromCallable(() -> encode(response, distance, duration))
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(stored -> redisTemplate.opsForValue().set(key, stored, ttl));
+        setTimer.time(write, "body", stored -> Boolean.TRUE.equals(stored)
+                        ? StageTimer.Outcome.OK
+                        : StageTimer.Outcome.ERROR)
+                .subscribe(stored -> stores.incrementAndGet(), error -> {
+                    storeFailures.incrementAndGet();
+                    logger.debug("Écriture du corps {} impossible: {}", key, error.getMessage());
+                });
+    }
+
+    private byte[] encode(Object response, double distance, double duration) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_BYTES + json.length / 4);
+        out.write(ByteBuffer.allocate(HEADER_BYTES).putDouble(distance).putDouble(duration).array());
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(json);
+        }
+        jsonBytes.addAndGet(json.length);
+        gzipBytes.addAndGet(out.size() - HEADER_BYTES);
+        return out.toByteArray();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long total = hits.get() + misses.get();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hit_ratio", total > 0 ? String.format("%.1f%%", hits.get() * 100.0 / total) : "0.0%");
+        stats.put("stores", stores.get());
+        stats.put("store_failures", storeFailures.get());
+        stats.put("compression_ratio", gzipBytes.get() > 0
+                ? String.format("%.1f", (double) jsonBytes.get() / gzipBytes.get())
+                : "n/a");
+        stats.put("invalidated_routes", generations.size());
+        stats.put("ttl", ttl.toString());
+        return stats;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.Arrays;
+
+/**
+ * Graphe routier en mémoire, immuable, au format CSR : les arcs sortants d'un nœud sont contigus
+ * (firstArc[n] .. firstArc[n + 1]). Un tronçon de la table routes donne un arc dans le sens
+ * source -> target (cost) et, si reverse_cost est positif, un arc retour. Seuls la topologie,
+ * les longueurs et les coordonnées des nœuds sont gardés : géométries et libellés sont relus
+ * en base pour les tronçons d'un itinéraire.
+ */
+public final class RoadGraph {
+
+    private final long[] nodeIds;
+    private final float[] nodeLat;
+    private final float[] nodeLng;
+    private final int[] firstArc;
+    private final int[] arcHead;
+    private final int[] arcEdge;
+    private final float[] arcLength;
+    private final long[] edgeIds;
+
+    private RoadGraph(long[] nodeIds, float[] nodeLat, float[] nodeLng, int[] firstArc, int[] arcHead,
+            int[] arcEdge, float[] arcLength, long[] edgeIds) {
+        this.nodeIds = nodeIds;
+        this.nodeLat = nodeLat;
+        this.nodeLng = nodeLng;
+        this.firstArc = firstArc;
+        this.arcHead = arcHead;
+        this.arcEdge = arcEdge;
+        this.arcLength = arcLength;
+        this.edgeIds = edgeIds;
+    }
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    public int edgeCount() {
+        return edgeIds.length;
+    }
+
+    public int arcCount() {
+        return arcHead.length;
+    }
+
+    // Indice dense d'un nœud (identifiant de la table routes), -1 s'il est absent du graphe
+    public int nodeIndex(long nodeId) {
+        int index = Arrays.binarySearch(nodeIds, nodeId);
+        return index >= 0 ? index : -1;
+    }
+
+    public long nodeId(int node) {
+        return nodeIds[node];
+    }
+
+    public double lat(int node) {
+        return nodeLat[node];
+    }
+
+    public double lng(int node) {
+        return nodeLng[node];
+    }
+
+    public int firstArc(int node) {
+        return firstArc[node];
+    }
+
+    public int endArc(int node) {
+        return firstArc[node + 1];
+    }
+
+    public int arcHead(int arc) {
+        return arcHead[arc];
+    }
+
+    // Nœud d'origine d'un arc : dernier nœud dont la plage d'arcs commence avant lui
+    public int arcTail(int arc) {
+        int low = 0;
+        int high = nodeIds.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstArc[mid] <= arc) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int arcEdge(int arc) {
+        return arcEdge[arc];
+    }
+
+    public double arcLength(int arc) {
+        return arcLength[arc];
+    }
+
+    public long edgeId(int edge) {
+        return edgeIds[edge];
+    }
+
+    // Indice dense d'un tronçon (identifiant de la table routes), -1 s'il est absent du graphe
+    public int edgeIndex(long edgeId) {
+        int index = Arrays.binarySearch(edgeIds, edgeId);
+        return index >= 0 ? index : -1;
+    }
+
+    public long footprintBytes() {
+        return 8L * nodeIds.length + 4L * nodeLat.length + 4L * nodeLng.length + 4L * firstArc.length
+                + 4L * arcHead.length + 4L * arcEdge.length + 4L * arcLength.length + 8L * edgeIds.length;
+    }
+
+    /**
+     * Accumulation des tronçons dans des tableaux primitifs, dans l'ordre de lecture ; build()
+     * numérote les nœuds et les tronçons (par identifiant croissant) et range les arcs. Non
+     * thread-safe : alimenté par un seul flux.
+     */
+    public static final class Builder {
+
+        private long[] edgeIds = new long[1024];
+        private long[] sources = new long[1024];
+        private long[] targets = new long[1024];
+        private float[] costs = new float[1024];
+        private float[] reverseCosts = new float[1024];
+        private float[] coordinates = new float[4096];
+        private int size;
+        private long fingerprint;
+
+        // Coordonnées des extrémités : premier et dernier point de la géométrie du tronçon
+        public Builder add(long edgeId, long source, long target, double cost, double reverseCost,
+                double sourceLat, double sourceLng, double targetLat, double targetLng) {
+            if (size == edgeIds.length) {
+                int capacity = size * 2;
+                edgeIds = Arrays.copyOf(edgeIds, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                costs = Arrays.copyOf(costs, capacity);
+                reverseCosts = Arrays.copyOf(reverseCosts, capacity);
+                coordinates = Arrays.copyOf(coordinates, capacity * 4);
+            }
+            edgeIds[size] = edgeId;
+            sources[size] = source;
+            targets[size] = target;
+            costs[size] = (float) cost;
+            reverseCosts[size] = (float) reverseCost;
+            coordinates[4 * size] = (float) sourceLat;
+            coordinates[4 * size + 1] = (float) sourceLng;
+            coordinates[4 * size + 2] = (float) targetLat;
+            coordinates[4 * size + 3] = (float) targetLng;
+            fingerprint += mix(edgeId, source, target, costs[size], reverseCosts[size], 4 * size);
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Empreinte du contenu indépendante de l'ordre des lignes : somme des empreintes par tronçon
+        public long fingerprint() {
+            return fingerprint;
+        }
+
+        private long mix(long edgeId, long source, long target, float cost, float reverseCost, int offset) {
+            long hash = edgeId * 0x9E3779B97F4A7C15L;
+            hash = Long.rotateLeft(hash ^ source * 0xC2B2AE3D27D4EB4FL, 31);
+            hash = Long.rotateLeft(hash ^ target * 0x165667B19E3779F9L, 27);
+            hash ^= ((long) Float.floatToIntBits(cost) << 32) | (Float.floatToIntBits(reverseCost) & 0xFFFFFFFFL);
+            for (int i = 0; i < 4; i++) {
+                hash = Long.rotateLeft(hash, 17) ^ Float.floatToIntBits(coordinates[offset + i]);
+            }
+            // Finalisation splitmix64
+            hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+            hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+            return hash ^ (hash >>> 31);
+        }
+
+        public RoadGraph build() {
+            long[] endpoints = new long[2 * size];
+            System.arraycopy(sources, 0, endpoints, 0, size);
+            System.arraycopy(targets, 0, endpoints, size, size);
+            long[] nodeIds = Arrays.stream(endpoints).sorted().distinct().toArray();
+            int nodeCount = nodeIds.length;
+
+            float[] nodeLat = new float[nodeCount];
+            float[] nodeLng = new float[nodeCount];
+            int[] source = new int[size];
+            int[] target = new int[size];
+            int[] degree = new int[nodeCount];
+            // Identifiants uniques (clé primaire de routes) : rang dans l'ordre croissant = indice du tronçon
+            long[] sortedEdgeIds = Arrays.copyOf(edgeIds, size);
+            Arrays.sort(sortedEdgeIds);
+            int[] edgeIndex = new int[size];
+            for (int e = 0; e < size; e++) {
+                edgeIndex[e] = Arrays.binarySearch(sortedEdgeIds, edgeIds[e]);
+                source[e] = Arrays.binarySearch(nodeIds, sources[e]);
+                target[e] = Arrays.binarySearch(nodeIds, targets[e]);
+                nodeLat[source[e]] = coordinates[4 * e];
+                nodeLng[source[e]] = coordinates[4 * e + 1];
+                nodeLat[target[e]] = coordinates[4 * e + 2];
+                nodeLng[target[e]] = coordinates[4 * e + 3];
+                degree[source[e]]++;
+                if (reverseCosts[e] > 0) {
+                    degree[target[e]]++;
+                }
+            }
+
+            int[] firstArc = new int[nodeCount + 1];
+            for (int n = 0; n < nodeCount; n++) {
+                firstArc[n + 1] = firstArc[n] + degree[n];
+            }
+            int arcCount = firstArc[nodeCount];
+            int[] arcHead = new int[arcCount];
+            int[] arcEdge = new int[arcCount];
+            float[] arcLength = new float[arcCount];
+            int[] next = Arrays.copyOf(firstArc, nodeCount);
+            for (int e = 0; e < size; e++) {
+                int arc = next[source[e]]++;
+                arcHead[arc] = target[e];
+                arcEdge[arc] = edgeIndex[e];
+                arcLength[arc] = costs[e];
+                if (reverseCosts[e] > 0) {
+                    arc = next[target[e]]++;
+                    arcHead[arc] = source[e];
+                    arcEdge[arc] = edgeIndex[e];
+                    arcLength[arc] = reverseCosts[e];
+                }
+            }
+            return new RoadGraph(nodeIds, nodeLat, nodeLng, firstArc, arcHead, arcEdge, arcLength, sortedEdgeIds);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.Mp_Reactif.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Graphe routier en mémoire, chargé au démarrage depuis la table routes (même emprise que la
+ * requête pgr_ksp), hors du chemin des requêtes. Tant qu'il n'est pas chargé, ou si le
+ * chargement échoue, le calcul reste sur pgRouting.
+ *
+ * Rechargement à chaud : le compteur d'écritures de routes (pg_stat_user_tables) est relevé à
+ * chaque poll-interval ; s'il a bougé, un nouvel instantané est construit à côté de l'ancien puis
+ * publié d'un bloc. Une requête en cours garde l'instantané lu au départ. La version du réseau
+ * (empreinte du contenu, identique d'un pod à l'autre) entre dans les clés d'itinéraire : les
+ * entrées de l'ancienne version ne sont plus lues puis sont supprimées.
+ */
+@Service
+public class RoadGraphStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoadGraphStore.class);
+
+    // Extrémités prises sur la première et la dernière composante (géométries MULTILINESTRING)
+    private static final String LOAD_QUERY = """
+                SELECT r.id, r.source, r.target, r.cost, r.reverse_cost,
+                    ST_Y(ST_StartPoint(ST_GeometryN(r.geom, 1))) AS source_lat,
+                    ST_X(ST_StartPoint(ST_GeometryN(r.geom, 1))) AS source_lng,
+                    ST_Y(ST_EndPoint(ST_GeometryN(r.geom, ST_NumGeometries(r.geom)))) AS target_lat,
+                    ST_X(ST_EndPoint(ST_GeometryN(r.geom, ST_NumGeometries(r.geom)))) AS target_lng
+                FROM routes r
+                WHERE r.cost IS NOT NULL AND r.cost > 0
+                AND ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), r.geom)
+            """;
+
+    // Lignes insérées, modifiées ou supprimées depuis la création de la table (ou la remise à zéro des statistiques)
+    private static final String CHANGES_QUERY = """
+                SELECT n_tup_ins + n_tup_upd + n_tup_del AS changes
+                FROM pg_stat_user_tables WHERE relid = 'routes'::regclass
+            """;
+
+    // ~220 m : quelques cellules par recherche de candidats, peu de cellules par tronçon
+    private static final double EDGE_CELL_DEGREES = 0.002;
+
+    private final ConnectionFactory connectionFactory;
+    private final SpeedProfiles speedProfiles;
+    private final AdaptiveRedisCacheService cacheService;
+    private final TileService tileService;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private volatile Snapshot loaded;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile long changeCounter = -1;
+    private Disposable polling;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong unchangedReloads = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+    private final AtomicLong evictedRouteKeys = new AtomicLong();
+
+    public RoadGraphStore(ConnectionFactory connectionFactory,
+            SpeedProfiles speedProfiles,
+            AdaptiveRedisCacheService cacheService,
+            TileService tileService,
+            @Value("${app.routing.graph.enabled:true}") boolean enabled,
+            @Value("${app.routing.graph.poll-interval:30s}") Duration pollInterval) {
+        this.connectionFactory = connectionFactory;
+        this.speedProfiles = speedProfiles;
+        this.cacheService = cacheService;
+        this.tileService = tileService;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+    }
+
+    // Graphe et structures dérivées, construits ensemble et publiés d'un bloc. version : rang local
+    // du chargement ; networkTag : empreinte du contenu, partagée par tous les pods
+    public record Snapshot(long version, String networkTag, RoadGraph graph, TimeDependentRouter router,
+            EdgeSpatialIndex edges, long loadedAtMillis, long loadMillis) {
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Premier chargement immédiat, puis relevé du compteur (poll-interval nul : jamais)
+        Flux<Long> ticks = pollInterval.isZero() || pollInterval.isNegative()
+                ? Flux.just(0L)
+                : Flux.interval(Duration.ZERO, pollInterval).onBackpressureDrop();
+        polling = ticks
+                .concatMap(tick -> loaded == null ? reload() : reloadIfChanged())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (polling != null) {
+            polling.dispose();
+        }
+    }
+
+    private Mono<Void> reloadIfChanged() {
+        checks.incrementAndGet();
+        return changes()
+                .filter(changes -> changes != changeCounter)
+                .flatMap(changes -> {
+                    logger.info("🔄 Table routes modifiée ({} → {} écritures), rechargement du graphe",
+                            changeCounter, changes);
+                    return reload();
+                })
+                .onErrorResume(error -> {
+                    logger.warn("⚠️ Relevé des modifications de routes impossible: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Construit un nouvel instantané et le publie s'il diffère de l'actuel. Un seul rechargement à
+     * la fois ; l'ancien graphe sert jusqu'à la publication et reste en place en cas d'échec.
+     */
+    public Mono<Void> reload() {
+        if (!enabled || !reloading.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        long startedAt = System.currentTimeMillis();
+        // Compteur relevé avant la lecture : une écriture pendant le chargement déclenche le suivant
+        return changes()
+                .onErrorReturn(-1L)
+                .flatMap(changes -> load().doOnNext(builder -> changeCounter = changes))
+                .doOnNext(builder -> publish(builder, startedAt))
+                .doOnError(error -> {
+                    failedReloads.incrementAndGet();
+                    logger.warn("⚠️ Graphe routier non chargé{}: {}",
+                            loaded == null ? ", calcul sur pgRouting" : ", version précédente conservée",
+                            error.getMessage());
+                })
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> reloading.set(false))
+                .then();
+    }
+
+    private void publish(RoadGraph.Builder builder, long startedAt) {
+        Snapshot previous = loaded;
+        String networkTag = Long.toString(builder.fingerprint() >>> 24, 36);
+        if (previous != null && previous.networkTag().equals(networkTag)) {
+            unchangedReloads.incrementAndGet();
+            logger.info("🕸️ Graphe routier inchangé (version {}), instantané conservé", networkTag);
+            return;
+        }
+        RoadGraph graph = builder.build();
+        EdgeSpatialIndex edges = new EdgeSpatialIndex(graph, EDGE_CELL_DEGREES);
+        TimeDependentRouter router = new TimeDependentRouter(graph, speedProfiles);
+        long now = System.currentTimeMillis();
+        loaded = new Snapshot(previous != null ? previous.version() + 1 : 1, networkTag, graph, router, edges, now,
+                now - startedAt);
+        reloads.incrementAndGet();
+        logger.info("🕸️ Graphe routier chargé (version {}): {} nœuds, {} tronçons, {} Ko en {} ms",
+                networkTag, graph.nodeCount(), graph.edgeCount(), graph.footprintBytes() / 1024, now - startedAt);
+
+        cacheService.switchRouteNetwork(networkTag)
+                .subscribe(evicted -> {
+                    evictedRouteKeys.addAndGet(evicted);
+                    if (evicted > 0) {
+                        logger.info("🧹 {} itinéraires d'une autre version du réseau supprimés", evicted);
+                    }
+                });
+        if (previous != null) {
+            tileService.invalidateAll();
+        }
+    }
+
+    private Mono<Long> changes() {
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Flux.from(connection.createStatement(CHANGES_QUERY).execute())
+                        .flatMap(result -> result.map((row, metadata) -> row.get("changes", Long.class)))
+                        .next(),
+                Connection::close);
+    }
+
+    // Lignes lues en flux et ajoutées au fur et à mesure : aucune liste intermédiaire
+    Mono<RoadGraph.Builder> load() {
+        return Mono.defer(() -> {
+            RoadGraph.Builder builder = new RoadGraph.Builder();
+            return Mono.from(connectionFactory.create())
+                    .flatMap(connection -> Flux.from(connection.createStatement(LOAD_QUERY).execute())
+                            .flatMap(result -> result.map((row, metadata) -> {
+                                Double reverseCost = row.get("reverse_cost", Double.class);
+                                return builder.add(
+                                        row.get("id", Long.class),
+                                        row.get("source", Long.class),
+                                        row.get("target", Long.class),
+                                        row.get("cost", Double.class),
+                                        reverseCost != null ? reverseCost : -1,
+                                        row.get("source_lat", Double.class),
+                                        row.get("source_lng", Double.class),
+                                        row.get("target_lat", Double.class),
+                                        row.get("target_lng", Double.class));
+                            }))
+                            .then(Mono.just(builder))
+                            .doFinally(signal -> Mono.from(connection.close()).subscribe()));
+        })
+                .filter(builder -> builder.size() > 0)
+                .switchIfEmpty(Mono.error(new IllegalStateException("table routes vide")))
+                .publishOn(Schedulers.boundedElastic());
+    }
+
+    // null tant que le graphe n'est pas chargé
+    public Snapshot current() {
+        return loaded;
+    }
+
+    public TimeDependentRouter router() {
+        Snapshot current = loaded;
+        return current != null ? current.router() : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Snapshot current = loaded;
+        stats.put("enabled", enabled);
+        stats.put("loaded", current != null);
+        stats.put("reloading", reloading.get());
+        stats.put("poll_interval_s", pollInterval.toSeconds());
+        stats.put("change_checks", checks.get());
+        stats.put("change_counter", changeCounter);
+        stats.put("reloads", reloads.get());
+        stats.put("unchanged_reloads", unchangedReloads.get());
+        stats.put("failed_reloads", failedReloads.get());
+        stats.put("evicted_route_keys", evictedRouteKeys.get());
+        stats.put("profiles", speedProfiles.profileCount());
+        stats.put("profiled_edges", speedProfiles.assignedEdges());
+        stats.put("profile_bytes", speedProfiles.footprintBytes());
+        if (current != null) {
+            stats.put("version", current.version());
+            stats.put("network_tag", current.networkTag());
+            stats.put("nodes", current.graph().nodeCount());
+            stats.put("edges", current.graph().edgeCount());
+            stats.put("arcs", current.graph().arcCount());
+            stats.put("graph_bytes", current.graph().footprintBytes());
+            stats.put("edge_profile_bytes", current.router().footprintBytes());
+            stats.put("edge_index_cells", current.edges().cellCount());
+            stats.put("edge_index_bytes", current.edges().footprintBytes());
+            stats.put("load_ms", current.loadMillis());
+            stats.put("loaded_at", current.loadedAtMillis());
+        }
+        return stats;
+    }
+}
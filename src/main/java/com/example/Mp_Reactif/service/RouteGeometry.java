@@ -0,0 +1,61 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.LineGeometry;
+
+import java.util.List;
+
+/**
+ * Fusion de polylignes en une seule polyligne continue, écrite dans un unique tableau.
+ * Chaque morceau est orienté pour prolonger l'extrémité courante (les arêtes pgRouting
+ * peuvent être parcourues à l'envers) et le sommet de jonction n'est pas dupliqué.
+ */
+final class RouteGeometry {
+
+    private static final double JOIN_TOLERANCE = 1e-7;
+
+    private RouteGeometry() {
+    }
+
+    static LineGeometry mergeLines(List<LineGeometry> parts) {
+        int capacity = 0;
+        for (LineGeometry part : parts) {
+            capacity += part.size();
+        }
+        double[] merged = new double[capacity * 2];
+        int count = 0;
+
+        for (LineGeometry part : parts) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            boolean reversed = false;
+            int skip = 0;
+            if (count > 0) {
+                double tailLng = merged[count * 2 - 2];
+                double tailLat = merged[count * 2 - 1];
+                int last = part.size() - 1;
+                // Orientation qui rapproche le morceau de l'extrémité courante
+                reversed = distanceSquared(tailLng, tailLat, part.lng(last), part.lat(last))
+                        < distanceSquared(tailLng, tailLat, part.lng(0), part.lat(0));
+                int first = reversed ? last : 0;
+                if (distanceSquared(tailLng, tailLat, part.lng(first), part.lat(first))
+                        <= JOIN_TOLERANCE * JOIN_TOLERANCE) {
+                    skip = 1;
+                }
+            }
+            for (int i = skip; i < part.size(); i++) {
+                int index = reversed ? part.size() - 1 - i : i;
+                merged[count * 2] = part.lng(index);
+                merged[count * 2 + 1] = part.lat(index);
+                count++;
+            }
+        }
+        return count < 2 ? LineGeometry.EMPTY : LineGeometry.view(merged, 0, count);
+    }
+
+    private static double distanceSquared(double lngA, double latA, double lngB, double latB) {
+        double dx = lngA - lngB;
+        double dy = latA - latB;
+        return dx * dx + dy * dy;
+    }
+}
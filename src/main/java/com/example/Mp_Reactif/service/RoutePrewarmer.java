@@ -0,0 +1,222 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.event.RouteCalculatedEvent;
+import com.example.Mp_Reactif.model.Point;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pré-chauffage du cache d'itinéraires : les événements RouteCalculatedEvent alimentent un
+ * sketch des trajets les plus demandés par heure de la journée. Périodiquement, les trajets
+ * les plus probables pour l'heure en cours et l'heure suivante sont recalculés en arrière-plan
+ * lorsque leur entrée est absente ou proche de l'expiration.
+ */
+@Service
+public class RoutePrewarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutePrewarmer.class);
+    private static final int SKETCH_CAPACITY = 256;
+
+    private final RouteService routeService;
+    private final AdaptiveRedisCacheService cacheService;
+    private final ClosureRegistry closureRegistry;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int topPairs;
+    private final int maxConcurrency;
+    private final int maxLiveLoad;
+    private final Duration refreshBefore;
+    private final ZoneId zone;
+
+    private final SpaceSavingSketch[] demandByHour = new SpaceSavingSketch[24];
+    private final AtomicLong cycles = new AtomicLong(0);
+    private final AtomicLong skippedBusy = new AtomicLong(0);
+    private final AtomicLong warmed = new AtomicLong(0);
+    private final AtomicLong alreadyFresh = new AtomicLong(0);
+    private Disposable task;
+
+    public RoutePrewarmer(RouteService routeService,
+            AdaptiveRedisCacheService cacheService,
+            ClosureRegistry closureRegistry,
+            @Value("${app.prewarm.enabled:true}") boolean enabled,
+            @Value("${app.prewarm.interval:5m}") Duration interval,
+            @Value("${app.prewarm.top-pairs:20}") int topPairs,
+            @Value("${app.prewarm.max-concurrency:2}") int maxConcurrency,
+            @Value("${app.prewarm.max-live-load:4}") int maxLiveLoad,
+            @Value("${app.prewarm.refresh-before:30m}") Duration refreshBefore,
+            @Value("${app.prewarm.zone:Africa/Douala}") String zone) {
+        this.routeService = routeService;
+        this.cacheService = cacheService;
+        this.closureRegistry = closureRegistry;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.topPairs = topPairs;
+        this.maxConcurrency = maxConcurrency;
+        this.maxLiveLoad = maxLiveLoad;
+        this.refreshBefore = refreshBefore;
+        this.zone = ZoneId.of(zone);
+        for (int hour = 0; hour < 24; hour++) {
+            demandByHour[hour] = new SpaceSavingSketch(SKETCH_CAPACITY);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        task = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> warmCycle()
+                        .onErrorResume(error -> {
+                            logger.warn("Cycle de pré-chauffage interrompu: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+    }
+
+    public void record(Object event) {
+        if (!(event instanceof RouteCalculatedEvent route) || route.getStartLat() == 0 || route.getEndLat() == 0) {
+            return;
+        }
+        int hour = Instant.ofEpochMilli(route.getTimestamp()).atZone(zone).getHour();
+        demandByHour[hour].offer(DemandKey.of(route, cacheService).encode());
+    }
+
+    Mono<Void> warmCycle() {
+        cycles.incrementAndGet();
+        if (routeService.getLiveComputations() > maxLiveLoad) {
+            skippedBusy.incrementAndGet();
+            return Mono.empty();
+        }
+
+        // Heure en cours et heure suivante : les pics (ex. 7h) sont chauffés pendant l'heure qui précède
+        int hour = Instant.now().atZone(zone).getHour();
+        Map<String, Long> demand = new HashMap<>();
+        demandByHour[hour].mergeInto(demand);
+        demandByHour[(hour + 1) % 24].mergeInto(demand);
+
+        // Fermetures lues une fois par cycle : clés lues, recalculées et marquées sont les mêmes
+        ClosureRegistry.Active closures = closureRegistry.active();
+        List<DemandKey> candidates = new ArrayList<>();
+        for (Map<String, Object> entry : SpaceSavingSketch.top(rankWithHits(demand, closures), topPairs)) {
+            candidates.add(DemandKey.decode((String) entry.get("key")));
+        }
+
+        return Flux.fromIterable(candidates)
+                .flatMap(key -> warmIfExpiring(key, closures), maxConcurrency)
+                .then();
+    }
+
+    // Le score combine la demande observée et les hits déjà servis par le cache
+    private Map<String, Long> rankWithHits(Map<String, Long> demand, ClosureRegistry.Active closures) {
+        Map<String, Long> ranked = new HashMap<>();
+        demand.forEach((encoded, count) -> {
+            DemandKey key = DemandKey.decode(encoded);
+            ranked.put(encoded, count + cacheService.getUsageCount(
+                    routeService.routeCacheKey(key.points(), key.mode, closures)));
+        });
+        return ranked;
+    }
+
+    private Mono<Void> warmIfExpiring(DemandKey key, ClosureRegistry.Active closures) {
+        String cacheKey = routeService.routeCacheKey(key.points(), key.mode, closures);
+        return cacheService.getRemainingTtl(cacheKey)
+                .flatMap(ttl -> {
+                    if (ttl.compareTo(refreshBefore) > 0) {
+                        alreadyFresh.incrementAndGet();
+                        return Mono.empty();
+                    }
+                    if (routeService.getLiveComputations() > maxLiveLoad) {
+                        skippedBusy.incrementAndGet();
+                        return Mono.empty();
+                    }
+                    // Noms posés à la lecture par RouteService : l'entrée en cache n'en dépend pas
+                    return routeService.refreshRoute(key.points(), key.mode, null, null, closures)
+                            .filter(response -> response.error() == null)
+                            .doOnNext(response -> {
+                                cacheService.markPrewarmed(cacheKey);
+                                warmed.incrementAndGet();
+                            })
+                            .then();
+                })
+                .onErrorResume(error -> {
+                    logger.debug("Pré-chauffage échoué pour {}: {}", cacheKey, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("cycles", cycles.get());
+        stats.put("warmed", warmed.get());
+        stats.put("already_fresh", alreadyFresh.get());
+        stats.put("skipped_busy", skippedBusy.get());
+        return stats;
+    }
+
+    // Identité d'une demande : cellules de départ et d'arrivée et mode, comme la clé de cache
+    private static final class DemandKey {
+        private static final String SEPARATOR = "|";
+
+        final double startLat;
+        final double startLng;
+        final double endLat;
+        final double endLng;
+        final String mode;
+
+        private DemandKey(double startLat, double startLng, double endLat, double endLng, String mode) {
+            this.startLat = startLat;
+            this.startLng = startLng;
+            this.endLat = endLat;
+            this.endLng = endLng;
+            this.mode = mode;
+        }
+
+        static DemandKey of(RouteCalculatedEvent event, AdaptiveRedisCacheService cacheService) {
+            // Ramené au centre de la cellule de la clé de cache : les requêtes voisines se cumulent
+            Point start = cacheService.snapToRouteCell(new Point(event.getStartLat(), event.getStartLng()));
+            Point end = cacheService.snapToRouteCell(new Point(event.getEndLat(), event.getEndLng()));
+            return new DemandKey(start.getLat(), start.getLng(), end.getLat(), end.getLng(),
+                    event.getMode() == null ? "driving" : event.getMode());
+        }
+
+        static DemandKey decode(String encoded) {
+            String[] parts = encoded.split("\\|", 5);
+            return new DemandKey(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                    Double.parseDouble(parts[2]), Double.parseDouble(parts[3]), parts[4]);
+        }
+
+        String encode() {
+            return startLat + SEPARATOR + startLng + SEPARATOR + endLat + SEPARATOR + endLng + SEPARATOR + mode;
+        }
+
+        List<Point> points() {
+            return List.of(new Point(startLat, startLng), new Point(endLat, endLng));
+        }
+    }
+}
@@ -1,26 +1,43 @@
 package com.example.Mp_Reactif.service;
 
 import com.example.Mp_Reactif.event.RouteCalculatedEvent;
+import com.example.Mp_Reactif.model.LineGeometry;
 import com.example.Mp_Reactif.model.Point;
 import com.example.Mp_Reactif.model.Route;
+import com.example.Mp_Reactif.model.RouteAvoidance;
 import com.example.Mp_Reactif.model.RouteResponse;
 import com.example.Mp_Reactif.model.RouteStep;
 import com.example.Mp_Reactif.repository.PlaceRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
 import io.r2dbc.spi.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class RouteService {
 
+    private static final Logger logger = LoggerFactory.getLogger(RouteService.class);
+
     @Autowired
     private ConnectionFactory connectionFactory;
 
@@ -33,123 +50,339 @@ public class RouteService {
     @Autowired
     private AdaptiveRedisCacheService cacheService;
 
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private TrafficOverlay trafficOverlay;
+
+    @Autowired
+    private RoadGraphStore roadGraphStore;
+
+    @Autowired
+    private SpeedProfiles speedProfiles;
+
+    @Autowired
+    private ClosureRegistry closureRegistry;
+
     @Autowired(required = false)
     private EventProducer eventProducer;
 
+    @Value("${app.osrm.base-url:https://router.project-osrm.org}")
+    private String osrmBaseUrl;
+
+    @Value("${app.routing.zone:Africa/Douala}")
+    private ZoneId routingZone;
+
+    // Tranche de la semaine qui partage une entrée de cache pour les départs horodatés
+    @Value("${app.routing.departure-bucket:15m}")
+    private Duration departureBucket;
+
+    private static final int LEG_CONCURRENCY = 4;
+    private static final String EDGES_FILTER = "WHERE r.cost IS NOT NULL AND r.cost > 0 AND ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), r.geom)";
+
+    private StageTimer snapTimer;
+    private StageTimer pgRoutingTimer;
+    private StageTimer osrmTimer;
+    private StageTimer computeTimer;
+    private StageTimer timeDependentTimer;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Variables pour stocker temporairement les noms des lieux
-    private String currentStartPlaceName;
-    private String currentEndPlaceName;
+    // Calculs en cours pour des requêtes utilisateur (le pré-chauffage s'efface au-delà d'un seuil)
+    private final AtomicInteger liveComputations = new AtomicInteger(0);
+
+    @Autowired
+    void bindMetrics(MeterRegistry meterRegistry, Tracer tracer) {
+        snapTimer = new StageTimer(meterRegistry, tracer, "mp.route.snap", "Recherche du nœud le plus proche", "mode");
+        pgRoutingTimer = new StageTimer(meterRegistry, tracer, "mp.route.pgrouting", "Requête pgr_KSP", "mode");
+        osrmTimer = new StageTimer(meterRegistry, tracer, "mp.route.osrm", "Appel OSRM et analyse", "mode");
+        computeTimer = new StageTimer(meterRegistry, tracer, "mp.route.compute",
+                "Calcul complet d'un itinéraire absent du cache (pgRouting puis OSRM)", "mode");
+        timeDependentTimer = new StageTimer(meterRegistry, tracer, "mp.route.time-dependent",
+                "A* dépendant de l'heure sur le graphe en mémoire", "mode");
+    }
 
     public Mono<RouteResponse> routeWithPgRouting(List<Point> points, String mode, String startPlaceName,
             String endPlaceName) {
+        return routeWithPgRouting(points, mode, startPlaceName, endPlaceName, null);
+    }
+
+    // departureTime (optionnel) : durées selon les profils horaires des tronçons en mode driving
+    public Mono<RouteResponse> routeWithPgRouting(List<Point> points, String mode, String startPlaceName,
+            String endPlaceName, Instant departureTime) {
+        return routeWithPgRouting(points, mode, startPlaceName, endPlaceName, departureTime, RouteAvoidance.NONE);
+    }
+
+    // avoid : tronçons et zones à éviter pour cette requête, en plus des fermetures du registre
+    public Mono<RouteResponse> routeWithPgRouting(List<Point> points, String mode, String startPlaceName,
+            String endPlaceName, Instant departureTime, RouteAvoidance avoid) {
+        return routeWithPgRouting(points, mode, startPlaceName, endPlaceName, departureTime, avoid,
+                closureRegistry.active());
+    }
+
+    // closures : fermetures lues une fois à l'arrivée de la requête, les mêmes pour la recherche
+    // du corps pré-sérialisé, le calcul et la mémorisation du corps servi
+    public Mono<RouteResponse> routeWithPgRouting(List<Point> points, String mode, String startPlaceName,
+            String endPlaceName, Instant departureTime, RouteAvoidance avoid, ClosureRegistry.Active closures) {
         if (points.size() != 2) {
             return Mono.just(createErrorResponse("Exactement deux points sont requis"));
         }
 
-        // Stocker les noms pour utilisation dans les méthodes internes
-        this.currentStartPlaceName = startPlaceName != null ? startPlaceName : "Départ";
-        this.currentEndPlaceName = endPlaceName != null ? endPlaceName : "Arrivée";
+        RoutingContext context = RoutingContext.of(points, mode, startPlaceName, endPlaceName, departureTime)
+                .withConstraints(avoid, closures);
+        String cacheKey = routeKey(context);
 
-        Point start = points.get(0);
-        Point end = points.get(1);
-        String cacheKey = cacheService.generateRouteKey(start, end, mode);
+        logger.debug("🗺️ Recherche itinéraire {} ({})", cacheKey, mode);
 
-        System.out.println("🗺️  Recherche itinéraire dans Redis Cloud...");
-
-        return cacheService.get(cacheKey, RouteResponse.class)
-                .switchIfEmpty(
-                        calculateRouteWithFallback(points, mode, cacheKey))
+        // Entrée périmée servie immédiatement, recalcul unique en arrière-plan
+        return cacheService.getOrCompute(cacheKey, RouteResponse.class,
+                () -> calculateRouteWithFallback(context)
+                        .doOnSubscribe(subscription -> liveComputations.incrementAndGet())
+                        .doFinally(signal -> liveComputations.decrementAndGet()),
+                RouteService::isCacheable)
+                // L'entrée en cache est partagée : les noms de cette requête sont posés sur une copie
+                .map(response -> withPlaceNames(response, context))
                 .doOnNext(response -> {
-                    if (response.getError() == null && !response.getRoutes().isEmpty()) {
-                        double distance = response.getRoutes().get(0).getDistance();
-                        double duration = response.getRoutes().get(0).getDuration();
-                        System.out.println("✅ Itinéraire trouvé: " + distance + " km");
-
-                        // Publish event to Kafka
-                        RouteCalculatedEvent event = new RouteCalculatedEvent(
-                                currentStartPlaceName,
-                                currentEndPlaceName,
-                                distance,
-                                duration,
-                                mode);
-                        if (eventProducer != null) {
-                            eventProducer.publishRouteCalculated(event).subscribe();
-                        }
+                    if (isCacheable(response)) {
+                        logger.debug("✅ Itinéraire trouvé: {} km", response.routes().get(0).distance());
+                        publishRouteCalculated(context, response.routes().get(0).distance(),
+                                response.routes().get(0).duration());
                     }
                 });
     }
 
-    private Mono<RouteResponse> calculateRouteWithFallback(List<Point> points, String mode, String cacheKey) {
-        System.out.println("🔄 Calcul nouvel itinéraire (pgRouting + OSRM fallback)...");
-
-        return calculateWithPgRouting(points, mode)
-                .flatMap(response -> {
-                    if (response.getError() == null && !response.getRoutes().isEmpty()) {
-                        System.out.println("💾 Stockage résultat pgRouting dans Redis Cloud");
-                        return cacheService.set(cacheKey, response).thenReturn(response);
-                    } else {
-                        System.out.println("🔄 Fallback vers OSRM...");
-                        return calculateWithOSRM(points, mode)
-                                .flatMap(osrmResponse -> {
-                                    if (osrmResponse.getError() == null && !osrmResponse.getRoutes().isEmpty()) {
-                                        System.out.println("💾 Stockage résultat OSRM dans Redis Cloud");
-                                        return cacheService.set(cacheKey, osrmResponse).thenReturn(osrmResponse);
-                                    }
-                                    return Mono.just(osrmResponse);
-                                });
-                    }
-                })
-                .onErrorResume(error -> {
-                    System.out.println("⚠️  Erreur générale, fallback vers OSRM: " + error.getMessage());
-                    return calculateWithOSRM(points, mode)
-                            .flatMap(osrmResponse -> {
-                                if (osrmResponse.getError() == null && !osrmResponse.getRoutes().isEmpty()) {
-                                    return cacheService.set(cacheKey, osrmResponse).thenReturn(osrmResponse);
-                                }
-                                return Mono.just(osrmResponse);
-                            });
-                });
+    /**
+     * Corps JSON gzip d'une réponse déjà servie pour les mêmes cellules, le même mode et les
+     * mêmes noms de lieux ; l'événement de calcul est publié comme pour un succès de cache.
+     */
+    public Mono<ResponseBodyCache.Body> findPreSerialized(List<Point> points, String mode, String startPlaceName,
+            String endPlaceName, Instant departureTime, RouteAvoidance avoid, ClosureRegistry.Active closures) {
+        if (points.size() != 2 || !cacheService.isRedisAvailable()) {
+            return Mono.empty();
+        }
+        RoutingContext context = RoutingContext.of(points, mode, startPlaceName, endPlaceName, departureTime)
+                .withConstraints(avoid, closures);
+        return responseBodyCache.get(bodyKey(context))
+                .doOnNext(body -> publishRouteCalculated(context, body.distance(), body.duration()));
+    }
+
+    // Mémorise le corps d'une réponse servie, sous les fermetures avec lesquelles elle a été calculée
+    public void rememberPreSerialized(List<Point> points, String mode, String startPlaceName, String endPlaceName,
+            Instant departureTime, RouteAvoidance avoid, ClosureRegistry.Active closures, RouteResponse response) {
+        if (points.size() != 2 || !isCacheable(response) || !cacheService.isRedisAvailable()) {
+            return;
+        }
+        RoutingContext context = RoutingContext.of(points, mode, startPlaceName, endPlaceName, departureTime)
+                .withConstraints(avoid, closures);
+        responseBodyCache.put(bodyKey(context), response, response.routes().get(0).distance(),
+                response.routes().get(0).duration());
+    }
+
+    private String bodyKey(RoutingContext context) {
+        return responseBodyCache.key(routeKey(context), context.startPlaceName(), context.endPlaceName());
     }
 
-    private Mono<RouteResponse> calculateWithPgRouting(List<Point> points, String mode) {
+    // Départ horodaté : la tranche de la semaine entre dans la clé, "r:...@w<tranche>" ; puis
+    // l'empreinte des fermetures en vigueur ("!c") et celle des évitements de la requête ("!a")
+    private String routeKey(RoutingContext context) {
+        String key = cacheService.generateRouteKey(context.start(), context.end(), context.mode());
+        if (context.isTimeDependent()) {
+            long bucketMinutes = Math.max(1, departureBucket.toMinutes());
+            key = key + "@w" + (long) (departureMinute(context) / bucketMinutes);
+        }
+        if (!context.closures().isEmpty()) {
+            key = key + "!c" + context.closures().tag();
+        }
+        if (!context.avoid().isEmpty()) {
+            key = key + "!a" + Long.toString(context.avoid().fingerprint() >>> 24, 36);
+        }
+        return key;
+    }
+
+    private double departureMinute(RoutingContext context) {
+        return SpeedProfiles.minuteOfWeek(context.departureTime(), routingZone);
+    }
+
+    private void publishRouteCalculated(RoutingContext context, double distance, double duration) {
+        if (eventProducer == null) {
+            return;
+        }
+        eventProducer.publishRouteCalculated(new RouteCalculatedEvent(
+                context.startPlaceName(),
+                context.endPlaceName(),
+                distance,
+                duration,
+                context.mode(),
+                context.start().getLat(), context.start().getLng(),
+                context.end().getLat(), context.end().getLng()));
+    }
+
+    // Clé de cache qu'écrit refreshRoute avec ces fermetures : même empreinte "!c" que les requêtes
+    public String routeCacheKey(List<Point> points, String mode, ClosureRegistry.Active closures) {
+        return routeKey(RoutingContext.of(points, mode, null, null).withConstraints(RouteAvoidance.NONE, closures));
+    }
+
+    // Recalcule et réécrit l'entrée de cache sans la lire (pré-chauffage)
+    public Mono<RouteResponse> refreshRoute(List<Point> points, String mode, String startPlaceName,
+            String endPlaceName, ClosureRegistry.Active closures) {
+        RoutingContext context = RoutingContext.of(points, mode, startPlaceName, endPlaceName)
+                .withConstraints(RouteAvoidance.NONE, closures);
+        String cacheKey = routeKey(context);
+        return cacheService.refresh(cacheKey, () -> calculateRouteWithFallback(context), RouteService::isCacheable);
+    }
+
+    public int getLiveComputations() {
+        return liveComputations.get();
+    }
+
+    // Les étapes et géométries restent partagées, seules les routes sont renommées
+    private static RouteResponse withPlaceNames(RouteResponse response, RoutingContext context) {
+        if (response.routes() == null || response.routes().isEmpty()) {
+            return response;
+        }
+        List<Route> routes = new ArrayList<>(response.routes().size());
+        for (Route route : response.routes()) {
+            routes.add(route.withPlaceNames(context.startPlaceName(), context.endPlaceName()));
+        }
+        return new RouteResponse(routes, response.error());
+    }
+
+    private static boolean isCacheable(RouteResponse response) {
+        return response.error() == null && response.routes() != null && !response.routes().isEmpty();
+    }
+
+    // Calcul sans cache : la mise en cache est assurée par AdaptiveRedisCacheService.getOrCompute.
+    // Le span de calcul englobe ceux de pgRouting et d'OSRM
+    private Mono<RouteResponse> calculateRouteWithFallback(RoutingContext context) {
+        return Mono.defer(() -> {
+            logger.debug("🔄 Calcul nouvel itinéraire (pgRouting + OSRM fallback)");
+            AtomicBoolean fellBack = new AtomicBoolean(false);
+            Mono<RouteResponse> computation = calculateWithPgRouting(context)
+                    .flatMap(response -> {
+                        if (isCacheable(response) || context.isConstrained()) {
+                            return Mono.just(response);
+                        }
+                        logger.debug("🔄 Fallback vers OSRM: {}", response.error());
+                        fellBack.set(true);
+                        return calculateWithOSRM(context);
+                    })
+                    .onErrorResume(error -> {
+                        if (context.isConstrained()) {
+                            return Mono.just(createErrorResponse("Erreur calcul avec fermetures: " + error.getMessage()));
+                        }
+                        logger.warn("⚠️ Erreur générale, fallback vers OSRM: {}", error.getMessage());
+                        fellBack.set(true);
+                        return calculateWithOSRM(context);
+                    });
+            return computeTimer.time(computation, modeTag(context.mode()), response -> !isCacheable(response)
+                    ? StageTimer.Outcome.ERROR
+                    : fellBack.get() ? StageTimer.Outcome.FALLBACK : StageTimer.Outcome.OK);
+        });
+    }
+
+    // Dimension "mode" des métriques : bornée aux modes connus
+    private static String modeTag(String mode) {
+        return switch (mode) {
+            case "driving", "walking", "cycling" -> mode;
+            default -> "other";
+        };
+    }
+
+    private Mono<RouteResponse> calculateWithPgRouting(RoutingContext context) {
+        List<Point> points = context.points();
         for (Point point : points) {
             if (!isWithinCameroon(point.getLat(), point.getLng())) {
                 return Mono.just(createErrorResponse("Un des points est hors des limites du Cameroun"));
             }
         }
 
-        return Mono.zip(findNearestNode(points.get(0)), findNearestNode(points.get(1)))
+        String modeTag = modeTag(context.mode());
+        return Mono.zip(snapTimer.time(findNearestNode(points.get(0)), modeTag, id -> StageTimer.Outcome.OK),
+                        snapTimer.time(findNearestNode(points.get(1)), modeTag, id -> StageTimer.Outcome.OK),
+                        avoidedEdges(context.avoid()))
                 .flatMap(tuple -> {
                     Long source = tuple.getT1();
                     Long target = tuple.getT2();
+                    long[] avoided = tuple.getT3();
                     if (source.equals(target)) {
                         return Mono.just(createErrorResponse("Les nœuds source et cible sont identiques"));
                     }
-                    return executePgRoutingQuery(source, target, mode);
+                    // Instantané lu une fois : graphe, routeur et bitset des fermetures vont ensemble
+                    RoadGraphStore.Snapshot snapshot = context.isTimeDependent() ? roadGraphStore.current() : null;
+                    if (snapshot != null && snapshot.graph().nodeIndex(source) >= 0
+                            && snapshot.graph().nodeIndex(target) >= 0) {
+                        BlockedEdges blocked = new BlockedEdges(
+                                closureRegistry.closedEdges(snapshot, context.closures()),
+                                avoided.length > 0 ? BlockedEdges.bits(snapshot.graph(), avoided) : null);
+                        return routeTimeDependent(snapshot.router(), snapshot.graph().nodeIndex(source),
+                                snapshot.graph().nodeIndex(target), blocked, context);
+                    }
+                    return executePgRoutingQuery(source, target, context,
+                            ClosureRegistry.merge(context.closures().edgeIds(), avoided));
                 })
                 .onErrorResume(e -> Mono.just(createErrorResponse("Erreur pgRouting: " + e.getMessage())));
     }
 
-    private Mono<RouteResponse> executePgRoutingQuery(Long source, Long target, String mode) {
-        double vitesse = mode.equals("driving") ? 25 : mode.equals("walking") ? 2 : 8;
+    // Tronçons évités par la requête : identifiants fournis et tronçons des zones, triés
+    private Mono<long[]> avoidedEdges(RouteAvoidance avoid) {
+        if (avoid.isEmpty()) {
+            return Mono.just(new long[0]);
+        }
+        long[] listed = avoid.edges().stream().mapToLong(Long::longValue).toArray();
+        return closureRegistry.edgesInAreas(avoid.areas())
+                .map(inAreas -> ClosureRegistry.merge(listed, inAreas));
+    }
 
+    // Graphe lu par pgr_ksp : coûts statiques, ou divisés par le facteur de trafic des tronçons ralentis ;
+    // tronçons fermés ou évités retirés (identifiants en littéral : la requête est du texte pour pgr_ksp)
+    private static String edgesSql(TrafficOverlay.Snapshot traffic, long[] excluded) {
+        String filter = EDGES_FILTER;
+        if (excluded.length > 0) {
+            StringBuilder ids = new StringBuilder(excluded.length * 8);
+            for (long id : excluded) {
+                ids.append(ids.length() == 0 ? "" : ",").append(id);
+            }
+            filter = filter + " AND r.id <> ALL(ARRAY[" + ids + "]::bigint[])";
+        }
+        if (traffic == null || traffic.weightsSql() == null) {
+            return "SELECT r.id, r.source, r.target, r.cost, r.reverse_cost FROM routes r " + filter;
+        }
+        return "SELECT r.id, r.source, r.target, r.cost / COALESCE(t.f, 1) AS cost, "
+                + "r.reverse_cost / COALESCE(t.f, 1) AS reverse_cost FROM routes r "
+                + "LEFT JOIN (VALUES " + traffic.weightsSql() + ") AS t(id, f) ON t.id = r.id " + filter;
+    }
+
+    private Mono<RouteResponse> executePgRoutingQuery(Long source, Long target, RoutingContext context,
+            long[] excluded) {
+        String mode = context.mode();
+        double vitesse = mode.equals("driving") ? 25 : mode.equals("walking") ? 2 : 8;
+        // Un seul instantané par requête : coûts pgr_ksp et durées restent cohérents.
+        // Départ horodaté : les profils horaires remplacent le trafic en direct
+        boolean timeDependent = context.isTimeDependent();
+        TrafficOverlay.Snapshot traffic = trafficOverlay.appliesTo(mode) && !timeDependent
+                ? trafficOverlay.current()
+                : null;
+
+        // La distance reste celle de la table routes, quel que soit le coût vu par pgr_ksp
         String query = """
                     WITH chemins AS (
                         SELECT path_id, path_seq, node, edge, cost, agg_cost
                         FROM pgr_ksp(
-                            'SELECT id, source, target, cost, reverse_cost FROM routes WHERE cost IS NOT NULL AND cost > 0 AND ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), geom)',
+                            '%s',
                             :source, :target, 3, false
                         )
                     )
                     SELECT
                         c.path_id,
                         c.path_seq,
+                        c.edge,
                         ST_AsText(r.geom) as geometry,
                         COALESCE(l1.nom, 'Node ' || r.source) as source,
                         COALESCE(l2.nom, 'Node ' || r.target) as target,
-                        c.cost as distance
+                        c.node = r.source as forward,
+                        r.cost,
+                        r.reverse_cost
                     FROM chemins c
                     JOIN routes r ON c.edge = r.id
                     LEFT JOIN lieux l1 ON r.source = l1.id
@@ -157,29 +390,133 @@ public class RouteService {
                     WHERE c.edge > 0
                     AND ST_Contains(ST_SetSRID(ST_MakeBox2D(ST_Point(8.4, 1.65), ST_Point(16.2, 13.08)), 4326), r.geom)
                     ORDER BY c.path_id, c.path_seq
-                """;
+                """.formatted(edgesSql(traffic, excluded));
 
-        return Mono.from(connectionFactory.create())
+        Mono<RouteResponse> pgRouting = Mono.from(connectionFactory.create())
                 .flatMapMany(connection -> Flux.from(connection.createStatement(query)
                         .bind("source", source)
                         .bind("target", target)
                         .execute())
                         .flatMap(result -> Flux.from(result.map((row, metadata) -> {
-                            RouteStep step = new RouteStep();
-                            step.setGeometry(row.get("geometry", String.class));
-                            step.setSource(row.get("source", String.class));
-                            step.setTarget(row.get("target", String.class));
-                            step.setDistance(row.get("distance", Double.class));
-                            step.setDuration(row.get("distance", Double.class) / vitesse);
-                            return new RouteStepWrapper(row.get("path_id", Integer.class), step);
+                            double distance = traversedLength(row.get("forward", Boolean.class),
+                                    row.get("cost", Double.class), row.get("reverse_cost", Double.class));
+                            long edge = row.get("edge", Long.class);
+                            double factor = traffic != null ? traffic.factor(edge) : 1.0;
+                            RouteStep step = new RouteStep(
+                                    LineGeometry.parseWkt(row.get("geometry", String.class)),
+                                    row.get("source", String.class),
+                                    row.get("target", String.class),
+                                    distance,
+                                    distance / (vitesse * factor));
+                            return new RouteStepWrapper(row.get("path_id", Integer.class), edge, step);
                         })))
                         .doFinally(signal -> Mono.from(connection.close())))
                 .collectList()
-                .map(this::buildRouteResponseFromSteps)
+                .map(steps -> {
+                    RouteResponse response = buildRouteResponseFromSteps(
+                            timeDependent ? withProfileDurations(steps, departureMinute(context)) : steps, context);
+                    if (traffic != null && isCacheable(response)) {
+                        trafficOverlay.registerRoute(routeKey(context),
+                                steps.stream().mapToLong(wrapper -> wrapper.edge).toArray());
+                    }
+                    return response;
+                });
+        return pgRoutingTimer.time(pgRouting, modeTag(mode), response -> isCacheable(response)
+                        ? StageTimer.Outcome.OK
+                        : StageTimer.Outcome.EMPTY)
                 .onErrorResume(e -> Mono.just(createErrorResponse("Erreur exécution pgRouting: " + e.getMessage())));
     }
 
-    private RouteResponse buildRouteResponseFromSteps(List<RouteStepWrapper> steps) {
+    // Longueur dans le sens parcouru. pgr_ksp non orienté emprunte aussi les sens uniques à contresens
+    // (reverse_cost < 0) : la longueur physique reste alors cost
+    static double traversedLength(Boolean forward, double cost, Double reverseCost) {
+        if (Boolean.TRUE.equals(forward) || reverseCost == null || reverseCost <= 0) {
+            return cost;
+        }
+        return reverseCost;
+    }
+
+    // Durées évaluées le long de chaque chemin : un tronçon roule à la vitesse de son profil à l'heure d'y entrer
+    private List<RouteStepWrapper> withProfileDurations(List<RouteStepWrapper> steps, double departureMinute) {
+        Map<Integer, Double> elapsedByPath = new HashMap<>();
+        List<RouteStepWrapper> timed = new ArrayList<>(steps.size());
+        for (RouteStepWrapper wrapper : steps) {
+            double elapsed = elapsedByPath.getOrDefault(wrapper.pathId, 0.0);
+            double speed = speedProfiles.speedKmh(speedProfiles.profileFor(wrapper.edge),
+                    departureMinute + elapsed / 60.0) / 3.6;
+            RouteStep step = wrapper.step;
+            double duration = step.distance() / speed;
+            elapsedByPath.put(wrapper.pathId, elapsed + duration);
+            timed.add(new RouteStepWrapper(wrapper.pathId, wrapper.edge,
+                    new RouteStep(step.geometry(), step.source(), step.target(), step.distance(), duration)));
+        }
+        return timed;
+    }
+
+    // A* dépendant de l'heure hors des fils Netty ; géométries et libellés des seuls tronçons retenus relus en base
+    private Mono<RouteResponse> routeTimeDependent(TimeDependentRouter router, int source, int target,
+            BlockedEdges blocked, RoutingContext context) {
+        Mono<RouteResponse> routing = Mono.fromCallable(() -> router.route(source, target, departureMinute(context),
+                        blocked))
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(path -> loadPathSteps(router.graph(), path, context))
+                .defaultIfEmpty(createErrorResponse("Aucun itinéraire trouvé sur le graphe routier"));
+        return timeDependentTimer.time(routing, modeTag(context.mode()), response -> isCacheable(response)
+                        ? StageTimer.Outcome.OK
+                        : StageTimer.Outcome.EMPTY)
+                .onErrorResume(e -> Mono.just(createErrorResponse("Erreur calcul dépendant de l'heure: " + e.getMessage())));
+    }
+
+    private record EdgeDetails(long id, String geometry, String source, String target) {
+    }
+
+    private Mono<RouteResponse> loadPathSteps(RoadGraph graph, TimeDependentRouter.Path path, RoutingContext context) {
+        Long[] ids = new Long[path.edges().length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.edgeId(path.edges()[i]);
+        }
+        String query = """
+                    SELECT
+                        r.id,
+                        ST_AsText(r.geom) as geometry,
+                        COALESCE(l1.nom, 'Node ' || r.source) as source,
+                        COALESCE(l2.nom, 'Node ' || r.target) as target
+                    FROM routes r
+                    LEFT JOIN lieux l1 ON r.source = l1.id
+                    LEFT JOIN lieux l2 ON r.target = l2.id
+                    WHERE r.id = ANY(:ids)
+                """;
+
+        return Mono.from(connectionFactory.create())
+                .flatMapMany(connection -> Flux.from(connection.createStatement(query)
+                        .bind("ids", ids)
+                        .execute())
+                        .flatMap(result -> Flux.from(result.map((row, metadata) -> new EdgeDetails(
+                                row.get("id", Long.class),
+                                row.get("geometry", String.class),
+                                row.get("source", String.class),
+                                row.get("target", String.class)))))
+                        .doFinally(signal -> Mono.from(connection.close()).subscribe()))
+                .collectMap(EdgeDetails::id)
+                .map(details -> {
+                    List<RouteStep> steps = new ArrayList<>(ids.length);
+                    for (int i = 0; i < ids.length; i++) {
+                        EdgeDetails edge = details.get(ids[i]);
+                        if (edge != null) {
+                            steps.add(new RouteStep(LineGeometry.parseWkt(edge.geometry()), edge.source(),
+                                    edge.target(), path.lengths()[i], path.seconds()[i]));
+                        }
+                    }
+                    if (steps.isEmpty()) {
+                        return createErrorResponse("Tronçons de l'itinéraire introuvables en base");
+                    }
+                    return RouteResponse.of(List.of(createRoute(steps, path.distance(), path.duration(),
+                            context.startPlaceName(), context.endPlaceName())));
+                });
+    }
+
+    // Visibilité paquet : mesurée par les benchmarks JMH (src/jmh)
+    RouteResponse buildRouteResponseFromSteps(List<RouteStepWrapper> steps, RoutingContext context) {
         List<RouteStep> routeStepsA = new ArrayList<>();
         List<RouteStep> routeStepsB = new ArrayList<>();
         List<RouteStep> routeStepsC = new ArrayList<>();
@@ -191,76 +528,62 @@ public class RouteService {
             switch (wrapper.pathId) {
                 case 1:
                     routeStepsA.add(step);
-                    distanceA += step.getDistance();
-                    durationA += step.getDuration();
+                    distanceA += step.distance();
+                    durationA += step.duration();
                     break;
                 case 2:
                     routeStepsB.add(step);
-                    distanceB += step.getDistance();
-                    durationB += step.getDuration();
+                    distanceB += step.distance();
+                    durationB += step.duration();
                     break;
                 case 3:
                     routeStepsC.add(step);
-                    distanceC += step.getDistance();
-                    durationC += step.getDuration();
+                    distanceC += step.distance();
+                    durationC += step.duration();
                     break;
             }
         }
 
         List<Route> routes = new ArrayList<>();
         if (!routeStepsA.isEmpty()) {
-            routes.add(createRoute(routeStepsA, distanceA, durationA, currentStartPlaceName, currentEndPlaceName));
+            routes.add(createRoute(routeStepsA, distanceA, durationA, context.startPlaceName(), context.endPlaceName()));
         }
         if (!routeStepsB.isEmpty()) {
-            routes.add(createRoute(routeStepsB, distanceB, durationB, currentStartPlaceName, currentEndPlaceName));
+            routes.add(createRoute(routeStepsB, distanceB, durationB, context.startPlaceName(), context.endPlaceName()));
         }
         if (!routeStepsC.isEmpty()) {
-            routes.add(createRoute(routeStepsC, distanceC, durationC, currentStartPlaceName, currentEndPlaceName));
+            routes.add(createRoute(routeStepsC, distanceC, durationC, context.startPlaceName(), context.endPlaceName()));
         }
 
-        RouteResponse response = new RouteResponse();
         if (routes.isEmpty()) {
-            response.setError("Aucun itinéraire trouvé par pgRouting");
-        } else {
-            response.setRoutes(routes);
+            return createErrorResponse("Aucun itinéraire trouvé par pgRouting");
         }
-        return response;
+        return RouteResponse.of(routes);
     }
 
     private Route createRoute(List<RouteStep> steps, double distance, double duration,
             String startPlaceName, String endPlaceName) {
-        Route route = new Route();
-        route.setDistance(distance);
-        route.setDuration(duration);
-        route.setSteps(steps);
-        route.setStartPlaceName(startPlaceName);
-        route.setEndPlaceName(endPlaceName);
-
         // Construction de la géométrie à partir des étapes
-        String geometry = steps.stream()
-                .map(RouteStep::getGeometry)
+        LineGeometry geometry = steps.stream()
+                .map(RouteStep::geometry)
                 .filter(geom -> geom != null && !geom.isEmpty())
                 .findFirst()
-                .orElse("LINESTRING(0 0, 1 1)");
-        route.setGeometry(geometry);
+                .orElse(LineGeometry.of(new double[]{0, 0, 1, 1}));
 
-        return route;
+        return new Route(distance, duration, steps, startPlaceName, endPlaceName, geometry);
     }
 
-    private Mono<RouteResponse> calculateWithOSRM(List<Point> points, String mode) {
-        return getRouteFromOSRM(points, mode)
-                .map(routes -> {
-                    RouteResponse response = new RouteResponse();
-                    response.setRoutes(routes);
-                    if (routes.isEmpty()) {
-                        response.setError("Aucun itinéraire trouvé avec OSRM");
-                    }
-                    return response;
-                })
+    private Mono<RouteResponse> calculateWithOSRM(RoutingContext context) {
+        return getRouteFromOSRM(context)
+                .map(routes -> routes.isEmpty()
+                        ? new RouteResponse(routes, "Aucun itinéraire trouvé avec OSRM")
+                        : RouteResponse.of(routes))
                 .onErrorResume(e -> Mono.just(createErrorResponse("Erreur OSRM: " + e.getMessage())));
     }
 
-    private Mono<List<Route>> getRouteFromOSRM(List<Point> points, String mode) {
+    private Mono<List<Route>> getRouteFromOSRM(RoutingContext context) {
+        List<Point> points = context.points();
+        String mode = context.mode();
         for (Point point : points) {
             if (!isWithinCameroon(point.getLat(), point.getLng())) {
                 return Mono.just(new ArrayList<>());
@@ -273,19 +596,23 @@ public class RouteService {
                 .reduce((a, b) -> a + ";" + b)
                 .orElse("");
 
-        String url = "https://router.project-osrm.org/route/v1/" + profile + "/" + coordinates
+        String url = osrmBaseUrl + "/route/v1/" + profile + "/" + coordinates
                 + "?steps=true&geometries=geojson&alternatives=3";
 
-        return webClientBuilder.build()
+        Mono<List<Route>> osrm = webClientBuilder.build()
                 .get()
                 .uri(url)
                 .retrieve()
                 .bodyToMono(String.class)
-                .flatMap(this::parseOSRMResponse)
+                .flatMap(json -> parseOSRMResponse(json, context));
+        return osrmTimer.time(osrm, modeTag(mode), routes -> routes.isEmpty()
+                        ? StageTimer.Outcome.EMPTY
+                        : StageTimer.Outcome.OK)
                 .onErrorResume(e -> Mono.just(new ArrayList<>()));
     }
 
-    private Mono<List<Route>> parseOSRMResponse(String jsonResponse) {
+    // Visibilité paquet : mesurée par les benchmarks JMH (src/jmh)
+    Mono<List<Route>> parseOSRMResponse(String jsonResponse, RoutingContext context) {
         if (jsonResponse == null || jsonResponse.trim().isEmpty()) {
             return Mono.just(new ArrayList<>());
         }
@@ -298,7 +625,7 @@ public class RouteService {
             List<Route> routes = new ArrayList<>();
             if (data.has("routes") && data.get("routes").isArray()) {
                 for (JsonNode routeNode : data.get("routes")) {
-                    Route route = parseOSRMRoute(routeNode);
+                    Route route = parseOSRMRoute(routeNode, context);
                     if (route != null) {
                         routes.add(route);
                     }
@@ -310,31 +637,12 @@ public class RouteService {
         }
     }
 
-    private Route parseOSRMRoute(JsonNode routeNode) {
+    private Route parseOSRMRoute(JsonNode routeNode, RoutingContext context) {
         try {
             List<RouteStep> steps = new ArrayList<>();
-            StringBuilder geometry = new StringBuilder("LINESTRING(");
 
             // Parsing de la géométrie
-            if (routeNode.has("geometry") && routeNode.get("geometry").has("coordinates")) {
-                JsonNode coordinatesNode = routeNode.get("geometry").get("coordinates");
-                if (coordinatesNode.isArray()) {
-                    List<String> coords = new ArrayList<>();
-                    for (JsonNode coord : coordinatesNode) {
-                        if (coord.isArray() && coord.size() >= 2) {
-                            double lng = coord.get(0).asDouble();
-                            double lat = coord.get(1).asDouble();
-                            if (isWithinCameroon(lat, lng)) {
-                                coords.add(lng + " " + lat);
-                            }
-                        }
-                    }
-                    if (!coords.isEmpty()) {
-                        geometry.append(String.join(", ", coords));
-                    }
-                }
-            }
-            geometry.append(")");
+            LineGeometry geometry = parseOSRMGeometry(routeNode);
 
             // Parsing des étapes
             if (routeNode.has("legs") && routeNode.get("legs").isArray()) {
@@ -350,25 +658,13 @@ public class RouteService {
                 }
             }
 
+            double distance = routeNode.has("distance") ? routeNode.get("distance").asDouble() : 0.0;
+            double duration = routeNode.has("duration") ? routeNode.get("duration").asDouble() : 0.0;
             if (steps.isEmpty()) {
-                RouteStep defaultStep = new RouteStep();
-                defaultStep.setGeometry(geometry.toString());
-                defaultStep.setSource("Départ");
-                defaultStep.setTarget("Arrivée");
-                defaultStep.setDistance(routeNode.has("distance") ? routeNode.get("distance").asDouble() : 0.0);
-                defaultStep.setDuration(routeNode.has("duration") ? routeNode.get("duration").asDouble() : 0.0);
-                steps.add(defaultStep);
+                steps.add(new RouteStep(geometry, "Départ", "Arrivée", distance, duration));
             }
 
-            Route route = new Route();
-            route.setDistance(routeNode.has("distance") ? routeNode.get("distance").asDouble() : 0.0);
-            route.setDuration(routeNode.has("duration") ? routeNode.get("duration").asDouble() : 0.0);
-            route.setSteps(steps);
-            route.setStartPlaceName(currentStartPlaceName);
-            route.setEndPlaceName(currentEndPlaceName);
-            route.setGeometry(geometry.toString());
-
-            return route;
+            return new Route(distance, duration, steps, context.startPlaceName(), context.endPlaceName(), geometry);
         } catch (Exception e) {
             return null;
         }
@@ -376,98 +672,124 @@ public class RouteService {
 
     private RouteStep parseOSRMStep(JsonNode step) {
         try {
-            RouteStep routeStep = new RouteStep();
-
             // Géométrie de l'étape
-            StringBuilder stepGeometry = new StringBuilder("LINESTRING(");
-            if (step.has("geometry") && step.get("geometry").has("coordinates")) {
-                JsonNode coordsNode = step.get("geometry").get("coordinates");
-                List<String> coords = new ArrayList<>();
-                for (JsonNode coord : coordsNode) {
-                    if (coord.isArray() && coord.size() >= 2) {
-                        double lng = coord.get(0).asDouble();
-                        double lat = coord.get(1).asDouble();
-                        if (isWithinCameroon(lat, lng)) {
-                            coords.add(lng + " " + lat);
-                        }
-                    }
-                }
-                if (!coords.isEmpty()) {
-                    stepGeometry.append(String.join(", ", coords));
-                }
-            }
-            stepGeometry.append(")");
-            routeStep.setGeometry(stepGeometry.toString());
+            LineGeometry geometry = parseOSRMGeometry(step);
 
             // Instructions
             String instruction = "Étape";
             if (step.has("maneuver") && step.get("maneuver").has("instruction")) {
                 instruction = step.get("maneuver").get("instruction").asText("Étape");
             }
-            routeStep.setSource(instruction);
-            routeStep.setTarget(instruction);
 
             // Distance et durée
-            routeStep.setDistance(step.has("distance") ? step.get("distance").asDouble() : 0.0);
-            routeStep.setDuration(step.has("duration") ? step.get("duration").asDouble() : 0.0);
-
-            return routeStep;
+            return new RouteStep(geometry, instruction, instruction,
+                    step.has("distance") ? step.get("distance").asDouble() : 0.0,
+                    step.has("duration") ? step.get("duration").asDouble() : 0.0);
         } catch (Exception e) {
             return null;
         }
     }
 
+    // Coordonnées GeoJSON [lng, lat] copiées dans un tableau primitif, hors Cameroun ignorées
+    private LineGeometry parseOSRMGeometry(JsonNode node) {
+        JsonNode coordinatesNode = node.path("geometry").path("coordinates");
+        if (!coordinatesNode.isArray()) {
+            return LineGeometry.EMPTY;
+        }
+        double[] lngLat = new double[coordinatesNode.size() * 2];
+        int count = 0;
+        for (JsonNode coord : coordinatesNode) {
+            if (coord.isArray() && coord.size() >= 2) {
+                double lng = coord.get(0).asDouble();
+                double lat = coord.get(1).asDouble();
+                if (isWithinCameroon(lat, lng)) {
+                    lngLat[count * 2] = lng;
+                    lngLat[count * 2 + 1] = lat;
+                    count++;
+                }
+            }
+        }
+        return LineGeometry.view(lngLat, 0, count);
+    }
+
     public Mono<RouteResponse> routeWithDetour(Point start, Point detour, Point end, String mode,
             String startPlaceName, String detourPlaceName, String endPlaceName) {
-        String osrmMode = mode.equals("taxi") || mode.equals("bus") ? "driving"
-                : mode.equals("moto") ? "cycling" : "driving";
+        String legMode = mode.equals("moto") ? "cycling" : "driving";
+        return routeThroughStops(List.of(start, detour, end), legMode, startPlaceName, endPlaceName)
+                .onErrorResume(e -> Mono.just(createErrorResponse("Erreur calcul détour: " + e.getMessage())));
+    }
 
-        if (!isWithinCameroon(start.getLat(), start.getLng()) ||
-                !isWithinCameroon(detour.getLat(), detour.getLng()) ||
-                !isWithinCameroon(end.getLat(), end.getLng())) {
-            return Mono.just(createErrorResponse("Un ou plusieurs points sont hors des limites du Cameroun"));
+    /**
+     * Itinéraire passant par plusieurs arrêts, assemblé tronçon par tronçon. Chaque tronçon
+     * est mis en cache sous la même clé qu'un itinéraire simple : seuls les tronçons absents
+     * sont calculés, en parallèle, et l'ordre des arrêts est conservé.
+     */
+    public Mono<RouteResponse> routeThroughStops(List<Point> stops, String mode, String startPlaceName,
+            String endPlaceName) {
+        if (stops.size() < 2) {
+            return Mono.just(createErrorResponse("Au moins deux points sont requis"));
+        }
+        for (Point stop : stops) {
+            if (!isWithinCameroon(stop.getLat(), stop.getLng())) {
+                return Mono.just(createErrorResponse("Un ou plusieurs points sont hors des limites du Cameroun"));
+            }
         }
 
-        return Mono.zip(
-                getRouteFromOSRM(List.of(start, detour), osrmMode),
-                getRouteFromOSRM(List.of(detour, end), osrmMode)).flatMap(tuple -> {
-                    List<Route> firstRoutes = tuple.getT1();
-                    List<Route> secondRoutes = tuple.getT2();
-
-                    if (firstRoutes.isEmpty()) {
-                        return Mono.just(createErrorResponse("Aucun itinéraire trouvé de départ à détour"));
+        int legCount = stops.size() - 1;
+        ClosureRegistry.Active closures = closureRegistry.active();
+        return Flux.range(0, legCount)
+                .flatMapSequential(i -> routeLeg(stops.get(i), stops.get(i + 1), mode, closures), LEG_CONCURRENCY)
+                .collectList()
+                .map(legs -> {
+                    for (int i = 0; i < legs.size(); i++) {
+                        if (!isCacheable(legs.get(i))) {
+                            return createErrorResponse("Aucun itinéraire trouvé pour le tronçon " + (i + 1)
+                                    + "/" + legCount);
+                        }
                     }
-                    if (secondRoutes.isEmpty()) {
-                        return Mono.just(createErrorResponse("Aucun itinéraire trouvé de détour à arrivée"));
+                    List<Route> legRoutes = new ArrayList<>(legs.size());
+                    for (RouteResponse leg : legs) {
+                        legRoutes.add(leg.routes().get(0));
                     }
-
-                    Route combinedRoute = combineRoutes(firstRoutes.get(0), secondRoutes.get(0), startPlaceName,
-                            endPlaceName);
-                    List<Route> combinedRoutes = List.of(combinedRoute);
-
-                    RouteResponse response = new RouteResponse();
-                    response.setRoutes(combinedRoutes);
-                    return Mono.just(response);
-                }).onErrorResume(e -> Mono.just(createErrorResponse("Erreur calcul détour: " + e.getMessage())));
+                    return RouteResponse.of(List.of(combineRoutes(legRoutes, startPlaceName, endPlaceName)));
+                });
     }
 
-    private Route combineRoutes(Route firstRoute, Route secondRoute, String startPlaceName, String endPlaceName) {
-        Route combined = new Route();
-        combined.setStartPlaceName(startPlaceName);
-        combined.setEndPlaceName(endPlaceName);
+    private Mono<RouteResponse> routeLeg(Point from, Point to, String mode, ClosureRegistry.Active closures) {
+        RoutingContext context = RoutingContext.of(List.of(from, to), mode, null, null)
+                .withConstraints(RouteAvoidance.NONE, closures);
+        String cacheKey = routeKey(context);
+        return cacheService.getOrCompute(cacheKey, RouteResponse.class,
+                () -> calculateRouteWithFallback(context)
+                        .doOnSubscribe(subscription -> liveComputations.incrementAndGet())
+                        .doFinally(signal -> liveComputations.decrementAndGet()),
+                RouteService::isCacheable);
+    }
 
+    private Route combineRoutes(List<Route> legs, String startPlaceName, String endPlaceName) {
         List<RouteStep> combinedSteps = new ArrayList<>();
-        combinedSteps.addAll(firstRoute.getSteps());
-        combinedSteps.addAll(secondRoute.getSteps());
-        combined.setSteps(combinedSteps);
-
-        combined.setDistance(firstRoute.getDistance() + secondRoute.getDistance());
-        combined.setDuration(firstRoute.getDuration() + secondRoute.getDuration());
-
-        // Combinaison simplifiée de la géométrie
-        combined.setGeometry(firstRoute.getGeometry() + ";" + secondRoute.getGeometry());
-
-        return combined;
+        List<LineGeometry> geometries = new ArrayList<>();
+        double distance = 0;
+        double duration = 0;
+        for (Route leg : legs) {
+            List<RouteStep> steps = leg.steps() != null ? leg.steps() : List.of();
+            combinedSteps.addAll(steps);
+            distance += leg.distance();
+            duration += leg.duration();
+
+            // Les étapes couvrent tout le tronçon ; la géométrie de la route n'est qu'un repli
+            int before = geometries.size();
+            for (RouteStep step : steps) {
+                if (step.geometry() != null && !step.geometry().isEmpty()) {
+                    geometries.add(step.geometry());
+                }
+            }
+            if (geometries.size() == before && leg.geometry() != null) {
+                geometries.add(leg.geometry());
+            }
+        }
+        return new Route(distance, duration, combinedSteps, startPlaceName, endPlaceName,
+                RouteGeometry.mergeLines(geometries));
     }
 
     private Mono<Long> findNearestNode(Point point) {
@@ -493,17 +815,21 @@ public class RouteService {
     }
 
     private RouteResponse createErrorResponse(String error) {
-        RouteResponse response = new RouteResponse();
-        response.setError(error);
-        return response;
+        return RouteResponse.error(error);
     }
 
-    private static class RouteStepWrapper {
+    static class RouteStepWrapper {
         final int pathId;
+        final long edge;
         final RouteStep step;
 
         RouteStepWrapper(int pathId, RouteStep step) {
+            this(pathId, 0, step);
+        }
+
+        RouteStepWrapper(int pathId, long edge, RouteStep step) {
             this.pathId = pathId;
+            this.edge = edge;
             this.step = step;
         }
     }
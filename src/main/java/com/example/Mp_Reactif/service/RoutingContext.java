@@ -0,0 +1,52 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.RouteAvoidance;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Paramètres d'une requête d'itinéraire, transmis explicitement le long du pipeline réactif.
+ * Immuable : RouteService est un singleton partagé par toutes les requêtes concurrentes.
+ * departureTime est null hors calcul dépendant de l'heure. closures : fermetures en vigueur à
+ * l'arrivée de la requête, les mêmes pour la clé de cache et pour le calcul.
+ */
+record RoutingContext(List<Point> points, String mode, String startPlaceName, String endPlaceName,
+        Instant departureTime, RouteAvoidance avoid, ClosureRegistry.Active closures) {
+
+    static RoutingContext of(List<Point> points, String mode, String startPlaceName, String endPlaceName) {
+        return of(points, mode, startPlaceName, endPlaceName, null);
+    }
+
+    static RoutingContext of(List<Point> points, String mode, String startPlaceName, String endPlaceName,
+            Instant departureTime) {
+        return new RoutingContext(List.copyOf(points), mode,
+                startPlaceName != null ? startPlaceName : "Départ",
+                endPlaceName != null ? endPlaceName : "Arrivée",
+                departureTime, RouteAvoidance.NONE, ClosureRegistry.Active.NONE);
+    }
+
+    RoutingContext withConstraints(RouteAvoidance newAvoid, ClosureRegistry.Active newClosures) {
+        return new RoutingContext(points, mode, startPlaceName, endPlaceName, departureTime,
+                newAvoid != null ? newAvoid : RouteAvoidance.NONE, newClosures);
+    }
+
+    Point start() {
+        return points.get(0);
+    }
+
+    Point end() {
+        return points.get(points.size() - 1);
+    }
+
+    // Profils horaires : mode driving avec heure de départ
+    boolean isTimeDependent() {
+        return departureTime != null && "driving".equals(mode);
+    }
+
+    // Fermetures ou évitements : pas de repli OSRM, qui les ignorerait
+    boolean isConstrained() {
+        return !avoid.isEmpty() || !closures.isEmpty();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.Arrays;
+
+/**
+ * Espace de travail d'une recherche de plus court chemin sur RoadGraph : étiquette (durée ou
+ * distance), arc et nœud parents par nœud, tas binaire avec insertions multiples (entrées
+ * périmées ignorées au retrait). Une génération incrémentée à chaque recherche invalide les
+ * étiquettes précédentes sans effacer les tableaux. Un par fil, jamais partagé.
+ *
+ * Rattaché au fil et non au routeur ou au matcher : après un rechargement du graphe, l'ancien
+ * espace est remplacé à la première recherche au lieu de rester accroché au ThreadLocal d'une
+ * instance abandonnée.
+ */
+final class SearchWorkspace {
+
+    private static final ThreadLocal<SearchWorkspace> CURRENT = new ThreadLocal<>();
+
+    private final double[] label;
+    private final int[] parentArc;
+    private final int[] parentNode;
+    private final int[] reachedGeneration;
+    private final int[] settledGeneration;
+    private int generation;
+    private int[] heapNodes = new int[1024];
+    private double[] heapKeys = new double[1024];
+    private int heapSize;
+
+    SearchWorkspace(int nodeCount) {
+        this.label = new double[nodeCount];
+        this.parentArc = new int[nodeCount];
+        this.parentNode = new int[nodeCount];
+        this.reachedGeneration = new int[nodeCount];
+        this.settledGeneration = new int[nodeCount];
+    }
+
+    // Espace du fil courant, réalloué quand la taille du graphe change
+    static SearchWorkspace forCurrentThread(int nodeCount) {
+        SearchWorkspace workspace = CURRENT.get();
+        if (workspace == null || workspace.label.length != nodeCount) {
+            workspace = new SearchWorkspace(nodeCount);
+            CURRENT.set(workspace);
+        }
+        return workspace;
+    }
+
+    void reset() {
+        heapSize = 0;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedGeneration, 0);
+            Arrays.fill(settledGeneration, 0);
+            generation = 1;
+        }
+    }
+
+    double label(int node) {
+        return reachedGeneration[node] == generation ? label[node] : Double.POSITIVE_INFINITY;
+    }
+
+    void reach(int node, double value, int arc, int previous) {
+        reachedGeneration[node] = generation;
+        label[node] = value;
+        parentArc[node] = arc;
+        parentNode[node] = previous;
+    }
+
+    int parentArc(int node) {
+        return parentArc[node];
+    }
+
+    int parentNode(int node) {
+        return parentNode[node];
+    }
+
+    boolean isSettled(int node) {
+        return settledGeneration[node] == generation;
+    }
+
+    void settle(int node) {
+        settledGeneration[node] = generation;
+    }
+
+    boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    double peekKey() {
+        return heapKeys[0];
+    }
+
+    void push(int node, double key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapNodes[i] = heapNodes[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+    }
+
+    int pop() {
+        int top = heapNodes[0];
+        int lastNode = heapNodes[--heapSize];
+        double lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= lastKey) {
+                break;
+            }
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = lastNode;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sketch "Space-Saving" (Metwally et al.) : suit les éléments les plus fréquents d'un flux
+ * avec une mémoire bornée à {@code capacity} compteurs. Quand un nouvel élément arrive
+ * alors que le sketch est plein, il remplace le compteur minimal et hérite de sa valeur.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Long> counts = new HashMap<>();
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void offer(String item) {
+        Long count = counts.get(item);
+        if (count != null) {
+            counts.put(item, count + 1);
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(item, 1L);
+            return;
+        }
+
+        String minItem = null;
+        long minCount = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() < minCount) {
+                minCount = entry.getValue();
+                minItem = entry.getKey();
+            }
+        }
+        counts.remove(minItem);
+        counts.put(item, minCount + 1);
+    }
+
+    public synchronized void mergeInto(Map<String, Long> totals) {
+        counts.forEach((item, count) -> totals.merge(item, count, Long::sum));
+    }
+
+    public synchronized void clear() {
+        counts.clear();
+    }
+
+    public static List<Map<String, Object>> top(Map<String, Long> totals, int k) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, entries.size()); i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("key", entries.get(i).getKey());
+            item.put("count", entries.get(i).getValue());
+            top.add(item);
+        }
+        return top;
+    }
+}
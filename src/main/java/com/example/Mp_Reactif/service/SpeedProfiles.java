@@ -0,0 +1,251 @@
+package com.example.Mp_Reactif.service;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Profils de vitesse hebdomadaires : fonctions linéaires par morceaux de la minute de la semaine
+ * (lundi 00:00 = 0), bouclant du dimanche soir au lundi matin. Stockage compact : tous les points
+ * dans un seul short[] (minute, vitesse en dixièmes de km/h), chaque profil repéré par son
+ * décalage ; tronçon -> profil par tableaux triés, profil par défaut pour les autres tronçons.
+ *
+ * Format du fichier (app.routing.profiles.location), une directive par ligne, # pour commenter :
+ * <pre>
+ * profile &lt;nom&gt; &lt;jour&gt;-&lt;HH:mm&gt;=&lt;km/h&gt; ...   (jour : mon..sun, wkd = lundi à vendredi, all)
+ * default &lt;nom&gt;
+ * edge &lt;id&gt; &lt;nom&gt;
+ * </pre>
+ */
+public class SpeedProfiles {
+
+    public static final String DEFAULT_LOCATION = "classpath:profiles/speed-profiles.txt";
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+
+    private static final double SPEED_SCALE = 10.0;
+    private static final double MIN_SPEED_KMH = 1.0;
+    private static final List<String> DAYS = List.of("mon", "tue", "wed", "thu", "fri", "sat", "sun");
+
+    private final short[] points;
+    private final int[] offsets;
+    private final String[] names;
+    private final long[] edgeIds;
+    private final short[] edgeProfiles;
+    private final int defaultProfile;
+    private final double maxSpeedKmh;
+
+    public SpeedProfiles(ResourceLoader resourceLoader, String location) {
+        this(read(resourceLoader, location));
+    }
+
+    private SpeedProfiles(BufferedReader reader) {
+        Map<String, TreeMap<Integer, Double>> profiles = new LinkedHashMap<>();
+        TreeMap<Long, String> assignments = new TreeMap<>();
+        String defaultName = null;
+        try (reader) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String content = line.strip();
+                if (content.isEmpty() || content.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = content.split("\\s+");
+                switch (tokens[0]) {
+                    case "profile" -> profiles.put(tokens[1], parsePoints(tokens, lineNumber));
+                    case "default" -> defaultName = tokens[1];
+                    case "edge" -> assignments.put(Long.parseLong(tokens[1]), tokens[2]);
+                    default -> throw new IllegalArgumentException("Directive inconnue ligne " + lineNumber + ": " + tokens[0]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Profil de vitesse mal formé: " + e.getMessage(), e);
+        }
+        if (profiles.isEmpty()) {
+            throw new IllegalStateException("Aucun profil de vitesse défini");
+        }
+        if (profiles.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Trop de profils de vitesse: " + profiles.size());
+        }
+
+        Map<String, Integer> indexByName = new HashMap<>();
+        this.names = profiles.keySet().toArray(new String[0]);
+        this.offsets = new int[names.length + 1];
+        List<Short> packed = new ArrayList<>();
+        double max = 0;
+        for (int p = 0; p < names.length; p++) {
+            indexByName.put(names[p], p);
+            offsets[p] = packed.size();
+            for (Map.Entry<Integer, Double> point : profiles.get(names[p]).entrySet()) {
+                short speed = (short) Math.round(point.getValue() * SPEED_SCALE);
+                packed.add(point.getKey().shortValue());
+                packed.add(speed);
+                max = Math.max(max, speed / SPEED_SCALE);
+            }
+        }
+        offsets[names.length] = packed.size();
+        this.points = new short[packed.size()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = packed.get(i);
+        }
+        this.maxSpeedKmh = max;
+
+        this.defaultProfile = defaultName == null ? 0 : indexOf(indexByName, defaultName);
+        this.edgeIds = new long[assignments.size()];
+        this.edgeProfiles = new short[assignments.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> assignment : assignments.entrySet()) {
+            edgeIds[i] = assignment.getKey();
+            edgeProfiles[i++] = (short) indexOf(indexByName, assignment.getValue());
+        }
+    }
+
+    public static SpeedProfiles fromClasspath() {
+        return new SpeedProfiles(new DefaultResourceLoader(), DEFAULT_LOCATION);
+    }
+
+    public static SpeedProfiles parse(String text) {
+        return new SpeedProfiles(new BufferedReader(new StringReader(text)));
+    }
+
+    private static BufferedReader read(ResourceLoader resourceLoader, String location) {
+        try {
+            return new BufferedReader(new InputStreamReader(
+                    resourceLoader.getResource(location).getInputStream(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Profils de vitesse introuvables: " + location, e);
+        }
+    }
+
+    private static int indexOf(Map<String, Integer> indexByName, String name) {
+        Integer index = indexByName.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Profil de vitesse inconnu: " + name);
+        }
+        return index;
+    }
+
+    // "wkd-07:30=14" : un point par jour désigné, le dernier point d'une minute donnée l'emporte
+    private static TreeMap<Integer, Double> parsePoints(String[] tokens, int lineNumber) {
+        TreeMap<Integer, Double> points = new TreeMap<>();
+        for (int t = 2; t < tokens.length; t++) {
+            String token = tokens[t];
+            int dash = token.indexOf('-');
+            int equals = token.indexOf('=');
+            if (dash < 0 || equals < dash) {
+                throw new IllegalArgumentException("Point mal formé ligne " + lineNumber + ": " + token);
+            }
+            String day = token.substring(0, dash);
+            String[] time = token.substring(dash + 1, equals).split(":");
+            int minuteOfDay = Integer.parseInt(time[0]) * 60 + Integer.parseInt(time[1]);
+            double speed = Math.max(MIN_SPEED_KMH, Double.parseDouble(token.substring(equals + 1)));
+            for (int d : days(day, lineNumber)) {
+                points.put(d * 24 * 60 + minuteOfDay, speed);
+            }
+        }
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Profil sans point ligne " + lineNumber);
+        }
+        return points;
+    }
+
+    private static int[] days(String day, int lineNumber) {
+        return switch (day) {
+            case "all" -> new int[]{0, 1, 2, 3, 4, 5, 6};
+            case "wkd" -> new int[]{0, 1, 2, 3, 4};
+            default -> {
+                int index = DAYS.indexOf(day);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Jour inconnu ligne " + lineNumber + ": " + day);
+                }
+                yield new int[]{index};
+            }
+        };
+    }
+
+    public static double minuteOfWeek(Instant instant, ZoneId zone) {
+        ZonedDateTime time = instant.atZone(zone);
+        return (time.getDayOfWeek().getValue() - 1) * 24 * 60 + time.getHour() * 60 + time.getMinute()
+                + time.getSecond() / 60.0;
+    }
+
+    public int profileFor(long edgeId) {
+        int index = Arrays.binarySearch(edgeIds, edgeId);
+        return index >= 0 ? edgeProfiles[index] : defaultProfile;
+    }
+
+    // Interpolation entre les points qui encadrent la minute, en bouclant sur la semaine
+    public double speedKmh(int profile, double minuteOfWeek) {
+        int start = offsets[profile];
+        int count = (offsets[profile + 1] - start) >> 1;
+        if (count == 1) {
+            return points[start + 1] / SPEED_SCALE;
+        }
+        double minute = minuteOfWeek % MINUTES_PER_WEEK;
+        if (minute < 0) {
+            minute += MINUTES_PER_WEEK;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (points[start + 2 * mid] <= minute) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int before = high;
+        double beforeMinute;
+        if (before < 0) {
+            before = count - 1;
+            beforeMinute = points[start + 2 * before] - MINUTES_PER_WEEK;
+        } else {
+            beforeMinute = points[start + 2 * before];
+        }
+        int after = before + 1 < count ? before + 1 : 0;
+        double afterMinute = points[start + 2 * after];
+        if (afterMinute <= beforeMinute) {
+            afterMinute += MINUTES_PER_WEEK;
+        }
+        double beforeSpeed = points[start + 2 * before + 1];
+        double afterSpeed = points[start + 2 * after + 1];
+        double ratio = (minute - beforeMinute) / (afterMinute - beforeMinute);
+        return (beforeSpeed + (afterSpeed - beforeSpeed) * ratio) / SPEED_SCALE;
+    }
+
+    public double maxSpeedKmh() {
+        return maxSpeedKmh;
+    }
+
+    public int profileCount() {
+        return names.length;
+    }
+
+    public int assignedEdges() {
+        return edgeIds.length;
+    }
+
+    public long footprintBytes() {
+        return 2L * points.length + 4L * offsets.length + 8L * edgeIds.length + 2L * edgeProfiles.length;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.Mp_Reactif.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Minuteur Micrometer d'une étape du traitement, décliné selon une dimension (mode, espace de
+ * clés, topic...) et l'issue de l'étape. Chaque combinaison est enregistrée une seule fois puis
+ * réutilisée : sur le chemin chaud, ni construction de tags ni allocation.
+ * Les seuils SLO des histogrammes se règlent par management.metrics.distribution.slo.*.
+ *
+ * Avec un Tracer, chaque étape réactive (time) ouvre aussi un span enfant de l'observation
+ * courante du contexte Reactor, et se pose elle-même comme parent des appels imbriqués
+ * (WebClient, R2DBC). Ces spans passent par un registre d'observations propre, sans
+ * gestionnaire de métriques : les minuteurs ci-dessus restent la seule source des mesures.
+ */
+public final class StageTimer {
+
+    public enum Outcome {
+        HIT, MISS, STALE, OK, EMPTY, FALLBACK, ERROR, CANCELLED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final String description;
+    private final String dimension;
+    private final ObservationRegistry spans;
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public StageTimer(MeterRegistry registry, String name, String description, String dimension) {
+        this(registry, Tracer.NOOP, name, description, dimension);
+    }
+
+    public StageTimer(MeterRegistry registry, Tracer tracer, String name, String description, String dimension) {
+        this.registry = registry;
+        this.name = name;
+        this.description = description;
+        this.dimension = dimension;
+        if (tracer == Tracer.NOOP) {
+            this.spans = ObservationRegistry.NOOP;
+        } else {
+            this.spans = ObservationRegistry.create();
+            this.spans.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        }
+    }
+
+    public Timer timer(String value, Outcome outcome) {
+        Timer[] byOutcome = timers.computeIfAbsent(value, v -> new Timer[Outcome.values().length]);
+        Timer timer = byOutcome[outcome.ordinal()];
+        if (timer == null) {
+            // Course bénigne : register renvoie le même Timer pour le même identifiant
+            timer = Timer.builder(name)
+                    .description(description)
+                    .tag(dimension, value)
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+            byOutcome[outcome.ordinal()] = timer;
+        }
+        return timer;
+    }
+
+    public void record(String value, Outcome outcome, long startNanos) {
+        timer(value, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Mesure de l'abonnement jusqu'au résultat ; une absence de valeur compte comme EMPTY
+    public <T> Mono<T> time(Mono<T> source, String value, Function<? super T, Outcome> classifier) {
+        return time(source, value, classifier, Outcome.EMPTY);
+    }
+
+    public <T> Mono<T> time(Mono<T> source, String value, Function<? super T, Outcome> classifier,
+            Outcome whenEmpty) {
+        return Mono.deferContextual(context -> {
+            long start = System.nanoTime();
+            Observation span = openSpan(context, value);
+            Mono<T> timed = source
+                    .doOnSuccess(result -> finish(span, value,
+                            result == null ? whenEmpty : classifier.apply(result), start, null))
+                    .doOnError(error -> finish(span, value, Outcome.ERROR, start, error));
+            if (span.isNoop()) {
+                return timed;
+            }
+            // Abandon (zip, timeout amont) : le span est clos sans mesure
+            return timed
+                    .doOnCancel(() -> span.lowCardinalityKeyValue("outcome", Outcome.CANCELLED.tag).stop())
+                    .contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, span));
+        });
+    }
+
+    // Parent : observation du contexte Reactor (requête HTTP), à défaut celle du fil courant
+    private Observation openSpan(ContextView context, String value) {
+        if (spans.isNoop()) {
+            return Observation.NOOP;
+        }
+        Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        return Observation.createNotStarted(name, spans)
+                .parentObservation(parent != null ? parent : spans.getCurrentObservation())
+                .lowCardinalityKeyValue(dimension, value)
+                .start();
+    }
+
+    private void finish(Observation span, String value, Outcome outcome, long start, Throwable error) {
+        record(value, outcome, start);
+        if (span.isNoop()) {
+            return;
+        }
+        span.lowCardinalityKeyValue("outcome", outcome.tag);
+        if (error != null) {
+            span.error(error);
+        }
+        span.stop();
+    }
+}
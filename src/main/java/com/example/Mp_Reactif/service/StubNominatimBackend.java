@@ -0,0 +1,49 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Coordinates;
+import com.example.Mp_Reactif.model.Place;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backend hors ligne (tests, développement sans accès réseau) : répond depuis un
+ * petit référentiel en mémoire au lieu d'interroger nominatim.openstreetmap.org.
+ */
+@Component
+@ConditionalOnProperty(name = "app.nominatim.backend", havingValue = "stub")
+public class StubNominatimBackend implements NominatimBackend {
+
+    private final Map<String, Coordinates> knownPlaces = new ConcurrentHashMap<>();
+    private final AtomicInteger calls = new AtomicInteger(0);
+
+    public StubNominatimBackend() {
+        register("yaounde", 3.8480, 11.5021);
+        register("douala", 4.0511, 9.7679);
+        register("bafoussam", 5.4781, 10.4176);
+        register("garoua", 9.3017, 13.3921);
+        register("bamenda", 5.9631, 10.1591);
+    }
+
+    public void register(String name, double lat, double lng) {
+        knownPlaces.put(name, new Coordinates(lat, lng));
+    }
+
+    @Override
+    public Mono<Place> search(String normalizedName) {
+        calls.incrementAndGet();
+        Coordinates coordinates = knownPlaces.get(normalizedName);
+        if (coordinates == null) {
+            return Mono.empty();
+        }
+        return Mono.just(new Place(null, normalizedName, coordinates));
+    }
+
+    public int getCallCount() {
+        return calls.get();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.Mp_Reactif.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Cache de tuiles en mémoire borné en octets. Éviction approximativement LRU : chaque lecture
+ * note un tick d'accès ; au dépassement du budget, les entrées les moins récemment lues sont
+ * retirées par lot jusqu'à 90 % du budget. Les tuiles épinglées (basses zooms pré-générés)
+ * comptent dans le budget mais ne sont jamais évincées.
+ */
+public final class TileCache {
+
+    public record Tile(byte[] gzip, String etag, int rawBytes, long createdAtMillis) {
+
+        public boolean isEmpty() {
+            return rawBytes == 0;
+        }
+
+        // Client sans gzip (rare) : décompression à la volée
+        public byte[] raw() {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Tile tile;
+        final boolean pinned;
+        volatile long lastAccess;
+
+        Entry(Tile tile, boolean pinned, long lastAccess) {
+            this.tile = tile;
+            this.pinned = pinned;
+            this.lastAccess = lastAccess;
+        }
+
+        long bytes() {
+            return tile.gzip().length + 64L;
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    public TileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static long key(int z, int x, int y) {
+        return (long) z << 48 | (long) x << 24 | y;
+    }
+
+    public Tile get(long key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = ticks.incrementAndGet();
+        return entry.tile;
+    }
+
+    public void put(long key, Tile tile, boolean pinned) {
+        Entry entry = new Entry(tile, pinned, ticks.incrementAndGet());
+        Entry previous = entries.put(key, entry);
+        bytes.addAndGet(entry.bytes() - (previous != null ? previous.bytes() : 0));
+        if (bytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    public void invalidateAll() {
+        entries.keySet().forEach(key -> {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                bytes.addAndGet(-removed.bytes());
+            }
+        });
+    }
+
+    // Un seul fil trie et évince ; les autres continuent de lire et d'écrire
+    private void evict() {
+        synchronized (evictionLock) {
+            if (bytes.get() <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<Long, Entry>> candidates = new ArrayList<>();
+            for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+                if (!entry.getValue().pinned) {
+                    candidates.add(entry);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            long target = maxBytes * 9 / 10;
+            for (Map.Entry<Long, Entry> candidate : candidates) {
+                if (bytes.get() <= target) {
+                    break;
+                }
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    bytes.addAndGet(-candidate.getValue().bytes());
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+}
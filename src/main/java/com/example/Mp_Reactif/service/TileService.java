@@ -0,0 +1,278 @@
+package com.example.Mp_Reactif.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tuiles vectorielles (Mapbox Vector Tile) des couches routes et lieux, générées par PostGIS
+ * (ST_AsMVT) avec une simplification et un filtre de longueur fonction du zoom, puis gardées
+ * compressées en mémoire (TileCache). Les bas zooms sont pré-générés au démarrage et à chaque
+ * ttl ; une tuile expirée est servie pendant sa régénération ; une tuile hors de l'emprise des
+ * données est vide sans requête. Postgres n'est sollicité qu'au premier accès d'une tuile.
+ */
+@Service
+public class TileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TileService.class);
+
+    public static final String CONTENT_TYPE = "application/vnd.mapbox-vector-tile";
+
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final double WORLD_METERS = 2 * Math.PI * 6_378_137;
+    // Pixels d'une tuile affichée : tolérance de simplification d'environ un pixel
+    private static final int DISPLAY_PIXELS = 512;
+    // Sous ce zoom, les tronçons de moins de 4 pixels ne sont pas dessinés
+    private static final int DETAIL_ZOOM = 13;
+    // Emprise des données, celle des requêtes pgRouting
+    private static final double MIN_LNG = 8.4, MIN_LAT = 1.65, MAX_LNG = 16.2, MAX_LAT = 13.08;
+
+    private static final String TILE_QUERY = """
+                WITH bounds AS (
+                    SELECT ST_TileEnvelope(:z, :x, :y) AS tile,
+                        ST_Transform(ST_Expand(ST_TileEnvelope(:z, :x, :y), :buffer), 4326) AS area
+                ),
+                roads AS (
+                    SELECT r.id, r.source, r.target, r.cost::integer AS length,
+                        ST_AsMVTGeom(ST_Simplify(ST_Transform(r.geom, 3857), :tolerance), b.tile, 4096, 64, true) AS geom
+                    FROM routes r, bounds b
+                    WHERE r.geom && b.area AND r.cost >= :minLength
+                ),
+                places AS (
+                    SELECT l.id, l.nom,
+                        ST_AsMVTGeom(ST_Transform(l.geom, 3857), b.tile, 4096, 64, true) AS geom
+                    FROM lieux l, bounds b
+                    WHERE l.geom && b.area
+                    LIMIT :placeLimit
+                )
+                SELECT
+                    COALESCE((SELECT ST_AsMVT(roads, 'routes', 4096, 'geom') FROM roads WHERE geom IS NOT NULL), ''::bytea)
+                    || COALESCE((SELECT ST_AsMVT(places, 'lieux', 4096, 'geom') FROM places WHERE geom IS NOT NULL), ''::bytea)
+                    AS tile
+            """;
+
+    private static final TileCache.Tile EMPTY = new TileCache.Tile(new byte[0], "\"0-0\"", 0, 0);
+
+    private final ConnectionFactory connectionFactory;
+    private final TileCache cache;
+    private final int maxZoom;
+    private final int pregenerateMaxZoom;
+    private final int pregenerateConcurrency;
+    private final Duration ttl;
+    private final int placeLimit;
+    private final StageTimer generateTimer;
+    private final Map<Long, Mono<TileCache.Tile>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong outsideData = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private Disposable pregeneration;
+
+    public TileService(ConnectionFactory connectionFactory,
+            MeterRegistry meterRegistry,
+            Tracer tracer,
+            @Value("${app.tiles.max-zoom:18}") int maxZoom,
+            @Value("${app.tiles.cache.max-size:64MB}") DataSize maxSize,
+            @Value("${app.tiles.pregenerate.max-zoom:8}") int pregenerateMaxZoom,
+            @Value("${app.tiles.pregenerate.concurrency:2}") int pregenerateConcurrency,
+            @Value("${app.tiles.ttl:1h}") Duration ttl,
+            @Value("${app.tiles.places-per-tile:2000}") int placeLimit) {
+        this.connectionFactory = connectionFactory;
+        this.cache = new TileCache(maxSize.toBytes());
+        this.maxZoom = maxZoom;
+        this.pregenerateMaxZoom = Math.min(pregenerateMaxZoom, maxZoom);
+        this.pregenerateConcurrency = pregenerateConcurrency;
+        this.ttl = ttl;
+        this.placeLimit = placeLimit;
+        this.generateTimer = new StageTimer(meterRegistry, tracer, "mp.tile.generate",
+                "Génération d'une tuile vectorielle par PostGIS", "zoom");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (pregenerateMaxZoom < 0) {
+            return;
+        }
+        pregeneration = Flux.interval(Duration.ZERO, ttl)
+                .onBackpressureDrop()
+                .concatMap(tick -> pregenerate()
+                        .onErrorResume(error -> {
+                            logger.warn("⚠️ Pré-génération des tuiles interrompue: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pregeneration != null) {
+            pregeneration.dispose();
+        }
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    public boolean isValid(int z, int x, int y) {
+        return z >= 0 && z <= maxZoom && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    public Mono<TileCache.Tile> tile(int z, int x, int y) {
+        if (!intersectsData(z, x, y)) {
+            outsideData.incrementAndGet();
+            return Mono.just(EMPTY);
+        }
+        long key = TileCache.key(z, x, y);
+        TileCache.Tile cached = cache.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (System.currentTimeMillis() - cached.createdAtMillis() > ttl.toMillis()) {
+                staleServed.incrementAndGet();
+                refresh(z, x, y).subscribe(tile -> { }, error -> { });
+            }
+            return Mono.just(cached);
+        }
+        misses.incrementAndGet();
+        return refresh(z, x, y);
+    }
+
+    // Une seule génération en cours par tuile, partagée par les requêtes concurrentes
+    private Mono<TileCache.Tile> refresh(int z, int x, int y) {
+        long key = TileCache.key(z, x, y);
+        return inFlight.computeIfAbsent(key, k -> generate(z, x, y)
+                .doOnNext(tile -> cache.put(k, tile, z <= pregenerateMaxZoom))
+                .doFinally(signal -> inFlight.remove(k))
+                .cache());
+    }
+
+    private Mono<TileCache.Tile> generate(int z, int x, int y) {
+        double tileMeters = WORLD_METERS / (1 << z);
+        double tolerance = tileMeters / DISPLAY_PIXELS;
+        Mono<TileCache.Tile> generation = Mono.from(connectionFactory.create())
+                .flatMap(connection -> Mono.from(connection.createStatement(TILE_QUERY)
+                                .bind("z", z)
+                                .bind("x", x)
+                                .bind("y", y)
+                                .bind("buffer", tileMeters * BUFFER / EXTENT)
+                                .bind("tolerance", tolerance)
+                                .bind("minLength", z < DETAIL_ZOOM ? 4 * tolerance : 0.0)
+                                .bind("placeLimit", placeLimit)
+                                .execute())
+                        .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get("tile", byte[].class))))
+                        .doFinally(signal -> Mono.from(connection.close()).subscribe()))
+                .map(TileService::encode)
+                .doOnNext(tile -> generated.incrementAndGet())
+                .doOnError(error -> failures.incrementAndGet());
+        return generateTimer.time(generation, "z" + z, tile -> tile.isEmpty()
+                ? StageTimer.Outcome.EMPTY
+                : StageTimer.Outcome.OK);
+    }
+
+    // gzip une fois pour toutes ; ETag fort tiré du contenu (CRC32C et taille)
+    private static TileCache.Tile encode(byte[] raw) {
+        if (raw.length == 0) {
+            return new TileCache.Tile(new byte[0], EMPTY.etag(), 0, System.currentTimeMillis());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(raw);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(raw.length) + "\"";
+        return new TileCache.Tile(out.toByteArray(), etag, raw.length, System.currentTimeMillis());
+    }
+
+    private Mono<Long> pregenerate() {
+        long startedAt = System.currentTimeMillis();
+        List<int[]> tiles = new ArrayList<>();
+        for (int z = 0; z <= pregenerateMaxZoom; z++) {
+            int minX = lngToTile(MIN_LNG, z), maxX = lngToTile(MAX_LNG, z);
+            int minY = latToTile(MAX_LAT, z), maxY = latToTile(MIN_LAT, z);
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    tiles.add(new int[]{z, x, y});
+                }
+            }
+        }
+        return Flux.fromIterable(tiles)
+                .flatMap(tile -> refresh(tile[0], tile[1], tile[2]), pregenerateConcurrency)
+                .count()
+                .doOnNext(count -> logger.info("🗺️ {} tuiles pré-générées (z0-z{}) en {} ms, {} Ko en cache",
+                        count, pregenerateMaxZoom, System.currentTimeMillis() - startedAt, cache.bytes() / 1024));
+    }
+
+    private static int lngToTile(double lng, int z) {
+        return (int) Math.floor((lng + 180) / 360 * (1 << z));
+    }
+
+    private static int latToTile(double lat, int z) {
+        double radians = Math.toRadians(lat);
+        return (int) Math.floor((1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * (1 << z));
+    }
+
+    private static double tileToLng(int x, int z) {
+        return (double) x / (1 << z) * 360 - 180;
+    }
+
+    private static double tileToLat(int y, int z) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * y / (1 << z)))));
+    }
+
+    private static boolean intersectsData(int z, int x, int y) {
+        return tileToLng(x, z) <= MAX_LNG && tileToLng(x + 1, z) >= MIN_LNG
+                && tileToLat(y + 1, z) <= MAX_LAT && tileToLat(y, z) >= MIN_LAT;
+    }
+
+    // Données modifiées (import de lieux, rechargement du graphe) : tout est régénéré à la demande
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long total = hits.get() + misses.get();
+        stats.put("tiles", cache.size());
+        stats.put("bytes", cache.bytes());
+        stats.put("max_bytes", cache.maxBytes());
+        stats.put("evictions", cache.evictions());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hit_rate", total > 0 ? (double) hits.get() / total : 0.0);
+        stats.put("stale_served", staleServed.get());
+        stats.put("outside_data", outsideData.get());
+        stats.put("generated", generated.get());
+        stats.put("failures", failures.get());
+        stats.put("pregenerate_max_zoom", pregenerateMaxZoom);
+        return stats;
+    }
+}
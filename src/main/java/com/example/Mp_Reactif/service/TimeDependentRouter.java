@@ -0,0 +1,119 @@
+package com.example.Mp_Reactif.service;
+
+/**
+ * A* dépendant du temps sur RoadGraph : l'étiquette d'un nœud est son heure d'arrivée (secondes
+ * depuis le départ) ; la durée d'un arc est sa longueur divisée par la vitesse du profil du
+ * tronçon à l'heure où on y entre. Heuristique : distance à vol d'oiseau à la vitesse maximale
+ * de tous les profils, qui ne surestime jamais le temps restant.
+ *
+ * Aucun état partagé entre requêtes hormis le graphe et les profils (immuables) : chaque fil
+ * réutilise son SearchWorkspace (SearchWorkspace.forCurrentThread).
+ */
+public final class TimeDependentRouter {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private final RoadGraph graph;
+    private final SpeedProfiles profiles;
+    private final short[] edgeProfiles;
+    private final double maxSpeedMetersPerSecond;
+
+    public TimeDependentRouter(RoadGraph graph, SpeedProfiles profiles) {
+        this.graph = graph;
+        this.profiles = profiles;
+        this.edgeProfiles = new short[graph.edgeCount()];
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            edgeProfiles[e] = (short) profiles.profileFor(graph.edgeId(e));
+        }
+        this.maxSpeedMetersPerSecond = profiles.maxSpeedKmh() / 3.6;
+    }
+
+    /**
+     * Chemin trouvé : indices des tronçons dans l'ordre de parcours, longueur et durée de chacun.
+     */
+    public record Path(int[] edges, double[] lengths, double[] seconds, double distance, double duration,
+            int settledNodes) {
+    }
+
+    public RoadGraph graph() {
+        return graph;
+    }
+
+    public long footprintBytes() {
+        return 2L * edgeProfiles.length;
+    }
+
+    // null si la cible n'est pas atteignable
+    public Path route(int source, int target, double departureMinuteOfWeek) {
+        return route(source, target, departureMinuteOfWeek, BlockedEdges.NONE);
+    }
+
+    // Les arcs des tronçons bloqués sont sautés pendant la recherche, sans copie du graphe
+    public Path route(int source, int target, double departureMinuteOfWeek, BlockedEdges blocked) {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(graph.nodeCount());
+        workspace.reset();
+        double targetLat = graph.lat(target);
+        double targetLng = graph.lng(target);
+        double cosLat = Math.cos(Math.toRadians(targetLat));
+
+        workspace.reach(source, 0, -1, -1);
+        workspace.push(source, heuristic(source, targetLat, targetLng, cosLat));
+        int settled = 0;
+        while (!workspace.isEmpty()) {
+            int node = workspace.pop();
+            if (workspace.isSettled(node)) {
+                continue;
+            }
+            workspace.settle(node);
+            settled++;
+            if (node == target) {
+                return path(workspace, source, target, settled);
+            }
+            double arrival = workspace.label(node);
+            double minute = departureMinuteOfWeek + arrival / 60.0;
+            for (int arc = graph.firstArc(node), end = graph.endArc(node); arc < end; arc++) {
+                int head = graph.arcHead(arc);
+                if (workspace.isSettled(head) || blocked.isBlocked(graph.arcEdge(arc))) {
+                    continue;
+                }
+                double speed = profiles.speedKmh(edgeProfiles[graph.arcEdge(arc)], minute) / 3.6;
+                double reached = arrival + graph.arcLength(arc) / speed;
+                if (reached < workspace.label(head)) {
+                    workspace.reach(head, reached, arc, node);
+                    workspace.push(head, reached + heuristic(head, targetLat, targetLng, cosLat));
+                }
+            }
+        }
+        return null;
+    }
+
+    // Projection équirectangulaire : suffisante à l'échelle d'une ville, minorée de 1 %
+    private double heuristic(int node, double targetLat, double targetLng, double cosLat) {
+        double dLat = Math.toRadians(graph.lat(node) - targetLat);
+        double dLng = Math.toRadians(graph.lng(node) - targetLng) * cosLat;
+        double meters = EARTH_RADIUS_METERS * Math.sqrt(dLat * dLat + dLng * dLng);
+        return 0.99 * meters / maxSpeedMetersPerSecond;
+    }
+
+    private Path path(SearchWorkspace workspace, int source, int target, int settled) {
+        int count = 0;
+        for (int node = target; node != source; node = workspace.parentNode(node)) {
+            count++;
+        }
+        int[] edges = new int[count];
+        double[] lengths = new double[count];
+        double[] seconds = new double[count];
+        double distance = 0;
+        int node = target;
+        for (int i = count - 1; i >= 0; i--) {
+            int arc = workspace.parentArc(node);
+            int previous = workspace.parentNode(node);
+            edges[i] = graph.arcEdge(arc);
+            lengths[i] = graph.arcLength(arc);
+            seconds[i] = workspace.label(node) - workspace.label(previous);
+            distance += lengths[i];
+            node = previous;
+        }
+        return new Path(edges, lengths, seconds, distance, workspace.label(target), settled);
+    }
+}
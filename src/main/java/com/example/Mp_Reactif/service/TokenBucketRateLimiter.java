@@ -0,0 +1,41 @@
+package com.example.Mp_Reactif.service;
+
+/**
+ * Seau à jetons non bloquant : {@link #reserve(long)} réserve un jeton et renvoie
+ * le délai d'attente avant de pouvoir l'utiliser, sans jamais bloquer le thread appelant.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Débit et rafale doivent être positifs");
+        }
+        this.capacity = burst;
+        this.nanosPerToken = 1_000_000_000d / permitsPerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * @return le délai en nanosecondes avant utilisation du jeton, ou -1 si ce délai
+     * dépasserait {@code maxWaitNanos} (aucun jeton n'est alors consommé).
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / nanosPerToken);
+        lastRefillNanos = now;
+
+        double remaining = tokens - 1;
+        long waitNanos = remaining >= 0 ? 0 : (long) (-remaining * nanosPerToken);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens = remaining;
+        return waitNanos;
+    }
+}
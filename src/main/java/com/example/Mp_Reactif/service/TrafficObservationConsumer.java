@@ -0,0 +1,60 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.event.SpeedObservedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Alimente TrafficOverlay depuis le topic traffic-observations. L'enregistrement est une
+ * simple mise à jour CAS : les messages sont traités sur le fil de réception, sans file
+ * intermédiaire ; les offsets ne servent qu'au groupe propre à l'instance.
+ */
+@Service
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = true)
+public class TrafficObservationConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficObservationConsumer.class);
+
+    private final KafkaReceiver<String, Object> trafficReceiver;
+    private final TrafficOverlay trafficOverlay;
+    private Disposable subscription;
+
+    public TrafficObservationConsumer(@Qualifier("trafficReceiver") KafkaReceiver<String, Object> trafficReceiver,
+            TrafficOverlay trafficOverlay) {
+        this.trafficReceiver = trafficReceiver;
+        this.trafficOverlay = trafficOverlay;
+    }
+
+    @PostConstruct
+    public void startConsuming() {
+        subscription = trafficReceiver.receive()
+                .doOnNext(record -> {
+                    // Valeur null : message illisible écarté par le désérialiseur, acquitté sans traitement
+                    if (record.value() instanceof SpeedObservedEvent observation) {
+                        trafficOverlay.record(observation.getEdgeId(), observation.getSpeedKmh(),
+                                observation.getTimestamp());
+                    }
+                    record.receiverOffset().acknowledge();
+                })
+                .doOnError(e -> logger.error("❌ Erreur de lecture des observations de trafic: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stopConsuming() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.Mp_Reactif.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Poids de trafic en direct superposés au graphe statique de la table routes. Les observations
+ * de vitesse par tronçon sont lissées (moyenne mobile exponentielle) dans une table concurrente ;
+ * un instantané immuable (identifiants triés, facteurs) est republié à intervalle fixe et lu sans
+ * verrou par le calcul d'itinéraire. Facteur = vitesse observée / vitesse libre, borné à
+ * [min-factor, 1], appliqué au seul mode driving.
+ *
+ * Les itinéraires calculés sont indexés par tronçon (index local à l'instance) : quand le facteur
+ * d'un tronçon varie d'au moins invalidation-delta, les entrées qui l'empruntent sont évincées.
+ */
+@Service
+public class TrafficOverlay {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficOverlay.class);
+    private static final double MAX_SPEED_KMH = 200;
+    private static final long CLOCK_SKEW_MILLIS = 60_000;
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final AdaptiveRedisCacheService cacheService;
+    private final ResponseBodyCache responseBodyCache;
+    private final double freeFlowKmh;
+    private final double alpha;
+    private final double minFactor;
+    private final double invalidationDelta;
+    private final long maxAgeMillis;
+    private final int maxWeightedEdges;
+    private final int maxIndexedRoutes;
+    private final long indexTtlMillis;
+    private final Duration publishInterval;
+
+    private final Map<Long, EdgeSpeed> observations = new ConcurrentHashMap<>();
+    private final Map<String, IndexedRoute> indexedRoutes = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> routesByEdge = new ConcurrentHashMap<>();
+    private final AtomicLong accepted = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong invalidatedRoutes = new AtomicLong(0);
+    private final AtomicLong unindexedRoutes = new AtomicLong(0);
+    private volatile Snapshot current = Snapshot.EMPTY;
+    private long lastSweepMillis;
+    private Disposable publishTask;
+
+    public TrafficOverlay(AdaptiveRedisCacheService cacheService,
+            ResponseBodyCache responseBodyCache,
+            @Value("${app.traffic.free-flow-kmh:40}") double freeFlowKmh,
+            @Value("${app.traffic.ewma-alpha:0.3}") double alpha,
+            @Value("${app.traffic.min-factor:0.05}") double minFactor,
+            @Value("${app.traffic.invalidation-delta:0.2}") double invalidationDelta,
+            @Value("${app.traffic.max-age:15m}") Duration maxAge,
+            @Value("${app.traffic.publish-interval:2s}") Duration publishInterval,
+            @Value("${app.traffic.max-weighted-edges:2000}") int maxWeightedEdges,
+            @Value("${app.traffic.route-index.max-routes:50000}") int maxIndexedRoutes,
+            @Value("${app.traffic.route-index.ttl:73h}") Duration indexTtl) {
+        this.cacheService = cacheService;
+        this.responseBodyCache = responseBodyCache;
+        this.freeFlowKmh = freeFlowKmh;
+        this.alpha = alpha;
+        this.minFactor = minFactor;
+        this.invalidationDelta = invalidationDelta;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.publishInterval = publishInterval;
+        this.maxWeightedEdges = maxWeightedEdges;
+        this.maxIndexedRoutes = maxIndexedRoutes;
+        this.indexTtlMillis = indexTtl.toMillis();
+    }
+
+    /**
+     * Instantané publié : identifiants de tronçons triés et facteurs alignés, plus la liste
+     * VALUES des tronçons les plus ralentis, prête à être jointe dans la requête pgr_ksp.
+     */
+    public record Snapshot(long version, long publishedAtMillis, long[] edges, float[] factors, String weightsSql) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, new long[0], new float[0], null);
+
+        public double factor(long edge) {
+            int index = Arrays.binarySearch(edges, edge);
+            return index >= 0 ? factors[index] : 1.0;
+        }
+    }
+
+    private record IndexedRoute(long[] edges, long registeredAtMillis) {
+    }
+
+    // Vitesse lissée mise à jour par CAS : aucun verrou sur le chemin d'ingestion
+    private static final class EdgeSpeed {
+        private final AtomicLong speedBits;
+        private volatile long lastSeenMillis;
+
+        private EdgeSpeed(double speedKmh, long observedAtMillis) {
+            this.speedBits = new AtomicLong(Double.doubleToRawLongBits(speedKmh));
+            this.lastSeenMillis = observedAtMillis;
+        }
+
+        private void observe(double speedKmh, long observedAtMillis, double alpha) {
+            long previous;
+            long next;
+            do {
+                previous = speedBits.get();
+                double smoothed = alpha * speedKmh + (1 - alpha) * Double.longBitsToDouble(previous);
+                next = Double.doubleToRawLongBits(smoothed);
+            } while (!speedBits.compareAndSet(previous, next));
+            if (observedAtMillis > lastSeenMillis) {
+                lastSeenMillis = observedAtMillis;
+            }
+        }
+
+        private double speed() {
+            return Double.longBitsToDouble(speedBits.get());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        publishTask = Flux.interval(publishInterval, publishInterval)
+                .subscribe(tick -> {
+                    try {
+                        publish(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        logger.warn("⚠️ Publication de l'instantané trafic impossible: {}", e.getMessage());
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (publishTask != null) {
+            publishTask.dispose();
+        }
+    }
+
+    public Snapshot current() {
+        return current;
+    }
+
+    // Tronçon valide, vitesse plausible, observation ni périmée ni datée du futur
+    public boolean isAcceptable(long edgeId, double speedKmh, long observedAtMillis) {
+        long now = System.currentTimeMillis();
+        return edgeId > 0 && speedKmh >= 0 && speedKmh <= MAX_SPEED_KMH
+                && observedAtMillis >= now - maxAgeMillis && observedAtMillis <= now + CLOCK_SKEW_MILLIS;
+    }
+
+    public boolean record(long edgeId, double speedKmh, long observedAtMillis) {
+        if (!isAcceptable(edgeId, speedKmh, observedAtMillis)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        EdgeSpeed edge = observations.get(edgeId);
+        if (edge == null) {
+            edge = observations.putIfAbsent(edgeId, new EdgeSpeed(speedKmh, observedAtMillis));
+        }
+        if (edge != null) {
+            edge.observe(speedKmh, observedAtMillis, alpha);
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    // Mode concerné par le trafic : les piétons et les vélos gardent les vitesses fixes
+    public boolean appliesTo(String mode) {
+        return "driving".equals(mode);
+    }
+
+    // Tronçons empruntés par un itinéraire mis en cache sous routeKey (remplace l'indexation précédente)
+    public void registerRoute(String routeKey, long[] edges) {
+        if (!indexedRoutes.containsKey(routeKey) && indexedRoutes.size() >= maxIndexedRoutes) {
+            unindexedRoutes.incrementAndGet();
+            return;
+        }
+        long[] distinct = Arrays.stream(edges).filter(edge -> edge > 0).sorted().distinct().toArray();
+        IndexedRoute previous = indexedRoutes.put(routeKey, new IndexedRoute(distinct, System.currentTimeMillis()));
+        if (previous != null) {
+            detach(routeKey, previous.edges());
+        }
+        for (long edge : distinct) {
+            routesByEdge.computeIfAbsent(edge, key -> ConcurrentHashMap.newKeySet()).add(routeKey);
+        }
+    }
+
+    // Un seul fil (la tâche périodique) : les écritures concurrentes ne sont jamais bloquées
+    Snapshot publish(long nowMillis) {
+        long cutoff = nowMillis - maxAgeMillis;
+        long[] edges = new long[observations.size()];
+        int count = 0;
+        for (Map.Entry<Long, EdgeSpeed> entry : observations.entrySet()) {
+            if (entry.getValue().lastSeenMillis < cutoff) {
+                observations.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, count * 2 + 16);
+            }
+            edges[count++] = entry.getKey();
+        }
+        edges = Arrays.copyOf(edges, count);
+        Arrays.sort(edges);
+        float[] factors = new float[count];
+        for (int i = 0; i < count; i++) {
+            EdgeSpeed speed = observations.get(edges[i]);
+            factors[i] = speed == null ? 1f : (float) factorFor(speed.speed());
+        }
+
+        Snapshot previous = current;
+        Snapshot next = new Snapshot(previous.version() + 1, nowMillis, edges, factors, weightsSql(edges, factors));
+        current = next;
+
+        invalidate(changedEdges(previous, next));
+        if (nowMillis - lastSweepMillis >= SWEEP_INTERVAL_MILLIS) {
+            lastSweepMillis = nowMillis;
+            sweepIndex(nowMillis);
+        }
+        return next;
+    }
+
+    private double factorFor(double speedKmh) {
+        return Math.max(minFactor, Math.min(1.0, speedKmh / freeFlowKmh));
+    }
+
+    // Fusion des deux listes triées : un tronçon absent vaut 1
+    private long[] changedEdges(Snapshot previous, Snapshot next) {
+        long[] changed = new long[16];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < previous.edges().length || j < next.edges().length) {
+            long edge;
+            double before;
+            double after;
+            if (j >= next.edges().length
+                    || (i < previous.edges().length && previous.edges()[i] < next.edges()[j])) {
+                edge = previous.edges()[i];
+                before = previous.factors()[i++];
+                after = 1.0;
+            } else if (i >= previous.edges().length || next.edges()[j] < previous.edges()[i]) {
+                edge = next.edges()[j];
+                before = 1.0;
+                after = next.factors()[j++];
+            } else {
+                edge = next.edges()[j];
+                before = previous.factors()[i++];
+                after = next.factors()[j++];
+            }
+            if (Math.abs(after - before) >= invalidationDelta) {
+                if (count == changed.length) {
+                    changed = Arrays.copyOf(changed, count * 2);
+                }
+                changed[count++] = edge;
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    // "(id,facteur),..." des tronçons les plus ralentis : uniquement des nombres, pas d'échappement
+    private String weightsSql(long[] edges, float[] factors) {
+        Integer[] slowed = new Integer[edges.length];
+        int count = 0;
+        for (int i = 0; i < edges.length; i++) {
+            if (factors[i] <= 1.0 - invalidationDelta) {
+                slowed[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        Arrays.sort(slowed, 0, count, (a, b) -> Float.compare(factors[a], factors[b]));
+        StringBuilder values = new StringBuilder(Math.min(count, maxWeightedEdges) * 20);
+        for (int k = 0; k < Math.min(count, maxWeightedEdges); k++) {
+            if (k > 0) {
+                values.append(',');
+            }
+            values.append('(').append(edges[slowed[k]]).append(',').append(factors[slowed[k]]).append(')');
+        }
+        return values.toString();
+    }
+
+    private void invalidate(long[] changedEdges) {
+        Set<String> routeKeys = new HashSet<>();
+        for (long edge : changedEdges) {
+            Set<String> routes = routesByEdge.remove(edge);
+            if (routes != null) {
+                routeKeys.addAll(routes);
+            }
+        }
+        if (routeKeys.isEmpty()) {
+            return;
+        }
+        for (String routeKey : routeKeys) {
+            IndexedRoute route = indexedRoutes.remove(routeKey);
+            if (route != null) {
+                detach(routeKey, route.edges());
+            }
+        }
+        responseBodyCache.invalidate(routeKeys);
+        invalidatedRoutes.addAndGet(routeKeys.size());
+        logger.info("🚦 {} itinéraires invalidés ({} tronçons modifiés)", routeKeys.size(), changedEdges.length);
+        Flux.fromIterable(routeKeys)
+                .flatMap(cacheService::evict, 16)
+                .subscribe(evicted -> { }, error -> logger.warn("⚠️ Invalidation trafic interrompue: {}",
+                        error.getMessage()));
+    }
+
+    private void detach(String routeKey, long[] edges) {
+        for (long edge : edges) {
+            routesByEdge.computeIfPresent(edge, (key, routes) -> {
+                routes.remove(routeKey);
+                return routes.isEmpty() ? null : routes;
+            });
+        }
+    }
+
+    // Au-delà de la durée de vie maximale d'un itinéraire en cache, l'entrée a expiré d'elle-même
+    private void sweepIndex(long nowMillis) {
+        long cutoff = nowMillis - indexTtlMillis;
+        indexedRoutes.forEach((routeKey, route) -> {
+            if (route.registeredAtMillis() < cutoff && indexedRoutes.remove(routeKey, route)) {
+                detach(routeKey, route.edges());
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot snapshot = current;
+        int slowed = 0;
+        for (float factor : snapshot.factors()) {
+            if (factor <= 1.0 - invalidationDelta) {
+                slowed++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("observed_edges", snapshot.edges().length);
+        stats.put("slowed_edges", slowed);
+        stats.put("weighted_edges", Math.min(slowed, maxWeightedEdges));
+        stats.put("snapshot_version", snapshot.version());
+        stats.put("snapshot_age_ms", snapshot.publishedAtMillis() > 0
+                ? System.currentTimeMillis() - snapshot.publishedAtMillis()
+                : -1);
+        stats.put("observations_accepted", accepted.get());
+        stats.put("observations_rejected", rejected.get());
+        stats.put("indexed_routes", indexedRoutes.size());
+        stats.put("unindexed_routes", unindexedRoutes.get());
+        stats.put("invalidated_routes", invalidatedRoutes.get());
+        stats.put("free_flow_kmh", freeFlowKmh);
+        return stats;
+    }
+}
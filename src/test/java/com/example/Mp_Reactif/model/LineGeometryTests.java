@@ -0,0 +1,111 @@
+package com.example.Mp_Reactif.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineGeometryTests {
+
+	// Points à 7 décimales exactes : la relecture doit redonner les mêmes doubles
+	private static LineGeometry randomLine(SplittableRandom random, int points) {
+		double[] lngLat = new double[points * 2];
+		for (int i = 0; i < lngLat.length; i++) {
+			lngLat[i] = random.nextLong(-1_800_000_000L, 1_800_000_000L) / 1e7;
+		}
+		return LineGeometry.of(lngLat);
+	}
+
+	private static void assertSameCoordinates(LineGeometry expected, LineGeometry actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.lng(i), actual.lng(i), "lng " + i);
+			assertEquals(expected.lat(i), actual.lat(i), "lat " + i);
+		}
+	}
+
+	@Test
+	void writesFixedSevenDecimalsWithoutTrailingZeros() {
+		LineGeometry line = LineGeometry.of(new double[] {-0.5, -12.25, 11.5021234, 3.84821349, 9, -0.00000001});
+
+		assertEquals("LINESTRING(-0.5 -12.25, 11.5021234 3.8482135, 9 0)", line.toWkt());
+	}
+
+	@Test
+	void wktRoundTripKeepsEveryCoordinate() {
+		SplittableRandom random = new SplittableRandom(3);
+		for (int run = 0; run < 50; run++) {
+			LineGeometry line = randomLine(random, 1 + random.nextInt(40));
+			assertSameCoordinates(line, LineGeometry.parseWkt(line.toWkt()));
+		}
+	}
+
+	@Test
+	void largeOrExponentValuesFallBackToStandardParsing() {
+		LineGeometry line = LineGeometry.of(new double[] {1e10, -2.5});
+
+		assertEquals("LINESTRING(1.0E10 -2.5)", line.toWkt());
+		assertSameCoordinates(line, LineGeometry.parseWkt(line.toWkt()));
+
+		LineGeometry parsed = LineGeometry.parseWkt("LINESTRING(-2.5e-3 1E2, 0.1234567890123456789 4)");
+		assertEquals(-0.0025, parsed.lng(0));
+		assertEquals(100.0, parsed.lat(0));
+		assertEquals(0.1234567890123456789, parsed.lng(1));
+		assertEquals(4.0, parsed.lat(1));
+	}
+
+	@Test
+	void emptyLineStringRoundTrips() {
+		assertEquals("LINESTRING EMPTY", LineGeometry.EMPTY.toWkt());
+		assertSame(LineGeometry.EMPTY, LineGeometry.parseWkt("LINESTRING EMPTY"));
+		assertSame(LineGeometry.EMPTY, LineGeometry.parseWkt(null));
+	}
+
+	@Test
+	void multiLineStringPartsAreConcatenated() {
+		LineGeometry parsed = LineGeometry.parseWkt("MULTILINESTRING((11.5 3.8, 11.6 3.9), (-11.7 -4))");
+
+		assertSameCoordinates(LineGeometry.of(new double[] {11.5, 3.8, 11.6, 3.9, -11.7, -4}), parsed);
+	}
+
+	@Test
+	void redisSerializerUsesCompactFormAndReadsItBack() {
+		GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+		SplittableRandom random = new SplittableRandom(5);
+		LineGeometry geometry = randomLine(random, 25);
+		LineGeometry stepGeometry = LineGeometry.view(new double[] {0, 0, 11.5, 3.8, -11.6, -3.9}, 1, 2);
+		RouteResponse response = new RouteResponse(List.of(new Route(1200.5, 300.25,
+				List.of(new RouteStep(stepGeometry, "a", "b", 10, 2)), "Départ", "Arrivée", geometry)), null);
+
+		byte[] bytes = serializer.serialize(response);
+		String json = new String(bytes, StandardCharsets.UTF_8);
+		assertFalse(json.contains("LINESTRING"), json);
+		assertTrue(json.contains("\"~"), json);
+
+		RouteResponse read = serializer.deserialize(bytes, RouteResponse.class);
+		assertSameCoordinates(geometry, read.routes().get(0).geometry());
+		assertSameCoordinates(stepGeometry, read.routes().get(0).steps().get(0).geometry());
+		assertSame(LineGeometry.EMPTY, serializer.deserialize(serializer.serialize(
+				new RouteStep(LineGeometry.EMPTY, "a", "b", 0, 0)), RouteStep.class).geometry());
+	}
+
+	@Test
+	void httpJsonKeepsWktString() throws Exception {
+		Route route = new Route(1.0, 2.0, List.of(), "Départ", "Arrivée",
+				LineGeometry.of(new double[] {11.5021234, 3.8482134, 11.51, 3.85}));
+
+		String json = new ObjectMapper().writeValueAsString(route);
+
+		assertTrue(json.contains("\"geometry\":\"LINESTRING(11.5021234 3.8482134, 11.51 3.85)\""), json);
+		Route read = new ObjectMapper().readValue(json, Route.class);
+		assertSameCoordinates(route.geometry(), read.geometry());
+	}
+}
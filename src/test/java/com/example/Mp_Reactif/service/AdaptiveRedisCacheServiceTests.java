@@ -0,0 +1,136 @@
+package com.example.Mp_Reactif.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdaptiveRedisCacheServiceTests {
+
+	private static final String KEY = "p:douala";
+
+	@SuppressWarnings("unchecked")
+	private final ReactiveRedisTemplate<String, Object> template = mock(ReactiveRedisTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final ReactiveValueOperations<String, Object> values = mock(ReactiveValueOperations.class);
+
+	private AdaptiveRedisCacheService cacheService() {
+		when(template.opsForValue()).thenReturn(values);
+		when(values.get(anyString())).thenReturn(Mono.empty());
+		when(values.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+		return new AdaptiveRedisCacheService(template, Duration.ofHours(1), 1.0, 30, new SimpleMeterRegistry(),
+				Tracer.NOOP);
+	}
+
+	// Calcul qui reste en cours jusqu'à ce que le test émette sa valeur
+	private static Supplier<Mono<String>> pendingLoader(AtomicInteger calls, Sinks.One<String> result) {
+		return () -> {
+			calls.incrementAndGet();
+			return result.asMono();
+		};
+	}
+
+	@Test
+	void staleEntryIsServedWhileOneRecomputeRuns() {
+		AdaptiveRedisCacheService cacheService = cacheService();
+		CachedEntry stale = new CachedEntry("ancien", System.currentTimeMillis() - 1_000, 50);
+		when(values.get(KEY)).thenReturn(Mono.just(stale));
+		AtomicInteger calls = new AtomicInteger();
+		Sinks.One<String> result = Sinks.one();
+
+		for (int read = 0; read < 3; read++) {
+			StepVerifier.create(cacheService.getOrCompute(KEY, String.class, pendingLoader(calls, result), v -> true))
+					.expectNext("ancien")
+					.verifyComplete();
+		}
+		assertEquals(1, calls.get());
+		verify(values, never()).set(eq(KEY), any(), any(Duration.class));
+
+		result.tryEmitValue("nouveau");
+
+		verify(values).set(eq(KEY), any(CachedEntry.class), any(Duration.class));
+		// Recalcul terminé : une nouvelle lecture périmée relance un calcul
+		StepVerifier.create(cacheService.getOrCompute(KEY, String.class, pendingLoader(calls, Sinks.one()), v -> true))
+				.expectNext("ancien")
+				.verifyComplete();
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void concurrentMissesShareOneComputation() {
+		AdaptiveRedisCacheService cacheService = cacheService();
+		AtomicInteger calls = new AtomicInteger();
+		Sinks.One<String> result = Sinks.one();
+
+		Mono<String> first = cacheService.getOrCompute(KEY, String.class, pendingLoader(calls, result), v -> true);
+		Mono<String> second = cacheService.getOrCompute(KEY, String.class, pendingLoader(calls, result), v -> true);
+
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> result.tryEmitValue("calculé"))
+				.assertNext(pair -> {
+					assertEquals("calculé", pair.getT1());
+					assertEquals("calculé", pair.getT2());
+				})
+				.verifyComplete();
+		assertEquals(1, calls.get());
+		verify(values).set(eq(KEY), any(CachedEntry.class), any(Duration.class));
+	}
+
+	@Test
+	void earlyRefreshProbabilityRisesTowardExpiry() {
+		AdaptiveRedisCacheService cacheService = cacheService();
+		SplittableRandom random = new SplittableRandom(13);
+		ReflectionTestUtils.setField(cacheService, "xfetchRandom", (DoubleSupplier) random::nextDouble);
+		long now = 1_000_000;
+		int draws = 20_000;
+
+		double previous = -1;
+		// Calcul de 100 ms, beta 1 : probabilité exp(-reste / 100)
+		for (long remaining : new long[] {10_000, 1_000, 300, 100, 30, 1}) {
+			double rate = rateAt(cacheService, new CachedEntry("v", now + remaining, 100), now, draws);
+			assertEquals(Math.exp(-remaining / 100.0), rate, 0.015, "reste " + remaining + " ms");
+			assertTrue(rate >= previous, "reste " + remaining + " ms");
+			previous = rate;
+		}
+		assertEquals(0.0, rateAt(cacheService, new CachedEntry("v", now + 10_000, 100), now, draws));
+		assertTrue(rateAt(cacheService, new CachedEntry("v", now + 1, 100), now, draws) > 0.98);
+		// Sans coût de calcul connu, jamais de recalcul anticipé
+		assertFalse(shouldRefreshEarly(cacheService, new CachedEntry("v", now + 1, 0), now));
+	}
+
+	private static double rateAt(AdaptiveRedisCacheService cacheService, CachedEntry entry, long now, int draws) {
+		int refreshes = 0;
+		for (int i = 0; i < draws; i++) {
+			if (shouldRefreshEarly(cacheService, entry, now)) {
+				refreshes++;
+			}
+		}
+		return refreshes / (double) draws;
+	}
+
+	private static boolean shouldRefreshEarly(AdaptiveRedisCacheService cacheService, CachedEntry entry, long now) {
+		return ReflectionTestUtils.invokeMethod(cacheService, "shouldRefreshEarly", entry, now);
+	}
+}
@@ -0,0 +1,178 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.GpsPing;
+import com.example.Mp_Reactif.model.MatchedPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapMatcherTests {
+
+	private static final int SIDE = 6;
+	private static final double METERS_PER_DEGREE = Math.toRadians(1) * EdgeSpatialIndex.EARTH_RADIUS_METERS;
+
+	// Lignes et colonnes de la grille parcourues dans l'ordre : est, nord puis ouest
+	private static final int[][] PATH = {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 4}, {2, 4}, {3, 4}, {3, 3}, {3, 2}};
+
+	private static MapMatcher matcher(RoadGraph graph, int maxLag) {
+		return new MapMatcher(new EdgeSpatialIndex(graph, 0.002), 10, 25, 60, 8, maxLag);
+	}
+
+	private static long edgeBetween(RoadGraph graph, long fromNode, long toNode) {
+		int from = graph.nodeIndex(fromNode);
+		int to = graph.nodeIndex(toNode);
+		for (int arc = graph.firstArc(from); arc < graph.endArc(from); arc++) {
+			if (graph.arcHead(arc) == to) {
+				return graph.edgeId(graph.arcEdge(arc));
+			}
+		}
+		throw new IllegalArgumentException("Pas de tronçon " + fromNode + " -> " + toNode);
+	}
+
+	// Trois pings par tronçon (20 %, 50 %, 80 %), bruit gaussien borné à 3 m : ~30 m entre pings
+	private static List<GpsPing> trace(double[][] nodes, SplittableRandom random, long startMillis) {
+		List<GpsPing> pings = new ArrayList<>();
+		for (int i = 0; i + 1 < nodes.length; i++) {
+			for (double t : new double[] {0.2, 0.5, 0.8}) {
+				double lat = nodes[i][0] + t * (nodes[i + 1][0] - nodes[i][0]);
+				double lng = nodes[i][1] + t * (nodes[i + 1][1] - nodes[i][1]);
+				double northMeters = Math.max(-3, Math.min(3, random.nextGaussian() * 2));
+				double eastMeters = Math.max(-3, Math.min(3, random.nextGaussian() * 2));
+				pings.add(new GpsPing(lat + northMeters / METERS_PER_DEGREE,
+						lng + eastMeters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat))),
+						startMillis + pings.size() * 4_000L));
+			}
+		}
+		return pings;
+	}
+
+	private static double[][] gridPath() {
+		double[][] nodes = new double[PATH.length][];
+		for (int i = 0; i < PATH.length; i++) {
+			nodes[i] = new double[] {TestGraphs.lat(PATH[i][0]), TestGraphs.lng(PATH[i][1])};
+		}
+		return nodes;
+	}
+
+	private static List<Long> traversed(List<MatchedPoint> points) {
+		List<Long> edges = new ArrayList<>();
+		for (MatchedPoint point : points) {
+			for (long edge : point.edges()) {
+				if (edges.isEmpty() || edges.get(edges.size() - 1) != edge) {
+					edges.add(edge);
+				}
+			}
+		}
+		return edges;
+	}
+
+	@Test
+	void noisyTraceAlongKnownPathGivesItsEdges() {
+		RoadGraph graph = TestGraphs.grid(SIDE, null);
+		List<GpsPing> pings = trace(gridPath(), new SplittableRandom(21), 0);
+
+		List<MatchedPoint> matched = matcher(graph, 30).match(pings);
+
+		List<Long> expected = new ArrayList<>();
+		for (int i = 0; i + 1 < PATH.length; i++) {
+			expected.add(edgeBetween(graph, TestGraphs.nodeId(SIDE, PATH[i][0], PATH[i][1]),
+					TestGraphs.nodeId(SIDE, PATH[i + 1][0], PATH[i + 1][1])));
+		}
+		assertEquals(expected, traversed(matched));
+		assertEquals(pings.size(), matched.size());
+		for (MatchedPoint point : matched) {
+			assertTrue(point.distanceToRoad() <= 4.5, "ping " + point.index() + " à " + point.distanceToRoad() + " m");
+			assertEquals(point.index() == 0, point.segmentStart());
+		}
+		// ~37 m en 4 s sur chaque tronçon droit
+		assertEquals(33.3, matched.get(1).speedKmh(), 5);
+	}
+
+	@Test
+	void gapToDisconnectedRoadStartsNewSegment() {
+		// Deux routes est-ouest parallèles à ~330 m, sans lien entre elles
+		RoadGraph.Builder builder = new RoadGraph.Builder();
+		double northLat = TestGraphs.lat(3);
+		for (int col = 0; col < 8; col++) {
+			double length = TestGraphs.distanceMeters(TestGraphs.BASE_LAT, TestGraphs.lng(col), TestGraphs.BASE_LAT,
+					TestGraphs.lng(col + 1));
+			builder.add(col + 1, col + 1, col + 2, length, length, TestGraphs.BASE_LAT, TestGraphs.lng(col),
+					TestGraphs.BASE_LAT, TestGraphs.lng(col + 1));
+			builder.add(col + 101, col + 101, col + 102, length, length, northLat, TestGraphs.lng(col),
+					northLat, TestGraphs.lng(col + 1));
+		}
+		RoadGraph graph = builder.build();
+		SplittableRandom random = new SplittableRandom(5);
+		List<GpsPing> pings = new ArrayList<>(trace(new double[][] {{TestGraphs.BASE_LAT, TestGraphs.lng(0)},
+				{TestGraphs.BASE_LAT, TestGraphs.lng(3)}}, random, 0));
+		int firstNorth = pings.size();
+		pings.addAll(trace(new double[][] {{northLat, TestGraphs.lng(4)}, {northLat, TestGraphs.lng(8)}}, random,
+				60_000));
+
+		MapMatcher.Session session = matcher(graph, 30).session();
+		List<MatchedPoint> matched = new ArrayList<>();
+		for (GpsPing ping : pings) {
+			matched.addAll(session.offer(ping));
+		}
+		matched.addAll(session.flush());
+
+		assertEquals(1, session.breaks());
+		assertEquals(pings.size(), matched.size());
+		for (MatchedPoint point : matched) {
+			assertEquals(point.index() == 0 || point.index() == firstNorth, point.segmentStart(), "ping " + point.index());
+			assertEquals(point.index() < firstNorth, point.edgeId() < 100, "ping " + point.index());
+		}
+		assertEquals(List.of(1L, 2L, 3L, 105L, 106L, 107L, 108L), traversed(matched));
+	}
+
+	@Test
+	void flushEmitsEveryPendingPointExactlyOnce() {
+		RoadGraph graph = TestGraphs.grid(SIDE, null);
+		List<GpsPing> pings = trace(gridPath(), new SplittableRandom(8), 0);
+		MapMatcher.Session session = matcher(graph, 1_000).session();
+
+		List<MatchedPoint> matched = new ArrayList<>();
+		for (GpsPing ping : pings) {
+			matched.addAll(session.offer(ping));
+		}
+		int beforeFlush = matched.size();
+		List<MatchedPoint> flushed = session.flush();
+		matched.addAll(flushed);
+
+		assertFalse(flushed.isEmpty());
+		assertTrue(session.flush().isEmpty());
+		assertEquals(pings.size(), matched.size());
+		for (int i = 0; i < matched.size(); i++) {
+			assertEquals(i, matched.get(i).index());
+		}
+		assertEquals(pings.size(), session.matched());
+		assertEquals(pings.size() - beforeFlush, flushed.size());
+	}
+
+	@Test
+	void maxLagForcesEmissionOfOldPoints() {
+		RoadGraph graph = TestGraphs.grid(SIDE, null);
+		List<GpsPing> pings = trace(gridPath(), new SplittableRandom(8), 0);
+		int maxLag = 3;
+		MapMatcher.Session session = matcher(graph, maxLag).session();
+
+		int emitted = 0;
+		for (int i = 0; i < pings.size(); i++) {
+			for (MatchedPoint point : session.offer(pings.get(i))) {
+				assertEquals(emitted++, point.index());
+			}
+			// Au plus maxLag pings en attente après chaque offre
+			assertTrue(i + 1 - emitted <= maxLag, "ping " + i + ": " + emitted + " émis");
+		}
+		for (MatchedPoint point : session.flush()) {
+			assertEquals(emitted++, point.index());
+		}
+		assertEquals(pings.size(), emitted);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.Mp_Reactif.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NominatimGatewayTests {
+
+	private final StubNominatimBackend backend = new StubNominatimBackend();
+
+	private NominatimGateway gateway(double ratePerSecond, Duration maxQueueWait) {
+		return new NominatimGateway(backend, ratePerSecond, 1, Duration.ofSeconds(1), maxQueueWait,
+				Duration.ofHours(1), 100, new SimpleMeterRegistry(), Tracer.NOOP);
+	}
+
+	@Test
+	void concurrentLookupsForSameNameHitBackendOnce() {
+		NominatimGateway gateway = gateway(1000, Duration.ofSeconds(1));
+
+		StepVerifier.create(Mono.zip(gateway.lookup("douala"), gateway.lookup("douala")))
+				.assertNext(tuple -> assertEquals(tuple.getT1().getCoordinates(), tuple.getT2().getCoordinates()))
+				.verifyComplete();
+
+		assertEquals(1, backend.getCallCount());
+	}
+
+	@Test
+	void unknownNamesAreNegativelyCached() {
+		NominatimGateway gateway = gateway(1000, Duration.ofSeconds(1));
+
+		StepVerifier.create(gateway.lookup("nulle-part")).verifyComplete();
+		StepVerifier.create(gateway.lookup("nulle-part")).verifyComplete();
+
+		assertEquals(1, backend.getCallCount());
+		assertEquals(1L, gateway.getStats().get("negative_hits"));
+	}
+
+	@Test
+	void lookupsBeyondQueueCapacityAreRejectedWithoutCallingBackend() {
+		NominatimGateway gateway = gateway(1, Duration.ZERO);
+
+		StepVerifier.create(gateway.lookup("yaounde")).expectNextCount(1).verifyComplete();
+		StepVerifier.create(gateway.lookup("garoua")).verifyComplete();
+
+		assertEquals(1, backend.getCallCount());
+		assertEquals(1L, gateway.getStats().get("rejected_lookups"));
+	}
+}
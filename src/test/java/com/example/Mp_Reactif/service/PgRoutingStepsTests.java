@@ -0,0 +1,110 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.Route;
+import com.example.Mp_Reactif.model.RouteResponse;
+import com.example.Mp_Reactif.model.RouteStep;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PgRoutingStepsTests {
+
+	private static final List<Point> POINTS = List.of(new Point(3.86, 11.50), new Point(3.88, 11.52));
+
+	// Tronçon parcouru dans le sens source -> target ou à contresens, tel que renvoyé par la requête pgr_ksp
+	private static Row row(long edge, boolean forward, double cost, double reverseCost) {
+		Row row = mock(Row.class);
+		when(row.get("path_id", Integer.class)).thenReturn(1);
+		when(row.get("edge", Long.class)).thenReturn(edge);
+		when(row.get("geometry", String.class)).thenReturn("LINESTRING(11.50 3.86, 11.51 3.87)");
+		when(row.get("source", String.class)).thenReturn("Node " + edge);
+		when(row.get("target", String.class)).thenReturn("Node " + (edge + 1));
+		when(row.get("forward", Boolean.class)).thenReturn(forward);
+		when(row.get("cost", Double.class)).thenReturn(cost);
+		when(row.get("reverse_cost", Double.class)).thenReturn(reverseCost);
+		return row;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RouteService routeService(Row... rows) {
+		Result result = mock(Result.class);
+		when(result.map(any(BiFunction.class))).thenAnswer(invocation -> {
+			BiFunction<Row, Object, ?> mapping = invocation.getArgument(0);
+			return Flux.fromArray(rows).map(row -> mapping.apply(row, null));
+		});
+		Statement statement = mock(Statement.class);
+		when(statement.bind(anyString(), any())).thenReturn(statement);
+		doReturn(Flux.just(result)).when(statement).execute();
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement(anyString())).thenReturn(statement);
+		doReturn(Mono.empty()).when(connection).close();
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		doReturn(Mono.just(connection)).when(connectionFactory).create();
+
+		RouteService routeService = new RouteService();
+		routeService.bindMetrics(new SimpleMeterRegistry(), Tracer.NOOP);
+		ReflectionTestUtils.setField(routeService, "connectionFactory", connectionFactory);
+		ReflectionTestUtils.setField(routeService, "trafficOverlay", mock(TrafficOverlay.class));
+		ReflectionTestUtils.setField(routeService, "speedProfiles", SpeedProfiles.parse("profile rapide all-00:00=36"));
+		ReflectionTestUtils.setField(routeService, "routingZone", ZoneId.of("Africa/Douala"));
+		return routeService;
+	}
+
+	private static Route firstRoute(RouteService routeService, RoutingContext context) {
+		Mono<RouteResponse> response = ReflectionTestUtils.invokeMethod(routeService, "executePgRoutingQuery", 1L, 2L,
+				context, new long[0]);
+		return response.block(Duration.ofSeconds(5)).routes().get(0);
+	}
+
+	@Test
+	void oneWayEdgeWalkedBackwardsKeepsItsLength() {
+		// Sens unique (reverse_cost = -1) emprunté à contresens par pgr_ksp non orienté
+		RouteService routeService = routeService(row(10, true, 80, 80), row(11, false, 120, -1),
+				row(12, false, 50, 60));
+
+		Route route = firstRoute(routeService, RoutingContext.of(POINTS, "driving", "a", "b"));
+
+		assertEquals(List.of(80.0, 120.0, 60.0), route.steps().stream().map(RouteStep::distance).toList());
+		assertEquals(260.0, route.distance(), 1e-9);
+		assertEquals(260.0 / 25, route.duration(), 1e-9);
+
+		// Départ horodaté : durées du profil à 36 km/h, soit 10 m/s
+		Route timed = firstRoute(routeService, RoutingContext.of(POINTS, "driving", "a", "b",
+				Instant.parse("2024-01-01T07:10:00Z")));
+		assertEquals(26.0, timed.duration(), 1e-9);
+		for (RouteStep step : timed.steps()) {
+			assertTrue(step.distance() > 0 && step.duration() > 0, step.toString());
+		}
+	}
+
+	@Test
+	void traversedLengthFollowsTheDirection() {
+		assertEquals(80.0, RouteService.traversedLength(true, 80, 95.0));
+		assertEquals(95.0, RouteService.traversedLength(false, 80, 95.0));
+		assertEquals(80.0, RouteService.traversedLength(false, 80, -1.0));
+		assertEquals(80.0, RouteService.traversedLength(false, 80, null));
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.ReverseGeocodeQuery;
+import com.example.Mp_Reactif.model.ReverseGeocodeResult;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PlaceIndexTests {
+
+	// Lieux groupés autour de quelques villes, un quart uniformes dans l'emprise, avec doublons exacts
+	private static PlaceIndex index(SplittableRandom random, int places) {
+		double[][] cities = new double[8][];
+		for (int c = 0; c < cities.length; c++) {
+			cities[c] = new double[] {2.0 + random.nextDouble() * 10.5, 9.0 + random.nextDouble() * 6.5};
+		}
+		PlaceIndex.Builder builder = new PlaceIndex.Builder();
+		for (int i = 0; i < places; i++) {
+			double[] point = samplePoint(random, cities);
+			builder.add(i + 1, "lieu " + i, point[0], point[1]);
+			if (i % 97 == 0) {
+				builder.add(-(i + 1), "doublon " + i, point[0], point[1]);
+			}
+		}
+		return builder.build();
+	}
+
+	private static double[] samplePoint(SplittableRandom random, double[][] cities) {
+		if (random.nextInt(4) == 0) {
+			return new double[] {1.65 + random.nextDouble() * 11.43, 8.4 + random.nextDouble() * 7.8};
+		}
+		double[] city = cities[random.nextInt(cities.length)];
+		return new double[] {city[0] + random.nextGaussian() * 0.05, city[1] + random.nextGaussian() * 0.05};
+	}
+
+	private static double squaredDistance(PlaceIndex index, int place, double lat, double lng) {
+		double dLat = index.lat(place) - lat;
+		double dLng = index.lng(place) - lng;
+		return dLat * dLat + dLng * dLng;
+	}
+
+	@Test
+	void nearestAgreesWithExhaustiveSearch() {
+		SplittableRandom random = new SplittableRandom(11);
+		for (int places : new int[] {1, 7, 9, 100, 20_000}) {
+			PlaceIndex index = index(random, places);
+			double[][] cities = {{3.87, 11.52}, {4.05, 9.7}};
+			for (int q = 0; q < 500; q++) {
+				double[] point = samplePoint(random, cities);
+				double best = Double.POSITIVE_INFINITY;
+				for (int p = 0; p < index.size(); p++) {
+					best = Math.min(best, squaredDistance(index, p, point[0], point[1]));
+				}
+				int found = index.nearest(point[0], point[1]);
+				assertEquals(best, squaredDistance(index, found, point[0], point[1]),
+						places + " lieux, requête " + q);
+			}
+		}
+	}
+
+	@Test
+	void queryOnAPlaceReturnsItAtZeroDistance() {
+		PlaceIndex index = index(new SplittableRandom(3), 1_000);
+		for (int p = 0; p < index.size(); p += 37) {
+			int found = index.nearest(index.lat(p), index.lng(p));
+			assertEquals(0.0, index.distanceMeters(found, index.lat(p), index.lng(p)));
+		}
+	}
+
+	@Test
+	void emptyIndexFindsNothing() {
+		PlaceIndex index = new PlaceIndex.Builder().build();
+
+		assertEquals(-1, index.nearest(3.87, 11.52));
+		List<ReverseGeocodeResult> results = PlaceIndexService.resolve(index,
+				Flux.just(new ReverseGeocodeQuery("a", 3.87, 11.52)).index().collectList().block());
+		assertNull(results.get(0).placeId());
+	}
+
+	@Test
+	void streamKeepsInputOrderAcrossBatches() {
+		PlaceIndex index = index(new SplittableRandom(4), 5_000);
+		PlaceIndexService service = new PlaceIndexService(null, false, Duration.ofMinutes(15), 16, 4);
+		SplittableRandom random = new SplittableRandom(9);
+		List<ReverseGeocodeQuery> queries = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			queries.add(new ReverseGeocodeQuery("p" + i, 2 + random.nextDouble() * 10, 9 + random.nextDouble() * 6));
+		}
+
+		List<ReverseGeocodeResult> results = service.reverseGeocode(index, Flux.fromIterable(queries))
+				.collectList().block();
+
+		assertEquals(queries.size(), results.size());
+		for (int i = 0; i < queries.size(); i++) {
+			ReverseGeocodeResult result = results.get(i);
+			assertEquals(i, result.index());
+			assertEquals(queries.get(i).ref(), result.ref());
+			assertEquals(index.id(index.nearest(queries.get(i).lat(), queries.get(i).lng())), result.placeId());
+		}
+	}
+}
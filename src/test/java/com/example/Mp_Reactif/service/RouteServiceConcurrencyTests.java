@@ -0,0 +1,123 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.event.RouteCalculatedEvent;
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.Route;
+import com.example.Mp_Reactif.model.RouteResponse;
+import com.example.Mp_Reactif.repository.PlaceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RouteServiceConcurrencyTests {
+
+	private static final String OSRM_RESPONSE = """
+			{"code":"Ok","routes":[{"distance":1200.0,"duration":180.0,
+			"geometry":{"coordinates":[[11.50,3.86],[11.52,3.88]]},"legs":[]}]}""";
+
+	private static final int PAIRS = 8;
+	private static final int REQUESTS_PER_PAIR = 50;
+
+	private final Map<String, Mono<?>> sharedEntries = new ConcurrentHashMap<>();
+	private final Map<String, RouteCalculatedEvent> publishedEvents = new ConcurrentHashMap<>();
+
+	@Test
+	void concurrentRequestsKeepTheirOwnPlaceNamesInResponsesAndEvents() {
+		RouteService routeService = routeService();
+
+		List<Map<String, Object>> results = Flux.range(0, PAIRS * REQUESTS_PER_PAIR)
+				.flatMap(i -> {
+					int pair = i % PAIRS;
+					List<Point> points = List.of(new Point(3.86 + pair * 0.01, 11.50), new Point(3.88, 11.52 + pair * 0.01));
+					return routeService.routeWithPgRouting(points, "driving", "depart-" + i, "arrivee-" + i)
+							.map(response -> Map.<String, Object>of("index", i, "response", response));
+				}, PAIRS * REQUESTS_PER_PAIR)
+				.collectList()
+				.block(Duration.ofSeconds(30));
+
+		assertEquals(PAIRS * REQUESTS_PER_PAIR, results.size());
+		for (Map<String, Object> result : results) {
+			int i = (Integer) result.get("index");
+			Route route = ((RouteResponse) result.get("response")).routes().get(0);
+			assertEquals("depart-" + i, route.startPlaceName());
+			assertEquals("arrivee-" + i, route.endPlaceName());
+		}
+
+		assertEquals(PAIRS * REQUESTS_PER_PAIR, publishedEvents.size());
+		publishedEvents.forEach((startPlace, event) -> {
+			int i = Integer.parseInt(startPlace.substring("depart-".length()));
+			assertEquals("arrivee-" + i, event.getEndPlace());
+			assertEquals(3.86 + (i % PAIRS) * 0.01, event.getStartLat(), 1e-9);
+		});
+
+		// Les requêtes d'une même paire partagent l'entrée de cache : un calcul par paire
+		assertEquals(PAIRS, sharedEntries.size());
+	}
+
+	private RouteService routeService() {
+		RouteService routeService = new RouteService();
+		routeService.bindMetrics(new SimpleMeterRegistry(), Tracer.NOOP);
+
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		when(connectionFactory.create()).thenAnswer(invocation -> Mono.error(new IllegalStateException("pas de base")));
+
+		// OSRM simulé avec une latence aléatoire pour entrelacer les requêtes
+		WebClient.Builder webClientBuilder = WebClient.builder()
+				.exchangeFunction(request -> Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(1, 20)))
+						.thenReturn(ClientResponse.create(HttpStatus.OK)
+								.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+								.body(OSRM_RESPONSE)
+								.build()));
+
+		// Cache simulé : une entrée partagée par clé, comme un hit Redis ou un calcul mutualisé
+		AdaptiveRedisCacheService cacheService = mock(AdaptiveRedisCacheService.class);
+		when(cacheService.generateRouteKey(any(), any(), anyString()))
+				.thenAnswer(invocation -> "r:" + invocation.getArgument(0, Point.class).getLat()
+						+ ":" + invocation.getArgument(1, Point.class).getLng());
+		when(cacheService.getOrCompute(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+			Supplier<Mono<?>> loader = invocation.getArgument(2);
+			return sharedEntries.computeIfAbsent(invocation.getArgument(0), key -> loader.get().cache());
+		});
+
+		EventProducer eventProducer = mock(EventProducer.class);
+		doAnswer(invocation -> {
+			RouteCalculatedEvent event = invocation.getArgument(0);
+			publishedEvents.put(event.getStartPlace(), event);
+			return null;
+		}).when(eventProducer).publishRouteCalculated(any());
+
+		ReflectionTestUtils.setField(routeService, "connectionFactory", connectionFactory);
+		ReflectionTestUtils.setField(routeService, "placeRepository", mock(PlaceRepository.class));
+		ReflectionTestUtils.setField(routeService, "webClientBuilder", webClientBuilder);
+		ReflectionTestUtils.setField(routeService, "cacheService", cacheService);
+		ReflectionTestUtils.setField(routeService, "eventProducer", eventProducer);
+		ReflectionTestUtils.setField(routeService, "osrmBaseUrl", "http://osrm.test");
+		ClosureRegistry closureRegistry = mock(ClosureRegistry.class);
+		when(closureRegistry.active()).thenReturn(ClosureRegistry.Active.NONE);
+		ReflectionTestUtils.setField(routeService, "closureRegistry", closureRegistry);
+		return routeService;
+	}
+}
@@ -0,0 +1,154 @@
+package com.example.Mp_Reactif.service;
+
+import com.example.Mp_Reactif.model.Point;
+import com.example.Mp_Reactif.model.RouteAvoidance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoutingConstraintsTests {
+
+	private static final List<Point> TRIANGLE = List.of(new Point(3.86, 11.50), new Point(3.87, 11.51),
+			new Point(3.86, 11.52));
+	private static final List<Point> SQUARE = List.of(new Point(3.80, 11.40), new Point(3.81, 11.40),
+			new Point(3.81, 11.41), new Point(3.80, 11.41));
+
+	@Test
+	void validateRejectsBadAvoidInput() {
+		assertNull(ClosureRegistry.validate(null, null));
+		assertNull(ClosureRegistry.validate(List.of(1L, 2L), List.of(TRIANGLE)));
+
+		List<Long> tooManyEdges = new ArrayList<>();
+		for (long e = 0; e <= ClosureRegistry.MAX_EDGES; e++) {
+			tooManyEdges.add(e);
+		}
+		assertNotNull(ClosureRegistry.validate(tooManyEdges, null));
+		assertNotNull(ClosureRegistry.validate(Arrays.asList(1L, null), null));
+		assertNotNull(ClosureRegistry.validate(null, Collections.nCopies(ClosureRegistry.MAX_AREAS + 1, TRIANGLE)));
+		assertNotNull(ClosureRegistry.validate(null, List.of(TRIANGLE.subList(0, 2))));
+		assertNotNull(ClosureRegistry.validate(null, Collections.singletonList(null)));
+		assertNotNull(ClosureRegistry.validate(null,
+				List.of(Collections.nCopies(ClosureRegistry.MAX_AREA_POINTS + 1, new Point(3.86, 11.50)))));
+		assertNotNull(ClosureRegistry.validate(null,
+				List.of(List.of(new Point(3.86, 11.50), new Point(95, 11.51), new Point(3.86, 11.52)))));
+		assertNotNull(ClosureRegistry.validate(null,
+				List.of(List.of(new Point(3.86, 11.50), new Point(3.87, Double.NaN), new Point(3.86, 11.52)))));
+		assertNotNull(ClosureRegistry.validate(null,
+				List.of(Arrays.asList(new Point(3.86, 11.50), null, new Point(3.86, 11.52)))));
+	}
+
+	@Test
+	void avoidFingerprintIgnoresInputOrder() {
+		long reference = RouteAvoidance.of(List.of(5L, 9L, 12L), List.of(TRIANGLE, SQUARE)).fingerprint();
+
+		assertEquals(reference, RouteAvoidance.of(List.of(12L, 5L, 9L), List.of(SQUARE, TRIANGLE)).fingerprint());
+		assertEquals(reference, RouteAvoidance.of(List.of(9L, 12L, 5L, 9L), List.of(TRIANGLE, SQUARE)).fingerprint());
+		assertNotEquals(reference, RouteAvoidance.of(List.of(5L, 9L), List.of(TRIANGLE, SQUARE)).fingerprint());
+		assertNotEquals(reference, RouteAvoidance.of(List.of(5L, 9L, 12L), List.of(TRIANGLE)).fingerprint());
+		// Une zone ne se confond pas avec la liste de tronçons, ni deux zones entre elles
+		assertNotEquals(RouteAvoidance.of(List.of(5L), null).fingerprint(),
+				RouteAvoidance.of(null, List.of(TRIANGLE)).fingerprint());
+	}
+
+	@Test
+	void blockedEdgesAreSkippedByTheRouter() {
+		RoadGraph graph = TestGraphs.grid(4, null);
+		TimeDependentRouter router = new TimeDependentRouter(graph, SpeedProfiles.parse("profile rapide all-00:00=50"));
+		int source = graph.nodeIndex(TestGraphs.nodeId(4, 0, 0));
+		int target = graph.nodeIndex(TestGraphs.nodeId(4, 3, 3));
+		TimeDependentRouter.Path free = router.route(source, target, 0);
+		long firstEdge = graph.edgeId(free.edges()[0]);
+
+		BitSet closed = BlockedEdges.bits(graph, new long[] {firstEdge, 999_999});
+		TimeDependentRouter.Path detour = router.route(source, target, 0, new BlockedEdges(closed, null));
+
+		assertNotNull(detour);
+		for (int edge : detour.edges()) {
+			assertNotEquals(firstEdge, graph.edgeId(edge));
+		}
+		assertTrue(detour.duration() >= free.duration() - 1e-9);
+
+		// Les deux tronçons qui quittent le coin : l'un fermé, l'autre évité par la requête
+		BitSet avoided = new BitSet();
+		for (int arc = graph.firstArc(source); arc < graph.endArc(source); arc++) {
+			if (!closed.get(graph.arcEdge(arc))) {
+				avoided.set(graph.arcEdge(arc));
+			}
+		}
+		assertNull(router.route(source, target, 0, new BlockedEdges(closed, avoided)));
+		assertTrue(new BlockedEdges(new BitSet(), null).isEmpty());
+	}
+
+	@Test
+	void closureMergeIsSortedAndDistinct() {
+		assertArrayEquals(new long[] {1, 3, 4, 8}, ClosureRegistry.merge(new long[] {8, 3, 1}, new long[] {4, 3}));
+	}
+
+	@Test
+	void unconstrainedKeysKeepTheirFormat() {
+		RouteService routeService = routeService();
+		AdaptiveRedisCacheService cacheService =
+				(AdaptiveRedisCacheService) ReflectionTestUtils.getField(routeService, "cacheService");
+		List<Point> points = List.of(new Point(3.848033, 11.502131), new Point(3.866, 11.516));
+		String base = cacheService.generateRouteKey(points.get(0), points.get(1), "driving");
+
+		assertTrue(base.matches("r:30m:[0-9a-z]+:[0-9a-z]+:d"), base);
+		assertEquals(base, routeService.routeCacheKey(points, "driving", ClosureRegistry.Active.NONE));
+		assertEquals(base, routeKey(routeService, RoutingContext.of(points, "driving", "a", "b")));
+		assertEquals(base, routeKey(routeService, RoutingContext.of(points, "driving", "a", "b")
+				.withConstraints(RouteAvoidance.of(List.of(), List.of()), ClosureRegistry.Active.NONE)));
+
+		// Lundi 08:10 à Douala : tranche 32 de 15 minutes, sans suffixe de fermeture ni d'évitement
+		Instant monday = Instant.parse("2024-01-01T07:10:00Z");
+		assertEquals(base + "@w32", routeKey(routeService, RoutingContext.of(points, "driving", "a", "b", monday)));
+
+		ClosureRegistry.Active closures = new ClosureRegistry.Active("k3x", new long[] {42});
+		assertEquals(base + "!ck3x", routeService.routeCacheKey(points, "driving", closures));
+		String avoided = routeKey(routeService, RoutingContext.of(points, "driving", "a", "b")
+				.withConstraints(RouteAvoidance.of(List.of(7L), null), closures));
+		assertTrue(avoided.startsWith(base + "!ck3x!a"), avoided);
+	}
+
+	private static String routeKey(RouteService routeService, RoutingContext context) {
+		return ReflectionTestUtils.invokeMethod(routeService, "routeKey", context);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RouteService routeService() {
+		// Template factice : le test de connexion du constructeur ne part pas sur le réseau
+		ReactiveRedisTemplate<String, Object> template = mock(ReactiveRedisTemplate.class, Answers.RETURNS_DEEP_STUBS);
+		AdaptiveRedisCacheService cacheService = new AdaptiveRedisCacheService(template, Duration.ofHours(1), 1.0, 30,
+				new SimpleMeterRegistry(), Tracer.NOOP);
+		ClosureRegistry closureRegistry = mock(ClosureRegistry.class);
+		when(closureRegistry.active()).thenReturn(ClosureRegistry.Active.NONE);
+
+		RouteService routeService = new RouteService();
+		routeService.bindMetrics(new SimpleMeterRegistry(), Tracer.NOOP);
+		ReflectionTestUtils.setField(routeService, "cacheService", cacheService);
+		ReflectionTestUtils.setField(routeService, "closureRegistry", closureRegistry);
+		ReflectionTestUtils.setField(routeService, "routingZone", ZoneId.of("Africa/Douala"));
+		ReflectionTestUtils.setField(routeService, "departureBucket", Duration.ofMinutes(15));
+		return routeService;
+	}
+}
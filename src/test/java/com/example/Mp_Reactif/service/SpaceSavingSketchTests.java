@@ -0,0 +1,86 @@
+package com.example.Mp_Reactif.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTests {
+
+	private static Map<String, Long> counts(SpaceSavingSketch sketch) {
+		Map<String, Long> totals = new HashMap<>();
+		sketch.mergeInto(totals);
+		return totals;
+	}
+
+	@Test
+	void newItemReplacesMinimumAndInheritsItsCount() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+		for (int i = 0; i < 3; i++) {
+			sketch.offer("a");
+		}
+		sketch.offer("b");
+		sketch.offer("b");
+		sketch.offer("c");
+
+		sketch.offer("d");
+
+		Map<String, Long> totals = counts(sketch);
+		assertEquals(Map.of("a", 3L, "b", 2L, "d", 2L), totals);
+
+		// "b" et "d" à égalité : le prochain nouveau venu évince l'un des deux, jamais "a"
+		sketch.offer("e");
+		totals = counts(sketch);
+		assertEquals(3, totals.size());
+		assertEquals(3L, totals.get("a"));
+		assertEquals(3L, totals.get("e"));
+	}
+
+	@Test
+	void estimatesNeverUnderCountAndOverCountByAtMostStreamLengthOverCapacity() {
+		int capacity = 20;
+		int length = 20_000;
+		SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+		Map<String, Long> exact = new HashMap<>();
+		SplittableRandom random = new SplittableRandom(7);
+		for (int i = 0; i < length; i++) {
+			// Loi de type Zipf : quelques éléments lourds, une longue traîne de 500 éléments
+			int rank = (int) Math.floor(Math.pow(500, random.nextDouble()));
+			String item = "route-" + rank;
+			exact.merge(item, 1L, Long::sum);
+			sketch.offer(item);
+		}
+
+		Map<String, Long> estimates = counts(sketch);
+		assertEquals(capacity, estimates.size());
+		assertEquals(length, estimates.values().stream().mapToLong(Long::longValue).sum());
+		long bound = length / capacity;
+		estimates.forEach((item, estimate) -> {
+			long truth = exact.get(item);
+			assertTrue(estimate >= truth, item + " sous-estimé");
+			assertTrue(estimate - truth <= bound, item + " surestimé de " + (estimate - truth));
+		});
+		// Tout élément plus fréquent que length / capacity est forcément suivi
+		exact.forEach((item, truth) -> {
+			if (truth > bound) {
+				assertTrue(estimates.containsKey(item), item + " absent du sketch");
+			}
+		});
+	}
+
+	@Test
+	void topSortsByDescendingCountAndTruncates() {
+		List<Map<String, Object>> top = SpaceSavingSketch.top(Map.of("a", 1L, "b", 5L, "c", 3L), 2);
+
+		assertEquals(2, top.size());
+		assertEquals("b", top.get(0).get("key"));
+		assertEquals("c", top.get(1).get("key"));
+		assertFalse(top.stream().anyMatch(item -> "a".equals(item.get("key"))));
+	}
+}
@@ -0,0 +1,66 @@
+package com.example.Mp_Reactif.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpeedProfilesTests {
+
+	private static final int SUNDAY_23_00 = 6 * 24 * 60 + 23 * 60;
+
+	private final SpeedProfiles profiles = SpeedProfiles.parse("""
+			# lundi 01:00 et dimanche 23:00 encadrent la fin de semaine
+			profile boucle mon-01:00=20 sun-23:00=40
+			profile fixe tue-08:00=25
+			default boucle
+			edge 7 fixe
+			""");
+
+	@Test
+	void interpolatesAcrossTheWeekBoundary() {
+		assertEquals(40.0, profiles.speedKmh(0, SUNDAY_23_00), 1e-9);
+		// Dimanche 23:30 : un quart de l'intervalle de deux heures jusqu'à lundi 01:00
+		assertEquals(35.0, profiles.speedKmh(0, SUNDAY_23_00 + 30), 1e-9);
+		// Lundi 00:00 : à mi-chemin, atteint par minute 0 comme par MINUTES_PER_WEEK
+		assertEquals(30.0, profiles.speedKmh(0, 0), 1e-9);
+		assertEquals(30.0, profiles.speedKmh(0, SpeedProfiles.MINUTES_PER_WEEK), 1e-9);
+		assertEquals(20.0, profiles.speedKmh(0, SpeedProfiles.MINUTES_PER_WEEK + 60), 1e-9);
+		// Minutes négatives ramenées dans la semaine précédente
+		assertEquals(35.0, profiles.speedKmh(0, -30), 1e-9);
+		// Milieu de semaine : interpolation entre les deux seuls points, de lundi 01:00 à dimanche 23:00
+		double ratio = (3 * 24 * 60 - 60) / (double) (SUNDAY_23_00 - 60);
+		assertEquals(20.0 + 20.0 * ratio, profiles.speedKmh(0, 3 * 24 * 60), 1e-9);
+	}
+
+	@Test
+	void singlePointProfileIsConstant() {
+		for (double minute : new double[] {0, 8 * 60, SUNDAY_23_00 + 59.5, -1, SpeedProfiles.MINUTES_PER_WEEK * 3.5}) {
+			assertEquals(25.0, profiles.speedKmh(1, minute), 1e-9);
+		}
+	}
+
+	@Test
+	void edgesFallBackToDefaultProfile() {
+		assertEquals(1, profiles.profileFor(7));
+		assertEquals(0, profiles.profileFor(8));
+		assertEquals(40.0, profiles.maxSpeedKmh(), 1e-9);
+	}
+
+	@Test
+	void minuteOfWeekStartsOnMondayMidnightInZone() {
+		ZoneId douala = ZoneId.of("Africa/Douala");
+		// Lundi 2024-01-01 00:00 à Douala (UTC+1)
+		assertEquals(0.0, SpeedProfiles.minuteOfWeek(Instant.parse("2023-12-31T23:00:00Z"), douala), 1e-9);
+		assertEquals(SUNDAY_23_00 + 30.5,
+				SpeedProfiles.minuteOfWeek(Instant.parse("2024-01-07T22:30:30Z"), douala), 1e-9);
+	}
+
+	@Test
+	void unknownProfileIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> SpeedProfiles.parse("profile a all-00:00=30\nedge 1 b"));
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.Mp_Reactif.service;
+
+import java.util.SplittableRandom;
+
+/**
+ * Petits graphes construits à la main pour les tests : grille carrée autour de Yaoundé, pas de
+ * 0.001°, nœud (ligne, colonne) d'identifiant ligne * side + colonne + 1, tronçons à double sens
+ * numérotés à partir de 1 (horizontaux puis verticaux, ligne par ligne).
+ */
+final class TestGraphs {
+
+	static final double BASE_LAT = 3.85;
+	static final double BASE_LNG = 11.50;
+	static final double STEP = 0.001;
+
+	private TestGraphs() {
+	}
+
+	static long nodeId(int side, int row, int col) {
+		return (long) row * side + col + 1;
+	}
+
+	static double lat(int row) {
+		return BASE_LAT + row * STEP;
+	}
+
+	static double lng(int col) {
+		return BASE_LNG + col * STEP;
+	}
+
+	// Longueur = distance à vol d'oiseau si random est null, sinon allongée de 0 à 60 %
+	static RoadGraph grid(int side, SplittableRandom random) {
+		RoadGraph.Builder builder = new RoadGraph.Builder();
+		long edgeId = 1;
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				if (col + 1 < side) {
+					add(builder, edgeId++, side, row, col, row, col + 1, random);
+				}
+				if (row + 1 < side) {
+					add(builder, edgeId++, side, row, col, row + 1, col, random);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private static void add(RoadGraph.Builder builder, long edgeId, int side, int row, int col, int toRow, int toCol,
+			SplittableRandom random) {
+		double straight = distanceMeters(lat(row), lng(col), lat(toRow), lng(toCol));
+		double forward = random == null ? straight : straight * (1 + random.nextDouble() * 0.6);
+		double backward = random == null ? straight : straight * (1 + random.nextDouble() * 0.6);
+		builder.add(edgeId, nodeId(side, row, col), nodeId(side, toRow, toCol), forward, backward,
+				lat(row), lng(col), lat(toRow), lng(toCol));
+	}
+
+	static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLng = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+		return EdgeSpatialIndex.EARTH_RADIUS_METERS * Math.sqrt(dLat * dLat + dLng * dLng);
+	}
+}
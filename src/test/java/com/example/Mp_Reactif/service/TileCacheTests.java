@@ -0,0 +1,85 @@
+package com.example.Mp_Reactif.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TileCacheTests {
+
+	// 100 octets gzip + 64 octets de surcoût par entrée : budget de dix tuiles
+	private static final long ENTRY_BYTES = 164;
+	private static final long BUDGET = 10 * ENTRY_BYTES;
+
+	private static TileCache.Tile tile(int size) {
+		return new TileCache.Tile(new byte[size], "\"e" + size + "\"", size, 0);
+	}
+
+	@Test
+	void leastRecentlyReadTilesAreEvictedDownToNinetyPercent() {
+		TileCache cache = new TileCache(BUDGET);
+		for (int key = 0; key < 10; key++) {
+			cache.put(key, tile(100), false);
+		}
+		assertEquals(BUDGET, cache.bytes());
+		assertEquals(0, cache.evictions());
+
+		// Lectures récentes de 0 à 4 : 5 et 6 deviennent les moins récemment utilisées
+		for (int key = 0; key < 5; key++) {
+			assertNotNull(cache.get(key));
+		}
+		cache.put(10, tile(100), false);
+
+		assertEquals(2, cache.evictions());
+		assertEquals(9, cache.size());
+		assertEquals(BUDGET * 9 / 10, cache.bytes());
+		assertNull(cache.get(5));
+		assertNull(cache.get(6));
+		for (int key : new int[] {0, 4, 7, 9, 10}) {
+			assertNotNull(cache.get(key), "tuile " + key);
+		}
+	}
+
+	@Test
+	void pinnedTilesCountInTheBudgetButAreNeverEvicted() {
+		TileCache cache = new TileCache(BUDGET);
+		for (int key = 0; key < 8; key++) {
+			cache.put(key, tile(100), true);
+		}
+		cache.put(8, tile(100), false);
+		cache.put(9, tile(100), false);
+		cache.put(10, tile(100), false);
+
+		// Seules les trois tuiles non épinglées sont candidates : les deux plus anciennes partent
+		assertEquals(2, cache.evictions());
+		assertNull(cache.get(8));
+		assertNull(cache.get(9));
+		assertNotNull(cache.get(10));
+
+		// Budget dépassé par les seules tuiles épinglées : rien d'autre à évincer
+		cache.put(11, tile(100), true);
+		cache.put(12, tile(100), true);
+		cache.put(13, tile(100), true);
+		assertEquals(3, cache.evictions());
+		assertNull(cache.get(10));
+		assertEquals(11 * ENTRY_BYTES, cache.bytes());
+		for (int key : new int[] {0, 7, 11, 12, 13}) {
+			assertNotNull(cache.get(key), "tuile " + key);
+		}
+	}
+
+	@Test
+	void replacingATileAdjustsTheByteCount() {
+		TileCache cache = new TileCache(BUDGET);
+		cache.put(TileCache.key(12, 2150, 1990), tile(100), false);
+		cache.put(TileCache.key(12, 2150, 1990), tile(300), false);
+
+		assertEquals(1, cache.size());
+		assertEquals(364, cache.bytes());
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.bytes());
+	}
+}
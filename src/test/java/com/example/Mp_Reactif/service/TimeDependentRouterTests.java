@@ -0,0 +1,115 @@
+package com.example.Mp_Reactif.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeDependentRouterTests {
+
+	private static final int SIDE = 12;
+
+	// Pointe du lundi au vendredi à 08:00 sur le profil par défaut, profil lent constant ailleurs
+	private static SpeedProfiles profiles(RoadGraph graph, SplittableRandom random) {
+		StringBuilder text = new StringBuilder("""
+				profile rapide all-00:00=50 wkd-07:00=45 wkd-08:00=12 wkd-09:30=40 sun-23:30=30
+				profile lent all-12:00=18
+				default rapide
+				""");
+		for (int e = 0; e < graph.edgeCount(); e++) {
+			if (random.nextInt(4) == 0) {
+				text.append("edge ").append(graph.edgeId(e)).append(" lent\n");
+			}
+		}
+		return SpeedProfiles.parse(text.toString());
+	}
+
+	// Dijkstra dépendant du temps sans heuristique : étiquette = heure d'arrivée en secondes
+	private static double dijkstra(RoadGraph graph, SpeedProfiles profiles, int source, int target,
+			double departureMinute) {
+		double[] arrival = new double[graph.nodeCount()];
+		Arrays.fill(arrival, Double.POSITIVE_INFINITY);
+		boolean[] settled = new boolean[graph.nodeCount()];
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		arrival[source] = 0;
+		queue.add(new double[] {0, source});
+		while (!queue.isEmpty()) {
+			int node = (int) queue.poll()[1];
+			if (settled[node]) {
+				continue;
+			}
+			settled[node] = true;
+			if (node == target) {
+				return arrival[node];
+			}
+			double minute = departureMinute + arrival[node] / 60.0;
+			for (int arc = graph.firstArc(node); arc < graph.endArc(node); arc++) {
+				int head = graph.arcHead(arc);
+				int profile = profiles.profileFor(graph.edgeId(graph.arcEdge(arc)));
+				double reached = arrival[node] + graph.arcLength(arc) / (profiles.speedKmh(profile, minute) / 3.6);
+				if (reached < arrival[head]) {
+					arrival[head] = reached;
+					queue.add(new double[] {reached, head});
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	@Test
+	void aStarMatchesPlainDijkstra() {
+		SplittableRandom random = new SplittableRandom(17);
+		RoadGraph graph = TestGraphs.grid(SIDE, random);
+		SpeedProfiles profiles = profiles(graph, random);
+		TimeDependentRouter router = new TimeDependentRouter(graph, profiles);
+		// Lundi 07:50 (pointe), mercredi 14:00, dimanche 23:55 (le trajet franchit la fin de semaine)
+		double[] departures = {7 * 60 + 50, 2 * 24 * 60 + 14 * 60, SpeedProfiles.MINUTES_PER_WEEK - 5};
+
+		for (int run = 0; run < 60; run++) {
+			int source = random.nextInt(graph.nodeCount());
+			int target = random.nextInt(graph.nodeCount());
+			double departure = departures[run % departures.length];
+
+			TimeDependentRouter.Path path = router.route(source, target, departure);
+
+			assertNotNull(path);
+			double expected = dijkstra(graph, profiles, source, target, departure);
+			assertEquals(expected, path.duration(), 1e-6 * Math.max(1, expected), "trajet " + source + " -> " + target);
+			assertEquals(path.duration(), Arrays.stream(path.seconds()).sum(), 1e-6 * Math.max(1, expected));
+			assertEquals(path.distance(), Arrays.stream(path.lengths()).sum(), 1e-6);
+			assertTrue(path.settledNodes() <= graph.nodeCount());
+		}
+	}
+
+	@Test
+	void departureDuringPeakTakesLonger() {
+		RoadGraph graph = TestGraphs.grid(SIDE, null);
+		SpeedProfiles profiles = SpeedProfiles.parse("profile rapide all-00:00=50 wkd-08:00=12 wkd-09:30=40");
+		TimeDependentRouter router = new TimeDependentRouter(graph, profiles);
+		int source = graph.nodeIndex(TestGraphs.nodeId(SIDE, 0, 0));
+		int target = graph.nodeIndex(TestGraphs.nodeId(SIDE, SIDE - 1, SIDE - 1));
+
+		double night = router.route(source, target, 3 * 60).duration();
+		double peak = router.route(source, target, 8 * 60).duration();
+
+		assertTrue(peak > 2 * night, peak + " vs " + night);
+	}
+
+	@Test
+	void workspaceFollowsGraphSizeOnTheSameThread() {
+		SpeedProfiles profiles = SpeedProfiles.parse("profile rapide all-00:00=50");
+		TimeDependentRouter large = new TimeDependentRouter(TestGraphs.grid(SIDE, null), profiles);
+		TimeDependentRouter small = new TimeDependentRouter(TestGraphs.grid(3, null), profiles);
+
+		int largeTarget = large.graph().nodeCount() - 1;
+		assertNotNull(large.route(0, largeTarget, 0));
+		assertNotNull(small.route(0, small.graph().nodeCount() - 1, 0));
+		assertNotNull(large.route(0, largeTarget, 0));
+		assertEquals(large.route(0, largeTarget, 0).duration(), large.route(0, largeTarget, 0).duration());
+	}
+}
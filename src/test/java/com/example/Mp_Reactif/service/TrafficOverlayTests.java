@@ -0,0 +1,104 @@
+package com.example.Mp_Reactif.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TrafficOverlayTests {
+
+	private static final Duration MAX_AGE = Duration.ofMinutes(15);
+
+	private final AdaptiveRedisCacheService cacheService = mock(AdaptiveRedisCacheService.class);
+	private final ResponseBodyCache responseBodyCache = mock(ResponseBodyCache.class);
+
+	// Vitesse libre 40 km/h, alpha 1 : le facteur suit la dernière observation ; seuil d'invalidation 0,2
+	private TrafficOverlay overlay() {
+		when(cacheService.evict(anyString())).thenReturn(Mono.just(true));
+		return new TrafficOverlay(cacheService, responseBodyCache, 40, 1.0, 0.05, 0.2, MAX_AGE, Duration.ofSeconds(2),
+				2000, 100, Duration.ofHours(73));
+	}
+
+	@Test
+	void factorMovingPastTheDeltaEvictsOnlyRoutesOnThatEdge() {
+		TrafficOverlay overlay = overlay();
+		long now = System.currentTimeMillis();
+		overlay.registerRoute("r:a", new long[] {1, 2});
+		overlay.registerRoute("r:b", new long[] {3, 4});
+		overlay.registerRoute("r:c", new long[] {5});
+
+		// Tronçon 1 à 36 km/h (facteur 0,9) : variation sous le seuil ; tronçon 3 à 20 km/h (0,5)
+		overlay.record(1, 36, now);
+		overlay.record(3, 20, now);
+		TrafficOverlay.Snapshot snapshot = overlay.publish(now);
+
+		assertEquals(0.9, snapshot.factor(1), 1e-6);
+		assertEquals(0.5, snapshot.factor(3), 1e-6);
+		assertEquals(1.0, snapshot.factor(5));
+		verify(cacheService).evict("r:b");
+		verify(cacheService, never()).evict("r:a");
+		verify(cacheService, never()).evict("r:c");
+		verify(responseBodyCache).invalidate(Set.of("r:b"));
+
+		// Tronçon 1 ralenti à 20 km/h : 0,9 -> 0,5 dépasse le seuil
+		overlay.record(1, 20, now);
+		overlay.publish(now + 2_000);
+
+		verify(cacheService).evict("r:a");
+		verify(cacheService, never()).evict("r:c");
+		assertEquals(1, overlay.getStats().get("indexed_routes"));
+		assertEquals(2L, overlay.getStats().get("invalidated_routes"));
+	}
+
+	@Test
+	void expiredObservationFallsBackToFreeFlowAndInvalidates() {
+		TrafficOverlay overlay = overlay();
+		long now = System.currentTimeMillis();
+		overlay.registerRoute("r:a", new long[] {5});
+		overlay.record(5, 8, now);
+
+		assertEquals(0.2, overlay.publish(now).factor(5), 1e-6);
+		verify(cacheService).evict("r:a");
+
+		// Itinéraire recalculé sous trafic puis observation périmée : retour au facteur 1
+		overlay.registerRoute("r:a", new long[] {5});
+		TrafficOverlay.Snapshot expired = overlay.publish(now + MAX_AGE.toMillis() + 1);
+
+		assertEquals(0, expired.edges().length);
+		assertEquals(1.0, expired.factor(5));
+		verify(cacheService, times(2)).evict("r:a");
+		verify(responseBodyCache, times(2)).invalidate(Set.of("r:a"));
+	}
+
+	@Test
+	void reRegisteringARouteDetachesItsOldEdges() {
+		TrafficOverlay overlay = overlay();
+		long now = System.currentTimeMillis();
+		overlay.registerRoute("r:a", new long[] {1, 2});
+		overlay.registerRoute("r:a", new long[] {3});
+
+		overlay.record(1, 4, now);
+		overlay.record(2, 4, now);
+		overlay.publish(now);
+
+		verify(cacheService, never()).evict(anyString());
+		verifyNoInteractions(responseBodyCache);
+
+		overlay.record(3, 4, now);
+		overlay.publish(now + 2_000);
+
+		verify(cacheService).evict("r:a");
+		assertTrue(overlay.current().factor(3) < 0.2);
+	}
+}